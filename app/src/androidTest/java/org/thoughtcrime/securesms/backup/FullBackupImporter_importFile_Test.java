@@ -0,0 +1,151 @@
+package org.thoughtcrime.securesms.backup;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.thoughtcrime.securesms.crypto.AttachmentSecret;
+import org.thoughtcrime.securesms.crypto.IdentityKeyUtil;
+import org.thoughtcrime.securesms.database.GroupDatabase;
+import org.thoughtcrime.securesms.database.MmsDatabase;
+import org.thoughtcrime.securesms.database.RecipientDatabase;
+import org.thoughtcrime.securesms.database.SearchDatabase;
+import org.thoughtcrime.securesms.database.SmsDatabase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Exports a database with the recipient and group search indexes, restores it into a fresh one, and
+ * checks the restored indexes hold each row once.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class FullBackupImporter_importFile_Test {
+
+  private static final String SOURCE_DATABASE_NAME = "backup_source_test.db";
+  private static final String TARGET_DATABASE_NAME = "backup_target_test.db";
+  private static final String BACKUP_FILE_NAME     = "backup_test.backup";
+  private static final String PASSWORD             = "test";
+  private static final String PASSPHRASE           = "000000000000000000000000000000";
+
+  private Context        context;
+  private File           sourceFile;
+  private File           targetFile;
+  private File           backupFile;
+  private SQLiteDatabase source;
+  private SQLiteDatabase target;
+
+  @Before
+  public void setUp() {
+    context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+    SQLiteDatabase.loadLibs(context);
+
+    // The exporter always writes the identity key preferences
+    if (!IdentityKeyUtil.hasIdentityKey(context)) {
+      IdentityKeyUtil.generateIdentityKeys(context);
+    }
+
+    sourceFile = context.getDatabasePath(SOURCE_DATABASE_NAME);
+    targetFile = context.getDatabasePath(TARGET_DATABASE_NAME);
+    backupFile = new File(context.getCacheDir(), BACKUP_FILE_NAME);
+
+    deleteDatabase(sourceFile);
+    deleteDatabase(targetFile);
+    backupFile.delete();
+
+    source = createDatabase(sourceFile);
+    target = createDatabase(targetFile);
+
+    for (int i = 1; i <= 10; i++) {
+      ContentValues recipient = new ContentValues();
+      recipient.put(RecipientDatabase.PHONE, "+1555000000" + (i - 1));
+      recipient.put(RecipientDatabase.SYSTEM_DISPLAY_NAME, (i % 2 == 0 ? "Alice " : "Bob ") + i);
+      source.insert("recipient", null, recipient);
+
+      ContentValues group = new ContentValues();
+      group.put("group_id", "__textsecure_group__!" + i);
+      group.put("recipient_id", i);
+      group.put("title", (i % 2 == 0 ? "Climbing " : "Book club ") + i);
+      source.insert("groups", null, group);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    source.close();
+    target.close();
+
+    deleteDatabase(sourceFile);
+    deleteDatabase(targetFile);
+    backupFile.delete();
+  }
+
+  @Test
+  public void importFile_restoresSearchIndexesOnce() throws IOException {
+    AttachmentSecret attachmentSecret = new AttachmentSecret(new byte[32], new byte[32], new byte[32]);
+
+    FullBackupExporter.export(context, attachmentSecret, source, backupFile, PASSPHRASE);
+    FullBackupImporter.importFile(context, attachmentSecret, target, backupFile, PASSPHRASE);
+
+    checkIntegrity(SearchDatabase.RECIPIENT_FTS_TABLE_NAME);
+    checkIntegrity(SearchDatabase.GROUP_FTS_TABLE_NAME);
+
+    assertEquals(Arrays.asList(2L, 4L, 6L, 8L, 10L), match(SearchDatabase.RECIPIENT_FTS_TABLE_NAME, "alice*"));
+    assertEquals(Arrays.asList(1L, 3L, 5L, 7L, 9L), match(SearchDatabase.GROUP_FTS_TABLE_NAME, "book*"));
+  }
+
+  private SQLiteDatabase createDatabase(File file) {
+    SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, PASSWORD, null);
+
+    db.execSQL(SmsDatabase.CREATE_TABLE);
+    db.execSQL(MmsDatabase.CREATE_TABLE);
+    db.execSQL(RecipientDatabase.CREATE_TABLE);
+    db.execSQL(GroupDatabase.CREATE_TABLE);
+
+    for (String statement : SearchDatabase.CREATE_TABLE) {
+      db.execSQL(statement);
+    }
+
+    return db;
+  }
+
+  /**
+   * Throws if the index does not match its content table, which catches rows indexed twice.
+   */
+  private void checkIntegrity(String table) {
+    target.execSQL("INSERT INTO " + table + "(" + table + ") VALUES('integrity-check')");
+  }
+
+  private List<Long> match(String table, String query) {
+    List<Long> rowIds = new ArrayList<>();
+
+    try (Cursor cursor = target.rawQuery("SELECT rowid FROM " + table + " WHERE " + table + " MATCH ? ORDER BY rowid", new String[] { query })) {
+      while (cursor.moveToNext()) {
+        rowIds.add(cursor.getLong(0));
+      }
+    }
+
+    return rowIds;
+  }
+
+  private static void deleteDatabase(File file) {
+    for (String suffix : new String[] { "", "-journal", "-wal", "-shm" }) {
+      new File(file.getPath() + suffix).delete();
+    }
+  }
+}
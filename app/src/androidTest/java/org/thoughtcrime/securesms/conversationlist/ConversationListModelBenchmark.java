@@ -0,0 +1,181 @@
+package org.thoughtcrime.securesms.conversationlist;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.thoughtcrime.securesms.conversationlist.model.Conversation;
+import org.thoughtcrime.securesms.database.model.ThreadRecord;
+import org.thoughtcrime.securesms.recipients.Recipient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Replays bursts of incoming messages, mostly to a few busy groups, against a thread list. Each
+ * burst is applied to a {@link ConversationListModel} either as per-thread changes or by replacing
+ * the whole list, as a full reload would. Reports the time for each and the number of rows that
+ * differ between consecutive snapshots, which is what the adapter rebinds.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class ConversationListModelBenchmark {
+
+  private static final String TAG = ConversationListModelBenchmark.class.getSimpleName();
+
+  private static final int THREADS            = 500;
+  private static final int PINNED             = 4;
+  private static final int BUSY_THREADS       = 20;
+  private static final int BURSTS             = 200;
+  private static final int MESSAGES_PER_BURST = 50;
+  private static final int BUSY_PERCENT       = 80;
+
+  @Test
+  public void replayBurstyTraffic() {
+    Map<Long, ThreadRecord> threads = new HashMap<>(THREADS);
+
+    for (long threadId = 1; threadId <= THREADS; threadId++) {
+      threads.put(threadId, thread(threadId, threadId * 1000, 0));
+    }
+
+    ConversationListModel deltaModel = new ConversationListModel(false);
+    ConversationListModel fullModel  = new ConversationListModel(false);
+
+    deltaModel.setThreads(sorted(threads), 0);
+    fullModel.setThreads(sorted(threads), 0);
+
+    Random             random      = new Random(1);
+    long               now         = (THREADS + 1) * 1000;
+    long               deltaNanos  = 0;
+    long               fullNanos   = 0;
+    long               changedRows = 0;
+    List<Conversation> previous    = deltaModel.getSnapshot().getConversations();
+
+    for (int burst = 0; burst < BURSTS; burst++) {
+      Set<Long> changed = new HashSet<>();
+
+      for (int message = 0; message < MESSAGES_PER_BURST; message++) {
+        long threadId = random.nextInt(100) < BUSY_PERCENT ? 1 + random.nextInt(BUSY_THREADS)
+                                                           : 1 + random.nextInt(THREADS);
+        ThreadRecord current = threads.get(threadId);
+
+        now += 1000;
+        threads.put(threadId, thread(threadId, now, current.getUnreadCount() + 1));
+        changed.add(threadId);
+      }
+
+      Map<Long, ThreadRecord> listed = new HashMap<>(changed.size());
+      for (long threadId : changed) {
+        listed.put(threadId, threads.get(threadId));
+      }
+
+      long deltaStart = System.nanoTime();
+      deltaModel.applyChanges(changed, listed, 0);
+      List<Conversation> next = deltaModel.getSnapshot().getConversations();
+      deltaNanos += System.nanoTime() - deltaStart;
+
+      long fullStart = System.nanoTime();
+      fullModel.setThreads(sorted(threads), 0);
+      fullModel.getSnapshot();
+      fullNanos += System.nanoTime() - fullStart;
+
+      changedRows += countChangedRows(previous, next);
+      previous     = next;
+    }
+
+    assertEquals(fullModel.getSnapshot().getConversations(), deltaModel.getSnapshot().getConversations());
+
+    Log.i(TAG, String.format(Locale.US, "[%d threads, %d bursts of %d messages] per-thread changes: %.3f ms/burst, full reload: %.3f ms/burst, rows rebound: %.1f/burst",
+                             THREADS,
+                             BURSTS,
+                             MESSAGES_PER_BURST,
+                             deltaNanos / 1_000_000d / BURSTS,
+                             fullNanos / 1_000_000d / BURSTS,
+                             changedRows / (double) BURSTS));
+  }
+
+  private static int countChangedRows(List<Conversation> oldList, List<Conversation> newList) {
+    int[] count = new int[1];
+
+    DiffUtil.calculateDiff(new DiffUtil.Callback() {
+      @Override
+      public int getOldListSize() {
+        return oldList.size();
+      }
+
+      @Override
+      public int getNewListSize() {
+        return newList.size();
+      }
+
+      @Override
+      public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        return oldList.get(oldItemPosition).getThreadRecord().getThreadId() == newList.get(newItemPosition).getThreadRecord().getThreadId();
+      }
+
+      @Override
+      public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        return oldList.get(oldItemPosition).equals(newList.get(newItemPosition));
+      }
+    }).dispatchUpdatesTo(new ListUpdateCallback() {
+      @Override
+      public void onInserted(int position, int rows) {
+        count[0] += rows;
+      }
+
+      @Override
+      public void onRemoved(int position, int rows) {
+      }
+
+      @Override
+      public void onMoved(int fromPosition, int toPosition) {
+      }
+
+      @Override
+      public void onChanged(int position, int rows, @Nullable Object payload) {
+        count[0] += rows;
+      }
+    });
+
+    return count[0];
+  }
+
+  private static List<ThreadRecord> sorted(Map<Long, ThreadRecord> threads) {
+    List<ThreadRecord> pinned   = new ArrayList<>(PINNED);
+    List<ThreadRecord> unpinned = new ArrayList<>(threads.size());
+
+    for (ThreadRecord thread : threads.values()) {
+      if (thread.isPinned()) pinned.add(thread);
+      else                   unpinned.add(thread);
+    }
+
+    Collections.sort(pinned, (a, b) -> Long.compare(b.getDate(), a.getDate()));
+    Collections.sort(unpinned, (a, b) -> Long.compare(b.getDate(), a.getDate()));
+
+    pinned.addAll(unpinned);
+
+    return pinned;
+  }
+
+  private static ThreadRecord thread(long threadId, long date, int unreadCount) {
+    return new ThreadRecord.Builder(threadId).setBody("Message " + date)
+                                             .setRecipient(Recipient.UNKNOWN)
+                                             .setDate(date)
+                                             .setUnreadCount(unreadCount)
+                                             .setPinned(threadId > THREADS - PINNED)
+                                             .build();
+  }
+}
@@ -0,0 +1,140 @@
+package org.thoughtcrime.securesms.database;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.thoughtcrime.securesms.attachments.AttachmentId;
+import org.thoughtcrime.securesms.attachments.UriAttachment;
+import org.thoughtcrime.securesms.mms.MmsException;
+import org.thoughtcrime.securesms.mms.PartAuthority;
+import org.thoughtcrime.securesms.providers.BlobProvider;
+import org.thoughtcrime.securesms.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks which inserted attachments share a data file, using pre-upload attachments so no message is
+ * needed, and deleting every attachment inserted once done.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class AttachmentDatabaseTest {
+
+  private static final int SIZE = 64 * 1024;
+
+  private final List<AttachmentId> inserted = new LinkedList<>();
+
+  private Context            context;
+  private AttachmentDatabase attachmentDatabase;
+  private Random             random;
+
+  @Before
+  public void setUp() {
+    context            = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    attachmentDatabase = DatabaseFactory.getAttachmentDatabase(context);
+    random             = new Random(System.nanoTime());
+  }
+
+  @After
+  public void tearDown() {
+    for (AttachmentId id : inserted) {
+      attachmentDatabase.deleteAttachment(id);
+    }
+  }
+
+  @Test
+  public void forwardingAnAttachmentUri_sharesTheSourceFileWithoutRewritingIt() throws Exception {
+    byte[]       data   = randomData();
+    AttachmentId source = insert(blobFor(data), data.length);
+    File         file   = new File(attachmentDatabase.getDataFilePath(source));
+
+    assertTrue(file.setLastModified(file.lastModified() - 60_000));
+
+    long lastModified = file.lastModified();
+    int  fileCount    = countDataFiles();
+
+    AttachmentId forwarded = insert(PartAuthority.getAttachmentDataUri(source), data.length);
+
+    assertNotEquals(source, forwarded);
+    assertEquals(file.getAbsolutePath(), attachmentDatabase.getDataFilePath(forwarded));
+    assertEquals(lastModified, file.lastModified());
+    assertEquals(fileCount, countDataFiles());
+    assertArrayEquals(data, read(forwarded));
+  }
+
+  @Test
+  public void sameSizeDifferentContent_getsItsOwnFile() throws Exception {
+    byte[] first  = randomData();
+    byte[] second = randomData();
+
+    AttachmentId firstId  = insert(blobFor(first), first.length);
+    AttachmentId secondId = insert(blobFor(second), second.length);
+
+    assertNotEquals(attachmentDatabase.getDataFilePath(firstId), attachmentDatabase.getDataFilePath(secondId));
+    assertArrayEquals(first, read(firstId));
+    assertArrayEquals(second, read(secondId));
+  }
+
+  @Test
+  public void sameContent_sharesOneFile_untilTheLastRowIsDeleted() throws Exception {
+    byte[] data = randomData();
+
+    AttachmentId firstId  = insert(blobFor(data), data.length);
+    AttachmentId secondId = insert(blobFor(data), data.length);
+    String       path     = attachmentDatabase.getDataFilePath(firstId);
+
+    assertNotNull(path);
+    assertEquals(path, attachmentDatabase.getDataFilePath(secondId));
+
+    attachmentDatabase.deleteAttachment(firstId);
+
+    assertTrue(new File(path).exists());
+    assertArrayEquals(data, read(secondId));
+  }
+
+  private AttachmentId insert(Uri uri, long size) throws MmsException {
+    UriAttachment attachment = new UriAttachment(uri, "application/octet-stream", AttachmentDatabase.TRANSFER_PROGRESS_DONE, size, null, false, false, false, null, null, null, null, AttachmentDatabase.TransformProperties.empty());
+    AttachmentId  id         = attachmentDatabase.insertAttachmentForPreUpload(attachment).getAttachmentId();
+
+    inserted.add(id);
+    return id;
+  }
+
+  private byte[] randomData() {
+    byte[] data = new byte[SIZE];
+    random.nextBytes(data);
+    return data;
+  }
+
+  private static Uri blobFor(byte[] data) {
+    return BlobProvider.getInstance().forData(data).createForSingleSessionInMemory();
+  }
+
+  private byte[] read(AttachmentId id) throws IOException {
+    try (InputStream in = attachmentDatabase.getAttachmentStream(id, 0)) {
+      return Util.readFully(in);
+    }
+  }
+
+  private int countDataFiles() {
+    String[] files = context.getDir(AttachmentDatabase.DIRECTORY, Context.MODE_PRIVATE).list();
+    return files != null ? files.length : 0;
+  }
+}
@@ -0,0 +1,152 @@
+package org.thoughtcrime.securesms.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.thoughtcrime.securesms.recipients.RecipientId;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Generates threads with many messages sharing dates and senders, then checks every indexed
+ * position lookup against walking the thread's sms and mms messages in conversation order.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class MmsSmsDatabase_getPositionInConversation_Test {
+
+  private static final String DATABASE_NAME = "message_position_test.db";
+  private static final String PASSWORD      = "test";
+  private static final int    THREADS       = 3;
+  private static final int    MESSAGES      = 400;
+  private static final int    SENDERS       = 3;
+
+  private File           file;
+  private SQLiteDatabase db;
+
+  @Before
+  public void setUp() {
+    Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+    SQLiteDatabase.loadLibs(context);
+
+    file = context.getDatabasePath(DATABASE_NAME);
+    deleteDatabase();
+
+    db = SQLiteDatabase.openOrCreateDatabase(file, PASSWORD, null);
+
+    db.execSQL(SmsDatabase.CREATE_TABLE);
+    db.execSQL(MmsDatabase.CREATE_TABLE);
+    db.execSQL(MmsSmsDatabase.CREATE_TABLE);
+
+    for (String statement : MmsSmsDatabase.CREATE_INDEXS) {
+      db.execSQL(statement);
+    }
+
+    for (String statement : MmsSmsDatabase.CREATE_TRIGGERS) {
+      db.execSQL(statement);
+    }
+
+    Random random = new Random(1);
+
+    for (long threadId = 1; threadId <= THREADS; threadId++) {
+      for (int i = 0; i < MESSAGES; i++) {
+        long dateReceived = random.nextInt(MESSAGES / 4);
+        long dateSent     = random.nextInt(MESSAGES / 4);
+        long sender       = 1 + random.nextInt(SENDERS);
+
+        if (random.nextBoolean()) {
+          ContentValues values = new ContentValues();
+          values.put(SmsDatabase.THREAD_ID, threadId);
+          values.put(SmsDatabase.DATE_RECEIVED, dateReceived);
+          values.put(SmsDatabase.DATE_SENT, dateSent);
+          values.put(SmsDatabase.RECIPIENT_ID, sender);
+          db.insert(SmsDatabase.TABLE_NAME, null, values);
+        } else {
+          ContentValues values = new ContentValues();
+          values.put(MmsDatabase.THREAD_ID, threadId);
+          values.put(MmsDatabase.DATE_RECEIVED, dateReceived);
+          values.put(MmsDatabase.DATE_SENT, dateSent);
+          values.put(MmsDatabase.RECIPIENT_ID, sender);
+          db.insert(MmsDatabase.TABLE_NAME, null, values);
+        }
+      }
+    }
+
+    db.delete(SmsDatabase.TABLE_NAME, SmsDatabase.ID + " % 7 = 0", null);
+    db.delete(MmsDatabase.TABLE_NAME, MmsDatabase.ID + " % 11 = 0", null);
+    db.execSQL("UPDATE " + SmsDatabase.TABLE_NAME + " SET " + SmsDatabase.DATE_RECEIVED + " = " + SmsDatabase.DATE_RECEIVED + " + 1 WHERE " + SmsDatabase.ID + " % 5 = 0");
+    db.execSQL("UPDATE " + MmsDatabase.TABLE_NAME + " SET " + MmsDatabase.THREAD_ID + " = 1 WHERE " + MmsDatabase.ID + " % 13 = 0");
+  }
+
+  @After
+  public void tearDown() {
+    db.close();
+    deleteDatabase();
+  }
+
+  @Test
+  public void getPositionInConversation_matchesWalkingTheConversation() {
+    for (long threadId = 1; threadId <= THREADS + 1; threadId++) {
+      for (long date = -1; date <= MESSAGES / 4 + 1; date++) {
+        for (long sender = 0; sender <= SENDERS; sender++) {
+          RecipientId recipientId = sender == 0 ? null : RecipientId.from(sender);
+
+          assertEquals("received " + date + " in " + threadId + " from " + recipientId,
+                       walkConversation(threadId, MmsSmsColumns.NORMALIZED_DATE_RECEIVED, date, recipientId),
+                       MmsSmsDatabase.getPositionInConversation(db, threadId, MmsSmsColumns.NORMALIZED_DATE_RECEIVED, date, recipientId));
+
+          assertEquals("sent " + date + " in " + threadId + " from " + recipientId,
+                       walkConversation(threadId, MmsSmsColumns.NORMALIZED_DATE_SENT, date, recipientId),
+                       MmsSmsDatabase.getPositionInConversation(db, threadId, MmsSmsColumns.NORMALIZED_DATE_SENT, date, recipientId));
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the thread straight from the sms and mms tables, in the order of
+   * {@link MmsSmsDatabase#getConversation(long)}, and returns the position of the first match.
+   */
+  private int walkConversation(long threadId, String dateColumn, long date, @Nullable RecipientId sender) {
+    String query = "SELECT * FROM (" +
+                     "SELECT " + SmsDatabase.DATE_RECEIVED + " AS " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + ", " + SmsDatabase.DATE_SENT + " AS " + MmsSmsColumns.NORMALIZED_DATE_SENT + ", " + SmsDatabase.RECIPIENT_ID + ", '" + MmsSmsDatabase.SMS_TRANSPORT + "' AS " + MmsSmsDatabase.TRANSPORT + ", " + SmsDatabase.ID + " " +
+                     "FROM " + SmsDatabase.TABLE_NAME + " WHERE " + SmsDatabase.THREAD_ID + " = " + threadId + " " +
+                     "UNION ALL " +
+                     "SELECT " + MmsDatabase.DATE_RECEIVED + " AS " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + ", " + MmsDatabase.DATE_SENT + " AS " + MmsSmsColumns.NORMALIZED_DATE_SENT + ", " + MmsDatabase.RECIPIENT_ID + ", '" + MmsSmsDatabase.MMS_TRANSPORT + "' AS " + MmsSmsDatabase.TRANSPORT + ", " + MmsDatabase.ID + " " +
+                     "FROM " + MmsDatabase.TABLE_NAME + " WHERE " + MmsDatabase.THREAD_ID + " = " + threadId +
+                   ") ORDER BY " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " DESC, " + MmsSmsDatabase.TRANSPORT + " DESC, " + MmsSmsColumns.ID + " DESC";
+
+    try (Cursor cursor = db.rawQuery(query, null)) {
+      while (cursor.moveToNext()) {
+        boolean dateMatches   = cursor.getLong(cursor.getColumnIndexOrThrow(dateColumn)) == date;
+        boolean senderMatches = sender == null || cursor.getLong(cursor.getColumnIndexOrThrow(MmsSmsColumns.RECIPIENT_ID)) == sender.toLong();
+
+        if (dateMatches && senderMatches) {
+          return cursor.getPosition();
+        }
+      }
+    }
+
+    return -1;
+  }
+
+  private void deleteDatabase() {
+    for (String suffix : new String[] { "", "-journal", "-wal", "-shm" }) {
+      new File(file.getPath() + suffix).delete();
+    }
+  }
+}
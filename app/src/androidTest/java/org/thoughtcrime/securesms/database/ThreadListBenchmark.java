@@ -0,0 +1,239 @@
+package org.thoughtcrime.securesms.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Builds an inbox of 5k threads and one long thread, then times the conversation list page and
+ * count queries with and without {@link ThreadDatabase#THREAD_LIST_INDEX}, and the snippet lookup
+ * done on every thread refresh, both over the whole thread and with the newest date found first.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class ThreadListBenchmark {
+
+  private static final String TAG = ThreadListBenchmark.class.getSimpleName();
+
+  private static final String DATABASE_NAME    = "thread_list_benchmark.db";
+  private static final String PASSWORD         = "benchmark";
+  private static final int    THREADS          = 5_000;
+  private static final int    PINNED           = 10;
+  private static final int    ARCHIVED         = 300;
+  private static final int    PAGE_SIZE        = 50;
+  private static final int    LONG_THREAD_MMS  = 20_000;
+  private static final long   LONG_THREAD_ID   = 1;
+  private static final int    RUNS             = 20;
+
+  private static final String PAGE_QUERY = "SELECT thread.*, recipient.*, groups.* FROM thread " +
+                                           "LEFT OUTER JOIN recipient ON thread.recipient_ids = recipient._id " +
+                                           "LEFT OUTER JOIN groups ON thread.recipient_ids = groups.recipient_id " +
+                                           "WHERE archived = 0 AND message_count != 0 AND pinned = ? " +
+                                           "ORDER BY thread.date DESC LIMIT " + PAGE_SIZE;
+
+  private static final String COUNT_QUERY = "SELECT COUNT(*) FROM thread WHERE archived = 0 AND message_count != 0";
+
+  private static final String SNIPPET_QUERY = "SELECT mms._id, mms.date_received, json_group_array(json_object('_id', part._id, 'ct', part.ct)) " +
+                                              "FROM mms LEFT OUTER JOIN part ON part.mid = mms._id " +
+                                              "WHERE mms.thread_id = ? %s GROUP BY mms._id ORDER BY mms.date_received DESC LIMIT 1";
+
+  private File           file;
+  private SQLiteDatabase db;
+
+  @Before
+  public void setUp() {
+    Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+    SQLiteDatabase.loadLibs(context);
+
+    file = context.getDatabasePath(DATABASE_NAME);
+    deleteDatabase();
+
+    db = SQLiteDatabase.openOrCreateDatabase(file, PASSWORD, null);
+
+    db.execSQL(ThreadDatabase.CREATE_TABLE);
+    db.execSQL(RecipientDatabase.CREATE_TABLE);
+    db.execSQL(GroupDatabase.CREATE_TABLE);
+    db.execSQL(MmsDatabase.CREATE_TABLE);
+    db.execSQL(AttachmentDatabase.CREATE_TABLE);
+
+    executeStatements(RecipientDatabase.CREATE_INDEXS);
+    executeStatements(GroupDatabase.CREATE_INDEXS);
+    executeStatements(MmsDatabase.CREATE_INDEXS);
+    executeStatements(AttachmentDatabase.CREATE_INDEXS);
+
+    for (String statement : ThreadDatabase.CREATE_INDEXS) {
+      if (!statement.equals(ThreadDatabase.THREAD_LIST_INDEX)) {
+        db.execSQL(statement);
+      }
+    }
+
+    Random random = new Random(1);
+
+    db.beginTransaction();
+    try {
+      for (int i = 1; i <= THREADS; i++) {
+        ContentValues recipient = new ContentValues();
+        recipient.put("_id", i);
+        recipient.put("phone", "+1555" + String.format(Locale.US, "%07d", i));
+        db.insert("recipient", null, recipient);
+
+        ContentValues thread = new ContentValues();
+        thread.put("_id", i);
+        thread.put("recipient_ids", i);
+        thread.put("date", Math.abs(random.nextLong() % 1_000_000_000L));
+        thread.put("message_count", i % 20 == 0 ? 0 : 1 + random.nextInt(500));
+        thread.put("snippet", "Snippet " + i);
+        thread.put("pinned", i <= PINNED ? 1 : 0);
+        thread.put("archived", i > THREADS - ARCHIVED ? 1 : 0);
+        db.insert("thread", null, thread);
+      }
+
+      for (int i = 0; i < LONG_THREAD_MMS; i++) {
+        ContentValues mms = new ContentValues();
+        mms.put("thread_id", LONG_THREAD_ID);
+        mms.put("date", i);
+        mms.put("date_received", i);
+        mms.put("body", "Message " + i);
+        long mmsId = db.insert("mms", null, mms);
+
+        ContentValues part = new ContentValues();
+        part.put("mid", mmsId);
+        part.put("ct", "image/jpeg");
+        db.insert("part", null, part);
+      }
+
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+  }
+
+  @After
+  public void tearDown() {
+    db.close();
+    deleteDatabase();
+  }
+
+  @Test
+  public void threadList() {
+    double pageBefore  = median(this::timePage);
+    double countBefore = median(this::timeCount);
+
+    db.execSQL(ThreadDatabase.THREAD_LIST_INDEX);
+    db.execSQL("ANALYZE");
+
+    double pageAfter  = median(this::timePage);
+    double countAfter = median(this::timeCount);
+
+    Log.i(TAG, String.format(Locale.US, "[%d threads] page: %.2f ms -> %.2f ms, count: %.2f ms -> %.2f ms (median of %d)",
+                             THREADS, pageBefore, pageAfter, countBefore, countAfter, RUNS));
+  }
+
+  @Test
+  public void snippet() {
+    double wholeThread = median(() -> timeSnippet(false));
+    double newestFirst = median(() -> timeSnippet(true));
+
+    Log.i(TAG, String.format(Locale.US, "[%d messages] snippet over whole thread: %.2f ms, newest date first: %.2f ms (median of %d)",
+                             LONG_THREAD_MMS, wholeThread, newestFirst, RUNS));
+  }
+
+  private long timePage() {
+    long start = System.nanoTime();
+
+    try (Cursor cursor = db.rawQuery(PAGE_QUERY, new String[] { "0" })) {
+      int rows = 0;
+      while (cursor.moveToNext()) rows++;
+      assertEquals(PAGE_SIZE, rows);
+    }
+
+    return System.nanoTime() - start;
+  }
+
+  private long timeCount() {
+    long start = System.nanoTime();
+
+    try (Cursor cursor = db.rawQuery(COUNT_QUERY, null)) {
+      cursor.moveToFirst();
+      cursor.getInt(0);
+    }
+
+    return System.nanoTime() - start;
+  }
+
+  private long timeSnippet(boolean newestDateFirst) {
+    long     start = System.nanoTime();
+    String   query;
+    String[] args;
+
+    if (newestDateFirst) {
+      long date;
+
+      try (Cursor cursor = db.query("mms", new String[] { "date_received" }, "thread_id = ?", new String[] { String.valueOf(LONG_THREAD_ID) }, null, null, "date_received DESC", "1")) {
+        cursor.moveToFirst();
+        date = cursor.getLong(0);
+      }
+
+      query = String.format(Locale.US, SNIPPET_QUERY, "AND mms.date_received = ?");
+      args  = new String[] { String.valueOf(LONG_THREAD_ID), String.valueOf(date) };
+    } else {
+      query = String.format(Locale.US, SNIPPET_QUERY, "");
+      args  = new String[] { String.valueOf(LONG_THREAD_ID) };
+    }
+
+    try (Cursor cursor = db.rawQuery(query, args)) {
+      cursor.moveToFirst();
+      assertEquals(LONG_THREAD_MMS - 1, cursor.getLong(1));
+    }
+
+    return System.nanoTime() - start;
+  }
+
+  private static double median(Timer timer) {
+    List<Long> times = new ArrayList<>(RUNS);
+
+    for (int i = 0; i < RUNS; i++) {
+      times.add(timer.time());
+    }
+
+    Collections.sort(times);
+
+    return times.get(RUNS / 2) / 1_000_000d;
+  }
+
+  private void executeStatements(String[] statements) {
+    for (String statement : statements) {
+      db.execSQL(statement);
+    }
+  }
+
+  private void deleteDatabase() {
+    for (String suffix : new String[] { "", "-journal", "-wal", "-shm" }) {
+      new File(file.getPath() + suffix).delete();
+    }
+  }
+
+  private interface Timer {
+    long time();
+  }
+}
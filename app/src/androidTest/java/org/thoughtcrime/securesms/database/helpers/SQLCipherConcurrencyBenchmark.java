@@ -0,0 +1,218 @@
+package org.thoughtcrime.securesms.database.helpers;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs a flood of write transactions, like a burst of incoming messages, while other threads page
+ * through a conversation and count unread messages the way the UI does. Reports read latencies with
+ * a single rollback-journal connection and with WAL plus {@link SQLCipherReaderPool}.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class SQLCipherConcurrencyBenchmark {
+
+  private static final String TAG = SQLCipherConcurrencyBenchmark.class.getSimpleName();
+
+  private static final String DATABASE_NAME          = "concurrency_benchmark.db";
+  private static final String PASSWORD               = "benchmark";
+  private static final int    CONVERSATIONS          = 20;
+  private static final int    SEED_MESSAGES          = 5000;
+  private static final int    WRITE_TRANSACTIONS     = 300;
+  private static final int    WRITES_PER_TRANSACTION = 50;
+  private static final int    READER_THREADS         = 2;
+
+  private File file;
+
+  @Before
+  public void setUp() {
+    Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+    SQLiteDatabase.loadLibs(context);
+
+    file = context.getDatabasePath(DATABASE_NAME);
+    deleteDatabase();
+  }
+
+  @After
+  public void tearDown() {
+    deleteDatabase();
+  }
+
+  @Test
+  public void rollbackJournal_singleConnection() throws Exception {
+    SQLiteDatabase writer = open(false);
+
+    try {
+      run("rollback", writer, () -> writer);
+    } finally {
+      writer.close();
+    }
+  }
+
+  @Test
+  public void wal_readerPool() throws Exception {
+    SQLiteDatabase      writer  = open(true);
+    SQLCipherReaderPool readers = new SQLCipherReaderPool(file, PASSWORD, SQLCipherOpenHelper.CIPHER_HOOK, 3);
+
+    try {
+      run("wal", writer, readers::get);
+    } finally {
+      readers.close();
+      writer.close();
+    }
+  }
+
+  private void run(String name, SQLiteDatabase writer, Readers readers) throws Exception {
+    AtomicBoolean  writing     = new AtomicBoolean(true);
+    CountDownLatch readersDone = new CountDownLatch(READER_THREADS);
+    List<Long>     latencies   = Collections.synchronizedList(new ArrayList<>());
+
+    for (int i = 0; i < READER_THREADS; i++) {
+      final boolean paging = i % 2 == 0;
+
+      new Thread(() -> {
+        long threadId = 0;
+
+        while (writing.get()) {
+          long start = System.nanoTime();
+
+          if (paging) readPage(readers.get(), threadId);
+          else        countUnread(readers.get(), threadId);
+
+          latencies.add(System.nanoTime() - start);
+          threadId = (threadId + 1) % CONVERSATIONS;
+        }
+
+        readersDone.countDown();
+      }).start();
+    }
+
+    long writeStart = System.nanoTime();
+
+    for (int i = 0; i < WRITE_TRANSACTIONS; i++) {
+      writer.beginTransaction();
+      try {
+        for (int j = 0; j < WRITES_PER_TRANSACTION; j++) {
+          insertMessage(writer, j % CONVERSATIONS, System.currentTimeMillis());
+        }
+        writer.setTransactionSuccessful();
+      } finally {
+        writer.endTransaction();
+      }
+    }
+
+    long writeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - writeStart);
+
+    writing.set(false);
+    assertTrue(readersDone.await(30, TimeUnit.SECONDS));
+
+    assertEquals(SEED_MESSAGES + WRITE_TRANSACTIONS * WRITES_PER_TRANSACTION, countAll(writer));
+
+    List<Long> sorted = new ArrayList<>(latencies);
+    Collections.sort(sorted);
+
+    Log.i(TAG, String.format(Locale.US, "[%s] writes: %d ms, reads: %d, p50: %.2f ms, p90: %.2f ms, p99: %.2f ms, max: %.2f ms",
+                             name,
+                             writeMs,
+                             sorted.size(),
+                             percentile(sorted, 0.50),
+                             percentile(sorted, 0.90),
+                             percentile(sorted, 0.99),
+                             percentile(sorted, 1.00)));
+  }
+
+  private SQLiteDatabase open(boolean wal) {
+    SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, PASSWORD, null, SQLCipherOpenHelper.CIPHER_HOOK);
+
+    if (wal) {
+      db.rawExecSQL("PRAGMA journal_mode = WAL;");
+      db.rawExecSQL("PRAGMA synchronous = NORMAL;");
+    }
+
+    db.execSQL("CREATE TABLE message (_id INTEGER PRIMARY KEY, thread_id INTEGER, date INTEGER, read INTEGER DEFAULT 0, body TEXT)");
+    db.execSQL("CREATE INDEX message_thread_date_index ON message (thread_id, date)");
+    db.execSQL("CREATE INDEX message_read_thread_index ON message (read, thread_id)");
+
+    db.beginTransaction();
+    try {
+      for (int i = 0; i < SEED_MESSAGES; i++) {
+        insertMessage(db, i % CONVERSATIONS, i);
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+
+    return db;
+  }
+
+  private static void insertMessage(SQLiteDatabase db, long threadId, long date) {
+    ContentValues values = new ContentValues(3);
+    values.put("thread_id", threadId);
+    values.put("date", date);
+    values.put("body", "The quick brown fox jumps over the lazy dog " + date);
+
+    db.insert("message", null, values);
+  }
+
+  private static void readPage(SQLiteDatabase db, long threadId) {
+    try (Cursor cursor = db.query("message", null, "thread_id = ?", new String[] { String.valueOf(threadId) }, null, null, "date DESC", "50")) {
+      while (cursor.moveToNext()) {
+        cursor.getString(cursor.getColumnIndexOrThrow("body"));
+      }
+    }
+  }
+
+  private static void countUnread(SQLiteDatabase db, long threadId) {
+    try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM message WHERE read = 0 AND thread_id = ?", new String[] { String.valueOf(threadId) })) {
+      cursor.moveToFirst();
+    }
+  }
+
+  private static int countAll(SQLiteDatabase db) {
+    try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM message", null)) {
+      return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+    }
+  }
+
+  private static double percentile(List<Long> sorted, double percentile) {
+    if (sorted.isEmpty()) return 0;
+
+    int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+    return sorted.get(Math.max(0, index)) / 1_000_000d;
+  }
+
+  private void deleteDatabase() {
+    for (String suffix : new String[] { "", "-journal", "-wal", "-shm" }) {
+      new File(file.getPath() + suffix).delete();
+    }
+  }
+
+  private interface Readers {
+    SQLiteDatabase get();
+  }
+}
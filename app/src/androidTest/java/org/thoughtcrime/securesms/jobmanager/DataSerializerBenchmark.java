@@ -0,0 +1,115 @@
+package org.thoughtcrime.securesms.jobmanager;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.thoughtcrime.securesms.jobmanager.impl.JsonDataSerializer;
+import org.thoughtcrime.securesms.util.Base64;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Serializes and deserializes job data shaped like a queued incoming message, a send and a receipt
+ * with {@link JsonDataSerializer} and {@link BinaryDataSerializer}, and reports the throughput and
+ * the serialized size of each.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class DataSerializerBenchmark {
+
+  private static final String TAG = DataSerializerBenchmark.class.getSimpleName();
+
+  private static final int WARMUP_ITERATIONS   = 2_000;
+  private static final int MEASURED_ITERATIONS = 20_000;
+  private static final int ENVELOPE_BYTES      = 1_200;
+  private static final int RECEIPT_TIMESTAMPS  = 50;
+
+  @Test
+  public void json() {
+    run("json", new JsonDataSerializer());
+  }
+
+  @Test
+  public void binary() {
+    run("binary", new BinaryDataSerializer());
+  }
+
+  private static void run(String name, Data.Serializer serializer) {
+    Data[] samples = new Data[] { processMessageData(), sendData(), receiptData() };
+    long   size    = 0;
+
+    for (Data sample : samples) {
+      size += serializer.serialize(sample).length;
+    }
+
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      serializer.deserialize(serializer.serialize(samples[i % samples.length]));
+    }
+
+    byte[][] serialized     = new byte[samples.length][];
+    long     serializeStart = System.nanoTime();
+
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      serialized[i % samples.length] = serializer.serialize(samples[i % samples.length]);
+    }
+
+    long serializeNanos   = System.nanoTime() - serializeStart;
+    long deserializeStart = System.nanoTime();
+
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      serializer.deserialize(serialized[i % samples.length]);
+    }
+
+    long deserializeNanos = System.nanoTime() - deserializeStart;
+
+    assertEquals(samples[0].getString("envelope"), serializer.deserialize(serialized[0]).getString("envelope"));
+
+    Log.i(TAG, String.format(Locale.US, "[%s] serialize: %.0f/s, deserialize: %.0f/s, average size: %d bytes",
+                             name,
+                             perSecond(serializeNanos),
+                             perSecond(deserializeNanos),
+                             size / samples.length));
+  }
+
+  private static double perSecond(long nanos) {
+    return MEASURED_ITERATIONS / (nanos / (double) TimeUnit.SECONDS.toNanos(1));
+  }
+
+  private static Data processMessageData() {
+    byte[] envelope = new byte[ENVELOPE_BYTES];
+    new Random(1).nextBytes(envelope);
+
+    return new Data.Builder().putString("envelope", Base64.encodeBytes(envelope))
+                             .putInt("message_state", 0)
+                             .putLong("smsMessageId", -1)
+                             .putLong("timestamp", System.currentTimeMillis())
+                             .build();
+  }
+
+  private static Data sendData() {
+    return new Data.Builder().putLong("message_id", 123456)
+                             .putString("recipient_id", "42")
+                             .putStringArray("filtered_recipient_ids", new String[] { "1", "2", "3" })
+                             .putBoolean("is_recipient_update", false)
+                             .build();
+  }
+
+  private static Data receiptData() {
+    long[] timestamps = new long[RECEIPT_TIMESTAMPS];
+
+    for (int i = 0; i < timestamps.length; i++) {
+      timestamps[i] = System.currentTimeMillis() - i;
+    }
+
+    return new Data.Builder().putString("recipient", "42")
+                             .putLongArray("message_ids", timestamps)
+                             .putLong("timestamp", System.currentTimeMillis())
+                             .build();
+  }
+}
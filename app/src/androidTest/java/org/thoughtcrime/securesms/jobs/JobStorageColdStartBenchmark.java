@@ -0,0 +1,196 @@
+package org.thoughtcrime.securesms.jobs;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.thoughtcrime.securesms.database.JobDatabase;
+import org.thoughtcrime.securesms.util.Util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Persists a large backlog of jobs in a job_spec table, then compares the cold start reads of
+ * {@link FastJobStorage}: every row with its serialized data, against only the metadata followed by
+ * the serialized data of the first job in each queue.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class JobStorageColdStartBenchmark {
+
+  private static final String TAG = JobStorageColdStartBenchmark.class.getSimpleName();
+
+  private static final String DATABASE_NAME = "job_cold_start_benchmark.db";
+  private static final String PASSWORD      = "benchmark";
+  private static final int    JOBS          = 10_000;
+  private static final int    QUEUES        = 20;
+  private static final int    DATA_BYTES    = 1_500;
+  private static final int    RUNS          = 5;
+
+  private static final String[] METADATA_COLUMNS = new String[] { "_id", "job_spec_id", "factory_key", "queue_key", "create_time", "next_run_attempt_time", "run_attempt",
+                                                                  "max_attempts", "max_backoff", "max_instances", "lifespan", "is_running" };
+
+  private File           file;
+  private SQLiteDatabase db;
+
+  @Before
+  public void setUp() {
+    Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+    SQLiteDatabase.loadLibs(context);
+
+    file = context.getDatabasePath(DATABASE_NAME);
+    deleteDatabase();
+
+    db = SQLiteDatabase.openOrCreateDatabase(file, PASSWORD, null);
+
+    for (String statement : JobDatabase.CREATE_TABLE) {
+      db.execSQL(statement);
+    }
+
+    Random random = new Random(1);
+
+    db.beginTransaction();
+    try {
+      for (int i = 0; i < JOBS; i++) {
+        byte[] data = new byte[DATA_BYTES];
+        random.nextBytes(data);
+
+        ContentValues values = new ContentValues();
+        values.put("job_spec_id", UUID.randomUUID().toString());
+        values.put("factory_key", "AttachmentDownloadJob");
+        values.put("queue_key", "queue-" + (i % QUEUES));
+        values.put("create_time", i);
+        values.put("next_run_attempt_time", 0);
+        values.put("run_attempt", 0);
+        values.put("max_attempts", -1);
+        values.put("max_backoff", 30_000);
+        values.put("max_instances", -1);
+        values.put("lifespan", -1);
+        values.put("serialized_data", data);
+        values.put("is_running", 0);
+
+        db.insert("job_spec", null, values);
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+  }
+
+  @After
+  public void tearDown() {
+    db.close();
+    deleteDatabase();
+  }
+
+  @Test
+  public void coldStart() {
+    List<Long> full = new ArrayList<>(RUNS);
+    List<Long> lazy = new ArrayList<>(RUNS);
+
+    for (int i = 0; i < RUNS; i++) {
+      full.add(timeFullLoad());
+      lazy.add(timeLazyLoad());
+    }
+
+    Collections.sort(full);
+    Collections.sort(lazy);
+
+    Log.i(TAG, String.format(Locale.US, "[%d jobs] full: %.2f ms, metadata + queue heads: %.2f ms (median of %d)",
+                             JOBS,
+                             full.get(RUNS / 2) / 1_000_000d,
+                             lazy.get(RUNS / 2) / 1_000_000d,
+                             RUNS));
+  }
+
+  private long timeFullLoad() {
+    long start = System.nanoTime();
+    int  rows  = 0;
+
+    try (Cursor cursor = db.query("job_spec", null, null, null, null, null, "create_time, _id ASC")) {
+      while (cursor.moveToNext()) {
+        readMetadata(cursor);
+        cursor.getBlob(cursor.getColumnIndexOrThrow("serialized_data"));
+        cursor.getBlob(cursor.getColumnIndexOrThrow("serialized_input_data"));
+        rows++;
+      }
+    }
+
+    assertEquals(JOBS, rows);
+
+    return System.nanoTime() - start;
+  }
+
+  private long timeLazyLoad() {
+    long         start  = System.nanoTime();
+    List<String> heads  = new ArrayList<>(QUEUES);
+    Set<String>  queues = new HashSet<>(QUEUES);
+
+    try (Cursor cursor = db.query("job_spec", METADATA_COLUMNS, null, null, null, null, "create_time, _id ASC")) {
+      while (cursor.moveToNext()) {
+        readMetadata(cursor);
+
+        String queue = cursor.getString(cursor.getColumnIndexOrThrow("queue_key"));
+
+        if (queues.add(queue)) {
+          heads.add(cursor.getString(cursor.getColumnIndexOrThrow("job_spec_id")));
+        }
+      }
+    }
+
+    String   query = "job_spec_id IN (" + Util.join(Collections.nCopies(heads.size(), "?"), ",") + ")";
+    String[] args  = heads.toArray(new String[0]);
+    int      rows  = 0;
+
+    try (Cursor cursor = db.query("job_spec", null, query, args, null, null, null)) {
+      while (cursor.moveToNext()) {
+        cursor.getBlob(cursor.getColumnIndexOrThrow("serialized_data"));
+        rows++;
+      }
+    }
+
+    assertEquals(QUEUES, rows);
+
+    return System.nanoTime() - start;
+  }
+
+  private static void readMetadata(Cursor cursor) {
+    cursor.getString(cursor.getColumnIndexOrThrow("job_spec_id"));
+    cursor.getString(cursor.getColumnIndexOrThrow("factory_key"));
+    cursor.getString(cursor.getColumnIndexOrThrow("queue_key"));
+    cursor.getLong(cursor.getColumnIndexOrThrow("create_time"));
+    cursor.getLong(cursor.getColumnIndexOrThrow("next_run_attempt_time"));
+    cursor.getInt(cursor.getColumnIndexOrThrow("run_attempt"));
+    cursor.getInt(cursor.getColumnIndexOrThrow("max_attempts"));
+    cursor.getLong(cursor.getColumnIndexOrThrow("max_backoff"));
+    cursor.getInt(cursor.getColumnIndexOrThrow("max_instances"));
+    cursor.getLong(cursor.getColumnIndexOrThrow("lifespan"));
+    cursor.getInt(cursor.getColumnIndexOrThrow("is_running"));
+  }
+
+  private void deleteDatabase() {
+    for (String suffix : new String[] { "", "-journal", "-wal", "-shm" }) {
+      new File(file.getPath() + suffix).delete();
+    }
+  }
+}
@@ -26,6 +26,7 @@ import org.thoughtcrime.securesms.database.JobDatabase;
 import org.thoughtcrime.securesms.database.KeyValueDatabase;
 import org.thoughtcrime.securesms.database.MmsDatabase;
 import org.thoughtcrime.securesms.database.MmsSmsColumns;
+import org.thoughtcrime.securesms.database.MmsSmsDatabase;
 import org.thoughtcrime.securesms.database.OneTimePreKeyDatabase;
 import org.thoughtcrime.securesms.database.SearchDatabase;
 import org.thoughtcrime.securesms.database.SessionDatabase;
@@ -71,10 +72,13 @@ public class FullBackupExporter extends FullBackupBase {
     SessionDatabase.TABLE_NAME,
     SearchDatabase.SMS_FTS_TABLE_NAME,
     SearchDatabase.MMS_FTS_TABLE_NAME,
+    SearchDatabase.RECIPIENT_FTS_TABLE_NAME,
+    SearchDatabase.GROUP_FTS_TABLE_NAME,
     JobDatabase.JOBS_TABLE_NAME,
     JobDatabase.CONSTRAINTS_TABLE_NAME,
     JobDatabase.DEPENDENCIES_TABLE_NAME,
-    KeyValueDatabase.TABLE_NAME
+    KeyValueDatabase.TABLE_NAME,
+    MmsSmsDatabase.TABLE_NAME
   );
 
   public static void export(@NonNull Context context,
@@ -148,10 +152,12 @@ public class FullBackupExporter extends FullBackupBase {
 
         if (sql != null) {
 
-          boolean isSmsFtsSecretTable = name != null && !name.equals(SearchDatabase.SMS_FTS_TABLE_NAME) && name.startsWith(SearchDatabase.SMS_FTS_TABLE_NAME);
-          boolean isMmsFtsSecretTable = name != null && !name.equals(SearchDatabase.MMS_FTS_TABLE_NAME) && name.startsWith(SearchDatabase.MMS_FTS_TABLE_NAME);
+          boolean isSmsFtsSecretTable       = name != null && !name.equals(SearchDatabase.SMS_FTS_TABLE_NAME) && name.startsWith(SearchDatabase.SMS_FTS_TABLE_NAME);
+          boolean isMmsFtsSecretTable       = name != null && !name.equals(SearchDatabase.MMS_FTS_TABLE_NAME) && name.startsWith(SearchDatabase.MMS_FTS_TABLE_NAME);
+          boolean isRecipientFtsSecretTable = name != null && !name.equals(SearchDatabase.RECIPIENT_FTS_TABLE_NAME) && name.startsWith(SearchDatabase.RECIPIENT_FTS_TABLE_NAME);
+          boolean isGroupFtsSecretTable     = name != null && !name.equals(SearchDatabase.GROUP_FTS_TABLE_NAME) && name.startsWith(SearchDatabase.GROUP_FTS_TABLE_NAME);
 
-          if (!isSmsFtsSecretTable && !isMmsFtsSecretTable) {
+          if (!isSmsFtsSecretTable && !isMmsFtsSecretTable && !isRecipientFtsSecretTable && !isGroupFtsSecretTable) {
             if ("table".equals(type)) {
               tables.add(name);
             }
@@ -21,23 +21,46 @@
 package org.thoughtcrime.securesms.blurhash;
 
 import android.graphics.Bitmap;
-import android.graphics.Color;
 
 import androidx.annotation.Nullable;
 
-import static org.thoughtcrime.securesms.blurhash.BlurHashUtil.linearTosRGB;
 import static org.thoughtcrime.securesms.blurhash.BlurHashUtil.sRGBToLinear;
 import static org.thoughtcrime.securesms.blurhash.BlurHashUtil.signPow;
 
+/**
+ * Decodes using a cosine basis precomputed per axis and a lookup table for the linear to sRGB
+ * conversion, so each pixel costs numCompX * numCompY multiply-adds per channel and no trig.
+ */
 class BlurHashDecoder {
 
+  private static final int    SRGB_TABLE_SIZE = 4096;
+  private static final byte[] SRGB_TABLE      = new byte[SRGB_TABLE_SIZE + 1];
+
+  static {
+    for (int i = 0; i <= SRGB_TABLE_SIZE; i++) {
+      SRGB_TABLE[i] = (byte) BlurHashUtil.linearTosRGB(i / (double) SRGB_TABLE_SIZE);
+    }
+  }
+
   static @Nullable Bitmap decode(@Nullable String blurHash, int width, int height) {
     return decode(blurHash, width, height, 1f);
   }
 
   static @Nullable Bitmap decode(@Nullable String blurHash, int width, int height, double punch) {
+    int[] pixels = decodePixels(blurHash, width, height, punch);
+
+    if (pixels == null) {
+      return null;
+    }
+
+    return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+  }
 
-    if (blurHash == null || blurHash.length() < 6) {
+  /**
+   * @return Opaque ARGB pixels, row by row, or null if the hash is invalid.
+   */
+  static @Nullable int[] decodePixels(@Nullable String blurHash, int width, int height, double punch) {
+    if (blurHash == null || blurHash.length() < 6 || width <= 0 || height <= 0) {
       return null;
     }
 
@@ -49,65 +72,94 @@ class BlurHashDecoder {
       return null;
     }
 
-    int        maxAcEnc = Base83.decode(blurHash, 1, 2);
-    double     maxAc    = (maxAcEnc + 1) / 166f;
-    double[][] colors   = new double[numCompX * numCompY][];
-    for (int i = 0; i < colors.length; i++) {
+    int     maxAcEnc = Base83.decode(blurHash, 1, 2);
+    double  maxAc    = (maxAcEnc + 1) / 166f;
+    float[] colors   = new float[numCompX * numCompY * 3];
+
+    for (int i = 0; i < numCompX * numCompY; i++) {
       if (i == 0) {
         int colorEnc = Base83.decode(blurHash, 2, 6);
-        colors[i] = decodeDc(colorEnc);
+        decodeDc(colorEnc, colors);
       } else {
         int from = 4 + i * 2;
         int colorEnc = Base83.decode(blurHash, from, from + 2);
-        colors[i] = decodeAc(colorEnc, maxAc * punch);
+        decodeAc(colorEnc, maxAc * punch, colors, i * 3);
       }
     }
 
-    return composeBitmap(width, height, numCompX, numCompY, colors);
+    return composePixels(width, height, numCompX, numCompY, colors);
   }
 
-  private static double[] decodeDc(int colorEnc) {
+  private static void decodeDc(int colorEnc, float[] colors) {
     int r = colorEnc >> 16;
     int g = (colorEnc >> 8) & 255;
     int b = colorEnc & 255;
-    return new double[] {sRGBToLinear(r),
-                         sRGBToLinear(g),
-                         sRGBToLinear(b)};
+
+    colors[0] = (float) sRGBToLinear(r);
+    colors[1] = (float) sRGBToLinear(g);
+    colors[2] = (float) sRGBToLinear(b);
   }
 
-  private static double[] decodeAc(int value, double maxAc) {
+  private static void decodeAc(int value, double maxAc, float[] colors, int offset) {
     int r = value / (19 * 19);
     int g = (value / 19) % 19;
     int b = value % 19;
-    return new double[]{
-        signPow((r - 9) / 9.0f, 2f) * maxAc,
-        signPow((g - 9) / 9.0f, 2f) * maxAc,
-        signPow((b - 9) / 9.0f, 2f) * maxAc
-    };
+
+    colors[offset]     = (float) (signPow((r - 9) / 9.0f, 2f) * maxAc);
+    colors[offset + 1] = (float) (signPow((g - 9) / 9.0f, 2f) * maxAc);
+    colors[offset + 2] = (float) (signPow((b - 9) / 9.0f, 2f) * maxAc);
   }
 
-  private static Bitmap composeBitmap(int width, int height, int numCompX, int numCompY, double[][] colors) {
-    Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+  private static int[] composePixels(int width, int height, int numCompX, int numCompY, float[] colors) {
+    float[] basisX = cosineBasis(width, numCompX);
+    float[] basisY = cosineBasis(height, numCompY);
+    int[]   pixels = new int[width * height];
+
     for (int y = 0; y < height; y++) {
       for (int x = 0; x < width; x++) {
-
-        double r = 0f;
-        double g = 0f;
-        double b = 0f;
+        float r = 0f;
+        float g = 0f;
+        float b = 0f;
 
         for (int j = 0; j < numCompY; j++) {
+          float cosY = basisY[y * numCompY + j];
+
           for (int i = 0; i < numCompX; i++) {
-            double basis = (Math.cos(Math.PI * x * i / width) * Math.cos(Math.PI * y * j / height));
-            double[] color = colors[j * numCompX + i];
-            r += color[0] * basis;
-            g += color[1] * basis;
-            b += color[2] * basis;
+            float basis = basisX[x * numCompX + i] * cosY;
+            int   color = (j * numCompX + i) * 3;
+
+            r += colors[color]     * basis;
+            g += colors[color + 1] * basis;
+            b += colors[color + 2] * basis;
           }
         }
-        bitmap.setPixel(x, y, Color.rgb((int) linearTosRGB(r), (int) linearTosRGB(g), (int) linearTosRGB(b)));
+
+        pixels[y * width + x] = 0xff000000 | (toSRGB(r) << 16) | (toSRGB(g) << 8) | toSRGB(b);
+      }
+    }
+
+    return pixels;
+  }
+
+  /**
+   * @return cos(PI * position * component / size) for every position, laid out position by position.
+   */
+  private static float[] cosineBasis(int size, int components) {
+    float[] basis = new float[size * components];
+
+    for (int position = 0; position < size; position++) {
+      for (int component = 0; component < components; component++) {
+        basis[position * components + component] = (float) Math.cos(Math.PI * position * component / size);
       }
     }
 
-    return bitmap;
+    return basis;
+  }
+
+  private static int toSRGB(float linear) {
+    if (linear <= 0) return 0;
+    if (linear >= 1) return 255;
+
+    return SRGB_TABLE[(int) (linear * SRGB_TABLE_SIZE + 0.5f)] & 0xff;
   }
 }
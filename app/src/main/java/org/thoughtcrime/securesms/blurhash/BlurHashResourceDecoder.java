@@ -4,6 +4,7 @@ import android.graphics.Bitmap;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
 
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.ResourceDecoder;
@@ -14,7 +15,15 @@ import java.io.IOException;
 
 public class BlurHashResourceDecoder implements ResourceDecoder<BlurHash, Bitmap> {
 
-  private static final int MAX_DIMEN = 20;
+  private static final int MAX_DIMEN        = 20;
+  private static final int CACHE_SIZE_BYTES = 100 * MAX_DIMEN * MAX_DIMEN * 4;
+
+  private static final LruCache<String, int[]> PIXEL_CACHE = new LruCache<String, int[]>(CACHE_SIZE_BYTES) {
+    @Override
+    protected int sizeOf(@NonNull String key, @NonNull int[] pixels) {
+      return pixels.length * 4;
+    }
+  };
 
   @Override
   public boolean handles(@NonNull BlurHash source, @NonNull Options options) throws IOException {
@@ -34,6 +43,38 @@ public class BlurHashResourceDecoder implements ResourceDecoder<BlurHash, Bitmap
       finalWidth  = (int) (finalHeight * width / (float) height);
     }
 
-    return new SimpleResource<>(BlurHashDecoder.decode(source.getHash(), finalWidth, finalHeight));
+    if (finalWidth <= 0 || finalHeight <= 0) {
+      return null;
+    }
+
+    int[] pixels = getPixels(source.getHash(), finalWidth, finalHeight);
+
+    if (pixels == null) {
+      return null;
+    }
+
+    return new SimpleResource<>(Bitmap.createBitmap(pixels, finalWidth, finalHeight, Bitmap.Config.ARGB_8888));
+  }
+
+  /**
+   * Decoded pixels are cached rather than bitmaps, as the bitmap handed to Glide may be recycled.
+   * The cache is bounded by bytes, enough for 100 placeholders at the largest decode size.
+   */
+  private static @Nullable int[] getPixels(@NonNull String hash, int width, int height) {
+    String key = hash + ":" + width + "x" + height;
+
+    int[] cached = PIXEL_CACHE.get(key);
+
+    if (cached != null) {
+      return cached;
+    }
+
+    int[] pixels = BlurHashDecoder.decodePixels(hash, width, height, 1f);
+
+    if (pixels != null) {
+      PIXEL_CACHE.put(key, pixels);
+    }
+
+    return pixels;
   }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package org.thoughtcrime.securesms.components.emoji;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.thoughtcrime.securesms.components.emoji.parsing.EmojiParser;
+import org.thoughtcrime.securesms.logging.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Remembers the emoji candidates found in recently rendered text, so rebinding a recycled view
+ * with the same body is a lookup rather than a parse. The least recently used text is evicted
+ * first, and the hit rate is logged every {@link #STATS_LOG_INTERVAL} lookups.
+ * <p>
+ * Only the candidates are cached. The spans built from them hold drawables bounded to, and
+ * animated by, a particular {@link android.widget.TextView}, so they can't be shared.
+ * <p>
+ * Cached {@link EmojiParser.CandidateList}s are shared and must not be modified.
+ */
+final class EmojiCandidateCache {
+
+  private static final String TAG = EmojiCandidateCache.class.getSimpleName();
+
+  private static final int MAX_TEXT_LENGTH    = 2000;
+  private static final int STATS_LOG_INTERVAL = 1000;
+
+  private final Map<String, EmojiParser.CandidateList> cache;
+
+  private long hits;
+  private long misses;
+
+  EmojiCandidateCache(int maxSize) {
+    this.cache = new LinkedHashMap<String, EmojiParser.CandidateList>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, EmojiParser.CandidateList> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  synchronized @Nullable EmojiParser.CandidateList get(@NonNull String text) {
+    EmojiParser.CandidateList candidates = cache.get(text);
+
+    if (candidates != null) hits++;
+    else                    misses++;
+
+    if ((hits + misses) % STATS_LOG_INTERVAL == 0) {
+      Log.d(TAG, toString());
+    }
+
+    return candidates;
+  }
+
+  synchronized void put(@NonNull String text, @NonNull EmojiParser.CandidateList candidates) {
+    cache.put(text, candidates);
+  }
+
+  static boolean isCacheable(@NonNull CharSequence text) {
+    return text.length() <= MAX_TEXT_LENGTH;
+  }
+
+  private float getHitRate() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 0 : (float) hits / lookups;
+  }
+
+  @Override
+  public synchronized @NonNull String toString() {
+    return String.format(Locale.US, "EmojiCandidateCache{size=%d, hits=%d, misses=%d, hitRate=%.2f}", cache.size(), hits, misses, getHitRate());
+  }
+}
@@ -36,13 +36,16 @@ class EmojiProvider {
   private static volatile EmojiProvider instance = null;
   private static final    Paint         paint    = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.ANTI_ALIAS_FLAG);
 
-  private final EmojiTree emojiTree = new EmojiTree();
+  private final EmojiTree           emojiTree      = new EmojiTree();
+  private final EmojiCandidateCache candidateCache = new EmojiCandidateCache(CANDIDATE_CACHE_SIZE);
 
   private static final int EMOJI_RAW_HEIGHT = 64;
   private static final int EMOJI_RAW_WIDTH  = 64;
   private static final int EMOJI_VERT_PAD   = 0;
   private static final int EMOJI_PER_ROW    = 16;
 
+  private static final int CANDIDATE_CACHE_SIZE = 500;
+
   private final float decodeScale;
   private final float verticalPad;
 
@@ -79,7 +82,20 @@ class EmojiProvider {
 
   @Nullable EmojiParser.CandidateList getCandidates(@Nullable CharSequence text) {
     if (text == null) return null;
-    return new EmojiParser(emojiTree).findCandidates(text);
+
+    if (!EmojiCandidateCache.isCacheable(text)) {
+      return new EmojiParser(emojiTree).findCandidates(text);
+    }
+
+    String                    key        = text.toString();
+    EmojiParser.CandidateList candidates = candidateCache.get(key);
+
+    if (candidates == null) {
+      candidates = new EmojiParser(emojiTree).findCandidates(key);
+      candidateCache.put(key, candidates);
+    }
+
+    return candidates;
   }
 
   @Nullable Spannable emojify(@Nullable CharSequence text, @NonNull TextView tv) {
@@ -22,30 +22,48 @@ package org.thoughtcrime.securesms.components.emoji.parsing;
 
 import androidx.annotation.Nullable;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Based in part on code from emoji-java
+ * <p>
+ * Nodes are held in flat arrays, with each node's children in a sorted char array so a lookup is a
+ * binary search over UTF-16 code units. Nothing is allocated while matching.
+ * <p>
+ * Not safe to {@link #add} concurrently with lookups. The tree is built once and then only read.
  */
 public class EmojiTree {
 
-  private final EmojiTreeNode root = new EmojiTreeNode();
+  private static final char   TERMINATOR  = '\ufe0f';
+  private static final int    ROOT        = 0;
+  private static final int    NO_CHILD    = -1;
+  private static final char[] NO_KEYS     = new char[0];
+  private static final int[]  NO_CHILDREN = new int[0];
 
-  private static final char TERMINATOR = '\ufe0f';
+  private char[][]        childKeys  = new char[1024][];
+  private int[][]         childNodes = new int[1024][];
+  private EmojiDrawInfo[] emoji      = new EmojiDrawInfo[1024];
+  private int             nodeCount;
+
+  public EmojiTree() {
+    newNode();
+  }
 
   public void add(String emojiEncoding, EmojiDrawInfo emoji) {
-    EmojiTreeNode tree = root;
+    int node = ROOT;
+
+    for (int i = 0; i < emojiEncoding.length(); i++) {
+      char c     = emojiEncoding.charAt(i);
+      int  child = getChild(node, c);
 
-    for (char c: emojiEncoding.toCharArray()) {
-      if (!tree.hasChild(c)) {
-        tree.addChild(c);
+      if (child == NO_CHILD) {
+        child = addChild(node, c);
       }
 
-      tree = tree.getChild(c);
+      node = child;
     }
 
-    tree.setEmoji(emoji);
+    this.emoji[node] = emoji;
   }
 
   public Matches isEmoji(CharSequence sequence, int startPosition, int endPosition) {
@@ -53,74 +71,129 @@ public class EmojiTree {
       return Matches.POSSIBLY;
     }
 
-    EmojiTreeNode tree = root;
-
-    for (int i=startPosition; i<endPosition; i++) {
-      char character = sequence.charAt(i);
-
-      if (!tree.hasChild(character)) {
-        return Matches.IMPOSSIBLE;
-      }
-
-      tree = tree.getChild(character);
-    }
+    int node = walk(sequence, startPosition, endPosition);
 
-    if (tree.isEndOfEmoji()) {
-      return Matches.EXACTLY;
-    } else if (sequence.charAt(endPosition-1) != TERMINATOR && tree.hasChild(TERMINATOR) && tree.getChild(TERMINATOR).isEndOfEmoji()) {
+    if (node == NO_CHILD) {
+      return Matches.IMPOSSIBLE;
+    } else if (isExactMatch(node, sequence.charAt(endPosition - 1))) {
       return Matches.EXACTLY;
     } else {
       return Matches.POSSIBLY;
     }
   }
 
-  public @Nullable EmojiDrawInfo getEmoji(CharSequence unicode, int startPosition, int endPostiion) {
-    EmojiTreeNode tree = root;
+  /**
+   * Finds the longest emoji starting at startPosition in a single walk down the tree.
+   * Equivalent to calling {@link #isEmoji} with each successive end position until an impossible match.
+   *
+   * @return The end position of the longest emoji, or -1 if none starts there.
+   */
+  public int findEmojiEnd(CharSequence sequence, int startPosition) {
+    int node = ROOT;
+    int best = -1;
+
+    for (int i = startPosition; i < sequence.length(); i++) {
+      char character = sequence.charAt(i);
 
-    for (int i=startPosition; i<endPostiion; i++) {
-      char character = unicode.charAt(i);
+      node = getChild(node, character);
 
-      if (!tree.hasChild(character)) {
-        return null;
+      if (node == NO_CHILD) {
+        return best;
       }
 
-      tree = tree.getChild(character);
+      if (isExactMatch(node, character)) {
+        best = i + 1;
+      }
     }
 
-    if      (tree.getEmoji() != null)                                                  return tree.getEmoji();
-    else if (unicode.charAt(endPostiion-1) != TERMINATOR && tree.hasChild(TERMINATOR)) return tree.getChild(TERMINATOR).getEmoji();
-    else    return null;
+    return best;
   }
 
+  public @Nullable EmojiDrawInfo getEmoji(CharSequence unicode, int startPosition, int endPostiion) {
+    int node = walk(unicode, startPosition, endPostiion);
 
-  private static class EmojiTreeNode {
-
-    private Map<Character, EmojiTreeNode> children = new HashMap<>();
-    private EmojiDrawInfo emoji;
+    if (node == NO_CHILD) {
+      return null;
+    }
 
-    public void setEmoji(EmojiDrawInfo emoji) {
-      this.emoji = emoji;
+    if (emoji[node] != null) {
+      return emoji[node];
     }
 
-    public @Nullable EmojiDrawInfo getEmoji() {
-      return emoji;
+    int terminated = getChild(node, TERMINATOR);
+
+    if (unicode.charAt(endPostiion - 1) != TERMINATOR && terminated != NO_CHILD) {
+      return emoji[terminated];
     }
 
-    boolean hasChild(char child) {
-      return children.containsKey(child);
+    return null;
+  }
+
+  private int walk(CharSequence sequence, int startPosition, int endPosition) {
+    int node = ROOT;
+
+    for (int i = startPosition; i < endPosition && node != NO_CHILD; i++) {
+      node = getChild(node, sequence.charAt(i));
     }
 
-    void addChild(char child) {
-      children.put(child, new EmojiTreeNode());
+    return node;
+  }
+
+  /**
+   * A node matches if it ends an emoji, or if the emoji would end with a variation selector that was left off.
+   */
+  private boolean isExactMatch(int node, char lastCharacter) {
+    if (emoji[node] != null) {
+      return true;
     }
 
-    EmojiTreeNode getChild(char child) {
-      return children.get(child);
+    if (lastCharacter == TERMINATOR) {
+      return false;
     }
 
-    boolean isEndOfEmoji() {
-      return emoji != null;
+    int terminated = getChild(node, TERMINATOR);
+
+    return terminated != NO_CHILD && emoji[terminated] != null;
+  }
+
+  private int getChild(int node, char key) {
+    int index = Arrays.binarySearch(childKeys[node], key);
+    return index >= 0 ? childNodes[node][index] : NO_CHILD;
+  }
+
+  private int addChild(int node, char key) {
+    char[] keys     = childKeys[node];
+    int[]  children = childNodes[node];
+    int    insertAt = -(Arrays.binarySearch(keys, key) + 1);
+    int    child    = newNode();
+
+    char[] newKeys     = new char[keys.length + 1];
+    int[]  newChildren = new int[children.length + 1];
+
+    System.arraycopy(keys, 0, newKeys, 0, insertAt);
+    System.arraycopy(children, 0, newChildren, 0, insertAt);
+    newKeys[insertAt]     = key;
+    newChildren[insertAt] = child;
+    System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+    System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+
+    childKeys[node]  = newKeys;
+    childNodes[node] = newChildren;
+
+    return child;
+  }
+
+  private int newNode() {
+    if (nodeCount == emoji.length) {
+      childKeys  = Arrays.copyOf(childKeys, nodeCount * 2);
+      childNodes = Arrays.copyOf(childNodes, nodeCount * 2);
+      emoji      = Arrays.copyOf(emoji, nodeCount * 2);
     }
+
+    childKeys[nodeCount]  = NO_KEYS;
+    childNodes[nodeCount] = NO_CHILDREN;
+
+    return nodeCount++;
   }
 
   public enum Matches {
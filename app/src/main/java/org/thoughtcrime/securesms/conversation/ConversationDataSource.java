@@ -1,7 +1,6 @@
 package org.thoughtcrime.securesms.conversation;
 
 import android.content.Context;
-import android.database.ContentObserver;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -11,11 +10,12 @@ import androidx.paging.PositionalDataSource;
 import com.annimon.stream.Stream;
 
 import org.thoughtcrime.securesms.conversation.ConversationMessage.ConversationMessageFactory;
-import org.thoughtcrime.securesms.database.DatabaseContentProviders;
 import org.thoughtcrime.securesms.database.DatabaseFactory;
+import org.thoughtcrime.securesms.database.DatabaseObserver;
 import org.thoughtcrime.securesms.database.MmsSmsDatabase;
 import org.thoughtcrime.securesms.database.model.Mention;
 import org.thoughtcrime.securesms.database.model.MessageRecord;
+import org.thoughtcrime.securesms.dependencies.ApplicationDependencies;
 import org.thoughtcrime.securesms.logging.Log;
 import org.thoughtcrime.securesms.util.concurrent.SignalExecutors;
 import org.thoughtcrime.securesms.util.paging.Invalidator;
@@ -48,20 +48,21 @@ class ConversationDataSource extends PositionalDataSource<ConversationMessage> {
     this.context            = context;
     this.threadId           = threadId;
 
-    ContentObserver contentObserver = new ContentObserver(null) {
+    DatabaseObserver          databaseObserver = ApplicationDependencies.getDatabaseObserver();
+    DatabaseObserver.Observer observer         = new DatabaseObserver.Observer() {
       @Override
-      public void onChange(boolean selfChange) {
+      public void onChanged(@NonNull DatabaseObserver.Changes changes) {
         invalidate();
-        context.getContentResolver().unregisterContentObserver(this);
+        databaseObserver.unregisterObserver(this);
       }
     };
 
     invalidator.observe(() -> {
       invalidate();
-      context.getContentResolver().unregisterContentObserver(contentObserver);
+      databaseObserver.unregisterObserver(observer);
     });
 
-    context.getContentResolver().registerContentObserver(DatabaseContentProviders.Conversation.getUriForThread(threadId), true, contentObserver);
+    databaseObserver.registerObserver(DatabaseObserver.Filter.conversation(threadId), observer);
   }
 
   @Override
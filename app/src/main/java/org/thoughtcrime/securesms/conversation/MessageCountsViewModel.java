@@ -13,7 +13,6 @@ import androidx.lifecycle.ViewModelProvider;
 
 import org.thoughtcrime.securesms.database.DatabaseContentProviders;
 import org.thoughtcrime.securesms.database.DatabaseFactory;
-import org.thoughtcrime.securesms.database.MmsDatabase;
 import org.thoughtcrime.securesms.database.MmsSmsDatabase;
 import org.thoughtcrime.securesms.dependencies.ApplicationDependencies;
 import org.thoughtcrime.securesms.util.concurrent.SerialMonoLifoExecutor;
@@ -79,9 +78,8 @@ public class MessageCountsViewModel extends ViewModel {
 
   private Pair<Integer, Integer> getCounts(@NonNull Context context, long threadId) {
     MmsSmsDatabase mmsSmsDatabase     = DatabaseFactory.getMmsSmsDatabase(context);
-    MmsDatabase    mmsDatabase        = DatabaseFactory.getMmsDatabase(context);
     int            unreadCount        = mmsSmsDatabase.getUnreadCount(threadId);
-    int            unreadMentionCount = mmsDatabase.getUnreadMentionCount(threadId);
+    int            unreadMentionCount = DatabaseFactory.getThreadDatabase(context).getUnreadMentionCount(threadId);
 
     return new Pair<>(unreadCount, unreadMentionCount);
   }
@@ -1,237 +1,229 @@
 package org.thoughtcrime.securesms.conversationlist;
 
 import android.content.Context;
-import android.database.ContentObserver;
 import android.database.Cursor;
-import android.database.MatrixCursor;
-import android.database.MergeCursor;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.VisibleForTesting;
 import androidx.paging.DataSource;
 import androidx.paging.PositionalDataSource;
 
 import org.thoughtcrime.securesms.conversationlist.model.Conversation;
-import org.thoughtcrime.securesms.conversationlist.model.ConversationReader;
-import org.thoughtcrime.securesms.database.DatabaseContentProviders;
 import org.thoughtcrime.securesms.database.DatabaseFactory;
+import org.thoughtcrime.securesms.database.DatabaseObserver;
 import org.thoughtcrime.securesms.database.ThreadDatabase;
 import org.thoughtcrime.securesms.database.model.ThreadRecord;
 import org.thoughtcrime.securesms.dependencies.ApplicationDependencies;
 import org.thoughtcrime.securesms.logging.Log;
 import org.thoughtcrime.securesms.recipients.Recipient;
 import org.thoughtcrime.securesms.util.ThrottledDebouncer;
+import org.thoughtcrime.securesms.util.Util;
 import org.thoughtcrime.securesms.util.concurrent.SignalExecutors;
 import org.thoughtcrime.securesms.util.paging.Invalidator;
 import org.thoughtcrime.securesms.util.paging.SizeFixResult;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executor;
 
-abstract class ConversationListDataSource extends PositionalDataSource<Conversation> {
+/**
+ * Pages through a {@link ConversationListModel.Snapshot}. The model is read from the database once,
+ * after which the {@link Factory} applies each batch of changed threads to it and invalidates the
+ * current data source only if a row actually changed.
+ */
+final class ConversationListDataSource extends PositionalDataSource<Conversation> {
 
   public static final Executor EXECUTOR = SignalExecutors.newFixedLifoThreadExecutor("signal-conversation-list", 1, 1);
 
-  private static final ThrottledDebouncer THROTTLER = new ThrottledDebouncer(500);
-
   private static final String TAG = Log.tag(ConversationListDataSource.class);
 
-  protected final ThreadDatabase threadDatabase;
-
-  protected ConversationListDataSource(@NonNull Context context, @NonNull Invalidator invalidator) {
-    this.threadDatabase = DatabaseFactory.getThreadDatabase(context);
-
-    ContentObserver contentObserver = new ContentObserver(null) {
-      @Override
-      public void onChange(boolean selfChange) {
-        THROTTLER.publish(() -> {
-          invalidate();
-          context.getContentResolver().unregisterContentObserver(this);
-        });
-      }
-    };
+  private static final int MAX_THREADS_PER_QUERY = 500;
 
-    invalidator.observe(() -> {
-      invalidate();
-      context.getContentResolver().unregisterContentObserver(contentObserver);
-    });
+  private final Factory factory;
 
-    context.getContentResolver().registerContentObserver(DatabaseContentProviders.ConversationList.CONTENT_URI,  true, contentObserver);
-  }
+  private ConversationListModel.Snapshot snapshot;
 
-  private static ConversationListDataSource create(@NonNull Context context, @NonNull Invalidator invalidator, boolean isArchived) {
-    if (!isArchived) return new UnarchivedConversationListDataSource(context, invalidator);
-    else             return new ArchivedConversationListDataSource(context, invalidator);
+  private ConversationListDataSource(@NonNull Factory factory) {
+    this.factory = factory;
   }
 
   @Override
-  public final void loadInitial(@NonNull LoadInitialParams params, @NonNull LoadInitialCallback<Conversation> callback) {
+  public void loadInitial(@NonNull LoadInitialParams params, @NonNull LoadInitialCallback<Conversation> callback) {
     long start = System.currentTimeMillis();
 
-    List<Conversation> conversations  = new ArrayList<>(params.requestedLoadSize);
-    int                totalCount     = getTotalCount();
-    int                effectiveCount = params.requestedStartPosition;
-    List<Recipient>    recipients     = new LinkedList<>();
-
-    try (ConversationReader reader = new ConversationReader(getCursor(params.requestedStartPosition, params.requestedLoadSize))) {
-      ThreadRecord record;
-      while ((record = reader.getNext()) != null && effectiveCount < totalCount && !isInvalid()) {
-        conversations.add(new Conversation(record));
-        recipients.add(record.getRecipient());
-        effectiveCount++;
-      }
-    }
+    snapshot = factory.getSnapshot();
 
-    ApplicationDependencies.getRecipientCache().addToCache(recipients);
+    List<Conversation> conversations = snapshot.getConversations();
+    int                totalCount    = conversations.size();
+    int                startPosition = Math.min(params.requestedStartPosition, totalCount);
+    int                endPosition   = Math.min(startPosition + params.requestedLoadSize, totalCount);
 
-    if (!isInvalid()) {
-      SizeFixResult<Conversation> result = SizeFixResult.ensureMultipleOfPageSize(conversations, params.requestedStartPosition, params.pageSize, totalCount);
-      callback.onResult(result.getItems(), params.requestedStartPosition, result.getTotal());
-      Log.d(TAG, "[Initial Load] " + (System.currentTimeMillis() - start) + " ms | start: " + params.requestedStartPosition + ", requestedSize: " + params.requestedLoadSize + ", actualSize: " + result.getItems().size() + ", totalCount: " + result.getTotal() + ", class: " + getClass().getSimpleName());
-    } else {
-      Log.d(TAG, "[Initial Load] " + (System.currentTimeMillis() - start) + " ms | start: " + params.requestedStartPosition + ", requestedSize: " + params.requestedLoadSize + ", totalCount: " + totalCount + ", class: " + getClass().getSimpleName() + " -- invalidated");
-    }
+    SizeFixResult<Conversation> result = SizeFixResult.ensureMultipleOfPageSize(conversations.subList(startPosition, endPosition), startPosition, params.pageSize, totalCount);
+    callback.onResult(result.getItems(), startPosition, result.getTotal());
+
+    Log.d(TAG, "[Initial Load] " + (System.currentTimeMillis() - start) + " ms | start: " + startPosition + ", requestedSize: " + params.requestedLoadSize + ", actualSize: " + result.getItems().size() + ", totalCount: " + result.getTotal() + ", archived: " + factory.isArchived);
   }
 
   @Override
-  public final void loadRange(@NonNull LoadRangeParams params, @NonNull LoadRangeCallback<Conversation> callback) {
-    long start = System.currentTimeMillis();
-
-    List<Conversation> conversations = new ArrayList<>(params.loadSize);
-    List<Recipient>    recipients    = new LinkedList<>();
+  public void loadRange(@NonNull LoadRangeParams params, @NonNull LoadRangeCallback<Conversation> callback) {
+    List<Conversation> conversations = snapshot.getConversations();
+    int                startPosition = Math.min(params.startPosition, conversations.size());
+    int                endPosition   = Math.min(startPosition + params.loadSize, conversations.size());
 
-    try (ConversationReader reader = new ConversationReader(getCursor(params.startPosition, params.loadSize))) {
-      ThreadRecord record;
-      while ((record = reader.getNext()) != null && !isInvalid()) {
-        conversations.add(new Conversation(record));
-        recipients.add(record.getRecipient());
-      }
-    }
-
-    ApplicationDependencies.getRecipientCache().addToCache(recipients);
-
-    callback.onResult(conversations);
+    callback.onResult(conversations.subList(startPosition, endPosition));
+  }
 
-    Log.d(TAG, "[Update] " + (System.currentTimeMillis() - start) + " ms | start: " + params.startPosition + ", size: " + params.loadSize + ", class: " + getClass().getSimpleName() + (isInvalid() ? " -- invalidated" : ""));
+  int getPinnedCount() {
+    return snapshot.getPinnedCount();
   }
 
-  protected abstract int getTotalCount();
-  protected abstract Cursor getCursor(long offset, long limit);
+  int getArchivedCount() {
+    return snapshot.getArchivedCount();
+  }
 
-  private static class ArchivedConversationListDataSource extends ConversationListDataSource {
+  static class Factory extends DataSource.Factory<Integer, Conversation> {
 
-    ArchivedConversationListDataSource(@NonNull Context context, @NonNull Invalidator invalidator) {
-      super(context, invalidator);
-    }
+    private final ThreadDatabase             threadDatabase;
+    private final boolean                    isArchived;
+    private final ConversationListModel      model;
+    private final ThrottledDebouncer         throttler;
+    private final Set<Long>                  pendingThreadIds;
+    private       boolean                    pendingReload;
+    private       ConversationListDataSource current;
 
-    @Override
-    protected int getTotalCount() {
-      return threadDatabase.getArchivedConversationListCount();
+    public Factory(@NonNull Context context, @NonNull Invalidator invalidator, boolean isArchived) {
+      this.threadDatabase   = DatabaseFactory.getThreadDatabase(context);
+      this.isArchived       = isArchived;
+      this.model            = new ConversationListModel(isArchived);
+      this.throttler        = new ThrottledDebouncer(500);
+      this.pendingThreadIds = new HashSet<>();
+
+      DatabaseObserver          databaseObserver = ApplicationDependencies.getDatabaseObserver();
+      DatabaseObserver.Observer observer         = changes -> {
+        synchronized (pendingThreadIds) {
+          if (changes.hasUnscopedFlag(DatabaseObserver.CONVERSATION_LIST)) {
+            pendingReload = true;
+          }
+
+          for (long threadId : changes.getThreadIds()) {
+            if ((changes.getFlags(threadId) & DatabaseObserver.CONVERSATION_LIST) != 0) {
+              pendingThreadIds.add(threadId);
+            }
+          }
+        }
+
+        throttler.publish(() -> EXECUTOR.execute(this::applyPendingChanges));
+      };
+
+      invalidator.observe(() -> {
+        databaseObserver.unregisterObserver(observer);
+        invalidateCurrent();
+      });
+
+      databaseObserver.registerObserver(DatabaseObserver.Filter.conversationList(), observer);
     }
 
     @Override
-    protected Cursor getCursor(long offset, long limit) {
-      return threadDatabase.getArchivedConversationList(offset, limit);
+    public synchronized @NonNull DataSource<Integer, Conversation> create() {
+      current = new ConversationListDataSource(this);
+      return current;
     }
-  }
 
-  @VisibleForTesting
-  static class UnarchivedConversationListDataSource extends ConversationListDataSource {
+    private @NonNull ConversationListModel.Snapshot getSnapshot() {
+      if (!model.isLoaded()) {
+        synchronized (pendingThreadIds) {
+          pendingThreadIds.clear();
+          pendingReload = false;
+        }
 
-    private int totalCount;
-    private int pinnedCount;
-    private int archivedCount;
-    private int unpinnedCount;
+        reload();
+      }
 
-    UnarchivedConversationListDataSource(@NonNull Context context, @NonNull Invalidator invalidator) {
-      super(context, invalidator);
+      return model.getSnapshot();
     }
 
-    @Override
-    protected int getTotalCount() {
-      int unarchivedCount = threadDatabase.getUnarchivedConversationListCount();
-
-      pinnedCount   = threadDatabase.getPinnedConversationListCount();
-      archivedCount = threadDatabase.getArchivedConversationListCount();
-      unpinnedCount = unarchivedCount - pinnedCount;
-      totalCount    = unarchivedCount + (archivedCount != 0 ? 1 : 0) + (pinnedCount != 0 ? (unpinnedCount != 0 ? 2 : 1) : 0);
+    private void applyPendingChanges() {
+      Set<Long> threadIds;
+      boolean   reload;
 
-      return totalCount;
-    }
-
-    @Override
-    protected Cursor getCursor(long offset, long limit) {
-      List<Cursor> cursors = new ArrayList<>(5);
-
-      if (offset == 0 && hasPinnedHeader()) {
-        MatrixCursor pinnedHeaderCursor = new MatrixCursor(ConversationReader.HEADER_COLUMN);
-        pinnedHeaderCursor.addRow(ConversationReader.PINNED_HEADER);
-        cursors.add(pinnedHeaderCursor);
-        limit--;
+      synchronized (pendingThreadIds) {
+        threadIds     = new HashSet<>(pendingThreadIds);
+        reload        = pendingReload;
+        pendingReload = false;
+        pendingThreadIds.clear();
       }
 
-      Cursor pinnedCursor = threadDatabase.getUnarchivedConversationList(true, offset, limit);
-      cursors.add(pinnedCursor);
-      limit -= pinnedCursor.getCount();
-
-      if (offset == 0 && hasUnpinnedHeader()) {
-        MatrixCursor unpinnedHeaderCursor = new MatrixCursor(ConversationReader.HEADER_COLUMN);
-        unpinnedHeaderCursor.addRow(ConversationReader.UNPINNED_HEADER);
-        cursors.add(unpinnedHeaderCursor);
-        limit--;
+      if (!model.isLoaded()) {
+        return;
       }
 
-      long   unpinnedOffset = Math.max(0, offset - pinnedCount - getHeaderOffset());
-      Cursor unpinnedCursor = threadDatabase.getUnarchivedConversationList(false, unpinnedOffset, limit);
-      cursors.add(unpinnedCursor);
+      if (reload) {
+        reload();
+        invalidateCurrent();
+      } else if (!threadIds.isEmpty() && !update(threadIds).isEmpty()) {
+        invalidateCurrent();
+      }
+    }
 
-      if (offset + limit >= totalCount && hasArchivedFooter()) {
-        MatrixCursor archivedFooterCursor = new MatrixCursor(ConversationReader.ARCHIVED_COLUMNS);
-        archivedFooterCursor.addRow(ConversationReader.createArchivedFooterRow(archivedCount));
-        cursors.add(archivedFooterCursor);
+    private void reload() {
+      long               start   = System.currentTimeMillis();
+      List<ThreadRecord> threads = new ArrayList<>();
+
+      if (isArchived) {
+        readThreads(threadDatabase.getArchivedConversationList(0, 0), threads);
+        model.setThreads(threads, 0);
+      } else {
+        readThreads(threadDatabase.getUnarchivedConversationList(true, 0, 0), threads);
+        readThreads(threadDatabase.getUnarchivedConversationList(false, 0, 0), threads);
+        model.setThreads(threads, threadDatabase.getArchivedConversationListCount());
       }
 
-      return new MergeCursor(cursors.toArray(new Cursor[]{}));
+      Log.d(TAG, "[Reload] " + (System.currentTimeMillis() - start) + " ms | threads: " + threads.size() + ", archived: " + isArchived);
     }
 
-    @VisibleForTesting
-    int getHeaderOffset() {
-      return (hasPinnedHeader() ? 1 : 0) + (hasUnpinnedHeader() ? 1 : 0);
-    }
+    private @NonNull List<ConversationListModel.Delta> update(@NonNull Set<Long> threadIds) {
+      long                    start   = System.currentTimeMillis();
+      List<ThreadRecord>      threads = new ArrayList<>(threadIds.size());
+      Map<Long, ThreadRecord> listed  = new HashMap<>(threadIds.size());
 
-    @VisibleForTesting
-    boolean hasPinnedHeader() {
-      return pinnedCount != 0;
-    }
+      for (List<Long> chunk : Util.chunk(new ArrayList<>(threadIds), MAX_THREADS_PER_QUERY)) {
+        readThreads(threadDatabase.getConversationListForThreads(chunk), threads);
+      }
 
-    @VisibleForTesting
-    boolean hasUnpinnedHeader() {
-      return hasPinnedHeader() && unpinnedCount != 0;
-    }
+      for (ThreadRecord thread : threads) {
+        listed.put(thread.getThreadId(), thread);
+      }
 
-    @VisibleForTesting
-    boolean hasArchivedFooter() {
-      return archivedCount != 0;
+      int                               archivedCount = isArchived ? 0 : threadDatabase.getArchivedConversationListCount();
+      List<ConversationListModel.Delta> deltas        = model.applyChanges(threadIds, listed, archivedCount);
+
+      Log.d(TAG, "[Update] " + (System.currentTimeMillis() - start) + " ms | threads: " + threadIds.size() + ", deltas: " + deltas.size() + ", archived: " + isArchived);
+
+      return deltas;
     }
-  }
 
-  static class Factory extends DataSource.Factory<Integer, Conversation> {
+    private void readThreads(@NonNull Cursor cursor, @NonNull List<ThreadRecord> threads) {
+      List<Recipient> recipients = new LinkedList<>();
 
-    private final Context     context;
-    private final Invalidator invalidator;
-    private final boolean     isArchived;
+      try (ThreadDatabase.Reader reader = threadDatabase.readerFor(cursor)) {
+        ThreadRecord record;
+        while ((record = reader.getNext()) != null) {
+          threads.add(record);
+          recipients.add(record.getRecipient());
+        }
+      }
 
-    public Factory(@NonNull Context context, @NonNull Invalidator invalidator, boolean isArchived) {
-      this.context     = context;
-      this.invalidator = invalidator;
-      this.isArchived  = isArchived;
+      ApplicationDependencies.getRecipientCache().addToCache(recipients);
     }
 
-    @Override
-    public @NonNull DataSource<Integer, Conversation> create() {
-      return ConversationListDataSource.create(context, invalidator, isArchived);
+    private synchronized void invalidateCurrent() {
+      if (current != null) {
+        current.invalidate();
+      }
     }
   }
 }
@@ -1074,6 +1074,9 @@ public class ConversationListFragment extends MainFragment implements ActionMode
   }
 
   private class ScrollListener extends RecyclerView.OnScrollListener {
+
+    private static final int SEARCH_PREFETCH_DISTANCE = 10;
+
     @Override
     public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
       if (recyclerView.canScrollVertically(-1)) {
@@ -1085,6 +1088,14 @@ public class ConversationListFragment extends MainFragment implements ActionMode
           ViewUtil.fadeOut(toolbarShadow, 250);
         }
       }
+
+      if (activeAdapter == searchAdapter && dy > 0) {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+
+        if (layoutManager != null && layoutManager.findLastVisibleItemPosition() >= searchAdapter.getItemCount() - SEARCH_PREFETCH_DISTANCE) {
+          viewModel.onSearchResultsScrolledNearEnd();
+        }
+      }
     }
   }
 }
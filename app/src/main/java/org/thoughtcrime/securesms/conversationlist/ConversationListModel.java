@@ -0,0 +1,281 @@
+package org.thoughtcrime.securesms.conversationlist;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.thoughtcrime.securesms.conversationlist.model.Conversation;
+import org.thoughtcrime.securesms.conversationlist.model.ConversationReader;
+import org.thoughtcrime.securesms.database.model.ThreadRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-memory copy of one thread list, in display order, that is kept current by applying
+ * per-thread changes rather than by reading the whole list again.
+ * <p>
+ * For each changed thread, the caller passes its latest row, or nothing if it is no longer listed.
+ * The thread is then removed, inserted, moved to its new position or updated in place, and only
+ * that thread's {@link Conversation} is replaced. Every other row keeps the same instance, so
+ * diffing two snapshots only finds the threads that actually changed.
+ */
+final class ConversationListModel {
+
+  private final boolean isArchived;
+
+  private final List<Conversation> pinned   = new ArrayList<>();
+  private final List<Conversation> unpinned = new ArrayList<>();
+
+  private int      archivedCount;
+  private boolean  loaded;
+  private Snapshot snapshot;
+
+  ConversationListModel(boolean isArchived) {
+    this.isArchived = isArchived;
+  }
+
+  synchronized boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Replaces the whole list.
+   *
+   * @param threads       The listed threads, in display order.
+   * @param archivedCount The number of archived threads, shown in the footer of the unarchived list.
+   */
+  synchronized void setThreads(@NonNull List<ThreadRecord> threads, int archivedCount) {
+    pinned.clear();
+    unpinned.clear();
+
+    for (ThreadRecord thread : threads) {
+      getSection(thread).add(new Conversation(thread));
+    }
+
+    this.archivedCount = archivedCount;
+    this.loaded        = true;
+    this.snapshot      = null;
+  }
+
+  /**
+   * Applies the latest state of each changed thread.
+   *
+   * @param threadIds     The threads that changed.
+   * @param listed        The current rows of those threads that are still in either list, by thread id.
+   * @param archivedCount The number of archived threads, shown in the footer of the unarchived list.
+   *
+   * @return One delta for each thread whose row was inserted, removed, moved or updated.
+   */
+  synchronized @NonNull List<Delta> applyChanges(@NonNull Collection<Long> threadIds, @NonNull Map<Long, ThreadRecord> listed, int archivedCount) {
+    List<Delta> deltas = new LinkedList<>();
+
+    for (long threadId : threadIds) {
+      ThreadRecord thread = listed.get(threadId);
+
+      if (thread != null && thread.isArchived() != isArchived) {
+        thread = null;
+      }
+
+      Delta delta = applyChange(threadId, thread);
+
+      if (delta != null) {
+        deltas.add(delta);
+      }
+    }
+
+    if (!isArchived && this.archivedCount != archivedCount) {
+      this.archivedCount = archivedCount;
+      this.snapshot      = null;
+    }
+
+    if (!deltas.isEmpty()) {
+      snapshot = null;
+    }
+
+    return deltas;
+  }
+
+  /**
+   * @return The list as it is now, including headers and the archived footer. It is not affected by
+   *         later changes.
+   */
+  synchronized @NonNull Snapshot getSnapshot() {
+    if (snapshot == null) {
+      List<Conversation> conversations = new ArrayList<>(pinned.size() + unpinned.size() + 3);
+
+      if (!pinned.isEmpty()) {
+        conversations.add(header(Conversation.Type.PINNED_HEADER, 0));
+        conversations.addAll(pinned);
+
+        if (!unpinned.isEmpty()) {
+          conversations.add(header(Conversation.Type.UNPINNED_HEADER, 0));
+        }
+      }
+
+      conversations.addAll(unpinned);
+
+      if (!isArchived && archivedCount != 0) {
+        conversations.add(header(Conversation.Type.ARCHIVED_FOOTER, archivedCount));
+      }
+
+      snapshot = new Snapshot(Collections.unmodifiableList(conversations), pinned.size(), isArchived ? 0 : archivedCount);
+    }
+
+    return snapshot;
+  }
+
+  private @Nullable Delta applyChange(long threadId, @Nullable ThreadRecord thread) {
+    List<Conversation> fromSection = null;
+    int                from        = -1;
+
+    for (List<Conversation> section : Arrays.asList(pinned, unpinned)) {
+      int index = indexOf(section, threadId);
+
+      if (index != -1) {
+        fromSection = section;
+        from        = index;
+        break;
+      }
+    }
+
+    if (thread == null) {
+      if (fromSection == null) {
+        return null;
+      }
+
+      fromSection.remove(from);
+      return new Delta(Delta.Type.REMOVED, threadId);
+    }
+
+    Conversation conversation = new Conversation(thread);
+
+    if (fromSection == null) {
+      insert(getSection(thread), conversation);
+      return new Delta(Delta.Type.INSERTED, threadId);
+    }
+
+    Conversation previous = fromSection.get(from);
+
+    if (previous.equals(conversation)) {
+      return null;
+    }
+
+    List<Conversation> toSection = getSection(thread);
+
+    if (toSection == fromSection && isInOrder(fromSection, from, thread)) {
+      fromSection.set(from, conversation);
+      return new Delta(Delta.Type.UPDATED, threadId);
+    }
+
+    fromSection.remove(from);
+    insert(toSection, conversation);
+
+    return new Delta(Delta.Type.MOVED, threadId);
+  }
+
+  private @NonNull List<Conversation> getSection(@NonNull ThreadRecord thread) {
+    return !isArchived && thread.isPinned() ? pinned : unpinned;
+  }
+
+  /**
+   * Inserts ahead of any thread with the same date, since the changed thread is the most recent
+   * to have had activity.
+   */
+  private static void insert(@NonNull List<Conversation> section, @NonNull Conversation conversation) {
+    long date  = conversation.getThreadRecord().getDate();
+    int  low   = 0;
+    int  high  = section.size();
+
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+
+      if (section.get(mid).getThreadRecord().getDate() > date) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+
+    section.add(low, conversation);
+  }
+
+  private static boolean isInOrder(@NonNull List<Conversation> section, int index, @NonNull ThreadRecord thread) {
+    boolean afterPrevious = index == 0                  || section.get(index - 1).getThreadRecord().getDate() >= thread.getDate();
+    boolean beforeNext    = index == section.size() - 1 || section.get(index + 1).getThreadRecord().getDate() <= thread.getDate();
+
+    return afterPrevious && beforeNext;
+  }
+
+  private static int indexOf(@NonNull List<Conversation> section, long threadId) {
+    for (int i = 0; i < section.size(); i++) {
+      if (section.get(i).getThreadRecord().getThreadId() == threadId) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  private static @NonNull Conversation header(@NonNull Conversation.Type type, int count) {
+    return new Conversation(ConversationReader.buildThreadRecordForHeader(type, count));
+  }
+
+  static final class Snapshot {
+    private final List<Conversation> conversations;
+    private final int                pinnedCount;
+    private final int                archivedCount;
+
+    private Snapshot(@NonNull List<Conversation> conversations, int pinnedCount, int archivedCount) {
+      this.conversations = conversations;
+      this.pinnedCount   = pinnedCount;
+      this.archivedCount = archivedCount;
+    }
+
+    @NonNull List<Conversation> getConversations() {
+      return conversations;
+    }
+
+    int getPinnedCount() {
+      return pinnedCount;
+    }
+
+    int getArchivedCount() {
+      return archivedCount;
+    }
+  }
+
+  static final class Delta {
+    enum Type {
+      INSERTED,
+      REMOVED,
+      MOVED,
+      UPDATED
+    }
+
+    private final Type type;
+    private final long threadId;
+
+    private Delta(@NonNull Type type, long threadId) {
+      this.type     = type;
+      this.threadId = threadId;
+    }
+
+    @NonNull Type getType() {
+      return type;
+    }
+
+    long getThreadId() {
+      return threadId;
+    }
+
+    @Override
+    public @NonNull String toString() {
+      return type + "(" + threadId + ")";
+    }
+  }
+}
@@ -18,7 +18,6 @@ import androidx.paging.PagedList;
 import org.thoughtcrime.securesms.conversationlist.model.Conversation;
 import org.thoughtcrime.securesms.conversationlist.model.SearchResult;
 import org.thoughtcrime.securesms.database.DatabaseContentProviders;
-import org.thoughtcrime.securesms.database.DatabaseFactory;
 import org.thoughtcrime.securesms.dependencies.ApplicationDependencies;
 import org.thoughtcrime.securesms.logging.Log;
 import org.thoughtcrime.securesms.megaphone.Megaphone;
@@ -27,7 +26,6 @@ import org.thoughtcrime.securesms.megaphone.Megaphones;
 import org.thoughtcrime.securesms.search.SearchRepository;
 import org.thoughtcrime.securesms.util.Debouncer;
 import org.thoughtcrime.securesms.util.Util;
-import org.thoughtcrime.securesms.util.concurrent.SignalExecutors;
 import org.thoughtcrime.securesms.util.livedata.LiveDataUtil;
 import org.thoughtcrime.securesms.util.paging.Invalidator;
 
@@ -47,7 +45,8 @@ class ConversationListViewModel extends ViewModel {
   private final ContentObserver                   observer;
   private final Invalidator                       invalidator;
 
-  private String lastQuery;
+  private String       lastQuery;
+  private SearchResult loadingMoreMessagesFor;
 
   private ConversationListViewModel(@NonNull Application application, @NonNull SearchRepository searchRepository, boolean isArchived) {
     this.application         = application;
@@ -85,17 +84,10 @@ class ConversationListViewModel extends ViewModel {
         return new MutableLiveData<>();
       }
 
-      MutableLiveData<ConversationList> updated = new MutableLiveData<>();
+      ConversationListDataSource        dataSource = (ConversationListDataSource) conversation.getDataSource();
+      MutableLiveData<ConversationList> updated    = new MutableLiveData<>();
 
-      if (isArchived) {
-        updated.postValue(new ConversationList(conversation, 0, 0));
-      } else {
-        SignalExecutors.BOUNDED.execute(() -> {
-          int archiveCount = DatabaseFactory.getThreadDatabase(application).getArchivedConversationListCount();
-          int pinnedCount  = DatabaseFactory.getThreadDatabase(application).getPinnedConversationListCount();
-          updated.postValue(new ConversationList(conversation, archiveCount, pinnedCount));
-        });
-      }
+      updated.setValue(new ConversationList(conversation, dataSource.getArchivedCount(), dataSource.getPinnedCount()));
 
       return updated;
     });
@@ -150,6 +142,24 @@ class ConversationListViewModel extends ViewModel {
     }));
   }
 
+  void onSearchResultsScrolledNearEnd() {
+    SearchResult current = searchResult.getValue();
+
+    if (current == null || !current.hasMoreMessages() || loadingMoreMessagesFor == current) {
+      return;
+    }
+
+    loadingMoreMessagesFor = current;
+
+    searchRepository.queryMoreMessages(current, result -> {
+      Util.runOnMain(() -> {
+        if (searchResult.getValue() == current) {
+          searchResult.setValue(result);
+        }
+      });
+    });
+  }
+
   private @NonNull String getLastQuery() {
     return lastQuery == null ? "" : lastQuery;
   }
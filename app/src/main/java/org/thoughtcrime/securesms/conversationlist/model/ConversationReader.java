@@ -43,6 +43,10 @@ public class ConversationReader extends ThreadDatabase.StaticReader {
     if (type == Conversation.Type.ARCHIVED_FOOTER) {
       count = CursorUtil.requireInt(cursor, ARCHIVED_COLUMNS[1]);
     }
+    return buildThreadRecordForHeader(type, count);
+  }
+
+  public static @NonNull ThreadRecord buildThreadRecordForHeader(@NonNull Conversation.Type type, int count) {
     return new ThreadRecord.Builder(-(100 + type.ordinal()))
                            .setBody(type.toString())
                            .setDate(100)
@@ -5,6 +5,7 @@ import androidx.annotation.NonNull;
 import org.thoughtcrime.securesms.database.model.ThreadRecord;
 import org.thoughtcrime.securesms.recipients.Recipient;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -20,16 +21,39 @@ public class SearchResult {
   private final List<Recipient>     contacts;
   private final List<ThreadRecord>  conversations;
   private final List<MessageResult> messages;
+  private final boolean             hasMoreMessages;
 
   public SearchResult(@NonNull String              query,
                       @NonNull List<Recipient>     contacts,
                       @NonNull List<ThreadRecord>  conversations,
                       @NonNull List<MessageResult> messages)
   {
-    this.query         = query;
-    this.contacts      = contacts;
-    this.conversations = conversations;
-    this.messages      = messages;
+    this(query, contacts, conversations, messages, false);
+  }
+
+  public SearchResult(@NonNull String              query,
+                      @NonNull List<Recipient>     contacts,
+                      @NonNull List<ThreadRecord>  conversations,
+                      @NonNull List<MessageResult> messages,
+                      boolean                      hasMoreMessages)
+  {
+    this.query           = query;
+    this.contacts        = contacts;
+    this.conversations   = conversations;
+    this.messages        = messages;
+    this.hasMoreMessages = hasMoreMessages;
+  }
+
+  /**
+   * @return A copy of this result with the next page of messages appended.
+   */
+  public @NonNull SearchResult withMoreMessages(@NonNull List<MessageResult> moreMessages, boolean hasMoreMessages) {
+    List<MessageResult> combined = new ArrayList<>(messages.size() + moreMessages.size());
+
+    combined.addAll(messages);
+    combined.addAll(moreMessages);
+
+    return new SearchResult(query, contacts, conversations, combined, hasMoreMessages);
   }
 
   public List<Recipient> getContacts() {
@@ -44,6 +68,13 @@ public class SearchResult {
     return messages;
   }
 
+  /**
+   * @return True if there are more message matches that haven't been loaded yet.
+   */
+  public boolean hasMoreMessages() {
+    return hasMoreMessages;
+  }
+
   public String getQuery() {
     return query;
   }
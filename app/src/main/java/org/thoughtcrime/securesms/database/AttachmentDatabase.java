@@ -56,6 +56,7 @@ import org.thoughtcrime.securesms.logging.Log;
 import org.thoughtcrime.securesms.mms.MediaStream;
 import org.thoughtcrime.securesms.mms.MmsException;
 import org.thoughtcrime.securesms.mms.PartAuthority;
+import org.thoughtcrime.securesms.mms.PartUriParser;
 import org.thoughtcrime.securesms.stickers.StickerLocator;
 import org.thoughtcrime.securesms.util.Base64;
 import org.thoughtcrime.securesms.util.BitmapDecodingException;
@@ -200,7 +201,8 @@ public class AttachmentDatabase extends Database {
     "CREATE INDEX IF NOT EXISTS pending_push_index ON " + TABLE_NAME + " (" + TRANSFER_STATE + ");",
     "CREATE INDEX IF NOT EXISTS part_sticker_pack_id_index ON " + TABLE_NAME + " (" + STICKER_PACK_ID + ");",
     "CREATE INDEX IF NOT EXISTS part_data_hash_index ON " + TABLE_NAME + " (" + DATA_HASH + ");",
-    "CREATE INDEX IF NOT EXISTS part_data_index ON " + TABLE_NAME + " (" + DATA + ");"
+    "CREATE INDEX IF NOT EXISTS part_data_index ON " + TABLE_NAME + " (" + DATA + ");",
+    "CREATE INDEX IF NOT EXISTS part_data_size_index ON " + TABLE_NAME + " (" + SIZE + ") WHERE " + DATA_HASH + " NOT NULL;"
   };
 
   private static final long STANDARD_THUMB_TIME = 1000;
@@ -614,8 +616,10 @@ public class AttachmentDatabase extends Database {
       //noinspection ResultOfMethodCallIgnored
       dataInfo.file.delete();
     } else {
-      notifyConversationListeners(DatabaseFactory.getMmsDatabase(context).getThreadIdForMessage(mmsId));
-      notifyConversationListListeners();
+      long threadId = DatabaseFactory.getMmsDatabase(context).getThreadIdForMessage(mmsId);
+
+      notifyConversationListeners(threadId);
+      notifyConversationListListeners(threadId);
     }
 
     if (transferFile != null) {
@@ -1046,19 +1050,74 @@ public class AttachmentDatabase extends Database {
 
   }
 
+  @VisibleForTesting
+  @Nullable String getDataFilePath(@NonNull AttachmentId attachmentId) {
+    DataInfo dataInfo = getAttachmentDataFileInfo(attachmentId, DATA);
+    return dataInfo != null ? dataInfo.file.getAbsolutePath() : null;
+  }
+
   private @NonNull DataInfo setAttachmentData(@NonNull Uri uri,
                                               boolean isThumbnail,
                                               @Nullable AttachmentId attachmentId)
       throws MmsException
   {
     try {
+      if (!isThumbnail) {
+        Optional<DataInfo> storedDataInfo = findStoredDataFileInfo(uri, attachmentId);
+
+        if (storedDataInfo.isPresent()) {
+          Log.i(TAG, "[setAttachmentData] Content already stored, sharing data file. " + storedDataInfo.get().file.getAbsolutePath());
+          return storedDataInfo.get();
+        }
+      }
+
       InputStream inputStream = PartAuthority.getAttachmentStream(context, uri);
       return setAttachmentData(inputStream, isThumbnail, attachmentId);
-    } catch (IOException e) {
+    } catch (IOException | NoSuchAlgorithmException e) {
       throw new MmsException(e);
     }
   }
 
+  /**
+   * Looks for a data file that already holds the content at the uri, before anything is written.
+   * An attachment uri is its own data file. Other content is hashed first, but only when a stored
+   * file has the same size, since a unique file would otherwise be read twice.
+   */
+  private @NonNull Optional<DataInfo> findStoredDataFileInfo(@NonNull Uri uri, @Nullable AttachmentId attachmentId)
+      throws IOException, NoSuchAlgorithmException
+  {
+    if (PartAuthority.isAttachmentUri(uri)) {
+      DataInfo source = getAttachmentDataFileInfo(new PartUriParser(uri).getPartId(), DATA);
+      return source != null && source.hash != null ? Optional.of(source) : Optional.absent();
+    }
+
+    Long size = PartAuthority.getAttachmentSize(context, uri);
+
+    if (size == null || !hasDataFileOfSize(size)) {
+      return Optional.absent();
+    }
+
+    MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+
+    try (InputStream in = new DigestInputStream(PartAuthority.getAttachmentStream(context, uri), messageDigest)) {
+      byte[] buffer = new byte[8192];
+      while (in.read(buffer) != -1) {}
+    }
+
+    String hash = Base64.encodeBytes(messageDigest.digest());
+
+    return findDuplicateDataFileInfo(databaseHelper.getReadableDatabase(), hash, attachmentId);
+  }
+
+  private boolean hasDataFileOfSize(long size) {
+    SQLiteDatabase database  = databaseHelper.getReadableDatabase();
+    String         selection = SIZE + " = ? AND " + DATA_HASH + " NOT NULL";
+
+    try (Cursor cursor = database.query(TABLE_NAME, new String[] { ROW_ID }, selection, new String[] { String.valueOf(size) }, null, null, null, "1")) {
+      return cursor != null && cursor.moveToFirst();
+    }
+  }
+
   private @NonNull DataInfo setAttachmentData(@NonNull InputStream in,
                                               boolean isThumbnail,
                                               @Nullable AttachmentId attachmentId)
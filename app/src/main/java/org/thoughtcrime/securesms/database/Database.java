@@ -22,7 +22,9 @@ import android.database.Cursor;
 import androidx.annotation.NonNull;
 
 import org.thoughtcrime.securesms.database.helpers.SQLCipherOpenHelper;
+import org.thoughtcrime.securesms.dependencies.ApplicationDependencies;
 
+import java.util.Collection;
 import java.util.Set;
 
 public abstract class Database {
@@ -43,16 +45,24 @@ public abstract class Database {
   }
 
   protected void notifyConversationListeners(long threadId) {
-    context.getContentResolver().notifyChange(DatabaseContentProviders.Conversation.getUriForThread(threadId), null);
-    notifyVerboseConversationListeners(threadId);
+    ApplicationDependencies.getDatabaseObserver().notifyConversation(threadId);
   }
 
   protected void notifyVerboseConversationListeners(long threadId) {
-    context.getContentResolver().notifyChange(DatabaseContentProviders.Conversation.getVerboseUriForThread(threadId), null);
+    ApplicationDependencies.getDatabaseObserver().notifyVerboseConversation(threadId);
   }
 
   protected void notifyConversationListListeners() {
-    context.getContentResolver().notifyChange(DatabaseContentProviders.ConversationList.CONTENT_URI, null);
+    ApplicationDependencies.getDatabaseObserver().notifyConversationList();
+  }
+
+  protected void notifyConversationListListeners(long threadId) {
+    ApplicationDependencies.getDatabaseObserver().notifyConversationList(threadId);
+  }
+
+  protected void notifyConversationListListeners(Collection<Long> threadIds) {
+    for (long threadId : threadIds)
+      notifyConversationListListeners(threadId);
   }
 
   protected void notifyStickerListeners() {
@@ -94,7 +104,7 @@ public abstract class Database {
   }
 
   protected void notifyAttachmentListeners() {
-    context.getContentResolver().notifyChange(DatabaseContentProviders.Attachment.CONTENT_URI, null);
+    ApplicationDependencies.getDatabaseObserver().notifyAttachments();
   }
 
   public void reset(SQLCipherOpenHelper databaseHelper) {
@@ -189,6 +189,14 @@ public class DatabaseFactory {
     return getInstance(context).databaseHelper.getWritableDatabase().inTransaction();
   }
 
+  /**
+   * @return True if a thread other than the caller has the writable database locked, such as while
+   *         it is in a transaction.
+   */
+  static boolean isWriterLocked(Context context) {
+    return getInstance(context).databaseHelper.getWritableDatabase().isDbLockedByOtherThreads();
+  }
+
   private DatabaseFactory(@NonNull Context context) {
     SQLiteDatabase.loadLibs(context);
 
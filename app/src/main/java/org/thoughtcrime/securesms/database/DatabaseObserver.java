@@ -0,0 +1,307 @@
+package org.thoughtcrime.securesms.database;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import org.thoughtcrime.securesms.logging.Log;
+import org.thoughtcrime.securesms.util.concurrent.SignalExecutors;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An in-process bus for database change notifications.
+ * <p>
+ * Notifications are buffered and delivered together on a single background thread, and are held
+ * back while another thread has the writable database locked, for at most
+ * {@link #MAX_WRITER_BUSY_DELAY_MS}. A transaction that touches many threads therefore usually
+ * results in one {@link Changes} once it ends, with each thread listed once
+ * alongside flags that say what changed in it. Changes delivered while a writer still holds the lock
+ * may have been read before it commits, so they are delivered again once it lets go. The equivalent {@link DatabaseContentProviders} URIs
+ * are notified at the same time, once each, for cursors and content observers.
+ * <p>
+ * Observers are registered with a {@link Filter} and are only told about changes that match it.
+ */
+public final class DatabaseObserver {
+
+  private static final String TAG = Log.tag(DatabaseObserver.class);
+
+  /** Messages in a thread were inserted, deleted or updated. */
+  public static final int CONVERSATION         = 1;
+  /** Something only shown in the detailed view of a thread changed, such as a receipt. */
+  public static final int CONVERSATION_VERBOSE = 1 << 1;
+  /** A thread's row in the thread list changed or, when raised without a thread, the whole list may have. */
+  public static final int CONVERSATION_LIST    = 1 << 2;
+  /** Attachments changed. Not tied to a thread. */
+  public static final int ATTACHMENTS          = 1 << 3;
+
+  private static final long WRITER_BUSY_RETRY_MS     = 16;
+  private static final long MAX_WRITER_BUSY_DELAY_MS = 500;
+
+  private final Application                    application;
+  private final Handler                        handler;
+  private final WriterLock                     writerLock;
+  private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  private final Map<Long, Integer> pendingThreadFlags = new HashMap<>();
+
+  private int     pendingFlags;
+  private int     pendingUnscopedFlags;
+  private boolean flushScheduled;
+  private long    flushScheduledAt;
+
+  public DatabaseObserver(@NonNull Application application) {
+    this(application,
+         new Handler(SignalExecutors.getAndStartHandlerThread("signal-DatabaseObserver").getLooper()),
+         () -> DatabaseFactory.isWriterLocked(application));
+  }
+
+  @VisibleForTesting
+  DatabaseObserver(@NonNull Application application, @NonNull Handler handler, @NonNull WriterLock writerLock) {
+    this.application = application;
+    this.handler     = handler;
+    this.writerLock  = writerLock;
+  }
+
+  public void registerObserver(@NonNull Filter filter, @NonNull Observer observer) {
+    listeners.add(new Listener(filter, observer));
+  }
+
+  public void unregisterObserver(@NonNull Observer observer) {
+    for (Listener listener : listeners) {
+      if (listener.observer == observer) {
+        listeners.remove(listener);
+      }
+    }
+  }
+
+  void notifyConversation(long threadId) {
+    enqueue(threadId, CONVERSATION | CONVERSATION_VERBOSE);
+  }
+
+  void notifyVerboseConversation(long threadId) {
+    enqueue(threadId, CONVERSATION_VERBOSE);
+  }
+
+  void notifyConversationList() {
+    enqueue(null, CONVERSATION_LIST);
+  }
+
+  void notifyConversationList(long threadId) {
+    enqueue(threadId, CONVERSATION_LIST);
+  }
+
+  void notifyAttachments() {
+    enqueue(null, ATTACHMENTS);
+  }
+
+  private void enqueue(@Nullable Long threadId, int flags) {
+    synchronized (pendingThreadFlags) {
+      addPending(threadId, flags);
+      scheduleFlush();
+    }
+  }
+
+  private void addPending(@Nullable Long threadId, int flags) {
+    if (threadId != null) {
+      Integer existing = pendingThreadFlags.get(threadId);
+      pendingThreadFlags.put(threadId, existing != null ? existing | flags : flags);
+    } else {
+      pendingUnscopedFlags |= flags;
+    }
+
+    pendingFlags |= flags;
+  }
+
+  private void scheduleFlush() {
+    if (!flushScheduled) {
+      handler.post(this::flush);
+      flushScheduled   = true;
+      flushScheduledAt = SystemClock.uptimeMillis();
+    }
+  }
+
+  /**
+   * Waits for another thread's write to end, but not past {@link #MAX_WRITER_BUSY_DELAY_MS}, so a
+   * writer that is busy for a long time or a stream of back to back transactions can't hold back
+   * notifications indefinitely. Changes delivered early are queued again, and so delivered once more
+   * after the writer lets go, as observers may have reloaded before its transaction committed.
+   */
+  private void flush() {
+    long scheduledAt;
+
+    synchronized (pendingThreadFlags) {
+      scheduledAt = flushScheduledAt;
+    }
+
+    boolean writerLocked = writerLock.isWriterLocked();
+
+    if (writerLocked && SystemClock.uptimeMillis() - scheduledAt < MAX_WRITER_BUSY_DELAY_MS) {
+      handler.postDelayed(this::flush, WRITER_BUSY_RETRY_MS);
+      return;
+    }
+
+    Changes changes;
+
+    synchronized (pendingThreadFlags) {
+      changes = new Changes(pendingFlags, pendingUnscopedFlags, new HashMap<>(pendingThreadFlags));
+      pendingThreadFlags.clear();
+      pendingFlags         = 0;
+      pendingUnscopedFlags = 0;
+      flushScheduled       = false;
+
+      if (writerLocked) {
+        Log.d(TAG, "Writer still busy after " + MAX_WRITER_BUSY_DELAY_MS + " ms, delivering now and again once it's done.");
+        requeue(changes);
+      }
+    }
+
+    notifyContentResolver(changes);
+
+    for (Listener listener : listeners) {
+      if (listener.filter.matches(changes)) {
+        listener.observer.onChanged(changes);
+      }
+    }
+
+    if (changes.threadFlags.size() > 1) {
+      Log.d(TAG, "Delivered changes for " + changes.threadFlags.size() + " threads.");
+    }
+  }
+
+  private void requeue(@NonNull Changes changes) {
+    for (Map.Entry<Long, Integer> entry : changes.threadFlags.entrySet()) {
+      addPending(entry.getKey(), entry.getValue());
+    }
+
+    pendingUnscopedFlags |= changes.unscopedFlags;
+    pendingFlags         |= changes.flags;
+
+    scheduleFlush();
+  }
+
+  private void notifyContentResolver(@NonNull Changes changes) {
+    for (Map.Entry<Long, Integer> entry : changes.threadFlags.entrySet()) {
+      long threadId = entry.getKey();
+      int  flags    = entry.getValue();
+
+      if ((flags & CONVERSATION) != 0) {
+        application.getContentResolver().notifyChange(DatabaseContentProviders.Conversation.getUriForThread(threadId), null);
+      }
+
+      if ((flags & CONVERSATION_VERBOSE) != 0) {
+        application.getContentResolver().notifyChange(DatabaseContentProviders.Conversation.getVerboseUriForThread(threadId), null);
+      }
+    }
+
+    if (changes.hasFlag(CONVERSATION_LIST)) {
+      application.getContentResolver().notifyChange(DatabaseContentProviders.ConversationList.CONTENT_URI, null);
+    }
+
+    if (changes.hasFlag(ATTACHMENTS)) {
+      application.getContentResolver().notifyChange(DatabaseContentProviders.Attachment.CONTENT_URI, null);
+    }
+  }
+
+  @VisibleForTesting
+  interface WriterLock {
+    boolean isWriterLocked();
+  }
+
+  /**
+   * Called on the observer's background thread.
+   */
+  public interface Observer {
+    void onChanged(@NonNull Changes changes);
+  }
+
+  /**
+   * A coalesced set of changes.
+   */
+  public static final class Changes {
+    private final int                flags;
+    private final int                unscopedFlags;
+    private final Map<Long, Integer> threadFlags;
+
+    private Changes(int flags, int unscopedFlags, @NonNull Map<Long, Integer> threadFlags) {
+      this.flags         = flags;
+      this.unscopedFlags = unscopedFlags;
+      this.threadFlags   = threadFlags;
+    }
+
+    public boolean hasFlag(int flag) {
+      return (flags & flag) != 0;
+    }
+
+    /**
+     * @return True if the flag was raised without naming a thread, so any thread may be affected.
+     */
+    public boolean hasUnscopedFlag(int flag) {
+      return (unscopedFlags & flag) != 0;
+    }
+
+    public @NonNull Set<Long> getThreadIds() {
+      return Collections.unmodifiableSet(threadFlags.keySet());
+    }
+
+    public int getFlags(long threadId) {
+      Integer threadFlags = this.threadFlags.get(threadId);
+      return threadFlags != null ? threadFlags : 0;
+    }
+  }
+
+  /**
+   * Selects which changes an observer is told about.
+   */
+  public static final class Filter {
+    private final int  flags;
+    private final long threadId;
+
+    private Filter(int flags, long threadId) {
+      this.flags    = flags;
+      this.threadId = threadId;
+    }
+
+    public static @NonNull Filter conversationList() {
+      return new Filter(CONVERSATION_LIST, -1);
+    }
+
+    public static @NonNull Filter conversation(long threadId) {
+      return new Filter(CONVERSATION, threadId);
+    }
+
+    public static @NonNull Filter verboseConversation(long threadId) {
+      return new Filter(CONVERSATION_VERBOSE, threadId);
+    }
+
+    public static @NonNull Filter attachments() {
+      return new Filter(ATTACHMENTS, -1);
+    }
+
+    boolean matches(@NonNull Changes changes) {
+      if (threadId != -1) {
+        return (changes.getFlags(threadId) & flags) != 0;
+      } else {
+        return (changes.flags & flags) != 0;
+      }
+    }
+  }
+
+  private static final class Listener {
+    private final Filter   filter;
+    private final Observer observer;
+
+    private Listener(@NonNull Filter filter, @NonNull Observer observer) {
+      this.filter   = filter;
+      this.observer = observer;
+    }
+  }
+}
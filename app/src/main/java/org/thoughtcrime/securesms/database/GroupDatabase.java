@@ -49,10 +49,10 @@ public final class GroupDatabase extends Database {
   private static final String TAG = Log.tag(GroupDatabase.class);
 
           static final String TABLE_NAME          = "groups";
-  private static final String ID                  = "_id";
+          static final String ID                  = "_id";
           static final String GROUP_ID            = "group_id";
           static final String RECIPIENT_ID        = "recipient_id";
-  private static final String TITLE               = "title";
+          static final String TITLE               = "title";
           static final String MEMBERS             = "members";
   private static final String AVATAR_ID           = "avatar_id";
   private static final String AVATAR_KEY          = "avatar_key";
@@ -178,16 +178,33 @@ public final class GroupDatabase extends Database {
     return noMetadata && noMembers;
   }
 
+  /**
+   * Matches groups with a word in their title starting with each word of the constraint, using the
+   * {@link SearchDatabase#GROUP_FTS_TABLE_NAME} index. Constraints with nothing to index on, such as
+   * an empty one, fall back to scanning titles.
+   */
   public Reader getGroupsFilteredByTitle(String constraint, boolean includeInactive) {
+    String matchQuery = SqlUtil.buildPrefixMatchQuery(constraint);
+    String titleFilter;
+    String titleArg;
+
+    if (matchQuery != null) {
+      titleFilter = ID + " IN (SELECT " + SearchDatabase.ID + " FROM " + SearchDatabase.GROUP_FTS_TABLE_NAME + " WHERE " + SearchDatabase.GROUP_FTS_TABLE_NAME + " MATCH ?)";
+      titleArg    = matchQuery;
+    } else {
+      titleFilter = TITLE + " LIKE ?";
+      titleArg    = "%" + constraint + "%";
+    }
+
     String   query;
     String[] queryArgs;
 
     if (includeInactive) {
-      query     = TITLE + " LIKE ? AND (" + ACTIVE + " = ? OR " + RECIPIENT_ID + " IN (SELECT " + ThreadDatabase.RECIPIENT_ID + " FROM " + ThreadDatabase.TABLE_NAME + "))";
-      queryArgs = new String[]{"%" + constraint + "%", "1"};
+      query     = titleFilter + " AND (" + ACTIVE + " = ? OR " + RECIPIENT_ID + " IN (SELECT " + ThreadDatabase.RECIPIENT_ID + " FROM " + ThreadDatabase.TABLE_NAME + "))";
+      queryArgs = new String[]{titleArg, "1"};
     } else {
-      query     = TITLE + " LIKE ? AND " + ACTIVE + " = ?";
-      queryArgs = new String[]{"%" + constraint + "%", "1"};
+      query     = titleFilter + " AND " + ACTIVE + " = ?";
+      queryArgs = new String[]{titleArg, "1"};
     }
 
     Cursor cursor = databaseHelper.getReadableDatabase().query(TABLE_NAME, null, query, queryArgs, null, null, TITLE + " COLLATE NOCASE ASC");
@@ -117,7 +117,7 @@ public class IdentityDatabase extends Database {
 
   public @NonNull IdentityRecordList getIdentities(@NonNull List<Recipient> recipients) {
     List<IdentityRecord> records       = new LinkedList<>();
-    SQLiteDatabase       database      = databaseHelper.getReadableDatabase();
+    SQLiteDatabase       database      = databaseHelper.getWritableDatabase();
     String[]             selectionArgs = new String[1];
 
     database.beginTransaction();
@@ -14,7 +14,10 @@ import org.thoughtcrime.securesms.jobmanager.persistence.ConstraintSpec;
 import org.thoughtcrime.securesms.jobmanager.persistence.DependencySpec;
 import org.thoughtcrime.securesms.jobmanager.persistence.FullSpec;
 import org.thoughtcrime.securesms.jobmanager.persistence.JobSpec;
+import org.thoughtcrime.securesms.util.Util;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -24,6 +27,8 @@ public class JobDatabase extends Database {
   public static String CONSTRAINTS_TABLE_NAME  = "constraint_spec";
   public static String DEPENDENCIES_TABLE_NAME = "dependency_spec";
 
+  private static final int MAX_IDS_PER_QUERY = 500;
+
   public static final String[] CREATE_TABLE = new String[] { Jobs.CREATE_TABLE,
                                                              Constraints.CREATE_TABLE,
                                                              Dependencies.CREATE_TABLE };
@@ -56,9 +61,12 @@ public class JobDatabase extends Database {
                                                                                     MAX_BACKOFF           + " INTEGER, " +
                                                                                     MAX_INSTANCES         + " INTEGER, " +
                                                                                     LIFESPAN              + " INTEGER, " +
-                                                                                    SERIALIZED_DATA       + " TEXT, " +
-                                                                                    SERIALIZED_INPUT_DATA + " TEXT DEFAULT NULL, " +
+                                                                                    SERIALIZED_DATA       + " BLOB, " +
+                                                                                    SERIALIZED_INPUT_DATA + " BLOB DEFAULT NULL, " +
                                                                                     IS_RUNNING            + " INTEGER)";
+
+    private static final String[] METADATA_PROJECTION = new String[] { ID, JOB_SPEC_ID, FACTORY_KEY, QUEUE_KEY, CREATE_TIME, NEXT_RUN_ATTEMPT_TIME, RUN_ATTEMPT,
+                                                                       MAX_ATTEMPTS, MAX_BACKOFF, MAX_INSTANCES, LIFESPAN, IS_RUNNING };
   }
 
   private static final class Constraints {
@@ -117,7 +125,40 @@ public class JobDatabase extends Database {
 
     try (Cursor cursor = databaseHelper.getReadableDatabase().query(Jobs.TABLE_NAME, null, null, null, null, null, Jobs.CREATE_TIME + ", " + Jobs.ID + " ASC")) {
       while (cursor != null && cursor.moveToNext()) {
-        jobs.add(jobSpecFromCursor(cursor));
+        jobs.add(jobSpecFromCursor(cursor, true));
+      }
+    }
+
+    return jobs;
+  }
+
+  /**
+   * Like {@link #getAllJobSpecs()}, but skips reading the serialized data and input data, which are
+   * left null. These make up most of each row, and can be read later with {@link #getJobSpecs(List)}.
+   */
+  public synchronized @NonNull List<JobSpec> getAllJobSpecsWithoutData() {
+    List<JobSpec> jobs = new LinkedList<>();
+
+    try (Cursor cursor = databaseHelper.getReadableDatabase().query(Jobs.TABLE_NAME, Jobs.METADATA_PROJECTION, null, null, null, null, Jobs.CREATE_TIME + ", " + Jobs.ID + " ASC")) {
+      while (cursor != null && cursor.moveToNext()) {
+        jobs.add(jobSpecFromCursor(cursor, false));
+      }
+    }
+
+    return jobs;
+  }
+
+  public synchronized @NonNull List<JobSpec> getJobSpecs(@NonNull List<String> ids) {
+    List<JobSpec> jobs = new ArrayList<>(ids.size());
+
+    for (List<String> chunk : Util.chunk(ids, MAX_IDS_PER_QUERY)) {
+      String   query = Jobs.JOB_SPEC_ID + " IN (" + Util.join(Collections.nCopies(chunk.size(), "?"), ",") + ")";
+      String[] args  = chunk.toArray(new String[0]);
+
+      try (Cursor cursor = databaseHelper.getReadableDatabase().query(Jobs.TABLE_NAME, null, query, args, null, null, null)) {
+        while (cursor != null && cursor.moveToNext()) {
+          jobs.add(jobSpecFromCursor(cursor, true));
+        }
       }
     }
 
@@ -134,7 +175,7 @@ public class JobDatabase extends Database {
     databaseHelper.getWritableDatabase().update(Jobs.TABLE_NAME, contentValues, query, args);
   }
 
-  public synchronized void updateJobAfterRetry(@NonNull String id, boolean isRunning, int runAttempt, long nextRunAttemptTime, @NonNull String serializedData) {
+  public synchronized void updateJobAfterRetry(@NonNull String id, boolean isRunning, int runAttempt, long nextRunAttemptTime, @NonNull byte[] serializedData) {
     ContentValues contentValues = new ContentValues();
     contentValues.put(Jobs.IS_RUNNING, isRunning ? 1 : 0);
     contentValues.put(Jobs.RUN_ATTEMPT, runAttempt);
@@ -284,7 +325,7 @@ public class JobDatabase extends Database {
           });
   }
 
-  private @NonNull JobSpec jobSpecFromCursor(@NonNull Cursor cursor) {
+  private @NonNull JobSpec jobSpecFromCursor(@NonNull Cursor cursor, boolean withData) {
     return new JobSpec(cursor.getString(cursor.getColumnIndexOrThrow(Jobs.JOB_SPEC_ID)),
                        cursor.getString(cursor.getColumnIndexOrThrow(Jobs.FACTORY_KEY)),
                        cursor.getString(cursor.getColumnIndexOrThrow(Jobs.QUEUE_KEY)),
@@ -295,8 +336,8 @@ public class JobDatabase extends Database {
                        cursor.getLong(cursor.getColumnIndexOrThrow(Jobs.MAX_BACKOFF)),
                        cursor.getLong(cursor.getColumnIndexOrThrow(Jobs.LIFESPAN)),
                        cursor.getInt(cursor.getColumnIndexOrThrow(Jobs.MAX_INSTANCES)),
-                       cursor.getString(cursor.getColumnIndexOrThrow(Jobs.SERIALIZED_DATA)),
-                       cursor.getString(cursor.getColumnIndexOrThrow(Jobs.SERIALIZED_INPUT_DATA)),
+                       withData ? cursor.getBlob(cursor.getColumnIndexOrThrow(Jobs.SERIALIZED_DATA)) : null,
+                       withData ? cursor.getBlob(cursor.getColumnIndexOrThrow(Jobs.SERIALIZED_INPUT_DATA)) : null,
                        cursor.getInt(cursor.getColumnIndexOrThrow(Jobs.IS_RUNNING)) == 1,
                        false);
   }
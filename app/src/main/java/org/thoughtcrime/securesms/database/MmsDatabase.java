@@ -376,7 +376,7 @@ public class MmsDatabase extends MessagingDatabase {
                              new String[] {String.valueOf(id)});
 
             DatabaseFactory.getGroupReceiptDatabase(context).update(ourRecipientId, id, status, timestamp);
-            DatabaseFactory.getThreadDatabase(context).update(threadId, false);
+            DatabaseFactory.getThreadDatabase(context).scheduleUpdate(threadId, false);
 
             if (isFirstIncrement) {
               notifyConversationListeners(threadId);
@@ -488,7 +488,7 @@ public class MmsDatabase extends MessagingDatabase {
                    " WHERE " + ID + " = ?", new String[] {id + ""});
 
     if (threadId.isPresent()) {
-      DatabaseFactory.getThreadDatabase(context).update(threadId.get(), false);
+      DatabaseFactory.getThreadDatabase(context).scheduleUpdate(threadId.get(), false);
     }
   }
 
@@ -543,11 +543,13 @@ public class MmsDatabase extends MessagingDatabase {
     values.putNull(LINK_PREVIEWS);
     values.putNull(SHARED_CONTACTS);
     values.putNull(REACTIONS);
+    values.put(MENTIONS_SELF, 0);
     db.update(TABLE_NAME, values, ID_WHERE, new String[] { String.valueOf(messageId) });
 
     DatabaseFactory.getAttachmentDatabase(context).deleteAttachmentsForMessage(messageId);
 
     long threadId = getThreadIdForMessage(messageId);
+    DatabaseFactory.getThreadDatabase(context).updateUnreadCounts(threadId);
     DatabaseFactory.getThreadDatabase(context).update(threadId, false);
     notifyConversationListeners(threadId);
   }
@@ -637,7 +639,7 @@ public class MmsDatabase extends MessagingDatabase {
       db.endTransaction();
     }
 
-    DatabaseFactory.getThreadDatabase(context).update(threadId, false);
+    DatabaseFactory.getThreadDatabase(context).scheduleUpdate(threadId, false);
     notifyConversationListeners(threadId);
   }
 
@@ -650,60 +652,116 @@ public class MmsDatabase extends MessagingDatabase {
     database.update(TABLE_NAME, contentValues, ID_WHERE, new String[] {String.valueOf(id)});
   }
 
-  public List<MarkedMessageInfo> setMessagesReadSince(long threadId, long sinceTimestamp) {
+  public List<MarkedMessageInfo> setEntireThreadRead(long threadId) {
+    return setMessagesRead(THREAD_ID + " = ?", SqlUtil.buildArgs(threadId));
+  }
+
+  /**
+   * Reads the receipt and expiration info for the unread messages in the thread, up to and
+   * including {@param maxId}, without marking them. Pair with
+   * {@link #setMessagesReadSince(long, long, long)} using the same arguments.
+   */
+  List<MarkedMessageInfo> getMessagesToMarkReadSince(long threadId, long sinceTimestamp, long maxId) {
+    return getMarkedMessageInfo(getUnreadSinceWhere(sinceTimestamp), getUnreadSinceArgs(threadId, sinceTimestamp), maxId);
+  }
+
+  void setMessagesReadSince(long threadId, long sinceTimestamp, long maxId) {
+    setMessagesRead(getUnreadSinceWhere(sinceTimestamp), getUnreadSinceArgs(threadId, sinceTimestamp), maxId);
+  }
+
+  public List<MarkedMessageInfo> setAllMessagesRead() {
+    return setMessagesRead(READ + " = 0", new String[0]);
+  }
+
+  /**
+   * @return The highest message id, which bounds a read marking so that it only marks the messages
+   *         whose info was read for it.
+   */
+  long getMaxId() {
+    SQLiteDatabase database = databaseHelper.getReadableDatabase();
+
+    try (Cursor cursor = database.query(TABLE_NAME, new String[] {"MAX(" + ID + ")"}, null, null, null, null, null)) {
+      return cursor != null && cursor.moveToFirst() ? cursor.getLong(0) : 0;
+    }
+  }
+
+  private static String getUnreadSinceWhere(long sinceTimestamp) {
     if (sinceTimestamp == -1) {
-      return setMessagesRead(THREAD_ID + " = ? AND " + READ + " = 0", new String[] {String.valueOf(threadId)});
+      return THREAD_ID + " = ? AND " + READ + " = 0";
     } else {
-      return setMessagesRead(THREAD_ID + " = ? AND " + READ + " = 0 AND " + DATE_RECEIVED + " <= ?", new String[]{String.valueOf(threadId), String.valueOf(sinceTimestamp)});
+      return THREAD_ID + " = ? AND " + READ + " = 0 AND " + DATE_RECEIVED + " <= ?";
     }
   }
 
-  public List<MarkedMessageInfo> setEntireThreadRead(long threadId) {
-    return setMessagesRead(THREAD_ID + " = ?", new String[] {String.valueOf(threadId)});
+  private static String[] getUnreadSinceArgs(long threadId, long sinceTimestamp) {
+    if (sinceTimestamp == -1) {
+      return SqlUtil.buildArgs(threadId);
+    } else {
+      return SqlUtil.buildArgs(threadId, sinceTimestamp);
+    }
   }
 
-  public List<MarkedMessageInfo> setAllMessagesRead() {
-    return setMessagesRead(READ + " = 0", null);
+  private List<MarkedMessageInfo> setMessagesRead(String where, String[] arguments) {
+    long                    maxId   = getMaxId();
+    List<MarkedMessageInfo> results = getMarkedMessageInfo(where, arguments, maxId);
+
+    setMessagesRead(where, arguments, maxId);
+
+    return results;
   }
 
-  private List<MarkedMessageInfo> setMessagesRead(String where, String[] arguments) {
-    SQLiteDatabase          database = databaseHelper.getWritableDatabase();
-    List<MarkedMessageInfo> result   = new LinkedList<>();
-    Cursor                  cursor   = null;
+  private void setMessagesRead(String where, String[] arguments, long maxId) {
+    SQLiteDatabase database      = databaseHelper.getWritableDatabase();
+    ContentValues  contentValues = new ContentValues();
 
-    database.beginTransaction();
+    contentValues.put(READ, 1);
 
-    try {
-      cursor = database.query(TABLE_NAME, new String[] {ID, RECIPIENT_ID, DATE_SENT, MESSAGE_BOX, EXPIRES_IN, EXPIRE_STARTED, THREAD_ID}, where, arguments, null, null, null);
-
-      while(cursor != null && cursor.moveToNext()) {
-        if (Types.isSecureType(cursor.getLong(cursor.getColumnIndex(MESSAGE_BOX)))) {
-          long           threadId       = cursor.getLong(cursor.getColumnIndex(THREAD_ID));
-          RecipientId    recipientId    = RecipientId.from(cursor.getLong(cursor.getColumnIndex(RECIPIENT_ID)));
-          long           dateSent       = cursor.getLong(cursor.getColumnIndex(DATE_SENT));
-          long           messageId      = cursor.getLong(cursor.getColumnIndex(ID));
-          long           expiresIn      = cursor.getLong(cursor.getColumnIndex(EXPIRES_IN));
-          long           expireStarted  = cursor.getLong(cursor.getColumnIndex(EXPIRE_STARTED));
-          SyncMessageId  syncMessageId  = new SyncMessageId(recipientId, dateSent);
-          ExpirationInfo expirationInfo = new ExpirationInfo(messageId, expiresIn, expireStarted, true);
-
-          result.add(new MarkedMessageInfo(threadId, syncMessageId, expirationInfo));
+    database.update(TABLE_NAME, contentValues, "(" + where + ") AND " + ID + " <= ?", SqlUtil.appendArg(arguments, String.valueOf(maxId)));
+  }
+
+  /**
+   * Pages through the matching messages in id order, {@link #MARK_READ_BATCH_SIZE} at a time, so a
+   * thread with thousands of unread messages is never read in one query, nor while holding the writer.
+   */
+  private List<MarkedMessageInfo> getMarkedMessageInfo(String where, String[] arguments, long maxId) {
+    SQLiteDatabase          database   = databaseHelper.getReadableDatabase();
+    List<MarkedMessageInfo> result     = new LinkedList<>();
+    String[]                projection = new String[] {ID, RECIPIENT_ID, DATE_SENT, MESSAGE_BOX, EXPIRES_IN, EXPIRE_STARTED, THREAD_ID};
+    String                  pageWhere  = "(" + where + ") AND " + ID + " > ? AND " + ID + " <= ?";
+    long                    lastId     = 0;
+    int                     pageCount;
+
+    do {
+      String[] pageArgs = SqlUtil.appendArg(SqlUtil.appendArg(arguments, String.valueOf(lastId)), String.valueOf(maxId));
+
+      pageCount = 0;
+
+      try (Cursor cursor = database.query(TABLE_NAME, projection, pageWhere, pageArgs, null, null, ID + " ASC", String.valueOf(MARK_READ_BATCH_SIZE))) {
+        while (cursor != null && cursor.moveToNext()) {
+          long messageId = cursor.getLong(cursor.getColumnIndex(ID));
+
+          pageCount++;
+          lastId = messageId;
+
+          if (Types.isSecureType(cursor.getLong(cursor.getColumnIndex(MESSAGE_BOX)))) {
+            long           threadId       = cursor.getLong(cursor.getColumnIndex(THREAD_ID));
+            RecipientId    recipientId    = RecipientId.from(cursor.getLong(cursor.getColumnIndex(RECIPIENT_ID)));
+            long           dateSent       = cursor.getLong(cursor.getColumnIndex(DATE_SENT));
+            long           expiresIn      = cursor.getLong(cursor.getColumnIndex(EXPIRES_IN));
+            long           expireStarted  = cursor.getLong(cursor.getColumnIndex(EXPIRE_STARTED));
+            SyncMessageId  syncMessageId  = new SyncMessageId(recipientId, dateSent);
+            ExpirationInfo expirationInfo = new ExpirationInfo(messageId, expiresIn, expireStarted, true);
+
+            result.add(new MarkedMessageInfo(threadId, syncMessageId, expirationInfo));
+          }
         }
       }
-
-      ContentValues contentValues = new ContentValues();
-      contentValues.put(READ, 1);
-
-      database.update(TABLE_NAME, contentValues, where, arguments);
-      database.setTransactionSuccessful();
-    } finally {
-      if (cursor != null) cursor.close();
-      database.endTransaction();
-    }
+    } while (pageCount == MARK_READ_BATCH_SIZE);
 
     return result;
   }
 
+
   public List<Pair<Long, Long>> setTimestampRead(SyncMessageId messageId, long proposedExpireStarted) {
     SQLiteDatabase         database        = databaseHelper.getWritableDatabase();
     List<Pair<Long, Long>> expiring        = new LinkedList<>();
@@ -819,7 +877,6 @@ public class MmsDatabase extends MessagingDatabase {
 
     DatabaseFactory.getThreadDatabase(context).update(threadId, true);
     notifyConversationListeners(threadId);
-    notifyConversationListListeners();
 
     return new Pair<>(messageId, threadId);
   }
@@ -1066,8 +1123,11 @@ public class MmsDatabase extends MessagingDatabase {
     long messageId = insertMediaMessage(threadId, retrieved.getBody(), retrieved.getAttachments(), quoteAttachments, retrieved.getSharedContacts(), retrieved.getLinkPreviews(), retrieved.getMentions(), contentValues, null);
 
     if (!Types.isExpirationTimerUpdate(mailbox)) {
-      DatabaseFactory.getThreadDatabase(context).incrementUnread(threadId, 1);
-      DatabaseFactory.getThreadDatabase(context).update(threadId, true);
+      // insertMediaMessage records in the values whether the message mentions us
+      boolean mentionsSelf = Boolean.TRUE.equals(contentValues.getAsBoolean(MENTIONS_SELF));
+
+      DatabaseFactory.getThreadDatabase(context).incrementUnread(threadId, 1, mentionsSelf ? 1 : 0);
+      DatabaseFactory.getThreadDatabase(context).scheduleUpdate(threadId, true);
     }
 
     notifyConversationListeners(threadId);
@@ -1299,7 +1359,7 @@ public class MmsDatabase extends MessagingDatabase {
         ContentValues contactValues = new ContentValues();
         contactValues.put(SHARED_CONTACTS, serializedContacts);
 
-        SQLiteDatabase database = databaseHelper.getReadableDatabase();
+        SQLiteDatabase database = databaseHelper.getWritableDatabase();
         int rows = database.update(TABLE_NAME, contactValues, ID + " = ?", new String[]{ String.valueOf(messageId) });
 
         if (rows <= 0) {
@@ -1311,7 +1371,7 @@ public class MmsDatabase extends MessagingDatabase {
         ContentValues contactValues = new ContentValues();
         contactValues.put(LINK_PREVIEWS, serializedPreviews);
 
-        SQLiteDatabase database = databaseHelper.getReadableDatabase();
+        SQLiteDatabase database = databaseHelper.getWritableDatabase();
         int rows = database.update(TABLE_NAME, contactValues, ID + " = ?", new String[]{ String.valueOf(messageId) });
 
         if (rows <= 0) {
@@ -1343,6 +1403,7 @@ public class MmsDatabase extends MessagingDatabase {
 
     SQLiteDatabase database = databaseHelper.getWritableDatabase();
     database.delete(TABLE_NAME, ID_WHERE, new String[] {messageId+""});
+    DatabaseFactory.getThreadDatabase(context).updateUnreadCounts(threadId);
     boolean threadDeleted = DatabaseFactory.getThreadDatabase(context).update(threadId, false);
     notifyConversationListeners(threadId);
     notifyStickerListeners();
@@ -1350,6 +1411,32 @@ public class MmsDatabase extends MessagingDatabase {
     return threadDeleted;
   }
 
+  /**
+   * Deletes the messages, their attachments and group receipts without updating or notifying their
+   * threads. Should be called in a transaction.
+   *
+   * @return The ids of the threads the messages belonged to.
+   */
+  /*package*/ @NonNull Set<Long> deleteMessagesWithoutThreadUpdate(@NonNull Collection<Long> messageIds) {
+    AttachmentDatabase   attachmentDatabase   = DatabaseFactory.getAttachmentDatabase(context);
+    GroupReceiptDatabase groupReceiptDatabase = DatabaseFactory.getGroupReceiptDatabase(context);
+    SQLiteDatabase       database             = databaseHelper.getWritableDatabase();
+    Set<Long>            threadIds            = new HashSet<>();
+
+    for (long messageId : messageIds) {
+      long threadId = getThreadIdForMessage(messageId);
+
+      attachmentDatabase.deleteAttachmentsForMessage(messageId);
+      groupReceiptDatabase.deleteRowsForMessage(messageId);
+
+      if (database.delete(TABLE_NAME, ID_WHERE, new String[] {String.valueOf(messageId)}) > 0) {
+        threadIds.add(threadId);
+      }
+    }
+
+    return threadIds;
+  }
+
   public void deleteThread(long threadId) {
     Set<Long> singleThreadSet = new HashSet<>();
     singleThreadSet.add(threadId);
@@ -30,9 +30,11 @@ import org.thoughtcrime.securesms.database.helpers.SQLCipherOpenHelper;
 import org.thoughtcrime.securesms.database.model.MessageRecord;
 import org.thoughtcrime.securesms.recipients.Recipient;
 import org.thoughtcrime.securesms.recipients.RecipientId;
+import org.thoughtcrime.securesms.util.SqlUtil;
 import org.whispersystems.libsignal.util.Pair;
 
 import java.io.Closeable;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -45,6 +47,77 @@ public class MmsSmsDatabase extends Database {
   public static final String MMS_TRANSPORT = "mms";
   public static final String SMS_TRANSPORT = "sms";
 
+  /**
+   * One row per sms and mms message, kept current by triggers on both tables. It holds just what's
+   * needed to order, page and locate messages, so those reads scan a single index instead of the
+   * union of both tables and the attachment join.
+   */
+  public  static final String TABLE_NAME = "message_index";
+  private static final String MESSAGE_ID = "message_id";
+  private static final String UNNOTIFIED = "unnotified";
+
+  public static final String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " (" + MmsSmsColumns.ID                       + " INTEGER PRIMARY KEY, " +
+                                                                                  MmsSmsColumns.THREAD_ID                + " INTEGER, " +
+                                                                                  MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " INTEGER, " +
+                                                                                  MmsSmsColumns.NORMALIZED_DATE_SENT     + " INTEGER, " +
+                                                                                  SmsDatabase.TYPE                       + " INTEGER, " +
+                                                                                  MmsSmsColumns.RECIPIENT_ID             + " INTEGER, " +
+                                                                                  TRANSPORT                              + " TEXT, " +
+                                                                                  MESSAGE_ID                             + " INTEGER, " +
+                                                                                  UNNOTIFIED                             + " INTEGER DEFAULT 0, " +
+                                                                                  "UNIQUE(" + TRANSPORT + ", " + MESSAGE_ID + "));";
+
+  public static final String[] CREATE_INDEXS = {
+    "CREATE INDEX IF NOT EXISTS message_index_thread_date_index ON " + TABLE_NAME + " (" + MmsSmsColumns.THREAD_ID + ", " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + ", " + TRANSPORT + ", " + MESSAGE_ID + ", " + MmsSmsColumns.NORMALIZED_DATE_SENT + ", " + MmsSmsColumns.RECIPIENT_ID + ");",
+    "CREATE INDEX IF NOT EXISTS message_index_unnotified_index ON " + TABLE_NAME + " (" + TRANSPORT + ", " + MESSAGE_ID + ") WHERE " + UNNOTIFIED + " = 1;",
+    "CREATE INDEX IF NOT EXISTS message_index_thread_date_sent_index ON " + TABLE_NAME + " (" + MmsSmsColumns.THREAD_ID + ", " + MmsSmsColumns.NORMALIZED_DATE_SENT + ");"
+  };
+
+  private static final String INDEX_COLUMNS = MmsSmsColumns.THREAD_ID + ", " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + ", " + MmsSmsColumns.NORMALIZED_DATE_SENT + ", " + SmsDatabase.TYPE + ", " + MmsSmsColumns.RECIPIENT_ID + ", " + TRANSPORT + ", " + MESSAGE_ID + ", " + UNNOTIFIED;
+
+  private static final String NEW_UNNOTIFIED = "new." + MmsSmsColumns.NOTIFIED + " = 0 AND (new." + MmsSmsColumns.READ + " = 0 OR new." + MmsSmsColumns.REACTIONS_UNREAD + " = 1)";
+
+  public static final String[] CREATE_TRIGGERS = {
+    "CREATE TRIGGER sms_message_index_ai AFTER INSERT ON " + SmsDatabase.TABLE_NAME + " BEGIN\n" +
+        "  INSERT INTO " + TABLE_NAME + " (" + INDEX_COLUMNS + ") VALUES (new." + SmsDatabase.THREAD_ID + ", new." + SmsDatabase.DATE_RECEIVED + ", new." + SmsDatabase.DATE_SENT + ", new." + SmsDatabase.TYPE + ", new." + SmsDatabase.RECIPIENT_ID + ", '" + SMS_TRANSPORT + "', new." + SmsDatabase.ID + ", " + NEW_UNNOTIFIED + ");\n" +
+        "END;",
+    "CREATE TRIGGER sms_message_index_ad AFTER DELETE ON " + SmsDatabase.TABLE_NAME + " BEGIN\n" +
+        "  DELETE FROM " + TABLE_NAME + " WHERE " + TRANSPORT + " = '" + SMS_TRANSPORT + "' AND " + MESSAGE_ID + " = old." + SmsDatabase.ID + ";\n" +
+        "END;",
+    "CREATE TRIGGER sms_message_index_au AFTER UPDATE OF " + SmsDatabase.THREAD_ID + ", " + SmsDatabase.DATE_RECEIVED + ", " + SmsDatabase.DATE_SENT + ", " + SmsDatabase.TYPE + ", " + SmsDatabase.RECIPIENT_ID + ", " + SmsDatabase.READ + ", " + SmsDatabase.NOTIFIED + ", " + SmsDatabase.REACTIONS_UNREAD + " ON " + SmsDatabase.TABLE_NAME + " BEGIN\n" +
+        "  UPDATE " + TABLE_NAME + " SET " + MmsSmsColumns.THREAD_ID + " = new." + SmsDatabase.THREAD_ID + ", " +
+                                             MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " = new." + SmsDatabase.DATE_RECEIVED + ", " +
+                                             MmsSmsColumns.NORMALIZED_DATE_SENT + " = new." + SmsDatabase.DATE_SENT + ", " +
+                                             SmsDatabase.TYPE + " = new." + SmsDatabase.TYPE + ", " +
+                                             MmsSmsColumns.RECIPIENT_ID + " = new." + SmsDatabase.RECIPIENT_ID + ", " +
+                                             UNNOTIFIED + " = " + NEW_UNNOTIFIED + " " +
+        "WHERE " + TRANSPORT + " = '" + SMS_TRANSPORT + "' AND " + MESSAGE_ID + " = new." + SmsDatabase.ID + ";\n" +
+        "END;",
+
+    "CREATE TRIGGER mms_message_index_ai AFTER INSERT ON " + MmsDatabase.TABLE_NAME + " BEGIN\n" +
+        "  INSERT INTO " + TABLE_NAME + " (" + INDEX_COLUMNS + ") VALUES (new." + MmsDatabase.THREAD_ID + ", new." + MmsDatabase.DATE_RECEIVED + ", new." + MmsDatabase.DATE_SENT + ", new." + MmsDatabase.MESSAGE_BOX + ", new." + MmsDatabase.RECIPIENT_ID + ", '" + MMS_TRANSPORT + "', new." + MmsDatabase.ID + ", " + NEW_UNNOTIFIED + ");\n" +
+        "END;",
+    "CREATE TRIGGER mms_message_index_ad AFTER DELETE ON " + MmsDatabase.TABLE_NAME + " BEGIN\n" +
+        "  DELETE FROM " + TABLE_NAME + " WHERE " + TRANSPORT + " = '" + MMS_TRANSPORT + "' AND " + MESSAGE_ID + " = old." + MmsDatabase.ID + ";\n" +
+        "END;",
+    "CREATE TRIGGER mms_message_index_au AFTER UPDATE OF " + MmsDatabase.THREAD_ID + ", " + MmsDatabase.DATE_RECEIVED + ", " + MmsDatabase.DATE_SENT + ", " + MmsDatabase.MESSAGE_BOX + ", " + MmsDatabase.RECIPIENT_ID + ", " + MmsDatabase.READ + ", " + MmsDatabase.NOTIFIED + ", " + MmsDatabase.REACTIONS_UNREAD + " ON " + MmsDatabase.TABLE_NAME + " BEGIN\n" +
+        "  UPDATE " + TABLE_NAME + " SET " + MmsSmsColumns.THREAD_ID + " = new." + MmsDatabase.THREAD_ID + ", " +
+                                             MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " = new." + MmsDatabase.DATE_RECEIVED + ", " +
+                                             MmsSmsColumns.NORMALIZED_DATE_SENT + " = new." + MmsDatabase.DATE_SENT + ", " +
+                                             SmsDatabase.TYPE + " = new." + MmsDatabase.MESSAGE_BOX + ", " +
+                                             MmsSmsColumns.RECIPIENT_ID + " = new." + MmsDatabase.RECIPIENT_ID + ", " +
+                                             UNNOTIFIED + " = " + NEW_UNNOTIFIED + " " +
+        "WHERE " + TRANSPORT + " = '" + MMS_TRANSPORT + "' AND " + MESSAGE_ID + " = new." + MmsDatabase.ID + ";\n" +
+        "END;"
+  };
+
+  /**
+   * The order of {@link #getConversation(long)}. Messages received at the same time are ordered by
+   * transport and then id, so every read of the index agrees on their positions.
+   */
+  private static final String CONVERSATION_ORDER = MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " DESC, " + TRANSPORT + " DESC, " + MmsSmsColumns.ID + " DESC";
+  private static final String INDEX_ORDER        = MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " DESC, " + TRANSPORT + " DESC, " + MESSAGE_ID + " DESC";
+
   private static final String[] PROJECTION = {MmsSmsColumns.ID,
                                               MmsSmsColumns.UNIQUE_ROW_ID,
                                               SmsDatabase.BODY,
@@ -97,6 +170,42 @@ public class MmsSmsDatabase extends Database {
     super(context, databaseHelper);
   }
 
+  /**
+   * Deletes the sms and mms messages in one transaction. Each affected thread is recomputed once
+   * and notified once, rather than once per message.
+   */
+  public void deleteMessages(@NonNull Collection<Long> smsIds, @NonNull Collection<Long> mmsIds) {
+    if (smsIds.isEmpty() && mmsIds.isEmpty()) {
+      return;
+    }
+
+    SQLiteDatabase db        = databaseHelper.getWritableDatabase();
+    Set<Long>      threadIds = new HashSet<>();
+
+    db.beginTransaction();
+    try {
+      threadIds.addAll(DatabaseFactory.getSmsDatabase(context).deleteMessagesWithoutThreadUpdate(smsIds));
+      threadIds.addAll(DatabaseFactory.getMmsDatabase(context).deleteMessagesWithoutThreadUpdate(mmsIds));
+
+      for (long threadId : threadIds) {
+        DatabaseFactory.getThreadDatabase(context).updateUnreadCounts(threadId);
+      }
+
+      DatabaseFactory.getThreadDatabase(context).update(threadIds, false);
+
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+
+    notifyConversationListeners(threadIds);
+
+    if (!mmsIds.isEmpty()) {
+      notifyStickerListeners();
+      notifyStickerPackListeners();
+    }
+  }
+
   /**
    * @return The user that added you to the group, otherwise null.
    */
@@ -127,15 +236,10 @@ public class MmsSmsDatabase extends Database {
   }
 
   public int getMessagePositionOnOrAfterTimestamp(long threadId, long timestamp) {
-    String[] projection = new String[] { "COUNT(*)" };
-    String   selection  = MmsSmsColumns.THREAD_ID + " = " + threadId + " AND " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " >= " + timestamp;
+    SQLiteDatabase db        = databaseHelper.getReadableDatabase();
+    String         selection = MmsSmsColumns.THREAD_ID + " = ? AND " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " >= ?";
 
-    try (Cursor cursor = queryTables(projection, selection, null, null)) {
-      if (cursor != null && cursor.moveToNext()) {
-        return cursor.getInt(0);
-      }
-    }
-    return 0;
+    return count(db, TABLE_NAME, selection, SqlUtil.buildArgs(threadId, timestamp));
   }
 
   public @Nullable MessageRecord getMessageFor(long timestamp, RecipientId author) {
@@ -158,17 +262,33 @@ public class MmsSmsDatabase extends Database {
     return null;
   }
 
+  /**
+   * A page is picked from the message index, and only the messages on it are read from the sms and
+   * mms tables, so the attachment join never runs over the rows that are skipped.
+   */
   public Cursor getConversation(long threadId, long offset, long limit) {
-    String order     = MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " DESC";
-    String selection = MmsSmsColumns.THREAD_ID + " = " + threadId;
-    String limitStr  = limit > 0 || offset > 0 ? offset + ", " + limit : null;
+    Cursor cursor;
+
+    if (limit > 0 || offset > 0) {
+      String page = "SELECT " + TRANSPORT + ", " + MESSAGE_ID + " FROM " + TABLE_NAME + " " +
+                    "WHERE " + MmsSmsColumns.THREAD_ID + " = " + threadId + " " +
+                    "ORDER BY " + INDEX_ORDER + " " +
+                    "LIMIT " + offset + ", " + limit;
+
+      cursor = queryTables(PROJECTION, inPage(SmsDatabase.TABLE_NAME, SMS_TRANSPORT, page), inPage(MmsDatabase.TABLE_NAME, MMS_TRANSPORT, page), CONVERSATION_ORDER, null);
+    } else {
+      cursor = queryTables(PROJECTION, MmsSmsColumns.THREAD_ID + " = " + threadId, CONVERSATION_ORDER, null);
+    }
 
-    Cursor cursor = queryTables(PROJECTION, selection, order, limitStr);
     setNotifyConversationListeners(cursor, threadId);
 
     return cursor;
   }
 
+  private static @NonNull String inPage(@NonNull String table, @NonNull String transport, @NonNull String page) {
+    return table + "." + MmsSmsColumns.ID + " IN (SELECT " + MESSAGE_ID + " FROM (" + page + ") WHERE " + TRANSPORT + " = '" + transport + "')";
+  }
+
   public Cursor getConversation(long threadId) {
     return getConversation(threadId, 0, 0);
   }
@@ -183,28 +303,54 @@ public class MmsSmsDatabase extends Database {
     return cursor;
   }
 
+  /**
+   * Finds the date of the newest message with a seek on the message index, then only reads the
+   * messages at that date. Otherwise the union would group the attachments of every message in the
+   * thread just to keep the first row.
+   */
   public Cursor getConversationSnippet(long threadId) {
     String order     = MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " DESC";
-    String selection = MmsSmsColumns.THREAD_ID + " = " + threadId + " AND (" + SmsDatabase.TYPE + " IS NULL OR " + SmsDatabase.TYPE + " != " + SmsDatabase.Types.PROFILE_CHANGE_TYPE + ")";
+    String selection = MmsSmsColumns.THREAD_ID + " = " + threadId + " AND " +
+                       MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " = " + getConversationSnippetDate(threadId) + " AND " +
+                       "(" + SmsDatabase.TYPE + " IS NULL OR " + SmsDatabase.TYPE + " != " + SmsDatabase.Types.PROFILE_CHANGE_TYPE + ")";
 
     return  queryTables(PROJECTION, selection, order, "1");
   }
 
+  private long getConversationSnippetDate(long threadId) {
+    SQLiteDatabase db        = databaseHelper.getReadableDatabase();
+    String[]       columns   = new String[] { MmsSmsColumns.NORMALIZED_DATE_RECEIVED };
+    String         selection = MmsSmsColumns.THREAD_ID + " = ? AND (" + TRANSPORT + " = ? OR " + SmsDatabase.TYPE + " IS NULL OR " + SmsDatabase.TYPE + " != ?)";
+    String[]       args      = SqlUtil.buildArgs(threadId, MMS_TRANSPORT, SmsDatabase.Types.PROFILE_CHANGE_TYPE);
+
+    try (Cursor cursor = db.query(TABLE_NAME, columns, selection, args, null, null, MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " DESC", "1")) {
+      return cursor != null && cursor.moveToFirst() ? cursor.getLong(0) : -1;
+    }
+  }
+
   public Cursor getUnread() {
-    String order           = MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " ASC";
-    String selection       = MmsSmsColumns.NOTIFIED + " = 0 AND (" + MmsSmsColumns.READ + " = 0 OR " + MmsSmsColumns.REACTIONS_UNREAD + " = 1)";
+    String order        = MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " ASC";
+    String smsSelection = SmsDatabase.TABLE_NAME + "." + MmsSmsColumns.ID + " IN (SELECT " + MESSAGE_ID + " FROM " + TABLE_NAME + " WHERE " + UNNOTIFIED + " = 1 AND " + TRANSPORT + " = '" + SMS_TRANSPORT + "')";
+    String mmsSelection = MmsDatabase.TABLE_NAME + "." + MmsSmsColumns.ID + " IN (SELECT " + MESSAGE_ID + " FROM " + TABLE_NAME + " WHERE " + UNNOTIFIED + " = 1 AND " + TRANSPORT + " = '" + MMS_TRANSPORT + "')";
 
-    return queryTables(PROJECTION, selection, order, null);
+    return queryTables(PROJECTION, smsSelection, mmsSelection, order, null);
   }
 
+  /**
+   * Counts in each table rather than reading the unread messages, so it's answered from the
+   * read/notified/thread index alone.
+   */
   public int getUnreadCount(long threadId) {
-    String selection = MmsSmsColumns.READ + " = 0 AND " + MmsSmsColumns.NOTIFIED + " = 0 AND " + MmsSmsColumns.THREAD_ID + " = " + threadId;
-    Cursor cursor    = queryTables(PROJECTION, selection, null, null);
+    SQLiteDatabase db        = databaseHelper.getReadableDatabase();
+    String         selection = MmsSmsColumns.READ + " = 0 AND " + MmsSmsColumns.NOTIFIED + " = 0 AND " + MmsSmsColumns.THREAD_ID + " = ?";
+    String[]       args      = SqlUtil.buildArgs(threadId);
 
-    try {
-      return cursor != null ? cursor.getCount() : 0;
-    } finally {
-      if (cursor != null) cursor.close();;
+    return count(db, SmsDatabase.TABLE_NAME, selection, args) + count(db, MmsDatabase.TABLE_NAME, selection, args);
+  }
+
+  private static int count(@NonNull SQLiteDatabase db, @NonNull String table, @NonNull String selection, @NonNull String[] args) {
+    try (Cursor cursor = db.query(table, new String[] { "COUNT(*)" }, selection, args, null, null, null)) {
+      return cursor != null && cursor.moveToFirst() ? cursor.getInt(0) : 0;
     }
   }
 
@@ -304,41 +450,53 @@ public class MmsSmsDatabase extends Database {
   }
 
   public int getQuotedMessagePosition(long threadId, long quoteId, @NonNull RecipientId recipientId) {
-    String order     = MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " DESC";
-    String selection = MmsSmsColumns.THREAD_ID + " = " + threadId;
-
-    try (Cursor cursor = queryTables(new String[]{ MmsSmsColumns.NORMALIZED_DATE_SENT, MmsSmsColumns.RECIPIENT_ID}, selection, order, null)) {
-      boolean isOwnNumber = Recipient.resolved(recipientId).isLocalNumber();
-
-      while (cursor != null && cursor.moveToNext()) {
-        boolean quoteIdMatches     = cursor.getLong(0) == quoteId;
-        boolean recipientIdMatches = recipientId.equals(RecipientId.from(cursor.getLong(1)));
-
-        if (quoteIdMatches && (recipientIdMatches || isOwnNumber)) {
-          return cursor.getPosition();
-        }
-      }
-    }
-    return -1;
+    return getPositionInConversation(databaseHelper.getReadableDatabase(), threadId, MmsSmsColumns.NORMALIZED_DATE_SENT, quoteId, Recipient.resolved(recipientId).isLocalNumber() ? null : recipientId);
   }
 
   public int getMessagePositionInConversation(long threadId, long receivedTimestamp, @NonNull RecipientId recipientId) {
-    String order     = MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " DESC";
-    String selection = MmsSmsColumns.THREAD_ID + " = " + threadId;
+    return getPositionInConversation(databaseHelper.getReadableDatabase(), threadId, MmsSmsColumns.NORMALIZED_DATE_RECEIVED, receivedTimestamp, Recipient.resolved(recipientId).isLocalNumber() ? null : recipientId);
+  }
 
-    try (Cursor cursor = queryTables(new String[]{ MmsSmsColumns.NORMALIZED_DATE_RECEIVED, MmsSmsColumns.RECIPIENT_ID}, selection, order, null)) {
-      boolean isOwnNumber = Recipient.resolved(recipientId).isLocalNumber();
+  /**
+   * Finds the first message in conversation order with the given date and, if provided, sender,
+   * then counts the messages ahead of it. Both steps are seeks on the message index, so the cost
+   * doesn't grow with how far back the message is.
+   *
+   * @param dateColumn Either the sent or the received date.
+   * @param sender     The sender to match, or null to match any.
+   *
+   * @return The message's position in {@link #getConversation(long)}, or -1 if there's no match.
+   */
+  static int getPositionInConversation(@NonNull SQLiteDatabase db, long threadId, @NonNull String dateColumn, long date, @Nullable RecipientId sender) {
+    String[] columns   = new String[] { MmsSmsColumns.NORMALIZED_DATE_RECEIVED, TRANSPORT, MESSAGE_ID };
+    String   selection = MmsSmsColumns.THREAD_ID + " = ? AND " + dateColumn + " = ?";
+    String[] args      = SqlUtil.buildArgs(threadId, date);
+
+    if (sender != null) {
+      selection += " AND " + MmsSmsColumns.RECIPIENT_ID + " = ?";
+      args       = SqlUtil.buildArgs(threadId, date, sender.serialize());
+    }
 
-      while (cursor != null && cursor.moveToNext()) {
-        boolean timestampMatches   = cursor.getLong(0) == receivedTimestamp;
-        boolean recipientIdMatches = recipientId.equals(RecipientId.from(cursor.getLong(1)));
+    long   dateReceived;
+    String transport;
+    long   messageId;
 
-        if (timestampMatches && (recipientIdMatches || isOwnNumber)) {
-          return cursor.getPosition();
-        }
+    try (Cursor cursor = db.query(TABLE_NAME, columns, selection, args, null, null, INDEX_ORDER, "1")) {
+      if (cursor == null || !cursor.moveToFirst()) {
+        return -1;
       }
+
+      dateReceived = cursor.getLong(0);
+      transport    = cursor.getString(1);
+      messageId    = cursor.getLong(2);
     }
-    return -1;
+
+    String newer      = MmsSmsColumns.THREAD_ID + " = ? AND " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " > ?";
+    String tiedBefore = MmsSmsColumns.THREAD_ID + " = ? AND " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " = ? AND " +
+                        "(" + TRANSPORT + " > ? OR (" + TRANSPORT + " = ? AND " + MESSAGE_ID + " > ?))";
+
+    return count(db, TABLE_NAME, newer, SqlUtil.buildArgs(threadId, dateReceived)) +
+           count(db, TABLE_NAME, tiedBefore, SqlUtil.buildArgs(threadId, dateReceived, transport, transport, messageId));
   }
 
   boolean hasReceivedAnyCallsSince(long threadId, long timestamp) {
@@ -354,18 +512,17 @@ public class MmsSmsDatabase extends Database {
    * you'll still wind up in about the right spot.
    */
   public int getMessagePositionInConversation(long threadId, long receivedTimestamp) {
-    String order     = MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " DESC";
-    String selection = MmsSmsColumns.THREAD_ID + " = " + threadId + " AND " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " > " + receivedTimestamp;
+    SQLiteDatabase db        = databaseHelper.getReadableDatabase();
+    String         selection = MmsSmsColumns.THREAD_ID + " = ? AND " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " > ?";
 
-    try (Cursor cursor = queryTables(new String[]{ "COUNT(*)" }, selection, order, null)) {
-      if (cursor != null && cursor.moveToFirst()) {
-        return cursor.getInt(0);
-      }
-    }
-    return -1;
+    return count(db, TABLE_NAME, selection, SqlUtil.buildArgs(threadId, receivedTimestamp));
   }
 
   private Cursor queryTables(String[] projection, String selection, String order, String limit) {
+    return queryTables(projection, selection, selection, order, limit);
+  }
+
+  private Cursor queryTables(String[] projection, String smsSelection, String mmsSelection, String order, String limit) {
     String[] mmsProjection = {MmsDatabase.DATE_SENT + " AS " + MmsSmsColumns.NORMALIZED_DATE_SENT,
                               MmsDatabase.DATE_RECEIVED + " AS " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED,
                               MmsDatabase.TABLE_NAME + "." + MmsDatabase.ID + " AS " + MmsSmsColumns.ID,
@@ -543,9 +700,9 @@ public class MmsSmsDatabase extends Database {
     smsColumnsPresent.add(MmsDatabase.REMOTE_DELETED);
 
     @SuppressWarnings("deprecation")
-    String mmsSubQuery = mmsQueryBuilder.buildUnionSubQuery(TRANSPORT, mmsProjection, mmsColumnsPresent, 4, MMS_TRANSPORT, selection, null, MmsDatabase.TABLE_NAME + "." + MmsDatabase.ID, null);
+    String mmsSubQuery = mmsQueryBuilder.buildUnionSubQuery(TRANSPORT, mmsProjection, mmsColumnsPresent, 4, MMS_TRANSPORT, mmsSelection, null, MmsDatabase.TABLE_NAME + "." + MmsDatabase.ID, null);
     @SuppressWarnings("deprecation")
-    String smsSubQuery = smsQueryBuilder.buildUnionSubQuery(TRANSPORT, smsProjection, smsColumnsPresent, 4, SMS_TRANSPORT, selection, null, null, null);
+    String smsSubQuery = smsQueryBuilder.buildUnionSubQuery(TRANSPORT, smsProjection, smsColumnsPresent, 4, SMS_TRANSPORT, smsSelection, null, null, null);
 
     SQLiteQueryBuilder unionQueryBuilder = new SQLiteQueryBuilder();
     String unionQuery = unionQueryBuilder.buildUnionQuery(new String[] {smsSubQuery, mmsSubQuery}, order, limit);
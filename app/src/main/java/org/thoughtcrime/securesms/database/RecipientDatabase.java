@@ -74,6 +74,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 public class RecipientDatabase extends Database {
 
@@ -149,6 +150,13 @@ public class RecipientDatabase extends Database {
 
   private static final String[] MENTION_SEARCH_PROJECTION  = new String[]{ID, removeWhitespace("COALESCE(" + nullIfEmpty(SYSTEM_DISPLAY_NAME) + ", " + nullIfEmpty(PROFILE_JOINED_NAME) + ", " + nullIfEmpty(PROFILE_GIVEN_NAME) + ", " + nullIfEmpty(USERNAME) + ", " + nullIfEmpty(PHONE) + ")") + " AS " + SORT_NAME};
 
+  private static final String[] FTS_COLUMN_NAMES = new String[]{SYSTEM_DISPLAY_NAME, PROFILE_GIVEN_NAME, PROFILE_FAMILY_NAME, USERNAME, PHONE, EMAIL};
+          static final String   FTS_COLUMNS      = Util.join(FTS_COLUMN_NAMES, ", ");
+          static final String   FTS_OLD_VALUES   = Util.join(Stream.of(FTS_COLUMN_NAMES).map(columnName -> "old." + columnName).toList(), ", ");
+          static final String   FTS_NEW_VALUES   = Util.join(Stream.of(FTS_COLUMN_NAMES).map(columnName -> "new." + columnName).toList(), ", ");
+
+  private static final Pattern PHONE_NUMBER_QUERY = Pattern.compile("[0-9+()\\-.\\s]*[0-9][0-9+()\\-.\\s]*");
+
   private static final String[] RECIPIENT_FULL_PROJECTION = ArrayUtils.concat(
       new String[] { TABLE_NAME + "." + ID },
       TYPED_RECIPIENT_PROJECTION,
@@ -1829,7 +1837,7 @@ public class RecipientDatabase extends Database {
   }
 
   public void updateSystemContactColors(@NonNull ColorUpdater updater) {
-    SQLiteDatabase                  db      = databaseHelper.getReadableDatabase();
+    SQLiteDatabase                  db      = databaseHelper.getWritableDatabase();
     Map<RecipientId, MaterialColor> updates = new HashMap<>();
 
     db.beginTransaction();
@@ -1874,24 +1882,18 @@ public class RecipientDatabase extends Database {
   }
 
   public @Nullable Cursor querySignalContacts(@NonNull String query, boolean includeSelf) {
-    query = buildCaseInsensitiveGlobPattern(query);
+    SearchFilter filter = buildSearchFilter(query, PHONE, SORT_NAME, USERNAME);
 
     String   selection = BLOCKED     + " = ? AND " +
                          REGISTERED  + " = ? AND " +
                          GROUP_ID    + " IS NULL AND " +
                          "(" + SYSTEM_DISPLAY_NAME + " NOT NULL OR " + PROFILE_SHARING + " = ?) AND " +
-                         "(" +
-                           PHONE     + " GLOB ? OR " +
-                           SORT_NAME + " GLOB ? OR " +
-                           USERNAME  + " GLOB ?" +
-                         ")";
-    String[] args;
+                         filter.selection;
+    String[] args      = ArrayUtils.concat(new String[] { "0", String.valueOf(RegisteredState.REGISTERED.getId()), "1" }, filter.args);
 
-    if (includeSelf) {
-      args = new String[]{"0", String.valueOf(RegisteredState.REGISTERED.getId()), "1", query, query, query};
-    } else {
+    if (!includeSelf) {
       selection += " AND " + ID + " != ?";
-      args       = new String[] { "0", String.valueOf(RegisteredState.REGISTERED.getId()), "1", query, query, query, String.valueOf(Recipient.self().getId().toLong()) };
+      args       = SqlUtil.appendArg(args, String.valueOf(Recipient.self().getId().toLong()));
     }
 
     String   orderBy   = SORT_NAME + ", " + SYSTEM_DISPLAY_NAME + ", " + SEARCH_PROFILE_NAME + ", " + PHONE;
@@ -1912,35 +1914,25 @@ public class RecipientDatabase extends Database {
   }
 
   public @Nullable Cursor queryNonSignalContacts(@NonNull String query) {
-    query = buildCaseInsensitiveGlobPattern(query);
+    SearchFilter filter = buildSearchFilter(query, PHONE, EMAIL, SYSTEM_DISPLAY_NAME);
 
     String   selection = BLOCKED    + " = ? AND " +
                          REGISTERED + " != ? AND " +
                          GROUP_ID   + " IS NULL AND " +
                          SYSTEM_DISPLAY_NAME + " NOT NULL AND " +
                          "(" + PHONE + " NOT NULL OR " + EMAIL + " NOT NULL) AND " +
-                         "(" +
-                           PHONE               + " GLOB ? OR " +
-                           EMAIL               + " GLOB ? OR " +
-                           SYSTEM_DISPLAY_NAME + " GLOB ?" +
-                         ")";
-    String[] args      = new String[] { "0", String.valueOf(RegisteredState.REGISTERED.getId()), query, query, query };
+                         filter.selection;
+    String[] args      = ArrayUtils.concat(new String[] { "0", String.valueOf(RegisteredState.REGISTERED.getId()) }, filter.args);
     String   orderBy   = SYSTEM_DISPLAY_NAME + ", " + PHONE;
 
     return databaseHelper.getReadableDatabase().query(TABLE_NAME, SEARCH_PROJECTION, selection, args, null, null, orderBy);
   }
 
   public @Nullable Cursor queryAllContacts(@NonNull String query) {
-    query = buildCaseInsensitiveGlobPattern(query);
+    SearchFilter filter = buildSearchFilter(query, SORT_NAME, USERNAME, PHONE, EMAIL);
 
-    String   selection = BLOCKED + " = ? AND " +
-                         "(" +
-                           SORT_NAME + " GLOB ? OR " +
-                           USERNAME  + " GLOB ? OR " +
-                           PHONE     + " GLOB ? OR " +
-                           EMAIL     + " GLOB ?" +
-                         ")";
-    String[] args      = new String[] { "0", query, query, query, query };
+    String   selection = BLOCKED + " = ? AND " + filter.selection;
+    String[] args      = ArrayUtils.concat(new String[] { "0" }, filter.args);
 
     return databaseHelper.getReadableDatabase().query(TABLE_NAME, SEARCH_PROJECTION, selection, args, null, null, null);
   }
@@ -1971,6 +1963,42 @@ public class RecipientDatabase extends Database {
     return recipients;
   }
 
+  /**
+   * Matches recipients with a word starting with each word of the query in any of their names,
+   * username, phone or email, using the {@link SearchDatabase#RECIPIENT_FTS_TABLE_NAME} index rather
+   * than scanning the table.
+   *
+   * Typing part of a phone number still matches anywhere in the number, which only the phone column
+   * is scanned for. Queries with nothing to index on fall back to scanning the given columns.
+   */
+  private static @NonNull SearchFilter buildSearchFilter(@NonNull String query, @NonNull String... fallbackColumns) {
+    String ftsSubquery = ID + " IN (SELECT " + SearchDatabase.ID + " FROM " + SearchDatabase.RECIPIENT_FTS_TABLE_NAME + " WHERE " + SearchDatabase.RECIPIENT_FTS_TABLE_NAME + " MATCH ?)";
+
+    if (PHONE_NUMBER_QUERY.matcher(query).matches()) {
+      String digits = query.replaceAll("[^0-9]", "");
+
+      return new SearchFilter("(" + ftsSubquery + " OR " + PHONE + " GLOB ?)",
+                              new String[] { "\"" + digits + "\"*", "*" + digits + "*" });
+    }
+
+    String matchQuery = SqlUtil.buildPrefixMatchQuery(query);
+
+    if (matchQuery != null) {
+      return new SearchFilter(ftsSubquery, new String[] { matchQuery });
+    }
+
+    String   pattern   = buildCaseInsensitiveGlobPattern(query);
+    String[] selection = new String[fallbackColumns.length];
+    String[] args      = new String[fallbackColumns.length];
+
+    for (int i = 0; i < fallbackColumns.length; i++) {
+      selection[i] = fallbackColumns[i] + " GLOB ?";
+      args[i]      = pattern;
+    }
+
+    return new SearchFilter("(" + Util.join(selection, " OR ") + ")", args);
+  }
+
   /**
    * Builds a case-insensitive GLOB pattern for fuzzy text queries. Works with all unicode
    * characters.
@@ -2828,4 +2856,14 @@ public class RecipientDatabase extends Database {
       this.neededInsert = neededInsert;
     }
   }
+
+  private static class SearchFilter {
+    final String   selection;
+    final String[] args;
+
+    private SearchFilter(@NonNull String selection, @NonNull String[] args) {
+      this.selection = selection;
+      this.args      = args;
+    }
+  }
 }
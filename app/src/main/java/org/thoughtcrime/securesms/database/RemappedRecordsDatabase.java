@@ -50,7 +50,7 @@ public class RemappedRecordsDatabase extends Database {
   }
 
   @NonNull Map<RecipientId, RecipientId> getAllRecipientMappings() {
-    SQLiteDatabase                db           = databaseHelper.getReadableDatabase();
+    SQLiteDatabase                db           = databaseHelper.getWritableDatabase();
     Map<RecipientId, RecipientId> recipientMap = new HashMap<>();
 
     db.beginTransaction();
@@ -72,7 +72,7 @@ public class RemappedRecordsDatabase extends Database {
   }
 
   @NonNull Map<Long, Long> getAllThreadMappings() {
-    SQLiteDatabase  db        = databaseHelper.getReadableDatabase();
+    SQLiteDatabase  db        = databaseHelper.getWritableDatabase();
     Map<Long, Long> threadMap = new HashMap<>();
 
     db.beginTransaction();
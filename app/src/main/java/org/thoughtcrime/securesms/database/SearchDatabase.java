@@ -20,6 +20,9 @@ public class SearchDatabase extends Database {
   public static final String SMS_FTS_TABLE_NAME = "sms_fts";
   public static final String MMS_FTS_TABLE_NAME = "mms_fts";
 
+  public static final String RECIPIENT_FTS_TABLE_NAME = "recipient_fts";
+  public static final String GROUP_FTS_TABLE_NAME     = "group_fts";
+
   public static final String ID                     = "rowid";
   public static final String BODY                   = MmsSmsColumns.BODY;
   public static final String THREAD_ID              = MmsSmsColumns.THREAD_ID;
@@ -28,6 +31,7 @@ public class SearchDatabase extends Database {
   public static final String MESSAGE_RECIPIENT      = "message_recipient";
   public static final String IS_MMS                 = "is_mms";
   public static final String MESSAGE_ID             = "message_id";
+  public static final String RANK                   = "search_rank";
 
   public static final String SNIPPET_WRAP = "...";
 
@@ -57,14 +61,52 @@ public class SearchDatabase extends Database {
       "CREATE TRIGGER mms_au AFTER UPDATE ON " + MmsDatabase.TABLE_NAME + " BEGIN\n" +
           "  INSERT INTO " + MMS_FTS_TABLE_NAME + "(" + MMS_FTS_TABLE_NAME + ", " + ID + ", " + BODY + ", " + THREAD_ID + ") VALUES('delete', old." + MmsDatabase.ID + ", old." + MmsDatabase.BODY + ", old." + MmsDatabase.THREAD_ID + ");\n" +
           "  INSERT INTO " + MMS_FTS_TABLE_NAME + "(" + ID + ", " + BODY + ", " + THREAD_ID + ") VALUES (new." + MmsDatabase.ID + ", new." + MmsDatabase.BODY + ", new." + MmsDatabase.THREAD_ID + ");\n" +
+          "END;",
+
+
+      "CREATE VIRTUAL TABLE " + RECIPIENT_FTS_TABLE_NAME + " USING fts5(" + RecipientDatabase.FTS_COLUMNS + ", content=" + RecipientDatabase.TABLE_NAME + ", content_rowid=" + RecipientDatabase.ID + ", prefix='1 2 3');",
+
+      "CREATE TRIGGER recipient_ai AFTER INSERT ON " + RecipientDatabase.TABLE_NAME + " BEGIN\n" +
+          "  INSERT INTO " + RECIPIENT_FTS_TABLE_NAME + "(" + ID + ", " + RecipientDatabase.FTS_COLUMNS + ") VALUES (new." + RecipientDatabase.ID + ", " + RecipientDatabase.FTS_NEW_VALUES + ");\n" +
+          "END;\n",
+      "CREATE TRIGGER recipient_ad AFTER DELETE ON " + RecipientDatabase.TABLE_NAME + " BEGIN\n" +
+          "  INSERT INTO " + RECIPIENT_FTS_TABLE_NAME + "(" + RECIPIENT_FTS_TABLE_NAME + ", " + ID + ", " + RecipientDatabase.FTS_COLUMNS + ") VALUES('delete', old." + RecipientDatabase.ID + ", " + RecipientDatabase.FTS_OLD_VALUES + ");\n" +
+          "END;\n",
+      "CREATE TRIGGER recipient_au AFTER UPDATE OF " + RecipientDatabase.FTS_COLUMNS + " ON " + RecipientDatabase.TABLE_NAME + " BEGIN\n" +
+          "  INSERT INTO " + RECIPIENT_FTS_TABLE_NAME + "(" + RECIPIENT_FTS_TABLE_NAME + ", " + ID + ", " + RecipientDatabase.FTS_COLUMNS + ") VALUES('delete', old." + RecipientDatabase.ID + ", " + RecipientDatabase.FTS_OLD_VALUES + ");\n" +
+          "  INSERT INTO " + RECIPIENT_FTS_TABLE_NAME + "(" + ID + ", " + RecipientDatabase.FTS_COLUMNS + ") VALUES (new." + RecipientDatabase.ID + ", " + RecipientDatabase.FTS_NEW_VALUES + ");\n" +
+          "END;",
+
+
+      "CREATE VIRTUAL TABLE " + GROUP_FTS_TABLE_NAME + " USING fts5(" + GroupDatabase.TITLE + ", content=" + GroupDatabase.TABLE_NAME + ", content_rowid=" + GroupDatabase.ID + ", prefix='1 2 3');",
+
+      "CREATE TRIGGER groups_ai AFTER INSERT ON " + GroupDatabase.TABLE_NAME + " BEGIN\n" +
+          "  INSERT INTO " + GROUP_FTS_TABLE_NAME + "(" + ID + ", " + GroupDatabase.TITLE + ") VALUES (new." + GroupDatabase.ID + ", new." + GroupDatabase.TITLE + ");\n" +
+          "END;\n",
+      "CREATE TRIGGER groups_ad AFTER DELETE ON " + GroupDatabase.TABLE_NAME + " BEGIN\n" +
+          "  INSERT INTO " + GROUP_FTS_TABLE_NAME + "(" + GROUP_FTS_TABLE_NAME + ", " + ID + ", " + GroupDatabase.TITLE + ") VALUES('delete', old." + GroupDatabase.ID + ", old." + GroupDatabase.TITLE + ");\n" +
+          "END;\n",
+      "CREATE TRIGGER groups_au AFTER UPDATE OF " + GroupDatabase.TITLE + " ON " + GroupDatabase.TABLE_NAME + " BEGIN\n" +
+          "  INSERT INTO " + GROUP_FTS_TABLE_NAME + "(" + GROUP_FTS_TABLE_NAME + ", " + ID + ", " + GroupDatabase.TITLE + ") VALUES('delete', old." + GroupDatabase.ID + ", old." + GroupDatabase.TITLE + ");\n" +
+          "  INSERT INTO " + GROUP_FTS_TABLE_NAME + "(" + ID + ", " + GroupDatabase.TITLE + ") VALUES (new." + GroupDatabase.ID + ", new." + GroupDatabase.TITLE + ");\n" +
           "END;"
   };
 
-  private static final String MESSAGES_QUERY =
+  /**
+   * Matches across all threads, most relevant first and newest first among equal ranks. Paged with
+   * a limit and offset so results can be read as they are scrolled to.
+   * <p>
+   * bm25 scores depend on the statistics of the table they come from, so sms and mms scores can't be
+   * compared as they are, and the smaller table's would dominate. Each score is instead divided by
+   * the best score for the query in its own table, giving a relevance from 0 to 1 in both, with the
+   * best match in each at 1.
+   */
+  private static final String RANKED_MESSAGES_QUERY =
       "SELECT " +
         ThreadDatabase.TABLE_NAME + "." + ThreadDatabase.RECIPIENT_ID + " AS " + CONVERSATION_RECIPIENT + ", " +
         MmsSmsColumns.RECIPIENT_ID + " AS " + MESSAGE_RECIPIENT + ", " +
         "snippet(" + SMS_FTS_TABLE_NAME + ", -1, '', '', '" + SNIPPET_WRAP + "', 7) AS " + SNIPPET + ", " +
+        "bm25(" + SMS_FTS_TABLE_NAME + ") / (SELECT NULLIF(MIN(bm25(" + SMS_FTS_TABLE_NAME + ")), 0) FROM " + SMS_FTS_TABLE_NAME + " WHERE " + SMS_FTS_TABLE_NAME + " MATCH ?) AS " + RANK + ", " +
         SmsDatabase.TABLE_NAME + "." + SmsDatabase.DATE_RECEIVED + " AS " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + ", " +
         SMS_FTS_TABLE_NAME + "." + THREAD_ID + ", " +
         SMS_FTS_TABLE_NAME + "." + BODY + ", " +
@@ -79,6 +121,7 @@ public class SearchDatabase extends Database {
         ThreadDatabase.TABLE_NAME + "." + ThreadDatabase.RECIPIENT_ID + " AS " + CONVERSATION_RECIPIENT + ", " +
         MmsSmsColumns.RECIPIENT_ID + " AS " + MESSAGE_RECIPIENT + ", " +
         "snippet(" + MMS_FTS_TABLE_NAME + ", -1, '', '', '" + SNIPPET_WRAP + "', 7) AS " + SNIPPET + ", " +
+        "bm25(" + MMS_FTS_TABLE_NAME + ") / (SELECT NULLIF(MIN(bm25(" + MMS_FTS_TABLE_NAME + ")), 0) FROM " + MMS_FTS_TABLE_NAME + " WHERE " + MMS_FTS_TABLE_NAME + " MATCH ?) AS " + RANK + ", " +
         MmsDatabase.TABLE_NAME + "." + MmsDatabase.DATE_RECEIVED + " AS " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + ", " +
         MMS_FTS_TABLE_NAME + "." + THREAD_ID + ", " +
         MMS_FTS_TABLE_NAME + "." + BODY + ", " +
@@ -88,8 +131,8 @@ public class SearchDatabase extends Database {
       "INNER JOIN " + MMS_FTS_TABLE_NAME + " ON " + MMS_FTS_TABLE_NAME + "." + ID + " = " + MmsDatabase.TABLE_NAME + "." + MmsDatabase.ID + " " +
       "INNER JOIN " + ThreadDatabase.TABLE_NAME + " ON " + MMS_FTS_TABLE_NAME + "." + THREAD_ID + " = " + ThreadDatabase.TABLE_NAME + "." + ThreadDatabase.ID + " " +
       "WHERE " + MMS_FTS_TABLE_NAME + " MATCH ? " +
-      "ORDER BY " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " DESC " +
-      "LIMIT 500";
+      "ORDER BY " + RANK + " DESC, " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " DESC " +
+      "LIMIT ? OFFSET ?";
 
   private static final String MESSAGES_FOR_THREAD_QUERY =
       "SELECT " +
@@ -126,7 +169,10 @@ public class SearchDatabase extends Database {
     super(context, databaseHelper);
   }
 
-  public Cursor queryMessages(@NonNull String query) {
+  /**
+   * @return One page of matches across all threads, ordered by relevance.
+   */
+  public Cursor queryMessagesByRank(@NonNull String query, int limit, int offset) {
     SQLiteDatabase db                  = databaseHelper.getReadableDatabase();
     String         fullTextSearchQuery = createFullTextSearchQuery(query);
 
@@ -134,8 +180,12 @@ public class SearchDatabase extends Database {
       return null;
     }
 
-    Cursor cursor = db.rawQuery(MESSAGES_QUERY, new String[] { fullTextSearchQuery,
-                                                               fullTextSearchQuery });
+    Cursor cursor = db.rawQuery(RANKED_MESSAGES_QUERY, new String[] { fullTextSearchQuery,
+                                                                      fullTextSearchQuery,
+                                                                      fullTextSearchQuery,
+                                                                      fullTextSearchQuery,
+                                                                      String.valueOf(limit),
+                                                                      String.valueOf(offset) });
 
     setNotifyConversationListListeners(cursor);
     return cursor;
@@ -56,6 +56,7 @@ import java.io.IOException;
 import java.security.SecureRandom;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -171,7 +172,7 @@ public class SmsDatabase extends MessagingDatabase {
 
     long threadId = getThreadIdForMessage(id);
 
-    DatabaseFactory.getThreadDatabase(context).update(threadId, false);
+    DatabaseFactory.getThreadDatabase(context).scheduleUpdate(threadId, false);
     notifyConversationListeners(threadId);
   }
 
@@ -364,6 +365,7 @@ public class SmsDatabase extends MessagingDatabase {
 
     long threadId = getThreadIdForMessage(id);
 
+    DatabaseFactory.getThreadDatabase(context).updateUnreadCounts(threadId);
     DatabaseFactory.getThreadDatabase(context).update(threadId, false);
     notifyConversationListeners(threadId);
   }
@@ -412,7 +414,7 @@ public class SmsDatabase extends MessagingDatabase {
       db.endTransaction();
     }
 
-    DatabaseFactory.getThreadDatabase(context).update(threadId, false);
+    DatabaseFactory.getThreadDatabase(context).scheduleUpdate(threadId, false);
     notifyConversationListeners(threadId);
   }
 
@@ -425,7 +427,7 @@ public class SmsDatabase extends MessagingDatabase {
     db.update(TABLE_NAME, contentValues, ID_WHERE, new String[] {id+""});
 
     long threadId = getThreadIdForMessage(id);
-    DatabaseFactory.getThreadDatabase(context).update(threadId, false);
+    DatabaseFactory.getThreadDatabase(context).scheduleUpdate(threadId, false);
     notifyConversationListeners(threadId);
   }
 
@@ -465,7 +467,7 @@ public class SmsDatabase extends MessagingDatabase {
                              ID + " = ?",
                              new String[] {String.valueOf(cursor.getLong(cursor.getColumnIndexOrThrow(ID)))});
 
-            DatabaseFactory.getThreadDatabase(context).update(threadId, false);
+            DatabaseFactory.getThreadDatabase(context).scheduleUpdate(threadId, false);
 
             if (isFirstIncrement) {
               notifyConversationListeners(threadId);
@@ -532,58 +534,115 @@ public class SmsDatabase extends MessagingDatabase {
   }
 
   public List<MarkedMessageInfo> setEntireThreadRead(long threadId) {
-    return setMessagesRead(THREAD_ID + " = ?", new String[] {String.valueOf(threadId)});
+    return setMessagesRead(THREAD_ID + " = ?", SqlUtil.buildArgs(threadId));
+  }
+
+  /**
+   * Reads the receipt and expiration info for the unread messages in the thread, up to and
+   * including {@param maxId}, without marking them. Pair with
+   * {@link #setMessagesReadSince(long, long, long)} using the same arguments.
+   */
+  List<MarkedMessageInfo> getMessagesToMarkReadSince(long threadId, long sinceTimestamp, long maxId) {
+    return getMarkedMessageInfo(getUnreadSinceWhere(sinceTimestamp), getUnreadSinceArgs(threadId, sinceTimestamp), maxId);
+  }
+
+  void setMessagesReadSince(long threadId, long sinceTimestamp, long maxId) {
+    setMessagesRead(getUnreadSinceWhere(sinceTimestamp), getUnreadSinceArgs(threadId, sinceTimestamp), maxId);
   }
 
-  public List<MarkedMessageInfo> setMessagesReadSince(long threadId, long sinceTimestamp) {
+  public List<MarkedMessageInfo> setAllMessagesRead() {
+    return setMessagesRead(READ + " = 0", new String[0]);
+  }
+
+  /**
+   * @return The highest message id, which bounds a read marking so that it only marks the messages
+   *         whose info was read for it.
+   */
+  long getMaxId() {
+    SQLiteDatabase database = databaseHelper.getReadableDatabase();
+
+    try (Cursor cursor = database.query(TABLE_NAME, new String[] {"MAX(" + ID + ")"}, null, null, null, null, null)) {
+      return cursor != null && cursor.moveToFirst() ? cursor.getLong(0) : 0;
+    }
+  }
+
+  private static String getUnreadSinceWhere(long sinceTimestamp) {
     if (sinceTimestamp == -1) {
-      return setMessagesRead(THREAD_ID + " = ? AND " + READ + " = 0", new String[] {String.valueOf(threadId)});
+      return THREAD_ID + " = ? AND " + READ + " = 0";
     } else {
-      return setMessagesRead(THREAD_ID + " = ? AND " + READ + " = 0 AND " + DATE_RECEIVED + " <= ?", new String[] {String.valueOf(threadId),String.valueOf(sinceTimestamp)});
+      return THREAD_ID + " = ? AND " + READ + " = 0 AND " + DATE_RECEIVED + " <= ?";
     }
   }
 
-  public List<MarkedMessageInfo> setAllMessagesRead() {
-    return setMessagesRead(READ + " = 0", null);
+  private static String[] getUnreadSinceArgs(long threadId, long sinceTimestamp) {
+    if (sinceTimestamp == -1) {
+      return SqlUtil.buildArgs(threadId);
+    } else {
+      return SqlUtil.buildArgs(threadId, sinceTimestamp);
+    }
   }
 
   private List<MarkedMessageInfo> setMessagesRead(String where, String[] arguments) {
-    SQLiteDatabase          database  = databaseHelper.getWritableDatabase();
-    List<MarkedMessageInfo> results   = new LinkedList<>();
-    Cursor                  cursor    = null;
+    long                    maxId   = getMaxId();
+    List<MarkedMessageInfo> results = getMarkedMessageInfo(where, arguments, maxId);
 
-    database.beginTransaction();
-    try {
-      cursor = database.query(TABLE_NAME, new String[] {ID, RECIPIENT_ID, DATE_SENT, TYPE, EXPIRES_IN, EXPIRE_STARTED, THREAD_ID}, where, arguments, null, null, null);
-
-      while (cursor != null && cursor.moveToNext()) {
-        if (Types.isSecureType(cursor.getLong(cursor.getColumnIndex(TYPE)))) {
-          long           threadId       = cursor.getLong(cursor.getColumnIndex(THREAD_ID));
-          RecipientId    recipientId    = RecipientId.from(cursor.getLong(cursor.getColumnIndex(RECIPIENT_ID)));
-          long           dateSent       = cursor.getLong(cursor.getColumnIndex(DATE_SENT));
-          long           messageId      = cursor.getLong(cursor.getColumnIndex(ID));
-          long           expiresIn      = cursor.getLong(cursor.getColumnIndex(EXPIRES_IN));
-          long           expireStarted  = cursor.getLong(cursor.getColumnIndex(EXPIRE_STARTED));
-          SyncMessageId  syncMessageId  = new SyncMessageId(recipientId, dateSent);
-          ExpirationInfo expirationInfo = new ExpirationInfo(messageId, expiresIn, expireStarted, false);
-
-          results.add(new MarkedMessageInfo(threadId, syncMessageId, expirationInfo));
-        }
-      }
+    setMessagesRead(where, arguments, maxId);
 
-      ContentValues contentValues = new ContentValues();
-      contentValues.put(READ, 1);
+    return results;
+  }
 
-      database.update(TABLE_NAME, contentValues, where, arguments);
-      database.setTransactionSuccessful();
-    } finally {
-      if (cursor != null) cursor.close();
-      database.endTransaction();
-    }
+  private void setMessagesRead(String where, String[] arguments, long maxId) {
+    SQLiteDatabase database      = databaseHelper.getWritableDatabase();
+    ContentValues  contentValues = new ContentValues();
+
+    contentValues.put(READ, 1);
+
+    database.update(TABLE_NAME, contentValues, "(" + where + ") AND " + ID + " <= ?", SqlUtil.appendArg(arguments, String.valueOf(maxId)));
+  }
+
+  /**
+   * Pages through the matching messages in id order, {@link #MARK_READ_BATCH_SIZE} at a time, so a
+   * thread with thousands of unread messages is never read in one query, nor while holding the writer.
+   */
+  private List<MarkedMessageInfo> getMarkedMessageInfo(String where, String[] arguments, long maxId) {
+    SQLiteDatabase          database   = databaseHelper.getReadableDatabase();
+    List<MarkedMessageInfo> results    = new LinkedList<>();
+    String[]                projection = new String[] {ID, RECIPIENT_ID, DATE_SENT, TYPE, EXPIRES_IN, EXPIRE_STARTED, THREAD_ID};
+    String                  pageWhere  = "(" + where + ") AND " + ID + " > ? AND " + ID + " <= ?";
+    long                    lastId     = 0;
+    int                     pageCount;
+
+    do {
+      String[] pageArgs = SqlUtil.appendArg(SqlUtil.appendArg(arguments, String.valueOf(lastId)), String.valueOf(maxId));
+
+      pageCount = 0;
+
+      try (Cursor cursor = database.query(TABLE_NAME, projection, pageWhere, pageArgs, null, null, ID + " ASC", String.valueOf(MARK_READ_BATCH_SIZE))) {
+        while (cursor != null && cursor.moveToNext()) {
+          long messageId = cursor.getLong(cursor.getColumnIndex(ID));
+
+          pageCount++;
+          lastId = messageId;
+
+          if (Types.isSecureType(cursor.getLong(cursor.getColumnIndex(TYPE)))) {
+            long           threadId       = cursor.getLong(cursor.getColumnIndex(THREAD_ID));
+            RecipientId    recipientId    = RecipientId.from(cursor.getLong(cursor.getColumnIndex(RECIPIENT_ID)));
+            long           dateSent       = cursor.getLong(cursor.getColumnIndex(DATE_SENT));
+            long           expiresIn      = cursor.getLong(cursor.getColumnIndex(EXPIRES_IN));
+            long           expireStarted  = cursor.getLong(cursor.getColumnIndex(EXPIRE_STARTED));
+            SyncMessageId  syncMessageId  = new SyncMessageId(recipientId, dateSent);
+            ExpirationInfo expirationInfo = new ExpirationInfo(messageId, expiresIn, expireStarted, false);
+
+            results.add(new MarkedMessageInfo(threadId, syncMessageId, expirationInfo));
+          }
+        }
+      }
+    } while (pageCount == MARK_READ_BATCH_SIZE);
 
     return results;
   }
 
+
   public Pair<Long, Long> updateBundleMessageBody(long messageId, String body) {
     long type = Types.BASE_INBOX_TYPE | Types.SECURE_MESSAGE_BIT | Types.PUSH_MESSAGE_BIT;
     return updateMessageBodyAndType(messageId, body, Types.TOTAL_MASK, type);
@@ -605,7 +664,6 @@ public class SmsDatabase extends MessagingDatabase {
 
     DatabaseFactory.getThreadDatabase(context).update(threadId, true);
     notifyConversationListeners(threadId);
-    notifyConversationListListeners();
 
     return new Pair<>(messageId, threadId);
   }
@@ -794,7 +852,7 @@ public class SmsDatabase extends MessagingDatabase {
       }
 
       if (!message.isIdentityUpdate() && !message.isIdentityVerified() && !message.isIdentityDefault()) {
-        DatabaseFactory.getThreadDatabase(context).update(threadId, true);
+        DatabaseFactory.getThreadDatabase(context).scheduleUpdate(threadId, true);
       }
 
       if (message.getSubscriptionId() != -1) {
@@ -919,11 +977,32 @@ public class SmsDatabase extends MessagingDatabase {
     SQLiteDatabase db = databaseHelper.getWritableDatabase();
     long threadId     = getThreadIdForMessage(messageId);
     db.delete(TABLE_NAME, ID_WHERE, new String[] {messageId+""});
+    DatabaseFactory.getThreadDatabase(context).updateUnreadCounts(threadId);
     boolean threadDeleted = DatabaseFactory.getThreadDatabase(context).update(threadId, false, true);
     notifyConversationListeners(threadId);
     return threadDeleted;
   }
 
+  /**
+   * Deletes the messages without updating or notifying their threads. Should be called in a transaction.
+   *
+   * @return The ids of the threads the messages belonged to.
+   */
+  /*package*/ @NonNull Set<Long> deleteMessagesWithoutThreadUpdate(@NonNull Collection<Long> messageIds) {
+    SQLiteDatabase db        = databaseHelper.getWritableDatabase();
+    Set<Long>      threadIds = new HashSet<>();
+
+    for (long messageId : messageIds) {
+      long threadId = getThreadIdForMessage(messageId);
+
+      if (db.delete(TABLE_NAME, ID_WHERE, new String[] {String.valueOf(messageId)}) > 0) {
+        threadIds.add(threadId);
+      }
+    }
+
+    return threadIds;
+  }
+
   public void ensureMigration() {
     databaseHelper.getWritableDatabase();
   }
@@ -152,6 +152,19 @@ public class StickerDatabase extends Database {
     return cursor;
   }
 
+  /**
+   * @return Every sticker that isn't a pack cover, in insertion order.
+   */
+  public @Nullable Cursor getAllStickers() {
+    String   selection = COVER + " = ?";
+    String[] args      = new String[] { "0" };
+
+    Cursor cursor = databaseHelper.getReadableDatabase().query(TABLE_NAME, null, selection, args, null, null, _ID + " ASC");
+    setNotifyStickerListeners(cursor);
+
+    return cursor;
+  }
+
   public @Nullable Cursor getAllStickerPacks() {
     return getAllStickerPacks(null);
   }
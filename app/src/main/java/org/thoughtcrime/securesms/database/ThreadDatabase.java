@@ -22,6 +22,7 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.MergeCursor;
 import android.net.Uri;
+import android.os.Handler;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -54,6 +55,7 @@ import org.thoughtcrime.securesms.util.JsonUtils;
 import org.thoughtcrime.securesms.util.SqlUtil;
 import org.thoughtcrime.securesms.util.TextSecurePreferences;
 import org.thoughtcrime.securesms.util.Util;
+import org.thoughtcrime.securesms.util.concurrent.SignalExecutors;
 import org.whispersystems.libsignal.util.guava.Optional;
 import org.whispersystems.signalservice.api.groupsv2.DecryptedGroupUtil;
 import org.whispersystems.signalservice.api.util.UuidUtil;
@@ -98,6 +100,7 @@ public class ThreadDatabase extends Database {
   public  static final String HAS_SENT               = "has_sent";
   private static final String LAST_SCROLLED          = "last_scrolled";
   private static final String PINNED                 = "pinned";
+  private static final String UNREAD_MENTION_COUNT   = "unread_mention_count";
 
   public static final String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " (" + ID                     + " INTEGER PRIMARY KEY, " +
                                                                                   DATE                   + " INTEGER DEFAULT 0, " +
@@ -121,12 +124,20 @@ public class ThreadDatabase extends Database {
                                                                                   READ_RECEIPT_COUNT     + " INTEGER DEFAULT 0, " +
                                                                                   UNREAD_COUNT           + " INTEGER DEFAULT 0, " +
                                                                                   LAST_SCROLLED          + " INTEGER DEFAULT 0, " +
-                                                                                  PINNED                 + " INTEGER DEFAULT 0);";
+                                                                                  PINNED                 + " INTEGER DEFAULT 0, " +
+                                                                                  UNREAD_MENTION_COUNT   + " INTEGER DEFAULT 0);";
+
+  /**
+   * Only holds listed threads, in the order the conversation list pages through them, so the list
+   * is read without a sort and the list counts are answered from the index alone.
+   */
+  public static final String THREAD_LIST_INDEX = "CREATE INDEX IF NOT EXISTS thread_list_index ON " + TABLE_NAME + " (" + ARCHIVED + ", " + PINNED + ", " + DATE + ") WHERE " + MESSAGE_COUNT + " != 0;";
 
   public static final String[] CREATE_INDEXS = {
     "CREATE INDEX IF NOT EXISTS thread_recipient_ids_index ON " + TABLE_NAME + " (" + RECIPIENT_ID + ");",
     "CREATE INDEX IF NOT EXISTS archived_count_index ON " + TABLE_NAME + " (" + ARCHIVED + ", " + MESSAGE_COUNT + ");",
     "CREATE INDEX IF NOT EXISTS thread_pinned_index ON " + TABLE_NAME + " (" + PINNED + ");",
+    THREAD_LIST_INDEX,
   };
 
   private static final String[] THREAD_PROJECTION = {
@@ -145,6 +156,13 @@ public class ThreadDatabase extends Database {
 
   private static final String ORDER_BY_DEFAULT = TABLE_NAME + "." + DATE + " DESC";
 
+  private static final long PENDING_UPDATE_WINDOW_MS = 100;
+
+  private final Map<Long, Boolean> pendingUpdates = new HashMap<>();
+
+  private Handler pendingUpdateHandler;
+  private boolean pendingUpdateFlushScheduled;
+
   public ThreadDatabase(Context context, SQLCipherOpenHelper databaseHelper) {
     super(context, databaseHelper);
   }
@@ -207,7 +225,6 @@ public class ThreadDatabase extends Database {
 
     SQLiteDatabase db = databaseHelper.getWritableDatabase();
     db.update(TABLE_NAME, contentValues, ID + " = ?", new String[] {threadId + ""});
-    notifyConversationListListeners();
   }
 
   public void updateSnippet(long threadId, String snippet, @Nullable Uri attachment, long date, long type, boolean unarchive) {
@@ -227,13 +244,13 @@ public class ThreadDatabase extends Database {
 
     SQLiteDatabase db = databaseHelper.getWritableDatabase();
     db.update(TABLE_NAME, contentValues, ID + " = ?", new String[] {threadId + ""});
-    notifyConversationListListeners();
+    notifyConversationListListeners(threadId);
   }
 
   private void deleteThread(long threadId) {
     SQLiteDatabase db = databaseHelper.getWritableDatabase();
     db.delete(TABLE_NAME, ID_WHERE, new String[] {threadId + ""});
-    notifyConversationListListeners();
+    notifyConversationListListeners(threadId);
   }
 
   private void deleteThreads(Set<Long> threadIds) {
@@ -247,7 +264,7 @@ public class ThreadDatabase extends Database {
     where = where.substring(0, where.length() - 4);
 
     db.delete(TABLE_NAME, where, null);
-    notifyConversationListListeners();
+    notifyConversationListListeners(threadIds);
   }
 
   private void deleteAllThreads() {
@@ -297,6 +314,7 @@ public class ThreadDatabase extends Database {
         DatabaseFactory.getSmsDatabase(context).deleteMessagesInThreadBeforeDate(threadId, lastTweetDate);
         DatabaseFactory.getMmsDatabase(context).deleteMessagesInThreadBeforeDate(threadId, lastTweetDate);
 
+        updateUnreadCounts(threadId);
         update(threadId, false);
         notifyConversationListeners(threadId);
       }
@@ -311,6 +329,7 @@ public class ThreadDatabase extends Database {
     ContentValues contentValues = new ContentValues(1);
     contentValues.put(READ, ReadStatus.READ.serialize());
     contentValues.put(UNREAD_COUNT, 0);
+    contentValues.put(UNREAD_MENTION_COUNT, 0);
 
     db.update(TABLE_NAME, contentValues, null, null);
 
@@ -354,16 +373,30 @@ public class ThreadDatabase extends Database {
     return setReadInternal(threadIds, lastSeen, -1);
   }
 
+  /**
+   * Receipt info is read in pages before the write transaction, which then marks only the messages
+   * that were read, so marking a long thread read holds the writer for single UPDATEs rather than for
+   * loading every unread row. The unread counts are recounted for any message that arrived since.
+   */
   private List<MarkedMessageInfo> setReadInternal(Collection<Long> threadIds, boolean lastSeen, long sinceTimestamp) {
-    SQLiteDatabase db = databaseHelper.getWritableDatabase();
+    SQLiteDatabase db          = databaseHelper.getWritableDatabase();
+    SmsDatabase    smsDatabase = DatabaseFactory.getSmsDatabase(context);
+    MmsDatabase    mmsDatabase = DatabaseFactory.getMmsDatabase(context);
+    long           smsMaxId    = smsDatabase.getMaxId();
+    long           mmsMaxId    = mmsDatabase.getMaxId();
 
     List<MarkedMessageInfo> smsRecords = new LinkedList<>();
     List<MarkedMessageInfo> mmsRecords = new LinkedList<>();
 
+    for (long threadId : threadIds) {
+      smsRecords.addAll(smsDatabase.getMessagesToMarkReadSince(threadId, sinceTimestamp, smsMaxId));
+      mmsRecords.addAll(mmsDatabase.getMessagesToMarkReadSince(threadId, sinceTimestamp, mmsMaxId));
+    }
+
     db.beginTransaction();
 
     try {
-      ContentValues contentValues = new ContentValues(2);
+      ContentValues contentValues = new ContentValues(4);
       contentValues.put(READ, ReadStatus.READ.serialize());
 
       if (lastSeen) {
@@ -371,15 +404,14 @@ public class ThreadDatabase extends Database {
       }
 
       for (long threadId : threadIds) {
-        smsRecords.addAll(DatabaseFactory.getSmsDatabase(context).setMessagesReadSince(threadId, sinceTimestamp));
-        mmsRecords.addAll(DatabaseFactory.getMmsDatabase(context).setMessagesReadSince(threadId, sinceTimestamp));
-
-        DatabaseFactory.getSmsDatabase(context).setReactionsSeen(threadId, sinceTimestamp);
-        DatabaseFactory.getMmsDatabase(context).setReactionsSeen(threadId, sinceTimestamp);
+        smsDatabase.setMessagesReadSince(threadId, sinceTimestamp, smsMaxId);
+        mmsDatabase.setMessagesReadSince(threadId, sinceTimestamp, mmsMaxId);
 
-        int unreadCount = DatabaseFactory.getMmsSmsDatabase(context).getUnreadCount(threadId);
+        smsDatabase.setReactionsSeen(threadId, sinceTimestamp);
+        mmsDatabase.setReactionsSeen(threadId, sinceTimestamp);
 
-        contentValues.put(UNREAD_COUNT, unreadCount);
+        contentValues.put(UNREAD_COUNT, DatabaseFactory.getMmsSmsDatabase(context).getUnreadCount(threadId));
+        contentValues.put(UNREAD_MENTION_COUNT, mmsDatabase.getUnreadMentionCount(threadId));
 
         db.update(TABLE_NAME, contentValues, ID_WHERE, new String[]{threadId + ""});
       }
@@ -390,7 +422,7 @@ public class ThreadDatabase extends Database {
     }
 
     notifyConversationListeners(new HashSet<>(threadIds));
-    notifyConversationListListeners();
+    notifyConversationListListeners(threadIds);
     return Util.concatenatedList(smsRecords, mmsRecords);
   }
 
@@ -411,25 +443,48 @@ public class ThreadDatabase extends Database {
       db.endTransaction();
     }
 
-    notifyConversationListListeners();
+    notifyConversationListListeners(threadIds);
   }
 
 
   public void incrementUnread(long threadId, int amount) {
+    incrementUnread(threadId, amount, 0);
+  }
+
+  public void incrementUnread(long threadId, int amount, int mentionAmount) {
     SQLiteDatabase db = databaseHelper.getWritableDatabase();
     db.execSQL("UPDATE " + TABLE_NAME + " SET " + READ + " = " + ReadStatus.UNREAD.serialize() + ", " +
-                   UNREAD_COUNT + " = " + UNREAD_COUNT + " + ? WHERE " + ID + " = ?",
+                   UNREAD_COUNT + " = " + UNREAD_COUNT + " + ?, " +
+                   UNREAD_MENTION_COUNT + " = " + UNREAD_MENTION_COUNT + " + ? WHERE " + ID + " = ?",
                new String[] {String.valueOf(amount),
+                             String.valueOf(mentionAmount),
                              String.valueOf(threadId)});
   }
 
+  /**
+   * @return The thread's unread mention count, as kept up to date when messages arrive, are read and
+   *         are deleted, without counting the messages themselves.
+   */
+  public int getUnreadMentionCount(long threadId) {
+    SQLiteDatabase db         = databaseHelper.getReadableDatabase();
+    String[]       projection = new String[] { UNREAD_MENTION_COUNT };
+
+    try (Cursor cursor = db.query(TABLE_NAME, projection, ID_WHERE, SqlUtil.buildArgs(threadId), null, null, null)) {
+      if (cursor != null && cursor.moveToFirst()) {
+        return CursorUtil.requireInt(cursor, UNREAD_MENTION_COUNT);
+      }
+    }
+
+    return 0;
+  }
+
   public void setDistributionType(long threadId, int distributionType) {
     ContentValues contentValues = new ContentValues(1);
     contentValues.put(TYPE, distributionType);
 
     SQLiteDatabase db = databaseHelper.getWritableDatabase();
     db.update(TABLE_NAME, contentValues, ID_WHERE, new String[] {threadId + ""});
-    notifyConversationListListeners();
+    notifyConversationListListeners(threadId);
   }
 
   public int getDistributionType(long threadId) {
@@ -537,7 +592,7 @@ public class ThreadDatabase extends Database {
   }
 
   public void setArchived(@NonNull Map<RecipientId, Boolean> status) {
-    SQLiteDatabase db    = databaseHelper.getReadableDatabase();
+    SQLiteDatabase db    = databaseHelper.getWritableDatabase();
 
     db.beginTransaction();
     try {
@@ -609,6 +664,18 @@ public class ThreadDatabase extends Database {
     return cursor;
   }
 
+  /**
+   * @return The rows of the given threads that appear in either the archived or unarchived
+   *         conversation list. Threads that are not listed are left out.
+   */
+  public Cursor getConversationListForThreads(@NonNull Collection<Long> threadIds) {
+    SQLiteDatabase db           = databaseHelper.getReadableDatabase();
+    String         placeholders = StringUtil.join(Stream.of(threadIds).map(unused -> "?").toList(), ",");
+    String         query        = createQuery(TABLE_NAME + "." + ID + " IN (" + placeholders + ") AND " + MESSAGE_COUNT + " != 0", 0);
+
+    return db.rawQuery(query, SqlUtil.buildArgs(Stream.of(threadIds).toArray()));
+  }
+
   private Cursor getConversationList(@NonNull String archived, long offset, long limit) {
     SQLiteDatabase db     = databaseHelper.getReadableDatabase();
     String         query  = createQuery(ARCHIVED + " = ? AND " + MESSAGE_COUNT + " != 0", offset, limit);
@@ -672,7 +739,7 @@ public class ThreadDatabase extends Database {
 
     db.update(TABLE_NAME, contentValues, selection, SqlUtil.buildArgs(Stream.of(threadIds).toArray()));
 
-    notifyConversationListListeners();
+    notifyConversationListListeners(threadIds);
   }
 
   public void unpinConversations(@NonNull Set<Long> threadIds) {
@@ -684,7 +751,7 @@ public class ThreadDatabase extends Database {
     contentValues.put(PINNED, 0);
 
     db.update(TABLE_NAME, contentValues, selection, SqlUtil.buildArgs(Stream.of(threadIds).toArray()));
-    notifyConversationListListeners();
+    notifyConversationListListeners(threadIds);
   }
 
   public void archiveConversation(long threadId) {
@@ -694,7 +761,7 @@ public class ThreadDatabase extends Database {
     contentValues.put(ARCHIVED, 1);
 
     db.update(TABLE_NAME, contentValues, ID_WHERE, new String[] {threadId + ""});
-    notifyConversationListListeners();
+    notifyConversationListListeners(threadId);
 
     Recipient recipient = getRecipientForThreadId(threadId);
     if (recipient != null) {
@@ -709,7 +776,7 @@ public class ThreadDatabase extends Database {
     contentValues.put(ARCHIVED, 0);
 
     db.update(TABLE_NAME, contentValues, ID_WHERE, new String[] {threadId + ""});
-    notifyConversationListListeners();
+    notifyConversationListListeners(threadId);
 
     Recipient recipient = getRecipientForThreadId(threadId);
     if (recipient != null) {
@@ -724,7 +791,7 @@ public class ThreadDatabase extends Database {
     contentValues.put(LAST_SEEN, System.currentTimeMillis());
 
     db.update(TABLE_NAME, contentValues, ID_WHERE, new String[] {String.valueOf(threadId)});
-    notifyConversationListListeners();
+    notifyConversationListListeners(threadId);
   }
 
   public void setLastScrolled(long threadId, long lastScrolledTimestamp) {
@@ -767,7 +834,7 @@ public class ThreadDatabase extends Database {
     DatabaseFactory.getDraftDatabase(context).clearDrafts(threadId);
     deleteThread(threadId);
     notifyConversationListeners(threadId);
-    notifyConversationListListeners();
+    notifyConversationListListeners(threadId);
   }
 
   public void deleteConversations(Set<Long> selectedConversations) {
@@ -776,7 +843,7 @@ public class ThreadDatabase extends Database {
     DatabaseFactory.getDraftDatabase(context).clearDrafts(selectedConversations);
     deleteThreads(selectedConversations);
     notifyConversationListeners(selectedConversations);
-    notifyConversationListListeners();
+    notifyConversationListListeners(selectedConversations);
   }
 
   public void deleteAllConversations() {
@@ -875,16 +942,25 @@ public class ThreadDatabase extends Database {
   }
 
   void updateReadState(long threadId) {
-    int unreadCount = DatabaseFactory.getMmsSmsDatabase(context).getUnreadCount(threadId);
+    updateUnreadCounts(threadId);
+    notifyConversationListListeners(threadId);
+  }
+
+  /**
+   * Recounts the thread's unread messages and mentions, for when messages are removed or changed
+   * rather than read. Callers notify.
+   */
+  void updateUnreadCounts(long threadId) {
+    int unreadCount        = DatabaseFactory.getMmsSmsDatabase(context).getUnreadCount(threadId);
+    int unreadMentionCount = DatabaseFactory.getMmsDatabase(context).getUnreadMentionCount(threadId);
 
     ContentValues contentValues = new ContentValues();
     contentValues.put(READ, unreadCount == 0);
     contentValues.put(UNREAD_COUNT, unreadCount);
+    contentValues.put(UNREAD_MENTION_COUNT, unreadMentionCount);
 
     databaseHelper.getWritableDatabase().update(TABLE_NAME, contentValues,ID_WHERE,
                                                 new String[] {String.valueOf(threadId)});
-
-    notifyConversationListListeners();
   }
 
   public boolean update(long threadId, boolean unarchive) {
@@ -892,13 +968,94 @@ public class ThreadDatabase extends Database {
   }
 
   public boolean update(long threadId, boolean unarchive, boolean allowDeletion) {
+    boolean deleted = updateSummary(threadId, unarchive, allowDeletion);
+    notifyConversationListListeners(threadId);
+    return deleted;
+  }
+
+  /**
+   * Like {@link #update(long, boolean)}, but coalesces with any other updates for threads requested
+   * within a short window. Each dirty thread is recomputed once, all in one transaction, followed
+   * by a single conversation list notification.
+   * <p>
+   * Use when the caller does not need the thread row to be current on return, such as after
+   * receipts, status changes and incoming messages.
+   */
+  public void scheduleUpdate(long threadId, boolean unarchive) {
+    synchronized (pendingUpdates) {
+      Boolean pendingUnarchive = pendingUpdates.get(threadId);
+      pendingUpdates.put(threadId, unarchive || (pendingUnarchive != null && pendingUnarchive));
+
+      if (!pendingUpdateFlushScheduled) {
+        if (pendingUpdateHandler == null) {
+          pendingUpdateHandler = new Handler(SignalExecutors.getAndStartHandlerThread("signal-ThreadUpdates").getLooper());
+        }
+
+        pendingUpdateHandler.postDelayed(this::flushPendingUpdates, PENDING_UPDATE_WINDOW_MS);
+        pendingUpdateFlushScheduled = true;
+      }
+    }
+  }
+
+  private void flushPendingUpdates() {
+    Map<Long, Boolean> updates;
+
+    synchronized (pendingUpdates) {
+      updates = new HashMap<>(pendingUpdates);
+      pendingUpdates.clear();
+      pendingUpdateFlushScheduled = false;
+    }
+
+    if (updates.isEmpty()) {
+      return;
+    }
+
+    updateSummaries(updates);
+
+    Log.d(TAG, "Flushed " + updates.size() + " pending thread updates.");
+  }
+
+  /**
+   * Recomputes each thread once in a single transaction, followed by one conversation list notification.
+   */
+  /*package*/ void update(@NonNull Collection<Long> threadIds, boolean unarchive) {
+    Map<Long, Boolean> updates = new HashMap<>(threadIds.size());
+
+    for (long threadId : threadIds) {
+      updates.put(threadId, unarchive);
+    }
+
+    updateSummaries(updates);
+  }
+
+  private void updateSummaries(@NonNull Map<Long, Boolean> unarchiveByThreadId) {
+    SQLiteDatabase db = databaseHelper.getWritableDatabase();
+
+    db.beginTransaction();
+    try {
+      for (Map.Entry<Long, Boolean> update : unarchiveByThreadId.entrySet()) {
+        updateSummary(update.getKey(), update.getValue(), true);
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+
+    notifyConversationListListeners(unarchiveByThreadId.keySet());
+  }
+
+  /**
+   * Recomputes the thread row from its messages without notifying.
+   *
+   * @return True if the thread has no messages left and was, or would have been, deleted.
+   */
+  private boolean updateSummary(long threadId, boolean unarchive, boolean allowDeletion) {
     MmsSmsDatabase mmsSmsDatabase = DatabaseFactory.getMmsSmsDatabase(context);
     long count                    = mmsSmsDatabase.getConversationCountForThreadSummary(threadId);
 
     if (count == 0) {
       if (allowDeletion) {
-        deleteThread(threadId);
-        notifyConversationListListeners();
+        databaseHelper.getWritableDatabase().delete(TABLE_NAME, ID_WHERE, new String[] {String.valueOf(threadId)});
       }
       return true;
     }
@@ -914,11 +1071,9 @@ public class ThreadDatabase extends Database {
                      getContentTypeFor(record), getExtrasFor(record),
                      record.getTimestamp(), record.getDeliveryStatus(), record.getDeliveryReceiptCount(),
                      record.getType(), unarchive, record.getExpiresIn(), record.getReadReceiptCount());
-        notifyConversationListListeners();
         return false;
       } else {
-        deleteThread(threadId);
-        notifyConversationListListeners();
+        databaseHelper.getWritableDatabase().delete(TABLE_NAME, ID_WHERE, new String[] {String.valueOf(threadId)});
         return true;
       }
     } finally {
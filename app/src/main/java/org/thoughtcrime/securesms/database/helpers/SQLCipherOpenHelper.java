@@ -39,6 +39,7 @@ import org.thoughtcrime.securesms.database.JobDatabase;
 import org.thoughtcrime.securesms.database.KeyValueDatabase;
 import org.thoughtcrime.securesms.database.MegaphoneDatabase;
 import org.thoughtcrime.securesms.database.MmsDatabase;
+import org.thoughtcrime.securesms.database.MmsSmsDatabase;
 import org.thoughtcrime.securesms.database.OneTimePreKeyDatabase;
 import org.thoughtcrime.securesms.database.PushDatabase;
 import org.thoughtcrime.securesms.database.RecipientDatabase;
@@ -51,6 +52,9 @@ import org.thoughtcrime.securesms.database.StorageKeyDatabase;
 import org.thoughtcrime.securesms.database.ThreadDatabase;
 import org.thoughtcrime.securesms.dependencies.ApplicationDependencies;
 import org.thoughtcrime.securesms.groups.GroupId;
+import org.thoughtcrime.securesms.jobmanager.BinaryDataSerializer;
+import org.thoughtcrime.securesms.jobmanager.Data;
+import org.thoughtcrime.securesms.jobmanager.impl.JsonDataSerializer;
 import org.thoughtcrime.securesms.jobs.RefreshPreKeysJob;
 import org.thoughtcrime.securesms.logging.Log;
 import org.thoughtcrime.securesms.notifications.NotificationChannels;
@@ -143,36 +147,52 @@ public class SQLCipherOpenHelper extends SQLiteOpenHelper {
   private static final int MENTIONS                         = 68;
   private static final int PINNED_CONVERSATIONS             = 69;
   private static final int MENTION_GLOBAL_SETTING_MIGRATION = 70;
-
-  private static final int    DATABASE_VERSION = 70;
+  private static final int CONTACT_SEARCH_INDEX             = 71;
+  private static final int UNREAD_MENTION_COUNT             = 72;
+  private static final int BINARY_JOB_DATA                  = 73;
+  private static final int THREAD_LIST_INDEX                = 74;
+  private static final int MESSAGE_INDEX                    = 75;
+  private static final int MESSAGE_INDEX_DATE_SENT          = 76;
+  private static final int ATTACHMENT_SIZE_INDEX            = 77;
+
+  private static final int    DATABASE_VERSION = 77;
   private static final String DATABASE_NAME    = "signal.db";
 
+  private static final int READER_POOL_SIZE = 3;
+
+  static final SQLiteDatabaseHook CIPHER_HOOK = new SQLiteDatabaseHook() {
+    @Override
+    public void preKey(SQLiteDatabase db) {
+      db.rawExecSQL("PRAGMA cipher_default_kdf_iter = 1;");
+      db.rawExecSQL("PRAGMA cipher_default_page_size = 4096;");
+    }
+
+    @Override
+    public void postKey(SQLiteDatabase db) {
+      db.rawExecSQL("PRAGMA kdf_iter = '1';");
+      db.rawExecSQL("PRAGMA cipher_page_size = 4096;");
+    }
+  };
+
   private final Context        context;
   private final DatabaseSecret databaseSecret;
+  private final boolean        walEnabled;
 
-  public SQLCipherOpenHelper(@NonNull Context context, @NonNull DatabaseSecret databaseSecret) {
-    super(context, DATABASE_NAME, null, DATABASE_VERSION, new SQLiteDatabaseHook() {
-      @Override
-      public void preKey(SQLiteDatabase db) {
-        db.rawExecSQL("PRAGMA cipher_default_kdf_iter = 1;");
-        db.rawExecSQL("PRAGMA cipher_default_page_size = 4096;");
-      }
+  private SQLCipherReaderPool readerPool;
 
-      @Override
-      public void postKey(SQLiteDatabase db) {
-        db.rawExecSQL("PRAGMA kdf_iter = '1';");
-        db.rawExecSQL("PRAGMA cipher_page_size = 4096;");
-      }
-    });
+  public SQLCipherOpenHelper(@NonNull Context context, @NonNull DatabaseSecret databaseSecret) {
+    super(context, DATABASE_NAME, null, DATABASE_VERSION, CIPHER_HOOK);
 
     this.context        = context.getApplicationContext();
     this.databaseSecret = databaseSecret;
+    this.walEnabled     = TextSecurePreferences.isDatabaseWalEnabled(context);
   }
 
   @Override
   public void onCreate(SQLiteDatabase db) {
     db.execSQL(SmsDatabase.CREATE_TABLE);
     db.execSQL(MmsDatabase.CREATE_TABLE);
+    db.execSQL(MmsSmsDatabase.CREATE_TABLE);
     db.execSQL(AttachmentDatabase.CREATE_TABLE);
     db.execSQL(ThreadDatabase.CREATE_TABLE);
     db.execSQL(IdentityDatabase.CREATE_TABLE);
@@ -196,6 +216,7 @@ public class SQLCipherOpenHelper extends SQLiteOpenHelper {
     executeStatements(db, RecipientDatabase.CREATE_INDEXS);
     executeStatements(db, SmsDatabase.CREATE_INDEXS);
     executeStatements(db, MmsDatabase.CREATE_INDEXS);
+    executeStatements(db, MmsSmsDatabase.CREATE_INDEXS);
     executeStatements(db, AttachmentDatabase.CREATE_INDEXS);
     executeStatements(db, ThreadDatabase.CREATE_INDEXS);
     executeStatements(db, DraftDatabase.CREATE_INDEXS);
@@ -205,6 +226,8 @@ public class SQLCipherOpenHelper extends SQLiteOpenHelper {
     executeStatements(db, StorageKeyDatabase.CREATE_INDEXES);
     executeStatements(db, MentionDatabase.CREATE_INDEXES);
 
+    executeStatements(db, MmsSmsDatabase.CREATE_TRIGGERS);
+
     if (context.getDatabasePath(ClassicOpenHelper.NAME).exists()) {
       ClassicOpenHelper                      legacyHelper = new ClassicOpenHelper(context);
       android.database.sqlite.SQLiteDatabase legacyDb     = legacyHelper.getWritableDatabase();
@@ -1008,6 +1031,105 @@ public class SQLCipherOpenHelper extends SQLiteOpenHelper {
         db.update("recipient", updateNever, "mention_setting = 2", null);
       }
 
+      if (oldVersion < CONTACT_SEARCH_INDEX) {
+        db.execSQL("CREATE VIRTUAL TABLE recipient_fts USING fts5(system_display_name, signal_profile_name, profile_family_name, username, phone, email, content=recipient, content_rowid=_id, prefix='1 2 3')");
+        db.execSQL("CREATE TRIGGER recipient_ai AFTER INSERT ON recipient BEGIN\n" +
+                   "  INSERT INTO recipient_fts(rowid, system_display_name, signal_profile_name, profile_family_name, username, phone, email) VALUES (new._id, new.system_display_name, new.signal_profile_name, new.profile_family_name, new.username, new.phone, new.email);\n" +
+                   "END;");
+        db.execSQL("CREATE TRIGGER recipient_ad AFTER DELETE ON recipient BEGIN\n" +
+                   "  INSERT INTO recipient_fts(recipient_fts, rowid, system_display_name, signal_profile_name, profile_family_name, username, phone, email) VALUES('delete', old._id, old.system_display_name, old.signal_profile_name, old.profile_family_name, old.username, old.phone, old.email);\n" +
+                   "END;");
+        db.execSQL("CREATE TRIGGER recipient_au AFTER UPDATE OF system_display_name, signal_profile_name, profile_family_name, username, phone, email ON recipient BEGIN\n" +
+                   "  INSERT INTO recipient_fts(recipient_fts, rowid, system_display_name, signal_profile_name, profile_family_name, username, phone, email) VALUES('delete', old._id, old.system_display_name, old.signal_profile_name, old.profile_family_name, old.username, old.phone, old.email);\n" +
+                   "  INSERT INTO recipient_fts(rowid, system_display_name, signal_profile_name, profile_family_name, username, phone, email) VALUES (new._id, new.system_display_name, new.signal_profile_name, new.profile_family_name, new.username, new.phone, new.email);\n" +
+                   "END;");
+
+        db.execSQL("CREATE VIRTUAL TABLE group_fts USING fts5(title, content=groups, content_rowid=_id, prefix='1 2 3')");
+        db.execSQL("CREATE TRIGGER groups_ai AFTER INSERT ON groups BEGIN\n" +
+                   "  INSERT INTO group_fts(rowid, title) VALUES (new._id, new.title);\n" +
+                   "END;");
+        db.execSQL("CREATE TRIGGER groups_ad AFTER DELETE ON groups BEGIN\n" +
+                   "  INSERT INTO group_fts(group_fts, rowid, title) VALUES('delete', old._id, old.title);\n" +
+                   "END;");
+        db.execSQL("CREATE TRIGGER groups_au AFTER UPDATE OF title ON groups BEGIN\n" +
+                   "  INSERT INTO group_fts(group_fts, rowid, title) VALUES('delete', old._id, old.title);\n" +
+                   "  INSERT INTO group_fts(rowid, title) VALUES (new._id, new.title);\n" +
+                   "END;");
+
+        db.execSQL("INSERT INTO recipient_fts(recipient_fts) VALUES('rebuild')");
+        db.execSQL("INSERT INTO group_fts(group_fts) VALUES('rebuild')");
+      }
+
+      if (oldVersion < UNREAD_MENTION_COUNT) {
+        db.execSQL("ALTER TABLE thread ADD COLUMN unread_mention_count INTEGER DEFAULT 0");
+        db.execSQL("UPDATE thread SET unread_mention_count = (SELECT COUNT(*) FROM mms WHERE mms.thread_id = thread._id AND mms.read = 0 AND mms.mentions_self = 1)");
+      }
+
+      if (oldVersion < BINARY_JOB_DATA) {
+        Data.Serializer jsonSerializer   = new JsonDataSerializer();
+        Data.Serializer binarySerializer = new BinaryDataSerializer();
+
+        try (Cursor cursor = db.query("job_spec", new String[] { "_id", "serialized_data", "serialized_input_data" }, null, null, null, null, null)) {
+          while (cursor != null && cursor.moveToNext()) {
+            String data      = cursor.getString(cursor.getColumnIndexOrThrow("serialized_data"));
+            String inputData = cursor.getString(cursor.getColumnIndexOrThrow("serialized_input_data"));
+
+            ContentValues values = new ContentValues(2);
+            values.put("serialized_data", binarySerializer.serialize(jsonSerializer.deserialize(data.getBytes())));
+
+            if (inputData != null) {
+              values.put("serialized_input_data", binarySerializer.serialize(jsonSerializer.deserialize(inputData.getBytes())));
+            }
+
+            db.update("job_spec", values, "_id = ?", new String[] { cursor.getString(cursor.getColumnIndexOrThrow("_id")) });
+          }
+        }
+      }
+
+      if (oldVersion < THREAD_LIST_INDEX) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS thread_list_index ON thread (archived, pinned, date) WHERE message_count != 0");
+      }
+
+      if (oldVersion < MESSAGE_INDEX) {
+        db.execSQL("CREATE TABLE message_index (_id INTEGER PRIMARY KEY, thread_id INTEGER, date_received INTEGER, date_sent INTEGER, type INTEGER, address INTEGER, transport_type TEXT, message_id INTEGER, unnotified INTEGER DEFAULT 0, UNIQUE(transport_type, message_id))");
+
+        db.execSQL("INSERT INTO message_index (thread_id, date_received, date_sent, type, address, transport_type, message_id, unnotified) " +
+                   "SELECT thread_id, date, date_sent, type, address, 'sms', _id, notified = 0 AND (read = 0 OR reactions_unread = 1) FROM sms");
+        db.execSQL("INSERT INTO message_index (thread_id, date_received, date_sent, type, address, transport_type, message_id, unnotified) " +
+                   "SELECT thread_id, date_received, date, msg_box, address, 'mms', _id, notified = 0 AND (read = 0 OR reactions_unread = 1) FROM mms");
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS message_index_thread_date_index ON message_index (thread_id, date_received, transport_type, message_id, date_sent, address)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS message_index_unnotified_index ON message_index (transport_type, message_id) WHERE unnotified = 1");
+
+        db.execSQL("CREATE TRIGGER sms_message_index_ai AFTER INSERT ON sms BEGIN\n" +
+                   "  INSERT INTO message_index (thread_id, date_received, date_sent, type, address, transport_type, message_id, unnotified) VALUES (new.thread_id, new.date, new.date_sent, new.type, new.address, 'sms', new._id, new.notified = 0 AND (new.read = 0 OR new.reactions_unread = 1));\n" +
+                   "END;");
+        db.execSQL("CREATE TRIGGER sms_message_index_ad AFTER DELETE ON sms BEGIN\n" +
+                   "  DELETE FROM message_index WHERE transport_type = 'sms' AND message_id = old._id;\n" +
+                   "END;");
+        db.execSQL("CREATE TRIGGER sms_message_index_au AFTER UPDATE OF thread_id, date, date_sent, type, address, read, notified, reactions_unread ON sms BEGIN\n" +
+                   "  UPDATE message_index SET thread_id = new.thread_id, date_received = new.date, date_sent = new.date_sent, type = new.type, address = new.address, unnotified = new.notified = 0 AND (new.read = 0 OR new.reactions_unread = 1) WHERE transport_type = 'sms' AND message_id = new._id;\n" +
+                   "END;");
+
+        db.execSQL("CREATE TRIGGER mms_message_index_ai AFTER INSERT ON mms BEGIN\n" +
+                   "  INSERT INTO message_index (thread_id, date_received, date_sent, type, address, transport_type, message_id, unnotified) VALUES (new.thread_id, new.date_received, new.date, new.msg_box, new.address, 'mms', new._id, new.notified = 0 AND (new.read = 0 OR new.reactions_unread = 1));\n" +
+                   "END;");
+        db.execSQL("CREATE TRIGGER mms_message_index_ad AFTER DELETE ON mms BEGIN\n" +
+                   "  DELETE FROM message_index WHERE transport_type = 'mms' AND message_id = old._id;\n" +
+                   "END;");
+        db.execSQL("CREATE TRIGGER mms_message_index_au AFTER UPDATE OF thread_id, date_received, date, msg_box, address, read, notified, reactions_unread ON mms BEGIN\n" +
+                   "  UPDATE message_index SET thread_id = new.thread_id, date_received = new.date_received, date_sent = new.date, type = new.msg_box, address = new.address, unnotified = new.notified = 0 AND (new.read = 0 OR new.reactions_unread = 1) WHERE transport_type = 'mms' AND message_id = new._id;\n" +
+                   "END;");
+      }
+
+      if (oldVersion < MESSAGE_INDEX_DATE_SENT) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS message_index_thread_date_sent_index ON message_index (thread_id, date_sent)");
+      }
+
+      if (oldVersion < ATTACHMENT_SIZE_INDEX) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS part_data_size_index ON part (data_size) WHERE data_hash NOT NULL");
+      }
+
       db.setTransactionSuccessful();
     } finally {
       db.endTransaction();
@@ -1020,14 +1142,57 @@ public class SQLCipherOpenHelper extends SQLiteOpenHelper {
     Log.i(TAG, "Upgrade complete. Took " + (System.currentTimeMillis() - startTime) + " ms.");
   }
 
+  @Override
+  public void onOpen(SQLiteDatabase db) {
+    if (walEnabled) {
+      db.rawExecSQL("PRAGMA journal_mode = WAL;");
+      db.rawExecSQL("PRAGMA synchronous = NORMAL;");
+    } else {
+      db.rawExecSQL("PRAGMA journal_mode = DELETE;");
+    }
+  }
+
+  /**
+   * With WAL enabled, reads are served from a pool of read-only connections so they don't queue
+   * behind write transactions. A thread inside a write transaction keeps reading from the writer,
+   * so it still sees its own uncommitted changes.
+   */
   public SQLiteDatabase getReadableDatabase() {
-    return getReadableDatabase(databaseSecret.asString());
+    if (!walEnabled) {
+      return getReadableDatabase(databaseSecret.asString());
+    }
+
+    SQLiteDatabase writer = getWritableDatabase();
+
+    if (writer.isDbLockedByCurrentThread()) {
+      return writer;
+    }
+
+    return getReaderPool().get();
   }
 
   public SQLiteDatabase getWritableDatabase() {
     return getWritableDatabase(databaseSecret.asString());
   }
 
+  @Override
+  public synchronized void close() {
+    if (readerPool != null) {
+      readerPool.close();
+      readerPool = null;
+    }
+
+    super.close();
+  }
+
+  private synchronized @NonNull SQLCipherReaderPool getReaderPool() {
+    if (readerPool == null) {
+      readerPool = new SQLCipherReaderPool(getDatabaseFile(context), databaseSecret.asString(), CIPHER_HOOK, READER_POOL_SIZE);
+    }
+
+    return readerPool;
+  }
+
   public void markCurrent(SQLiteDatabase db) {
     db.setVersion(DATABASE_VERSION);
   }
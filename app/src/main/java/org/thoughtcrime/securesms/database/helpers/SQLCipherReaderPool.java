@@ -0,0 +1,72 @@
+package org.thoughtcrime.securesms.database.helpers;
+
+import androidx.annotation.NonNull;
+
+import net.sqlcipher.database.SQLiteDatabase;
+import net.sqlcipher.database.SQLiteDatabaseHook;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small set of keyed, read-only connections to a database in WAL mode. Each SQLCipher connection
+ * serializes everything done through it, so reads served from here run alongside the writer
+ * connection's transactions instead of waiting for them to finish.
+ * <p>
+ * Connections are opened on first use and shared between threads. A read goes to a connection that
+ * no other thread is using when there is one.
+ */
+final class SQLCipherReaderPool {
+
+  private final File               path;
+  private final String             password;
+  private final SQLiteDatabaseHook hook;
+  private final SQLiteDatabase[]   connections;
+  private final AtomicInteger      next = new AtomicInteger();
+
+  private boolean closed;
+
+  SQLCipherReaderPool(@NonNull File path, @NonNull String password, @NonNull SQLiteDatabaseHook hook, int size) {
+    this.path        = path;
+    this.password    = password;
+    this.hook        = hook;
+    this.connections = new SQLiteDatabase[size];
+  }
+
+  @NonNull SQLiteDatabase get() {
+    int start = (next.getAndIncrement() & Integer.MAX_VALUE) % connections.length;
+
+    for (int i = 0; i < connections.length; i++) {
+      SQLiteDatabase connection = getConnection((start + i) % connections.length);
+
+      if (!connection.isDbLockedByOtherThreads()) {
+        return connection;
+      }
+    }
+
+    return getConnection(start);
+  }
+
+  synchronized void close() {
+    for (int i = 0; i < connections.length; i++) {
+      if (connections[i] != null) {
+        connections[i].close();
+        connections[i] = null;
+      }
+    }
+
+    closed = true;
+  }
+
+  private synchronized @NonNull SQLiteDatabase getConnection(int index) {
+    if (closed) {
+      throw new IllegalStateException("Reader pool is closed!");
+    }
+
+    if (connections[index] == null) {
+      connections[index] = SQLiteDatabase.openDatabase(path.getAbsolutePath(), password, null, SQLiteDatabase.OPEN_READONLY, hook);
+    }
+
+    return connections[index];
+  }
+}
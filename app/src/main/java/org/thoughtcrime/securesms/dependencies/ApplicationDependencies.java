@@ -6,6 +6,7 @@ import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 
 import org.thoughtcrime.securesms.BuildConfig;
+import org.thoughtcrime.securesms.database.DatabaseObserver;
 import org.thoughtcrime.securesms.messages.IncomingMessageProcessor;
 import org.thoughtcrime.securesms.messages.BackgroundMessageRetriever;
 import org.thoughtcrime.securesms.groups.GroupsV2AuthorizationMemoryValueCache;
@@ -59,6 +60,7 @@ public class ApplicationDependencies {
   private static GroupsV2Operations           groupsV2Operations;
   private static EarlyMessageCache            earlyMessageCache;
   private static MessageNotifier              messageNotifier;
+  private static DatabaseObserver             databaseObserver;
 
   @MainThread
   public static synchronized void init(@NonNull Application application, @NonNull Provider provider) {
@@ -245,6 +247,16 @@ public class ApplicationDependencies {
     return messageNotifier;
   }
 
+  public static synchronized @NonNull DatabaseObserver getDatabaseObserver() {
+    assertInitialization();
+
+    if (databaseObserver == null) {
+      databaseObserver = provider.provideDatabaseObserver();
+    }
+
+    return databaseObserver;
+  }
+
   public static synchronized @NonNull IncomingMessageObserver getIncomingMessageObserver() {
     assertInitialization();
 
@@ -277,6 +289,7 @@ public class ApplicationDependencies {
     @NonNull EarlyMessageCache provideEarlyMessageCache();
     @NonNull MessageNotifier provideMessageNotifier();
     @NonNull IncomingMessageObserver provideIncomingMessageObserver();
+    @NonNull DatabaseObserver provideDatabaseObserver();
   }
 
   private static class UninitializedException extends IllegalStateException {
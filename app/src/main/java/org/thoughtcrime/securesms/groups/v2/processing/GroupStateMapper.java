@@ -7,6 +7,7 @@ import org.signal.storageservice.protos.groups.local.DecryptedGroupChange;
 import org.thoughtcrime.securesms.logging.Log;
 import org.whispersystems.signalservice.api.groupsv2.DecryptedGroupUtil;
 import org.whispersystems.signalservice.api.groupsv2.GroupChangeReconstruct;
+import org.whispersystems.signalservice.api.groupsv2.IndexedDecryptedGroup;
 import org.whispersystems.signalservice.api.groupsv2.NotAbleToApplyGroupV2ChangeException;
 
 import java.util.ArrayList;
@@ -30,6 +31,10 @@ final class GroupStateMapper {
    * Given an input {@link GlobalGroupState} and a {@param maximumRevisionToApply}, returns a result
    * containing what the new local group state should be, and any remaining revision history to apply.
    * <p>
+   * Changes are folded into a single {@link IndexedDecryptedGroup} that is kept across revisions
+   * while it matches the server's state, so the group proto is only built for revisions the server
+   * did not send a state for.
+   * <p>
    * Function is pure.
    * @param maximumRevisionToApply Use {@link #LATEST} to apply the very latest.
    */
@@ -40,6 +45,7 @@ final class GroupStateMapper {
     HashMap<Integer, ServerGroupLogEntry> statesToApplyNow   = new HashMap<>(inputState.getServerHistory().size());
     ArrayList<ServerGroupLogEntry>        statesToApplyLater = new ArrayList<>(inputState.getServerHistory().size());
     DecryptedGroup                        current            = inputState.getLocalState();
+    IndexedDecryptedGroup                 folded             = null;
 
     if (inputState.getServerHistory().isEmpty()) {
       return new AdvanceGroupStateResult(Collections.emptyList(), new GlobalGroupState(current, Collections.emptyList()));
@@ -86,17 +92,21 @@ final class GroupStateMapper {
         changeAtRevision = GroupChangeReconstruct.reconstructGroupChange(current, Objects.requireNonNull(groupAtRevision));
       }
 
-      DecryptedGroup groupWithChangeApplied;
+      if (folded == null) {
+        folded = new IndexedDecryptedGroup(current);
+      }
+
       try {
-        groupWithChangeApplied = DecryptedGroupUtil.applyWithoutRevisionCheck(current, changeAtRevision);
+        folded.apply(changeAtRevision);
       } catch (NotAbleToApplyGroupV2ChangeException e) {
         Log.w(TAG, "Unable to apply V" + revision, e);
+        folded = null;
         continue;
       }
 
       if (groupAtRevision == null) {
         Log.w(TAG, "Reconstructing state for V" + revision);
-        groupAtRevision = groupWithChangeApplied;
+        groupAtRevision = folded.toDecryptedGroup();
       }
 
       if (current.getRevision() != groupAtRevision.getRevision()) {
@@ -109,10 +119,13 @@ final class GroupStateMapper {
         }
       }
 
-      DecryptedGroupChange missingChanges = GroupChangeReconstruct.reconstructGroupChange(groupWithChangeApplied, groupAtRevision);
-      if (!DecryptedGroupUtil.changeIsEmpty(missingChanges)) {
-        appliedChanges.add(new LocalGroupLogEntry(groupAtRevision, missingChanges));
-        Log.w(TAG, "Inserted repair change for gap V" + revision);
+      if (!folded.isEqualTo(groupAtRevision)) {
+        DecryptedGroupChange missingChanges = GroupChangeReconstruct.reconstructGroupChange(folded.toDecryptedGroup(), groupAtRevision);
+        if (!DecryptedGroupUtil.changeIsEmpty(missingChanges)) {
+          appliedChanges.add(new LocalGroupLogEntry(groupAtRevision, missingChanges));
+          Log.w(TAG, "Inserted repair change for gap V" + revision);
+        }
+        folded = null;
       }
 
       current = groupAtRevision;
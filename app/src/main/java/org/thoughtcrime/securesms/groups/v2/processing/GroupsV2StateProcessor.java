@@ -191,8 +191,16 @@ public final class GroupsV2StateProcessor {
         return new GroupUpdateResult(GroupState.GROUP_CONSISTENT_OR_AHEAD, null);
       }
 
-      updateLocalDatabaseGroupState(inputGroupState, newLocalState);
-      insertUpdateMessages(timestamp, advanceGroupStateResult.getProcessedLogEntries());
+      MmsDatabase mmsDatabase = DatabaseFactory.getMmsDatabase(context);
+      mmsDatabase.beginTransaction();
+      try {
+        updateLocalDatabaseGroupState(inputGroupState, newLocalState);
+        insertUpdateMessages(timestamp, advanceGroupStateResult.getProcessedLogEntries());
+        mmsDatabase.setTransactionSuccessful();
+      } finally {
+        mmsDatabase.endTransaction();
+      }
+
       persistLearnedProfileKeys(inputGroupState);
 
       GlobalGroupState remainingWork = advanceGroupStateResult.getNewGlobalGroupState();
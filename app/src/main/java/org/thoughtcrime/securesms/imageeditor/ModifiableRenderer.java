@@ -0,0 +1,15 @@
+package org.thoughtcrime.securesms.imageeditor;
+
+/**
+ * A renderer whose parcelled state can change after it is created.
+ * <p>
+ * Undo snapshots only serialize a renderer again when its modification count has changed, so any
+ * renderer that can change what it writes to a parcel must implement this.
+ */
+public interface ModifiableRenderer extends Renderer {
+
+  /**
+   * @return A value that changes whenever the state written by {@link #writeToParcel} changes.
+   */
+  int getModificationCount();
+}
@@ -71,12 +71,32 @@ public final class EditorElement implements Parcelable {
   }
 
   private EditorElement(Parcel in) {
+    this(in, true);
+  }
+
+  private EditorElement(Parcel in, boolean withChildren) {
     id       = ParcelUtils.readUUID(in);
     flags    = new EditorFlags(in.readInt());
     ParcelUtils.readMatrix(localMatrix, in);
     renderer = in.readParcelable(Renderer.class.getClassLoader());
     zOrder   = in.readInt();
-    in.readTypedList(children, EditorElement.CREATOR);
+    if (withChildren) {
+      in.readTypedList(children, EditorElement.CREATOR);
+    }
+  }
+
+  /**
+   * Reads an element written with {@link #writeToParcelWithoutChildren}.
+   */
+  static @NonNull EditorElement readFromParcelWithoutChildren(@NonNull Parcel in) {
+    return new EditorElement(in, false);
+  }
+
+  /**
+   * Appends a child read with {@link #readFromParcelWithoutChildren}, children must be restored in their original order.
+   */
+  void restoreChild(@NonNull EditorElement child) {
+    children.add(child);
   }
 
   UUID getId() {
@@ -344,11 +364,15 @@ public final class EditorElement implements Parcelable {
 
   @Override
   public void writeToParcel(Parcel dest, int flags) {
+    writeToParcelWithoutChildren(dest, flags);
+    dest.writeTypedList(children);
+  }
+
+  void writeToParcelWithoutChildren(@NonNull Parcel dest, int flags) {
     ParcelUtils.writeUUID(dest, id);
     dest.writeInt(this.flags.asInt());
     ParcelUtils.writeMatrix(dest, localMatrix);
     dest.writeParcelable(renderer, flags);
     dest.writeInt(zOrder);
-    dest.writeTypedList(children);
   }
 }
@@ -5,13 +5,14 @@ import android.os.Parcelable;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.Arrays;
 import java.util.Stack;
 
 /**
  * Contains a stack of elements for undo and redo stacks.
  * <p>
- * Elements are mutable, so this stack serializes the element and keeps a stack of serialized data.
+ * Elements are mutable, so this stack keeps a stack of {@link ElementTreeState} snapshots. Each
+ * snapshot is captured against the one below it, so unchanged elements are shared between entries
+ * and a push only stores the elements that were added or changed.
  * <p>
  * The stack has a {@link #limit} and if it exceeds that limit during a push the second to earliest item
  * is removed so that it can always go back to the first state. Effectively collapsing the history for
@@ -19,8 +20,8 @@ import java.util.Stack;
  */
 final class ElementStack implements Parcelable {
 
-  private final int           limit;
-  private final Stack<byte[]> stack = new Stack<>();
+  private final int                     limit;
+  private final Stack<ElementTreeState> stack = new Stack<>();
 
   ElementStack(int limit) {
     this.limit = limit;
@@ -28,10 +29,7 @@ final class ElementStack implements Parcelable {
 
   private ElementStack(@NonNull Parcel in) {
     this(in.readInt());
-    final int count = in.readInt();
-    for (int i = 0; i < count; i++) {
-      stack.add(i, in.createByteArray());
-    }
+    ElementTreeState.readFromParcel(in, stack);
   }
 
   /**
@@ -44,11 +42,10 @@ final class ElementStack implements Parcelable {
    * @return true iff the pushed item was different to the top item.
    */
   boolean tryPush(@NonNull EditorElement element) {
-    byte[]  bytes = getBytes(element);
-    boolean push  = stack.isEmpty() || !Arrays.equals(bytes, stack.peek());
+    boolean push = stack.isEmpty() || !stack.peek().isStateOf(element);
 
     if (push) {
-      stack.push(bytes);
+      stack.push(capture(element));
       if (stack.size() > limit) {
         stack.remove(1);
       }
@@ -56,16 +53,11 @@ final class ElementStack implements Parcelable {
     return push;
   }
 
-  static byte[] getBytes(@NonNull Parcelable parcelable) {
-    Parcel parcel = Parcel.obtain();
-    byte[] bytes;
-    try {
-      parcel.writeParcelable(parcelable, 0);
-      bytes = parcel.marshall();
-    } finally {
-      parcel.recycle();
-    }
-    return bytes;
+  /**
+   * Captures the element sharing unchanged element data with the top of the stack.
+   */
+  private @NonNull ElementTreeState capture(@NonNull EditorElement element) {
+    return ElementTreeState.capture(element, stack.isEmpty() ? null : stack.peek());
   }
 
   /**
@@ -74,33 +66,36 @@ final class ElementStack implements Parcelable {
   @Nullable EditorElement pop(@NonNull EditorElement element) {
     if (stack.empty()) return null;
 
-    byte[] elementBytes = getBytes(element);
-    byte[] stackData    = null;
+    ElementTreeState stackData = null;
 
     while (!stack.empty() && stackData == null) {
-      byte[] topData = stack.pop();
+      ElementTreeState topData = stack.pop();
 
-      if (!Arrays.equals(topData, elementBytes)) {
+      if (!topData.isStateOf(element)) {
         stackData = topData;
       }
     }
 
     if (stackData == null) return null;
 
-    Parcel parcel = Parcel.obtain();
-    try {
-      parcel.unmarshall(stackData, 0, stackData.length);
-      parcel.setDataPosition(0);
-      return parcel.readParcelable(EditorElement.class.getClassLoader());
-    } finally {
-      parcel.recycle();
-    }
+    return stackData.restore();
   }
 
   void clear() {
     stack.clear();
   }
 
+  int size() {
+    return stack.size();
+  }
+
+  /**
+   * @return Bytes of element data held by this stack, counting data shared between entries once.
+   */
+  long getRetainedSize() {
+    return ElementTreeState.getRetainedSize(stack);
+  }
+
   public static final Creator<ElementStack> CREATOR = new Creator<ElementStack>() {
     @Override
     public ElementStack createFromParcel(Parcel in) {
@@ -121,20 +116,14 @@ final class ElementStack implements Parcelable {
   @Override
   public void writeToParcel(Parcel dest, int flags) {
     dest.writeInt(limit);
-    final int count = stack.size();
-    dest.writeInt(count);
-    for (int i = 0; i < count; i++) {
-      dest.writeByteArray(stack.get(i));
-    }
+    ElementTreeState.writeToParcel(dest, stack);
   }
 
   boolean stackContainsStateDifferentFrom(@NonNull EditorElement element) {
     if (stack.isEmpty()) return false;
 
-    byte[] currentStateBytes = getBytes(element);
-
-    for (byte[] item : stack) {
-      if (!Arrays.equals(item, currentStateBytes)) {
+    for (ElementTreeState item : stack) {
+      if (!item.isStateOf(element)) {
         return true;
       }
     }
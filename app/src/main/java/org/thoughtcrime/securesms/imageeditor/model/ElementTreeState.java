@@ -0,0 +1,404 @@
+package org.thoughtcrime.securesms.imageeditor.model;
+
+import android.os.Parcel;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.thoughtcrime.securesms.imageeditor.ModifiableRenderer;
+import org.thoughtcrime.securesms.imageeditor.Renderer;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * An immutable snapshot of an {@link EditorElement} tree, held as one serialized record per element.
+ * <p>
+ * A snapshot is captured against a previous one, and any element whose serialized form has not
+ * changed shares the previous record. So each snapshot only costs new memory for the elements that
+ * were added or changed since, plus a reference per element, yet can be restored on its own without
+ * replaying any other snapshot.
+ * <p>
+ * Alongside each record the snapshot keeps a {@link Fingerprint} of the element it was taken from.
+ * An element that still matches its fingerprint is known to be unchanged without serializing it, so
+ * capturing and comparing only pay for serialization of the elements that were actually touched.
+ */
+final class ElementTreeState {
+
+  private final Record[] records;
+
+  /**
+   * Parallel to {@link #records}, null for snapshots read from a parcel.
+   */
+  @Nullable
+  private final Fingerprint[] fingerprints;
+
+  private ElementTreeState(@NonNull Record[] records, @Nullable Fingerprint[] fingerprints) {
+    this.records      = records;
+    this.fingerprints = fingerprints;
+  }
+
+  /**
+   * @param previous Snapshot to share unchanged element records with, if any.
+   */
+  static @NonNull ElementTreeState capture(@NonNull EditorElement root, @Nullable ElementTreeState previous) {
+    List<EditorElement> elements  = new ArrayList<>();
+    List<UUID>          parentIds = new ArrayList<>();
+
+    flatten(root, null, elements, parentIds);
+
+    Record[]           records         = new Record[elements.size()];
+    Fingerprint[]      fingerprints    = new Fingerprint[elements.size()];
+    Map<UUID, Integer> previousIndexes = null;
+    float[]            matrixValues    = new float[9];
+    Parcel             parcel          = null;
+
+    try {
+      for (int i = 0; i < records.length; i++) {
+        EditorElement element       = elements.get(i);
+        UUID          parentId      = parentIds.get(i);
+        int           previousIndex = -1;
+
+        if (previous != null) {
+          if (i < previous.records.length && previous.records[i].id.equals(element.getId())) {
+            previousIndex = i;
+          } else {
+            if (previousIndexes == null) {
+              previousIndexes = previous.indexesById();
+            }
+            Integer index = previousIndexes.get(element.getId());
+            previousIndex = index != null ? index : -1;
+          }
+        }
+
+        Record      previousRecord      = previousIndex != -1 ? previous.records[previousIndex] : null;
+        Fingerprint previousFingerprint = previousIndex != -1 ? previous.getFingerprint(previousIndex) : null;
+        byte[]      data;
+
+        if (previousFingerprint != null && previousFingerprint.matches(element, matrixValues)) {
+          data            = previousRecord.data;
+          fingerprints[i] = previousFingerprint;
+        } else {
+          if (parcel == null) {
+            parcel = Parcel.obtain();
+          }
+
+          data            = serialize(element, parcel);
+          fingerprints[i] = new Fingerprint(element);
+
+          if (previousRecord != null && Arrays.equals(previousRecord.data, data)) {
+            data = previousRecord.data;
+          }
+        }
+
+        if (previousRecord != null && previousRecord.data == data && Objects.equals(previousRecord.parentId, parentId)) {
+          records[i] = previousRecord;
+        } else {
+          records[i] = new Record(element.getId(), parentId, data);
+        }
+      }
+    } finally {
+      if (parcel != null) {
+        parcel.recycle();
+      }
+    }
+
+    return new ElementTreeState(records, fingerprints);
+  }
+
+  /**
+   * Compares the element tree to this snapshot without capturing it, only serializing elements that
+   * no longer match their fingerprint, and stopping at the first difference.
+   */
+  boolean isStateOf(@NonNull EditorElement root) {
+    if (countElements(root) != records.length) {
+      return false;
+    }
+
+    Parcel parcel = Parcel.obtain();
+
+    try {
+      return isStateOf(root, null, new int[1], new float[9], parcel);
+    } finally {
+      parcel.recycle();
+    }
+  }
+
+  private boolean isStateOf(@NonNull EditorElement element,
+                            @Nullable UUID parentId,
+                            @NonNull int[] nextIndex,
+                            @NonNull float[] matrixValues,
+                            @NonNull Parcel parcel)
+  {
+    int         index       = nextIndex[0]++;
+    Record      record      = records[index];
+    Fingerprint fingerprint = getFingerprint(index);
+
+    if (!record.id.equals(element.getId()) || !Objects.equals(record.parentId, parentId)) {
+      return false;
+    }
+
+    if ((fingerprint == null || !fingerprint.matches(element, matrixValues)) &&
+        !Arrays.equals(record.data, serialize(element, parcel)))
+    {
+      return false;
+    }
+
+    for (int i = 0; i < element.getChildCount(); i++) {
+      if (!isStateOf(element.getChild(i), element.getId(), nextIndex, matrixValues, parcel)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static void flatten(@NonNull EditorElement element,
+                              @Nullable UUID parentId,
+                              @NonNull List<EditorElement> elements,
+                              @NonNull List<UUID> parentIds)
+  {
+    elements.add(element);
+    parentIds.add(parentId);
+
+    for (int i = 0; i < element.getChildCount(); i++) {
+      flatten(element.getChild(i), element.getId(), elements, parentIds);
+    }
+  }
+
+  private static int countElements(@NonNull EditorElement element) {
+    int count = 1;
+
+    for (int i = 0; i < element.getChildCount(); i++) {
+      count += countElements(element.getChild(i));
+    }
+
+    return count;
+  }
+
+  private static @NonNull byte[] serialize(@NonNull EditorElement element, @NonNull Parcel parcel) {
+    parcel.setDataPosition(0);
+    parcel.setDataSize(0);
+    element.writeToParcelWithoutChildren(parcel, 0);
+
+    return parcel.marshall();
+  }
+
+  private @NonNull Map<UUID, Integer> indexesById() {
+    Map<UUID, Integer> map = new HashMap<>(records.length);
+
+    for (int i = 0; i < records.length; i++) {
+      map.put(records[i].id, i);
+    }
+
+    return map;
+  }
+
+  private @Nullable Fingerprint getFingerprint(int index) {
+    return fingerprints != null ? fingerprints[index] : null;
+  }
+
+  @NonNull EditorElement restore() {
+    Map<UUID, EditorElement> elements = new HashMap<>(records.length);
+    EditorElement            root     = null;
+    Parcel                   parcel   = Parcel.obtain();
+
+    try {
+      for (Record record : records) {
+        parcel.unmarshall(record.data, 0, record.data.length);
+        parcel.setDataPosition(0);
+
+        EditorElement element = EditorElement.readFromParcelWithoutChildren(parcel);
+
+        elements.put(record.id, element);
+
+        if (record.parentId != null) {
+          //noinspection ConstantConditions
+          elements.get(record.parentId).restoreChild(element);
+        } else {
+          root = element;
+        }
+      }
+    } finally {
+      parcel.recycle();
+    }
+
+    //noinspection ConstantConditions
+    return root;
+  }
+
+  /**
+   * @return Bytes of serialized element data held by the snapshots, counting shared data once.
+   */
+  static long getRetainedSize(@NonNull Collection<ElementTreeState> states) {
+    Map<byte[], Boolean> counted = new IdentityHashMap<>();
+    long                 size    = 0;
+
+    for (ElementTreeState state : states) {
+      for (Record record : state.records) {
+        if (counted.put(record.data, true) == null) {
+          size += record.data.length;
+        }
+      }
+    }
+
+    return size;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) return true;
+    if (!(o instanceof ElementTreeState)) return false;
+
+    return Arrays.equals(records, ((ElementTreeState) o).records);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(records);
+  }
+
+  /**
+   * Writes the snapshots with each shared record written once.
+   */
+  static void writeToParcel(@NonNull Parcel dest, @NonNull List<ElementTreeState> states) {
+    Map<Record, Integer> recordIndexes = new IdentityHashMap<>();
+    int[][]              stateIndexes  = new int[states.size()][];
+
+    for (int i = 0; i < states.size(); i++) {
+      Record[] records = states.get(i).records;
+
+      stateIndexes[i] = new int[records.length];
+
+      for (int j = 0; j < records.length; j++) {
+        Integer index = recordIndexes.get(records[j]);
+
+        if (index == null) {
+          index = recordIndexes.size();
+          recordIndexes.put(records[j], index);
+        }
+
+        stateIndexes[i][j] = index;
+      }
+    }
+
+    Record[] uniqueRecords = new Record[recordIndexes.size()];
+
+    for (Map.Entry<Record, Integer> entry : recordIndexes.entrySet()) {
+      uniqueRecords[entry.getValue()] = entry.getKey();
+    }
+
+    dest.writeInt(uniqueRecords.length);
+    for (Record record : uniqueRecords) {
+      ParcelUtils.writeUUID(dest, record.id);
+      dest.writeByte((byte) (record.parentId != null ? 1 : 0));
+      if (record.parentId != null) {
+        ParcelUtils.writeUUID(dest, record.parentId);
+      }
+      dest.writeByteArray(record.data);
+    }
+
+    dest.writeInt(stateIndexes.length);
+    for (int[] indexes : stateIndexes) {
+      dest.writeIntArray(indexes);
+    }
+  }
+
+  static void readFromParcel(@NonNull Parcel in, @NonNull List<ElementTreeState> out) {
+    Record[] uniqueRecords = new Record[in.readInt()];
+
+    for (int i = 0; i < uniqueRecords.length; i++) {
+      UUID id       = ParcelUtils.readUUID(in);
+      UUID parentId = in.readByte() != 0 ? ParcelUtils.readUUID(in) : null;
+
+      uniqueRecords[i] = new Record(id, parentId, in.createByteArray());
+    }
+
+    int stateCount = in.readInt();
+
+    for (int i = 0; i < stateCount; i++) {
+      int[]    indexes = in.createIntArray();
+      Record[] records = new Record[indexes.length];
+
+      for (int j = 0; j < indexes.length; j++) {
+        records[j] = uniqueRecords[indexes[j]];
+      }
+
+      out.add(new ElementTreeState(records, null));
+    }
+  }
+
+  private static final class Record {
+    private final UUID   id;
+    private final UUID   parentId;
+    private final byte[] data;
+
+    private Record(@NonNull UUID id, @Nullable UUID parentId, @NonNull byte[] data) {
+      this.id       = id;
+      this.parentId = parentId;
+      this.data     = data;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Record)) return false;
+
+      Record other = (Record) o;
+
+      return id.equals(other.id) && Objects.equals(parentId, other.parentId) && Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * id.hashCode() + Objects.hashCode(parentId);
+    }
+  }
+
+  /**
+   * Everything that can change in an element's serialized form, without serializing it.
+   * <p>
+   * The id, z-order and renderer of an element never change, so the element identity covers them,
+   * along with the renderer's modification count for renderers with mutable state. The element is
+   * held weakly so that snapshots do not keep removed elements and their renderers alive.
+   */
+  private static final class Fingerprint {
+    private final WeakReference<EditorElement> element;
+    private final int                          rendererModificationCount;
+    private final int                          flags;
+    private final float[]                      matrixValues = new float[9];
+
+    private Fingerprint(@NonNull EditorElement element) {
+      this.element                   = new WeakReference<>(element);
+      this.rendererModificationCount = getModificationCount(element.getRenderer());
+      this.flags                     = element.getFlags().asInt();
+
+      element.getLocalMatrix().getValues(matrixValues);
+    }
+
+    private boolean matches(@NonNull EditorElement element, @NonNull float[] scratch) {
+      if (this.element.get() != element                                           ||
+          rendererModificationCount != getModificationCount(element.getRenderer()) ||
+          flags != element.getFlags().asInt())
+      {
+        return false;
+      }
+
+      element.getLocalMatrix().getValues(scratch);
+
+      return Arrays.equals(matrixValues, scratch);
+    }
+
+    private static int getModificationCount(@Nullable Renderer renderer) {
+      return renderer instanceof ModifiableRenderer ? ((ModifiableRenderer) renderer).getModificationCount() : 0;
+    }
+  }
+}
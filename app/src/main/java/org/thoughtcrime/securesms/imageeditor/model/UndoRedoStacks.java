@@ -5,24 +5,26 @@ import android.os.Parcelable;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 final class UndoRedoStacks implements Parcelable {
 
   private final ElementStack undoStack;
   private final ElementStack redoStack;
 
-  @NonNull
-  private byte[] unchangedState;
+  @Nullable
+  private ElementTreeState unchangedState;
 
   UndoRedoStacks(int limit) {
     this(new ElementStack(limit), new ElementStack(limit), null);
   }
 
-  private UndoRedoStacks(ElementStack undoStack, ElementStack redoStack, @Nullable byte[] unchangedState) {
+  private UndoRedoStacks(ElementStack undoStack, ElementStack redoStack, @Nullable ElementTreeState unchangedState) {
     this.undoStack = undoStack;
     this.redoStack = redoStack;
-    this.unchangedState = unchangedState != null ? unchangedState : new byte[0];
+    this.unchangedState = unchangedState;
   }
 
   public static final Creator<UndoRedoStacks> CREATOR = new Creator<UndoRedoStacks>() {
@@ -31,7 +33,7 @@ final class UndoRedoStacks implements Parcelable {
       return new UndoRedoStacks(
       in.readParcelable(ElementStack.class.getClassLoader()),
       in.readParcelable(ElementStack.class.getClassLoader()),
-      in.createByteArray()
+      readUnchangedState(in)
       );
     }
 
@@ -45,7 +47,13 @@ final class UndoRedoStacks implements Parcelable {
   public void writeToParcel(Parcel dest, int flags) {
     dest.writeParcelable(undoStack, flags);
     dest.writeParcelable(redoStack, flags);
-    dest.writeByteArray(unchangedState);
+    ElementTreeState.writeToParcel(dest, unchangedState != null ? Collections.singletonList(unchangedState) : Collections.emptyList());
+  }
+
+  private static @Nullable ElementTreeState readUnchangedState(@NonNull Parcel in) {
+    List<ElementTreeState> states = new ArrayList<>(1);
+    ElementTreeState.readFromParcel(in, states);
+    return states.isEmpty() ? null : states.get(0);
   }
 
   @Override
@@ -70,11 +78,11 @@ final class UndoRedoStacks implements Parcelable {
   void clear(@NonNull EditorElement element) {
     undoStack.clear();
     redoStack.clear();
-    unchangedState = ElementStack.getBytes(element);
+    unchangedState = ElementTreeState.capture(element, null);
   }
 
   boolean isChanged(@NonNull EditorElement element) {
-    return !Arrays.equals(ElementStack.getBytes(element), unchangedState);
+    return unchangedState == null || !unchangedState.isStateOf(element);
   }
 
   /**
@@ -51,6 +51,7 @@ public final class BezierDrawingRenderer extends InvalidateableRenderer implemen
     if (this.color != color) {
       this.color = color;
       updatePaint();
+      onModified();
       invalidate();
     }
   }
@@ -59,6 +60,7 @@ public final class BezierDrawingRenderer extends InvalidateableRenderer implemen
     if (this.thickness != thickness) {
       this.thickness = thickness;
       updatePaint();
+      onModified();
       invalidate();
     }
   }
@@ -74,6 +76,7 @@ public final class BezierDrawingRenderer extends InvalidateableRenderer implemen
   public void setFirstPoint(PointF point) {
     bezierLine.reset();
     bezierLine.addPoint(point.x, point.y);
+    onModified();
     invalidate();
   }
 
@@ -83,6 +86,7 @@ public final class BezierDrawingRenderer extends InvalidateableRenderer implemen
     } else {
       bezierLine.addPoint(point.x, point.y);
     }
+    onModified();
     invalidate();
   }
 
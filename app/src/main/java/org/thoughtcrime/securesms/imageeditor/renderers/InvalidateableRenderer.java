@@ -2,18 +2,22 @@ package org.thoughtcrime.securesms.imageeditor.renderers;
 
 import androidx.annotation.NonNull;
 
-import org.thoughtcrime.securesms.imageeditor.Renderer;
+import org.thoughtcrime.securesms.imageeditor.ModifiableRenderer;
 import org.thoughtcrime.securesms.imageeditor.RendererContext;
 
 import java.lang.ref.WeakReference;
 
 /**
  * Maintains a weak reference to the an invalidate callback allowing future invalidation without memory leak risk.
+ * <p>
+ * Also counts changes to the parcelled state, subclasses call {@link #onModified()} on each.
  */
-abstract class InvalidateableRenderer implements Renderer {
+abstract class InvalidateableRenderer implements ModifiableRenderer {
 
   private WeakReference<RendererContext.Invalidate> invalidate = new WeakReference<>(null);
 
+  private int modificationCount;
+
   @Override
   public void render(@NonNull RendererContext rendererContext) {
     setInvalidate(rendererContext.invalidate);
@@ -25,6 +29,15 @@ abstract class InvalidateableRenderer implements Renderer {
     }
   }
 
+  @Override
+  public int getModificationCount() {
+    return modificationCount;
+  }
+
+  protected void onModified() {
+    modificationCount++;
+  }
+
   protected void invalidate() {
     RendererContext.Invalidate invalidate = this.invalidate.get();
     if (invalidate != null) {
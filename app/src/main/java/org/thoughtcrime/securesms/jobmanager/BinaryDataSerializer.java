@@ -0,0 +1,261 @@
+package org.thoughtcrime.securesms.jobmanager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.thoughtcrime.securesms.jobmanager.impl.JsonDataSerializer;
+import org.thoughtcrime.securesms.logging.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serializes {@link Data} as a versioned, length-prefixed list of typed entries.
+ * <p>
+ * Layout: a version byte, the number of entries, then for each entry a type byte, the key and the
+ * value. Strings are length-prefixed UTF-8 with a length of -1 for null, and arrays are a length
+ * followed by their elements.
+ * <p>
+ * Data written by {@link JsonDataSerializer} starts with '{', which is never a valid version, so it
+ * is still readable.
+ */
+public final class BinaryDataSerializer implements Data.Serializer {
+
+  private static final String TAG = Log.tag(BinaryDataSerializer.class);
+
+  private static final byte VERSION = 1;
+
+  private static final byte TYPE_STRING        = 1;
+  private static final byte TYPE_STRING_ARRAY  = 2;
+  private static final byte TYPE_INT           = 3;
+  private static final byte TYPE_INT_ARRAY     = 4;
+  private static final byte TYPE_LONG          = 5;
+  private static final byte TYPE_LONG_ARRAY    = 6;
+  private static final byte TYPE_FLOAT         = 7;
+  private static final byte TYPE_FLOAT_ARRAY   = 8;
+  private static final byte TYPE_DOUBLE        = 9;
+  private static final byte TYPE_DOUBLE_ARRAY  = 10;
+  private static final byte TYPE_BOOLEAN       = 11;
+  private static final byte TYPE_BOOLEAN_ARRAY = 12;
+
+  private static final byte JSON_START = '{';
+
+  private final JsonDataSerializer jsonDataSerializer = new JsonDataSerializer();
+
+  @Override
+  public @NonNull byte[] serialize(@NonNull Data data) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream      out   = new DataOutputStream(bytes);
+
+      out.writeByte(VERSION);
+      out.writeInt(data.strings.size()  + data.stringArrays.size()  +
+                   data.integers.size() + data.integerArrays.size() +
+                   data.longs.size()    + data.longArrays.size()    +
+                   data.floats.size()   + data.floatArrays.size()   +
+                   data.doubles.size()  + data.doubleArrays.size()  +
+                   data.booleans.size() + data.booleanArrays.size());
+
+      for (Map.Entry<String, String> entry : data.strings.entrySet()) {
+        writeKey(out, TYPE_STRING, entry.getKey());
+        writeString(out, entry.getValue());
+      }
+
+      for (Map.Entry<String, String[]> entry : data.stringArrays.entrySet()) {
+        writeKey(out, TYPE_STRING_ARRAY, entry.getKey());
+        out.writeInt(entry.getValue().length);
+        for (String value : entry.getValue()) writeString(out, value);
+      }
+
+      for (Map.Entry<String, Integer> entry : data.integers.entrySet()) {
+        writeKey(out, TYPE_INT, entry.getKey());
+        out.writeInt(entry.getValue());
+      }
+
+      for (Map.Entry<String, int[]> entry : data.integerArrays.entrySet()) {
+        writeKey(out, TYPE_INT_ARRAY, entry.getKey());
+        out.writeInt(entry.getValue().length);
+        for (int value : entry.getValue()) out.writeInt(value);
+      }
+
+      for (Map.Entry<String, Long> entry : data.longs.entrySet()) {
+        writeKey(out, TYPE_LONG, entry.getKey());
+        out.writeLong(entry.getValue());
+      }
+
+      for (Map.Entry<String, long[]> entry : data.longArrays.entrySet()) {
+        writeKey(out, TYPE_LONG_ARRAY, entry.getKey());
+        out.writeInt(entry.getValue().length);
+        for (long value : entry.getValue()) out.writeLong(value);
+      }
+
+      for (Map.Entry<String, Float> entry : data.floats.entrySet()) {
+        writeKey(out, TYPE_FLOAT, entry.getKey());
+        out.writeFloat(entry.getValue());
+      }
+
+      for (Map.Entry<String, float[]> entry : data.floatArrays.entrySet()) {
+        writeKey(out, TYPE_FLOAT_ARRAY, entry.getKey());
+        out.writeInt(entry.getValue().length);
+        for (float value : entry.getValue()) out.writeFloat(value);
+      }
+
+      for (Map.Entry<String, Double> entry : data.doubles.entrySet()) {
+        writeKey(out, TYPE_DOUBLE, entry.getKey());
+        out.writeDouble(entry.getValue());
+      }
+
+      for (Map.Entry<String, double[]> entry : data.doubleArrays.entrySet()) {
+        writeKey(out, TYPE_DOUBLE_ARRAY, entry.getKey());
+        out.writeInt(entry.getValue().length);
+        for (double value : entry.getValue()) out.writeDouble(value);
+      }
+
+      for (Map.Entry<String, Boolean> entry : data.booleans.entrySet()) {
+        writeKey(out, TYPE_BOOLEAN, entry.getKey());
+        out.writeBoolean(entry.getValue());
+      }
+
+      for (Map.Entry<String, boolean[]> entry : data.booleanArrays.entrySet()) {
+        writeKey(out, TYPE_BOOLEAN_ARRAY, entry.getKey());
+        out.writeInt(entry.getValue().length);
+        for (boolean value : entry.getValue()) out.writeBoolean(value);
+      }
+
+      out.flush();
+
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      Log.e(TAG, "Failed to serialize.", e);
+      throw new AssertionError(e);
+    }
+  }
+
+  @Override
+  public @NonNull Data deserialize(@NonNull byte[] serialized) {
+    if (serialized.length > 0 && serialized[0] == JSON_START) {
+      return jsonDataSerializer.deserialize(serialized);
+    }
+
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialized));
+
+      int version = in.readByte();
+      if (version != VERSION) {
+        throw new AssertionError("Unknown version: " + version);
+      }
+
+      Map<String, String>    strings       = new HashMap<>();
+      Map<String, String[]>  stringArrays  = new HashMap<>();
+      Map<String, Integer>   integers      = new HashMap<>();
+      Map<String, int[]>     integerArrays = new HashMap<>();
+      Map<String, Long>      longs         = new HashMap<>();
+      Map<String, long[]>    longArrays    = new HashMap<>();
+      Map<String, Float>     floats        = new HashMap<>();
+      Map<String, float[]>   floatArrays   = new HashMap<>();
+      Map<String, Double>    doubles       = new HashMap<>();
+      Map<String, double[]>  doubleArrays  = new HashMap<>();
+      Map<String, Boolean>   booleans      = new HashMap<>();
+      Map<String, boolean[]> booleanArrays = new HashMap<>();
+
+      int count = in.readInt();
+
+      for (int i = 0; i < count; i++) {
+        byte   type = in.readByte();
+        String key  = readString(in);
+
+        switch (type) {
+          case TYPE_STRING:
+            strings.put(key, readString(in));
+            break;
+          case TYPE_STRING_ARRAY:
+            String[] stringArray = new String[in.readInt()];
+            for (int j = 0; j < stringArray.length; j++) stringArray[j] = readString(in);
+            stringArrays.put(key, stringArray);
+            break;
+          case TYPE_INT:
+            integers.put(key, in.readInt());
+            break;
+          case TYPE_INT_ARRAY:
+            int[] intArray = new int[in.readInt()];
+            for (int j = 0; j < intArray.length; j++) intArray[j] = in.readInt();
+            integerArrays.put(key, intArray);
+            break;
+          case TYPE_LONG:
+            longs.put(key, in.readLong());
+            break;
+          case TYPE_LONG_ARRAY:
+            long[] longArray = new long[in.readInt()];
+            for (int j = 0; j < longArray.length; j++) longArray[j] = in.readLong();
+            longArrays.put(key, longArray);
+            break;
+          case TYPE_FLOAT:
+            floats.put(key, in.readFloat());
+            break;
+          case TYPE_FLOAT_ARRAY:
+            float[] floatArray = new float[in.readInt()];
+            for (int j = 0; j < floatArray.length; j++) floatArray[j] = in.readFloat();
+            floatArrays.put(key, floatArray);
+            break;
+          case TYPE_DOUBLE:
+            doubles.put(key, in.readDouble());
+            break;
+          case TYPE_DOUBLE_ARRAY:
+            double[] doubleArray = new double[in.readInt()];
+            for (int j = 0; j < doubleArray.length; j++) doubleArray[j] = in.readDouble();
+            doubleArrays.put(key, doubleArray);
+            break;
+          case TYPE_BOOLEAN:
+            booleans.put(key, in.readBoolean());
+            break;
+          case TYPE_BOOLEAN_ARRAY:
+            boolean[] booleanArray = new boolean[in.readInt()];
+            for (int j = 0; j < booleanArray.length; j++) booleanArray[j] = in.readBoolean();
+            booleanArrays.put(key, booleanArray);
+            break;
+          default:
+            throw new AssertionError("Unknown type: " + type);
+        }
+      }
+
+      return new Data(strings, stringArrays, integers, integerArrays, longs, longArrays, floats, floatArrays, doubles, doubleArrays, booleans, booleanArrays);
+    } catch (IOException e) {
+      Log.e(TAG, "Failed to deserialize.", e);
+      throw new AssertionError(e);
+    }
+  }
+
+  private static void writeKey(@NonNull DataOutputStream out, byte type, @NonNull String key) throws IOException {
+    out.writeByte(type);
+    writeString(out, key);
+  }
+
+  private static void writeString(@NonNull DataOutputStream out, @Nullable String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static @Nullable String readString(@NonNull DataInputStream in) throws IOException {
+    int length = in.readInt();
+
+    if (length == -1) {
+      return null;
+    }
+
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
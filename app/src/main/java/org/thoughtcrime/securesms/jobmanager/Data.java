@@ -16,18 +16,18 @@ public class Data {
 
   public static final Data EMPTY = new Data.Builder().build();
 
-  @JsonProperty private final Map<String, String>    strings;
-  @JsonProperty private final Map<String, String[]>  stringArrays;
-  @JsonProperty private final Map<String, Integer>   integers;
-  @JsonProperty private final Map<String, int[]>     integerArrays;
-  @JsonProperty private final Map<String, Long>      longs;
-  @JsonProperty private final Map<String, long[]>    longArrays;
-  @JsonProperty private final Map<String, Float>     floats;
-  @JsonProperty private final Map<String, float[]>   floatArrays;
-  @JsonProperty private final Map<String, Double>    doubles;
-  @JsonProperty private final Map<String, double[]>  doubleArrays;
-  @JsonProperty private final Map<String, Boolean>   booleans;
-  @JsonProperty private final Map<String, boolean[]> booleanArrays;
+  @JsonProperty final Map<String, String>    strings;
+  @JsonProperty final Map<String, String[]>  stringArrays;
+  @JsonProperty final Map<String, Integer>   integers;
+  @JsonProperty final Map<String, int[]>     integerArrays;
+  @JsonProperty final Map<String, Long>      longs;
+  @JsonProperty final Map<String, long[]>    longArrays;
+  @JsonProperty final Map<String, Float>     floats;
+  @JsonProperty final Map<String, float[]>   floatArrays;
+  @JsonProperty final Map<String, Double>    doubles;
+  @JsonProperty final Map<String, double[]>  doubleArrays;
+  @JsonProperty final Map<String, Boolean>   booleans;
+  @JsonProperty final Map<String, boolean[]> booleanArrays;
 
   public Data(@JsonProperty("strings")       @NonNull Map<String, String>    strings,
               @JsonProperty("stringArrays")  @NonNull Map<String, String[]>  stringArrays,
@@ -342,7 +342,7 @@ public class Data {
   }
 
   public interface Serializer {
-    @NonNull String serialize(@NonNull Data data);
-    @NonNull Data deserialize(@NonNull String serialized);
+    @NonNull byte[] serialize(@NonNull Data data);
+    @NonNull Data deserialize(@NonNull byte[] serialized);
   }
 }
@@ -49,6 +49,10 @@ public class JobMigrator {
    * @return The version that has been migrated to.
    */
   int migrate(@NonNull JobStorage jobStorage, @NonNull Data.Serializer dataSerializer) {
+    if (lastSeenVersion >= currentVersion) {
+      return currentVersion;
+    }
+
     List<JobSpec> jobSpecs = jobStorage.getAllJobSpecs();
 
     for (int i = lastSeenVersion; i < currentVersion; i++) {
@@ -13,9 +13,9 @@ public class JsonDataSerializer implements Data.Serializer {
   private static final String TAG = Log.tag(JsonDataSerializer.class);
 
   @Override
-  public @NonNull String serialize(@NonNull Data data) {
+  public @NonNull byte[] serialize(@NonNull Data data) {
     try {
-      return JsonUtils.toJson(data);
+      return JsonUtils.toJson(data).getBytes();
     } catch (IOException e) {
       Log.e(TAG, "Failed to serialize to JSON.", e);
       throw new AssertionError(e);
@@ -23,7 +23,7 @@ public class JsonDataSerializer implements Data.Serializer {
   }
 
   @Override
-  public @NonNull Data deserialize(@NonNull String serialized) {
+  public @NonNull Data deserialize(@NonNull byte[] serialized) {
     try {
       return JsonUtils.fromJson(serialized, Data.class);
     } catch (IOException e) {
@@ -4,6 +4,7 @@ import android.annotation.SuppressLint;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 public final class JobSpec {
@@ -18,8 +19,8 @@ public final class JobSpec {
   private final long    maxBackoff;
   private final long    lifespan;
   private final int     maxInstances;
-  private final String  serializedData;
-  private final String  serializedInputData;
+  private final byte[]  serializedData;
+  private final byte[]  serializedInputData;
   private final boolean isRunning;
   private final boolean memoryOnly;
 
@@ -33,8 +34,8 @@ public final class JobSpec {
                  long maxBackoff,
                  long lifespan,
                  int maxInstances,
-                 @NonNull String serializedData,
-                 @Nullable String serializedInputData,
+                 @NonNull byte[] serializedData,
+                 @Nullable byte[] serializedInputData,
                  boolean isRunning,
                  boolean memoryOnly)
   {
@@ -94,11 +95,11 @@ public final class JobSpec {
     return lifespan;
   }
 
-  public @NonNull String getSerializedData() {
+  public @NonNull byte[] getSerializedData() {
     return serializedData;
   }
 
-  public @Nullable String getSerializedInputData() {
+  public @Nullable byte[] getSerializedInputData() {
     return serializedInputData;
   }
 
@@ -127,13 +128,16 @@ public final class JobSpec {
            Objects.equals(id, jobSpec.id) &&
            Objects.equals(factoryKey, jobSpec.factoryKey) &&
            Objects.equals(queueKey, jobSpec.queueKey) &&
-           Objects.equals(serializedData, jobSpec.serializedData) &&
-           Objects.equals(serializedInputData, jobSpec.serializedInputData);
+           Arrays.equals(serializedData, jobSpec.serializedData) &&
+           Arrays.equals(serializedInputData, jobSpec.serializedInputData);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(id, factoryKey, queueKey, createTime, nextRunAttemptTime, runAttempt, maxAttempts, maxBackoff, lifespan, maxInstances, serializedData, serializedInputData, isRunning, memoryOnly);
+    int result = Objects.hash(id, factoryKey, queueKey, createTime, nextRunAttemptTime, runAttempt, maxAttempts, maxBackoff, lifespan, maxInstances, isRunning, memoryOnly);
+    result = 31 * result + Arrays.hashCode(serializedData);
+    result = 31 * result + Arrays.hashCode(serializedInputData);
+    return result;
   }
 
   @SuppressLint("DefaultLocale")
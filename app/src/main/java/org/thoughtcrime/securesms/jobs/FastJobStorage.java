@@ -40,6 +40,7 @@ public class FastJobStorage implements JobStorage {
   private final List<JobSpec>                     jobs;
   private final Map<String, List<ConstraintSpec>> constraintsByJobId;
   private final Map<String, List<DependencySpec>> dependenciesByJobId;
+  private final Set<String>                       jobsWithoutData;
 
   public FastJobStorage(@NonNull JobDatabase jobDatabase, @NonNull Executor serialExecutor) {
     this.jobDatabase         = jobDatabase;
@@ -47,16 +48,26 @@ public class FastJobStorage implements JobStorage {
     this.jobs                = new ArrayList<>();
     this.constraintsByJobId  = new HashMap<>();
     this.dependenciesByJobId = new HashMap<>();
+    this.jobsWithoutData     = new HashSet<>();
   }
 
+  /**
+   * Loads every job without its serialized data, which is read from the database the first time the
+   * job is handed out. Scheduling only needs the metadata, so a large backlog of persisted jobs
+   * doesn't have to be read in full before the first one can run.
+   */
   @Override
   public synchronized void init() {
-    List<JobSpec>        jobSpecs        = jobDatabase.getAllJobSpecs();
+    List<JobSpec>        jobSpecs        = jobDatabase.getAllJobSpecsWithoutData();
     List<ConstraintSpec> constraintSpecs = jobDatabase.getAllConstraintSpecs();
     List<DependencySpec> dependencySpecs = jobDatabase.getAllDependencySpecs();
 
     jobs.addAll(jobSpecs);
 
+    for (JobSpec jobSpec : jobSpecs) {
+      jobsWithoutData.add(jobSpec.getId());
+    }
+
     for (ConstraintSpec constraintSpec: constraintSpecs) {
       List<ConstraintSpec> jobConstraints = Util.getOrDefault(constraintsByJobId, constraintSpec.getJobSpecId(), new LinkedList<>());
       jobConstraints.add(constraintSpec);
@@ -103,7 +114,7 @@ public class FastJobStorage implements JobStorage {
   public synchronized @Nullable JobSpec getJobSpec(@NonNull String id) {
     for (JobSpec jobSpec : jobs) {
       if (jobSpec.getId().equals(id)) {
-        return jobSpec;
+        return withData(Collections.singletonList(jobSpec)).get(0);
       }
     }
     return null;
@@ -111,7 +122,7 @@ public class FastJobStorage implements JobStorage {
 
   @Override
   public synchronized @NonNull List<JobSpec> getAllJobSpecs() {
-    return new ArrayList<>(jobs);
+    return withData(jobs);
   }
 
   @Override
@@ -119,26 +130,86 @@ public class FastJobStorage implements JobStorage {
     Optional<JobSpec> migrationJob = getMigrationJob();
 
     if (migrationJob.isPresent() && !migrationJob.get().isRunning() && migrationJob.get().getNextRunAttemptTime() <= currentTime) {
-      return Collections.singletonList(migrationJob.get());
+      return withData(Collections.singletonList(migrationJob.get()));
     } else if (migrationJob.isPresent()) {
       return Collections.emptyList();
     } else {
-      return Stream.of(jobs)
-                   .filterNot(JobSpec::isRunning)
-                   .filter(this::firstInQueue)
-                   .filter(j -> !dependenciesByJobId.containsKey(j.getId()) || dependenciesByJobId.get(j.getId()).isEmpty())
-                   .filter(j -> j.getNextRunAttemptTime() <= currentTime)
-                   .sorted((j1, j2) -> Long.compare(j1.getCreateTime(), j2.getCreateTime()))
-                   .toList();
+      return withData(Stream.of(jobs)
+                            .filterNot(JobSpec::isRunning)
+                            .filter(this::firstInQueue)
+                            .filter(j -> !dependenciesByJobId.containsKey(j.getId()) || dependenciesByJobId.get(j.getId()).isEmpty())
+                            .filter(j -> j.getNextRunAttemptTime() <= currentTime)
+                            .sorted((j1, j2) -> Long.compare(j1.getCreateTime(), j2.getCreateTime()))
+                            .toList());
     }
   }
 
   @Override
   public synchronized @NonNull List<JobSpec> getJobsInQueue(@NonNull String queue) {
-    return Stream.of(jobs)
-                 .filter(j -> queue.equals(j.getQueueKey()))
-                 .sorted((j1, j2) -> Long.compare(j1.getCreateTime(), j2.getCreateTime()))
-                 .toList();
+    return withData(Stream.of(jobs)
+                          .filter(j -> queue.equals(j.getQueueKey()))
+                          .sorted((j1, j2) -> Long.compare(j1.getCreateTime(), j2.getCreateTime()))
+                          .toList());
+  }
+
+  /**
+   * Returns the jobs with their serialized data, reading it for any that were loaded without it.
+   * Only the data columns are taken from the database, since writes of the other fields may still
+   * be queued on the executor.
+   */
+  private @NonNull List<JobSpec> withData(@NonNull List<JobSpec> jobSpecs) {
+    List<String> missing = new ArrayList<>();
+
+    for (JobSpec jobSpec : jobSpecs) {
+      if (jobsWithoutData.contains(jobSpec.getId())) {
+        missing.add(jobSpec.getId());
+      }
+    }
+
+    if (missing.isEmpty()) {
+      return new ArrayList<>(jobSpecs);
+    }
+
+    Map<String, JobSpec> loaded = new HashMap<>(missing.size());
+
+    for (JobSpec jobSpec : jobDatabase.getJobSpecs(missing)) {
+      loaded.put(jobSpec.getId(), jobSpec);
+    }
+
+    ListIterator<JobSpec> iter = jobs.listIterator();
+
+    while (iter.hasNext()) {
+      JobSpec existing = iter.next();
+      JobSpec stored   = loaded.get(existing.getId());
+
+      if (stored != null && jobsWithoutData.remove(existing.getId())) {
+        JobSpec updated = new JobSpec(existing.getId(),
+                                      existing.getFactoryKey(),
+                                      existing.getQueueKey(),
+                                      existing.getCreateTime(),
+                                      existing.getNextRunAttemptTime(),
+                                      existing.getRunAttempt(),
+                                      existing.getMaxAttempts(),
+                                      existing.getMaxBackoff(),
+                                      existing.getLifespan(),
+                                      existing.getMaxInstances(),
+                                      stored.getSerializedData(),
+                                      stored.getSerializedInputData(),
+                                      existing.isRunning(),
+                                      existing.isMemoryOnly());
+        iter.set(updated);
+        loaded.put(updated.getId(), updated);
+      }
+    }
+
+    List<JobSpec> results = new ArrayList<>(jobSpecs.size());
+
+    for (JobSpec jobSpec : jobSpecs) {
+      JobSpec updated = loaded.get(jobSpec.getId());
+      results.add(updated != null ? updated : jobSpec);
+    }
+
+    return results;
   }
 
   private Optional<JobSpec> getMigrationJob() {
@@ -203,8 +274,12 @@ public class FastJobStorage implements JobStorage {
   }
 
   @Override
-  public synchronized void updateJobAfterRetry(@NonNull String id, boolean isRunning, int runAttempt, long nextRunAttemptTime, @NonNull String serializedData) {
+  public synchronized void updateJobAfterRetry(@NonNull String id, boolean isRunning, int runAttempt, long nextRunAttemptTime, @NonNull byte[] serializedData) {
     JobSpec job = getJobById(id);
+    if (job != null) {
+      withData(Collections.singletonList(job));
+    }
+
     if (job == null || !job.isMemoryOnly()) {
       serialExecutor.execute(() -> {
         jobDatabase.updateJobAfterRetry(id, isRunning, runAttempt, nextRunAttemptTime, serializedData);
@@ -263,7 +338,7 @@ public class FastJobStorage implements JobStorage {
   }
 
   @Override
-  public void updateJobs(@NonNull List<JobSpec> jobSpecs) {
+  public synchronized void updateJobs(@NonNull List<JobSpec> jobSpecs) {
     List<JobSpec> durable = new ArrayList<>(jobSpecs.size());
     for (JobSpec update : jobSpecs) {
       JobSpec found = getJobById(update.getId());
@@ -287,6 +362,7 @@ public class FastJobStorage implements JobStorage {
 
       if (update != null) {
         iter.set(update);
+        jobsWithoutData.remove(update.getId());
       }
     }
   }
@@ -324,6 +400,7 @@ public class FastJobStorage implements JobStorage {
     for (String jobId : jobIds) {
       constraintsByJobId.remove(jobId);
       dependenciesByJobId.remove(jobId);
+      jobsWithoutData.remove(jobId);
 
       for (Map.Entry<String, List<DependencySpec>> entry : dependenciesByJobId.entrySet()) {
         Iterator<DependencySpec> depedencyIter = entry.getValue().iterator();
@@ -0,0 +1,142 @@
+package org.thoughtcrime.securesms.linkpreview;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.whispersystems.libsignal.util.guava.Optional;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recently built link previews keyed by URL, so composing or forwarding the same link again doesn't
+ * go back to the network.
+ * <p>
+ * Thumbnails are held as their encoded bytes rather than as attachments, because the blobs behind
+ * preview attachments are single session and are owned by the message they end up in. Each hit gets
+ * a fresh blob instead.
+ * <p>
+ * Bounded by entry count and by total thumbnail bytes, and entries expire after a fixed time.
+ */
+final class LinkPreviewCache {
+
+  private final int  maxEntries;
+  private final long maxThumbnailBytes;
+  private final long ttl;
+
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long thumbnailBytes;
+
+  LinkPreviewCache(int maxEntries, long maxThumbnailBytes, long ttl) {
+    this.maxEntries        = maxEntries;
+    this.maxThumbnailBytes = maxThumbnailBytes;
+    this.ttl               = ttl;
+  }
+
+  synchronized @Nullable Entry get(@NonNull String url, long now) {
+    Entry entry = entries.get(url);
+
+    if (entry != null && now - entry.createdAt >= ttl) {
+      remove(url);
+      return null;
+    }
+
+    return entry;
+  }
+
+  synchronized void put(@NonNull String url, @NonNull String title, @NonNull Optional<Thumbnail> thumbnail, long now) {
+    Entry entry = new Entry(title, thumbnail, now);
+
+    if (entry.getThumbnailSize() > maxThumbnailBytes / 4) {
+      return;
+    }
+
+    remove(url);
+
+    entries.put(url, entry);
+    thumbnailBytes += entry.getThumbnailSize();
+
+    Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+
+    while (iterator.hasNext() && (entries.size() > maxEntries || thumbnailBytes > maxThumbnailBytes)) {
+      Entry eldest = iterator.next().getValue();
+
+      if (eldest == entry) break;
+
+      iterator.remove();
+      thumbnailBytes -= eldest.getThumbnailSize();
+    }
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  synchronized long getThumbnailBytes() {
+    return thumbnailBytes;
+  }
+
+  private void remove(@NonNull String url) {
+    Entry removed = entries.remove(url);
+
+    if (removed != null) {
+      thumbnailBytes -= removed.getThumbnailSize();
+    }
+  }
+
+  static final class Entry {
+    private final String              title;
+    private final Optional<Thumbnail> thumbnail;
+    private final long                createdAt;
+
+    private Entry(@NonNull String title, @NonNull Optional<Thumbnail> thumbnail, long createdAt) {
+      this.title     = title;
+      this.thumbnail = thumbnail;
+      this.createdAt = createdAt;
+    }
+
+    @NonNull String getTitle() {
+      return title;
+    }
+
+    @NonNull Optional<Thumbnail> getThumbnail() {
+      return thumbnail;
+    }
+
+    private int getThumbnailSize() {
+      return thumbnail.isPresent() ? thumbnail.get().getData().length : 0;
+    }
+  }
+
+  static final class Thumbnail {
+    private final byte[] data;
+    private final String contentType;
+    private final int    width;
+    private final int    height;
+
+    Thumbnail(@NonNull byte[] data, @NonNull String contentType, int width, int height) {
+      this.data        = data;
+      this.contentType = contentType;
+      this.width       = width;
+      this.height      = height;
+    }
+
+    @NonNull byte[] getData() {
+      return data;
+    }
+
+    @NonNull String getContentType() {
+      return contentType;
+    }
+
+    int getWidth() {
+      return width;
+    }
+
+    int getHeight() {
+      return height;
+    }
+  }
+}
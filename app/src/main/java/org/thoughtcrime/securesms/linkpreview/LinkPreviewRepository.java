@@ -42,6 +42,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -50,6 +51,7 @@ import okhttp3.Call;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 public class LinkPreviewRepository {
 
@@ -60,6 +62,8 @@ public class LinkPreviewRepository {
   private static final long FAILSAFE_MAX_TEXT_SIZE  = ByteUnit.MEGABYTES.toBytes(2);
   private static final long FAILSAFE_MAX_IMAGE_SIZE = ByteUnit.MEGABYTES.toBytes(2);
 
+  private static final LinkPreviewCache CACHE = new LinkPreviewCache(50, ByteUnit.MEGABYTES.toBytes(5), TimeUnit.MINUTES.toMillis(30));
+
   private final OkHttpClient client;
 
   public LinkPreviewRepository() {
@@ -78,6 +82,14 @@ public class LinkPreviewRepository {
       return compositeController;
     }
 
+    LinkPreviewCache.Entry cached = CACHE.get(url, System.currentTimeMillis());
+
+    if (cached != null) {
+      Log.i(TAG, "Using cached link preview.");
+      callback.onComplete(Optional.of(new LinkPreview(url, cached.getTitle(), cached.getThumbnail().transform(LinkPreviewRepository::createAttachment))));
+      return compositeController;
+    }
+
     RequestController metadataController;
 
     if (StickerUrl.isValidShareLink(url)) {
@@ -90,15 +102,19 @@ public class LinkPreviewRepository {
         }
 
         if (!metadata.getImageUrl().isPresent()) {
+          CACHE.put(url, metadata.getTitle().get(), Optional.absent(), System.currentTimeMillis());
           callback.onComplete(Optional.of(new LinkPreview(url, metadata.getTitle().get(), Optional.absent())));
           return;
         }
 
-        RequestController imageController = fetchThumbnail(metadata.getImageUrl().get(), attachment -> {
-          if (!metadata.getTitle().isPresent() && !attachment.isPresent()) {
+        RequestController imageController = fetchThumbnail(metadata.getImageUrl().get(), thumbnail -> {
+          if (!metadata.getTitle().isPresent() && !thumbnail.isPresent()) {
             callback.onComplete(Optional.absent());
           } else {
-            callback.onComplete(Optional.of(new LinkPreview(url, metadata.getTitle().or(""), attachment)));
+            if (thumbnail.isPresent()) {
+              CACHE.put(url, metadata.getTitle().or(""), thumbnail, System.currentTimeMillis());
+            }
+            callback.onComplete(Optional.of(new LinkPreview(url, metadata.getTitle().or(""), thumbnail.transform(LinkPreviewRepository::createAttachment))));
           }
         });
 
@@ -132,10 +148,14 @@ public class LinkPreviewRepository {
           return;
         }
 
-        String           body      = OkHttpUtil.readAsString(response.body(), FAILSAFE_MAX_TEXT_SIZE);
-        OpenGraph        openGraph = LinkPreviewUtil.parseOpenGraphFields(body);
-        Optional<String> title     = openGraph.getTitle();
-        Optional<String> imageUrl  = openGraph.getImageUrl();
+        OpenGraph openGraph;
+
+        try (ResponseBody body = response.body()) {
+          openGraph = LinkPreviewUtil.parseOpenGraphFields(body.charStream(), FAILSAFE_MAX_TEXT_SIZE);
+        }
+
+        Optional<String> title    = openGraph.getTitle();
+        Optional<String> imageUrl = openGraph.getImageUrl();
 
         if (imageUrl.isPresent() && !LinkPreviewUtil.isValidPreviewUrl(imageUrl.get())) {
           Log.i(TAG, "Image URL was invalid or for a non-whitelisted domain. Skipping.");
@@ -149,7 +169,7 @@ public class LinkPreviewRepository {
     return new CallRequestController(call);
   }
 
-  private @NonNull RequestController fetchThumbnail(@NonNull String imageUrl, @NonNull Callback<Optional<Attachment>> callback) {
+  private @NonNull RequestController fetchThumbnail(@NonNull String imageUrl, @NonNull Callback<Optional<LinkPreviewCache.Thumbnail>> callback) {
     Call                  call       = client.newCall(new Request.Builder().url(imageUrl).build());
     CallRequestController controller = new CallRequestController(call);
 
@@ -169,27 +189,7 @@ public class LinkPreviewRepository {
 
         bitmap.compress(Bitmap.CompressFormat.JPEG, 80, baos);
 
-        byte[]               bytes     = baos.toByteArray();
-        Uri                  uri       = BlobProvider.getInstance().forData(bytes).createForSingleSessionInMemory();
-        Optional<Attachment> thumbnail = Optional.of(new UriAttachment(uri,
-                                                                       uri,
-                                                                       MediaUtil.IMAGE_JPEG,
-                                                                       AttachmentDatabase.TRANSFER_PROGRESS_STARTED,
-                                                                       bytes.length,
-                                                                       bitmap.getWidth(),
-                                                                       bitmap.getHeight(),
-                                                                       null,
-                                                                       null,
-                                                                       false,
-                                                                       false,
-                                                                       false,
-                                                                       null,
-                                                                       null,
-                                                                       null,
-                                                                       null,
-                                                                       null));
-
-        callback.onComplete(thumbnail);
+        callback.onComplete(Optional.of(new LinkPreviewCache.Thumbnail(baos.toByteArray(), MediaUtil.IMAGE_JPEG, bitmap.getWidth(), bitmap.getHeight())));
       } catch (IOException e) {
         Log.w(TAG, "Exception during link preview image retrieval.", e);
         controller.cancel();
@@ -232,27 +232,10 @@ public class LinkPreviewRepository {
 
           bitmap.compress(Bitmap.CompressFormat.WEBP, 80, baos);
 
-          byte[]               bytes     = baos.toByteArray();
-          Uri                  uri       = BlobProvider.getInstance().forData(bytes).createForSingleSessionInMemory();
-          Optional<Attachment> thumbnail = Optional.of(new UriAttachment(uri,
-                                                       uri,
-                                                       MediaUtil.IMAGE_WEBP,
-                                                       AttachmentDatabase.TRANSFER_PROGRESS_STARTED,
-                                                       bytes.length,
-                                                       bitmap.getWidth(),
-                                                       bitmap.getHeight(),
-                                                       null,
-                                                       null,
-                                                       false,
-                                                       false,
-                                                       false,
-                                                       null,
-                                                       null,
-                                                       null,
-                                                       null,
-                                                       null));
-
-          callback.onComplete(Optional.of(new LinkPreview(packUrl, title, thumbnail)));
+          LinkPreviewCache.Thumbnail thumbnail = new LinkPreviewCache.Thumbnail(baos.toByteArray(), MediaUtil.IMAGE_WEBP, bitmap.getWidth(), bitmap.getHeight());
+
+          CACHE.put(packUrl, title, Optional.of(thumbnail), System.currentTimeMillis());
+          callback.onComplete(Optional.of(new LinkPreview(packUrl, title, Optional.of(createAttachment(thumbnail)))));
         } else {
           callback.onComplete(Optional.absent());
         }
@@ -265,6 +248,29 @@ public class LinkPreviewRepository {
     return () -> Log.i(TAG, "Cancelled sticker pack link preview fetch -- no effect.");
   }
 
+  private static @NonNull Attachment createAttachment(@NonNull LinkPreviewCache.Thumbnail thumbnail) {
+    byte[] bytes = thumbnail.getData();
+    Uri    uri   = BlobProvider.getInstance().forData(bytes).createForSingleSessionInMemory();
+
+    return new UriAttachment(uri,
+                             uri,
+                             thumbnail.getContentType(),
+                             AttachmentDatabase.TRANSFER_PROGRESS_STARTED,
+                             bytes.length,
+                             thumbnail.getWidth(),
+                             thumbnail.getHeight(),
+                             null,
+                             null,
+                             false,
+                             false,
+                             false,
+                             null,
+                             null,
+                             null,
+                             null,
+                             null);
+  }
+
   private static class Metadata {
     private final Optional<String> title;
     private final Optional<String> imageUrl;
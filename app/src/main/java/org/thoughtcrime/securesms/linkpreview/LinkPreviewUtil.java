@@ -17,8 +17,10 @@ import org.thoughtcrime.securesms.util.Util;
 import org.whispersystems.libsignal.util.guava.Optional;
 import org.whispersystems.signalservice.api.util.OptionalUtil;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -28,14 +30,9 @@ import okhttp3.HttpUrl;
 
 public final class LinkPreviewUtil {
 
-  private static final Pattern DOMAIN_PATTERN             = Pattern.compile("^(https?://)?([^/]+).*$");
-  private static final Pattern ALL_ASCII_PATTERN          = Pattern.compile("^[\\x00-\\x7F]*$");
-  private static final Pattern ALL_NON_ASCII_PATTERN      = Pattern.compile("^[^\\x00-\\x7F]*$");
-  private static final Pattern OPEN_GRAPH_TAG_PATTERN     = Pattern.compile("<\\s*meta[^>]*property\\s*=\\s*\"\\s*og:([^\"]+)\"[^>]*/?\\s*>");
-  private static final Pattern OPEN_GRAPH_CONTENT_PATTERN = Pattern.compile("content\\s*=\\s*\"([^\"]*)\"");
-  private static final Pattern TITLE_PATTERN              = Pattern.compile("<\\s*title[^>]*>(.*)<\\s*/title[^>]*>");
-  private static final Pattern FAVICON_PATTERN            = Pattern.compile("<\\s*link[^>]*rel\\s*=\\s*\".*icon.*\"[^>]*>");
-  private static final Pattern FAVICON_HREF_PATTERN       = Pattern.compile("href\\s*=\\s*\"([^\"]*)\"");
+  private static final Pattern DOMAIN_PATTERN        = Pattern.compile("^(https?://)?([^/]+).*$");
+  private static final Pattern ALL_ASCII_PATTERN     = Pattern.compile("^[\\x00-\\x7F]*$");
+  private static final Pattern ALL_NON_ASCII_PATTERN = Pattern.compile("^[^\\x00-\\x7F]*$");
 
   /**
    * @return All whitelisted URLs in the source text.
@@ -86,45 +83,25 @@ public final class LinkPreviewUtil {
     return parseOpenGraphFields(html, text -> Html.fromHtml(text).toString());
   }
 
+  /**
+   * Parses the fields while reading the page, stopping at the end of its head or after
+   * {@code maxChars} characters, so the rest of the page never needs to be read.
+   */
+  public static @NonNull OpenGraph parseOpenGraphFields(@NonNull Reader html, long maxChars) throws IOException {
+    return new OpenGraphHeadParser(html, maxChars, text -> Html.fromHtml(text).toString()).parse();
+  }
+
   @VisibleForTesting
   static @NonNull OpenGraph parseOpenGraphFields(@Nullable String html, @NonNull HtmlDecoder htmlDecoder) {
     if (html == null) {
       return new OpenGraph(Collections.emptyMap(), null, null);
     }
 
-    Map<String, String> openGraphTags    = new HashMap<>();
-    Matcher             openGraphMatcher = OPEN_GRAPH_TAG_PATTERN.matcher(html);
-
-    while (openGraphMatcher.find()) {
-      String tag      = openGraphMatcher.group();
-      String property = openGraphMatcher.groupCount() > 0 ? openGraphMatcher.group(1) : null;
-
-      if (property != null) {
-        Matcher contentMatcher = OPEN_GRAPH_CONTENT_PATTERN.matcher(tag);
-        if (contentMatcher.find() && contentMatcher.groupCount() > 0) {
-          String content = htmlDecoder.fromEncoded(contentMatcher.group(1));
-          openGraphTags.put(property, content);
-        }
-      }
-    }
-
-    String htmlTitle  = "";
-    String faviconUrl = "";
-
-    Matcher titleMatcher = TITLE_PATTERN.matcher(html);
-    if (titleMatcher.find() && titleMatcher.groupCount() > 0) {
-      htmlTitle = titleMatcher.group(1);
-    }
-
-    Matcher faviconMatcher = FAVICON_PATTERN.matcher(html);
-    if (faviconMatcher.find()) {
-      Matcher faviconHrefMatcher = FAVICON_HREF_PATTERN.matcher(faviconMatcher.group());
-      if (faviconHrefMatcher.find() && faviconHrefMatcher.groupCount() > 0) {
-        faviconUrl = faviconHrefMatcher.group(1);
-      }
+    try {
+      return new OpenGraphHeadParser(new StringReader(html), html.length(), htmlDecoder).parse();
+    } catch (IOException e) {
+      throw new AssertionError(e);
     }
-
-    return new OpenGraph(openGraphTags, htmlTitle, faviconUrl);
   }
 
   public static final class OpenGraph {
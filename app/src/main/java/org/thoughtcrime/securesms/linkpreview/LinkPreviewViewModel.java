@@ -85,9 +85,16 @@ public class LinkPreviewViewModel extends ViewModel {
 
       linkPreviewState.setValue(LinkPreviewState.forLoading());
 
-      activeUrl     = link.get().getUrl();
-      activeRequest = repository.getLinkPreview(context, link.get().getUrl(), lp -> {
-        Util.runOnMain(() -> {
+      String url = link.get().getUrl();
+
+      activeUrl     = url;
+      activeRequest = repository.getLinkPreview(context, url, lp -> {
+        // Cached previews complete before getLinkPreview returns, so always post to run after activeRequest is assigned
+        Util.postToMain(() -> {
+          if (!url.equals(activeUrl)) {
+            return;
+          }
+
           if (!userCanceled) {
             if (lp.isPresent()) {
               linkPreviewState.setValue(LinkPreviewState.forPreview(lp.get()));
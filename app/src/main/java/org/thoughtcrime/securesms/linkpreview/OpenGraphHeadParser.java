@@ -0,0 +1,334 @@
+package org.thoughtcrime.securesms.linkpreview;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.thoughtcrime.securesms.linkpreview.LinkPreviewUtil.HtmlDecoder;
+import org.thoughtcrime.securesms.linkpreview.LinkPreviewUtil.OpenGraph;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Pulls the OpenGraph tags, title and favicon out of a page as it is read, and stops reading at
+ * {@code </head>} or the character limit, whichever comes first.
+ * <p>
+ * This is a tokenizer, not an HTML parser. It only looks inside {@code meta}, {@code link} and
+ * {@code title} tags, skips comments, scripts and styles, and tolerates anything else.
+ */
+final class OpenGraphHeadParser {
+
+  private static final int BUFFER_SIZE      = 8192;
+  private static final int MAX_VALUE_LENGTH = 4096;
+
+  private final Reader      reader;
+  private final HtmlDecoder htmlDecoder;
+  private final char[]      buffer;
+
+  private long remaining;
+  private int  position;
+  private int  limit;
+
+  OpenGraphHeadParser(@NonNull Reader reader, long maxChars, @NonNull HtmlDecoder htmlDecoder) {
+    this.reader      = reader;
+    this.htmlDecoder = htmlDecoder;
+    this.buffer      = new char[(int) Math.max(1, Math.min(BUFFER_SIZE, maxChars))];
+    this.remaining   = maxChars;
+  }
+
+  @NonNull OpenGraph parse() throws IOException {
+    Map<String, String> openGraphTags = new HashMap<>();
+    String              htmlTitle     = null;
+    String              faviconUrl    = null;
+
+    int c;
+    while ((c = read()) != -1) {
+      if (c != '<') {
+        continue;
+      }
+
+      Tag tag = readTag();
+
+      if (tag == null) {
+        continue;
+      }
+
+      switch (tag.name) {
+        case "meta":
+          String property = tag.get("property");
+          String content  = tag.get("content");
+
+          if (property != null && content != null) {
+            property = property.trim();
+
+            if (property.startsWith("og:") && property.length() > 3) {
+              openGraphTags.put(property.substring(3), htmlDecoder.fromEncoded(content));
+            }
+          }
+          break;
+        case "link":
+          String rel  = tag.get("rel");
+          String href = tag.get("href");
+
+          if (faviconUrl == null && rel != null && href != null && rel.toLowerCase(Locale.US).contains("icon")) {
+            faviconUrl = href;
+          }
+          break;
+        case "title":
+          if (!tag.closing) {
+            String text = readText("title");
+
+            if (htmlTitle == null) {
+              htmlTitle = text.trim();
+            }
+          }
+          break;
+        case "script":
+        case "style":
+          if (!tag.closing) {
+            readText(tag.name);
+          }
+          break;
+        case "head":
+          if (tag.closing) {
+            return new OpenGraph(openGraphTags, htmlTitle != null ? htmlTitle : "", faviconUrl != null ? faviconUrl : "");
+          }
+          break;
+      }
+    }
+
+    return new OpenGraph(openGraphTags, htmlTitle != null ? htmlTitle : "", faviconUrl != null ? faviconUrl : "");
+  }
+
+  /**
+   * Reads the rest of a tag after its opening {@code <}. Attributes are only kept for the tags we
+   * look inside.
+   *
+   * @return The tag, or null for comments, declarations and anything else without a name.
+   */
+  private @Nullable Tag readTag() throws IOException {
+    int c = skipWhitespace();
+
+    if (c == '!') {
+      skipComment();
+      return null;
+    }
+
+    boolean closing = c == '/';
+
+    if (closing) {
+      c = skipWhitespace();
+    }
+
+    String name = readName(c);
+
+    if (name.isEmpty()) {
+      return null;
+    }
+
+    Tag tag = new Tag(name, closing);
+
+    if (name.equals("meta") || name.equals("link")) {
+      readAttributes(tag);
+    } else {
+      skipToTagEnd();
+    }
+
+    return tag;
+  }
+
+  private void readAttributes(@NonNull Tag tag) throws IOException {
+    while (true) {
+      int c = skipWhitespace();
+
+      if (c == -1 || c == '>') return;
+      if (c == '/')            continue;
+
+      String name = readName(c);
+
+      if (name.isEmpty()) {
+        read();
+        continue;
+      }
+
+      c = skipWhitespace();
+
+      if (c != '=') {
+        unread(c);
+        tag.put(name, "");
+        continue;
+      }
+
+      c = skipWhitespace();
+
+      if (c == -1 || c == '>') {
+        return;
+      }
+
+      tag.put(name, readValue(c));
+    }
+  }
+
+  private @NonNull String readValue(int first) throws IOException {
+    StringBuilder value = new StringBuilder();
+
+    if (first == '"' || first == '\'') {
+      int c;
+      while ((c = read()) != -1 && c != first) {
+        append(value, c);
+      }
+    } else {
+      append(value, first);
+
+      int c;
+      while ((c = read()) != -1 && !Character.isWhitespace(c) && c != '>') {
+        append(value, c);
+      }
+      unread(c);
+    }
+
+    return value.toString();
+  }
+
+  /**
+   * Reads the raw text of an element up to its closing tag, which is consumed.
+   */
+  private @NonNull String readText(@NonNull String tagName) throws IOException {
+    StringBuilder text = new StringBuilder();
+
+    int c;
+    while ((c = read()) != -1) {
+      if (c != '<') {
+        append(text, c);
+        continue;
+      }
+
+      c = skipWhitespace();
+
+      if (c != '/') {
+        unread(c);
+        continue;
+      }
+
+      if (readName(skipWhitespace()).equals(tagName)) {
+        skipToTagEnd();
+        break;
+      }
+    }
+
+    return text.toString();
+  }
+
+  /**
+   * @return The lowercased name starting at {@code first}. The character that ends it is unread.
+   */
+  private @NonNull String readName(int first) throws IOException {
+    StringBuilder name = new StringBuilder();
+
+    int c = first;
+    while (c != -1 && (Character.isLetterOrDigit(c) || c == '-' || c == ':' || c == '_')) {
+      append(name, Character.toLowerCase(c));
+      c = read();
+    }
+    unread(c);
+
+    return name.toString();
+  }
+
+  private void skipComment() throws IOException {
+    int c = read();
+
+    if (c != '-' || (c = read()) != '-') {
+      unread(c);
+      skipToTagEnd();
+      return;
+    }
+
+    int dashes = 0;
+    while ((c = read()) != -1) {
+      if (c == '>' && dashes >= 2) return;
+      dashes = c == '-' ? dashes + 1 : 0;
+    }
+  }
+
+  private void skipToTagEnd() throws IOException {
+    int quote = 0;
+    int c;
+
+    while ((c = read()) != -1) {
+      if (quote != 0) {
+        if (c == quote) quote = 0;
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '>') {
+        return;
+      }
+    }
+  }
+
+  private int skipWhitespace() throws IOException {
+    int c;
+    while ((c = read()) != -1 && Character.isWhitespace(c));
+    return c;
+  }
+
+  private int read() throws IOException {
+    if (position == limit) {
+      if (remaining <= 0) {
+        return -1;
+      }
+
+      int read = reader.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+
+      if (read <= 0) {
+        remaining = 0;
+        return -1;
+      }
+
+      remaining -= read;
+      position   = 0;
+      limit      = read;
+    }
+
+    return buffer[position++];
+  }
+
+  /**
+   * Steps back over the character just returned by {@link #read()}, which is always still buffered.
+   */
+  private void unread(int c) {
+    if (c != -1) {
+      position--;
+    }
+  }
+
+  private static void append(@NonNull StringBuilder builder, int c) {
+    if (builder.length() < MAX_VALUE_LENGTH) {
+      builder.append((char) c);
+    }
+  }
+
+  private static final class Tag {
+    private final String              name;
+    private final boolean             closing;
+    private final Map<String, String> attributes = new HashMap<>();
+
+    private Tag(@NonNull String name, boolean closing) {
+      this.name    = name;
+      this.closing = closing;
+    }
+
+    private void put(@NonNull String name, @NonNull String value) {
+      if (!attributes.containsKey(name)) {
+        attributes.put(name, value);
+      }
+    }
+
+    private @Nullable String get(@NonNull String name) {
+      return attributes.get(name);
+    }
+  }
+}
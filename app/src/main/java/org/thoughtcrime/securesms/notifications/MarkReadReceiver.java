@@ -23,6 +23,7 @@ import org.thoughtcrime.securesms.jobs.SendReadReceiptJob;
 import org.thoughtcrime.securesms.logging.Log;
 import org.thoughtcrime.securesms.recipients.RecipientId;
 import org.thoughtcrime.securesms.service.ExpiringMessageManager;
+import org.thoughtcrime.securesms.util.Util;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -35,6 +36,8 @@ public class MarkReadReceiver extends BroadcastReceiver {
   public static final  String THREAD_IDS_EXTRA      = "thread_ids";
   public static final  String NOTIFICATION_ID_EXTRA = "notification_id";
 
+  private static final int MAX_TIMESTAMPS_PER_JOB = 500;
+
   @SuppressLint("StaticFieldLeak")
   @Override
   public void onReceive(final Context context, Intent intent) {
@@ -86,7 +89,9 @@ public class MarkReadReceiver extends BroadcastReceiver {
 
     scheduleDeletion(context, smsExpirationInfo, mmsExpirationInfo);
 
-    ApplicationDependencies.getJobManager().add(new MultiDeviceReadUpdateJob(syncMessageIds));
+    for (List<SyncMessageId> batch : Util.chunk(syncMessageIds, MAX_TIMESTAMPS_PER_JOB)) {
+      ApplicationDependencies.getJobManager().add(new MultiDeviceReadUpdateJob(batch));
+    }
 
     Map<Long, List<MarkedMessageInfo>> threadToInfo = Stream.of(markedReadMessages)
                                                             .collect(Collectors.groupingBy(MarkedMessageInfo::getThreadId));
@@ -99,7 +104,9 @@ public class MarkReadReceiver extends BroadcastReceiver {
       Stream.of(idMapForThread).forEach(entry -> {
         List<Long> timestamps = Stream.of(entry.getValue()).map(SyncMessageId::getTimetamp).toList();
 
-        ApplicationDependencies.getJobManager().add(new SendReadReceiptJob(threadToInfoEntry.getKey(), entry.getKey(), timestamps));
+        for (List<Long> batch : Util.chunk(timestamps, MAX_TIMESTAMPS_PER_JOB)) {
+          ApplicationDependencies.getJobManager().add(new SendReadReceiptJob(threadToInfoEntry.getKey(), entry.getKey(), batch));
+        }
       });
     });
   }
@@ -9,12 +9,14 @@ import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import org.thoughtcrime.securesms.crypto.AttachmentSecret;
 import org.thoughtcrime.securesms.crypto.AttachmentSecretProvider;
 import org.thoughtcrime.securesms.crypto.ModernDecryptingPartInputStream;
 import org.thoughtcrime.securesms.crypto.ModernEncryptingPartOutputStream;
+import org.thoughtcrime.securesms.dependencies.ApplicationDependencies;
 import org.thoughtcrime.securesms.logging.Log;
 import org.thoughtcrime.securesms.util.IOFunction;
 import org.thoughtcrime.securesms.util.Util;
@@ -27,10 +29,14 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -58,10 +64,24 @@ public class BlobProvider {
     addURI(AUTHORITY, PATH, MATCH);
   }};
 
-  private static final BlobProvider INSTANCE = new BlobProvider();
+  /**
+   * Once memory blobs hold more than this, new ones are moved to encrypted single-session storage.
+   */
+  private static final long MAX_MEMORY_BYTES = Runtime.getRuntime().maxMemory() / 8;
 
-  private final Map<Uri, byte[]> memoryBlobs = new HashMap<>();
+  private static final BlobProvider INSTANCE = new BlobProvider(MAX_MEMORY_BYTES, SignalExecutors.BOUNDED);
 
+  private final ConcurrentMap<Uri, byte[]> memoryBlobs  = new ConcurrentHashMap<>();
+  private final Set<Uri>                   spilledBlobs = Collections.newSetFromMap(new ConcurrentHashMap<>());
+  private final AtomicLong                 memoryBytes  = new AtomicLong();
+  private final long                       maxMemoryBytes;
+  private final Executor                   spillExecutor;
+
+  @VisibleForTesting
+  BlobProvider(long maxMemoryBytes, @NonNull Executor spillExecutor) {
+    this.maxMemoryBytes = maxMemoryBytes;
+    this.spillExecutor  = spillExecutor;
+  }
 
   public static BlobProvider getInstance() {
     return INSTANCE;
@@ -85,7 +105,7 @@ public class BlobProvider {
    * Retrieve a stream for the content with the specified URI.
    * @throws IOException If the stream fails to open or the spec of the URI doesn't match.
    */
-  public synchronized @NonNull InputStream getStream(@NonNull Context context, @NonNull Uri uri) throws IOException {
+  public @NonNull InputStream getStream(@NonNull Context context, @NonNull Uri uri) throws IOException {
     return getStream(context, uri, 0L);
   }
 
@@ -93,46 +113,65 @@ public class BlobProvider {
    * Retrieve a stream for the content with the specified URI starting from the specified position.
    * @throws IOException If the stream fails to open or the spec of the URI doesn't match.
    */
-  public synchronized @NonNull InputStream getStream(@NonNull Context context, @NonNull Uri uri, long position) throws IOException {
+  public @NonNull InputStream getStream(@NonNull Context context, @NonNull Uri uri, long position) throws IOException {
     return getBlobRepresentation(context,
                                  uri,
                                  bytes -> {
-                                   ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
-                                   if (byteArrayInputStream.skip(position) != position) {
+                                   if (position > bytes.length) {
                                      throw new IOException("Failed to skip to position " + position + " for: " + uri);
                                    }
-                                   return byteArrayInputStream;
+                                   return new ByteArrayInputStream(bytes, (int) position, bytes.length - (int) position);
                                  },
                                  file -> ModernDecryptingPartInputStream.createFor(getAttachmentSecret(context),
                                                                                    file,
-                                                                                   position));
+                                                                                   position),
+                                 file -> {
+                                   try {
+                                     return ModernDecryptingPartInputStream.createFor(getAttachmentSecret(context),
+                                                                                      file,
+                                                                                      position);
+                                   } finally {
+                                     file.delete();
+                                   }
+                                 });
   }
 
   @RequiresApi(23)
-  public synchronized @NonNull MediaDataSource getMediaDataSource(@NonNull Context context, @NonNull Uri uri) throws IOException {
+  public @NonNull MediaDataSource getMediaDataSource(@NonNull Context context, @NonNull Uri uri) throws IOException {
     return getBlobRepresentation(context,
                                  uri,
                                  ByteArrayMediaDataSource::new,
-                                 file -> EncryptedMediaDataSource.createForDiskBlob(getAttachmentSecret(context), file));
+                                 file -> EncryptedMediaDataSource.createForDiskBlob(getAttachmentSecret(context), file),
+                                 file -> new DeleteOnCloseMediaDataSource(EncryptedMediaDataSource.createForDiskBlob(getAttachmentSecret(context), file), file));
   }
 
-  private synchronized @NonNull <T> T getBlobRepresentation(@NonNull Context context,
-                                                            @NonNull Uri uri,
-                                                            @NonNull IOFunction<byte[], T> getByteRepresentation,
-                                                            @NonNull IOFunction<File, T> getFileRepresentation)
+  /**
+   * @param getSpentFileRepresentation Used for the last read of a spilled single-use blob, and
+   *                                   responsible for deleting the file once it's no longer needed.
+   */
+  private @NonNull <T> T getBlobRepresentation(@NonNull Context context,
+                                               @NonNull Uri uri,
+                                               @NonNull IOFunction<byte[], T> getByteRepresentation,
+                                               @NonNull IOFunction<File, T> getFileRepresentation,
+                                               @NonNull IOFunction<File, T> getSpentFileRepresentation)
       throws IOException
   {
     if (isAuthority(uri)) {
       StorageType storageType = StorageType.decode(uri.getPathSegments().get(STORAGE_TYPE_PATH_SEGMENT));
 
       if (storageType.isMemory()) {
-        byte[] data = memoryBlobs.get(uri);
+        boolean singleUse = storageType == StorageType.SINGLE_USE_MEMORY;
+        byte[]  data      = singleUse ? memoryBlobs.remove(uri) : memoryBlobs.get(uri);
 
         if (data != null) {
-          if (storageType == StorageType.SINGLE_USE_MEMORY) {
-            memoryBlobs.remove(uri);
+          if (singleUse) {
+            memoryBytes.addAndGet(-data.length);
           }
           return getByteRepresentation.apply(data);
+        } else if (singleUse && spilledBlobs.remove(uri)) {
+          return getSpentFileRepresentation.apply(getSpilledFile(context, uri));
+        } else if (!singleUse && spilledBlobs.contains(uri)) {
+          return getFileRepresentation.apply(getSpilledFile(context, uri));
         } else {
           throw new IOException("Failed to find in-memory blob for: " + uri);
         }
@@ -148,14 +187,14 @@ public class BlobProvider {
     }
   }
 
-  private synchronized AttachmentSecret getAttachmentSecret(@NonNull Context context) {
+  private AttachmentSecret getAttachmentSecret(@NonNull Context context) {
     return AttachmentSecretProvider.getInstance(context).getOrCreateAttachmentSecret();
   }
 
   /**
    * Delete the content with the specified URI.
    */
-  public synchronized void delete(@NonNull Context context, @NonNull Uri uri) {
+  public void delete(@NonNull Context context, @NonNull Uri uri) {
     if (!isAuthority(uri)) {
       Log.d(TAG, "Can't delete. Not the authority for uri: " + uri);
       return;
@@ -165,7 +204,15 @@ public class BlobProvider {
       StorageType storageType = StorageType.decode(uri.getPathSegments().get(STORAGE_TYPE_PATH_SEGMENT));
 
       if (storageType.isMemory()) {
-        memoryBlobs.remove(uri);
+        byte[] data = memoryBlobs.remove(uri);
+
+        if (data != null) {
+          memoryBytes.addAndGet(-data.length);
+        }
+
+        if (spilledBlobs.remove(uri) && !getSpilledFile(context, uri).delete()) {
+          throw new IOException("Spilled file wasn't deleted.");
+        }
       } else {
         String id        = uri.getPathSegments().get(ID_PATH_SEGMENT);
         String directory = getDirectory(storageType);
@@ -284,12 +331,56 @@ public class BlobProvider {
     return buildUri(blobSpec);
   }
 
-  private synchronized @NonNull Uri writeBlobSpecToMemory(@NonNull BlobSpec blobSpec, @NonNull byte[] data) {
+  private @NonNull Uri writeBlobSpecToMemory(@NonNull BlobSpec blobSpec, @NonNull byte[] data) {
     Uri uri = buildUri(blobSpec);
     memoryBlobs.put(uri, data);
+
+    if (memoryBytes.addAndGet(data.length) > maxMemoryBytes) {
+      spillToDisk(uri, data);
+    }
+
     return uri;
   }
 
+  /**
+   * Writes a memory blob to an encrypted single-session file in the background, then drops it from
+   * memory. It's read from memory until the file is complete. If it's read for the last time or
+   * deleted in the meantime, the file is removed instead. Readers and deletes never remove a file
+   * that isn't in {@link #spilledBlobs} yet, so whichever side removes the uri from it owns the file.
+   */
+  private void spillToDisk(@NonNull Uri uri, @NonNull byte[] data) {
+    spillExecutor.execute(() -> {
+      Context context = ApplicationDependencies.getApplication();
+      File    file    = getSpilledFile(context, uri);
+
+      try (OutputStream outputStream = ModernEncryptingPartOutputStream.createFor(getAttachmentSecret(context), file, true).second) {
+        outputStream.write(data);
+      } catch (IOException e) {
+        Log.w(TAG, "Failed to spill memory blob to disk, keeping it in memory. " + uri, e);
+        file.delete();
+        return;
+      }
+
+      spilledBlobs.add(uri);
+
+      if (memoryBlobs.remove(uri, data)) {
+        memoryBytes.addAndGet(-data.length);
+      } else if (spilledBlobs.remove(uri)) {
+        file.delete();
+      }
+    });
+  }
+
+  @VisibleForTesting
+  long getMemoryBytes() {
+    return memoryBytes.get();
+  }
+
+  @VisibleForTesting
+  static @NonNull File getSpilledFile(@NonNull Context context, @NonNull Uri uri) {
+    return new File(getOrCreateCacheDirectory(context, SINGLE_SESSION_DIRECTORY), buildFileName(uri.getPathSegments().get(ID_PATH_SEGMENT)));
+  }
+
   private static @NonNull String buildFileName(@NonNull String id) {
     return id + ".blob";
   }
@@ -435,6 +526,40 @@ public class BlobProvider {
     }
   }
 
+  /**
+   * Deletes the file backing a single-use blob once its last reader is done with it.
+   */
+  @RequiresApi(23)
+  private static final class DeleteOnCloseMediaDataSource extends MediaDataSource {
+
+    private final MediaDataSource source;
+    private final File            file;
+
+    private DeleteOnCloseMediaDataSource(@NonNull MediaDataSource source, @NonNull File file) {
+      this.source = source;
+      this.file   = file;
+    }
+
+    @Override
+    public int readAt(long position, byte[] buffer, int offset, int size) throws IOException {
+      return source.readAt(position, buffer, offset, size);
+    }
+
+    @Override
+    public long getSize() throws IOException {
+      return source.getSize();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        source.close();
+      } finally {
+        file.delete();
+      }
+    }
+  }
+
   public interface SuccessListener {
     @WorkerThread
     void onSuccess();
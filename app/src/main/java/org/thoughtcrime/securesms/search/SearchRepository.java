@@ -8,6 +8,7 @@ import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.annimon.stream.Stream;
 
@@ -42,10 +43,12 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.thoughtcrime.securesms.database.SearchDatabase.SNIPPET_WRAP;
 
@@ -56,6 +59,8 @@ public class SearchRepository {
 
   private static final String TAG = SearchRepository.class.getSimpleName();
 
+  private static final int MESSAGE_PAGE_SIZE = 50;
+
   private static final Set<Character> BANNED_CHARACTERS = new HashSet<>();
   static {
     // Several ranges of invalid ASCII characters
@@ -83,44 +88,127 @@ public class SearchRepository {
   private final RecipientDatabase recipientDatabase;
   private final MentionDatabase   mentionDatabase;
   private final MmsDatabase       mmsDatabase;
+  private final AtomicLong        activeQueryId;
+
+  /** Only touched on the serial executor. */
+  private MessagePaging messagePaging;
 
   public SearchRepository() {
-    this.context           = ApplicationDependencies.getApplication().getApplicationContext();
-    this.searchDatabase    = DatabaseFactory.getSearchDatabase(context);
-    this.threadDatabase    = DatabaseFactory.getThreadDatabase(context);
-    this.recipientDatabase = DatabaseFactory.getRecipientDatabase(context);
-    this.mentionDatabase   = DatabaseFactory.getMentionDatabase(context);
-    this.mmsDatabase       = DatabaseFactory.getMmsDatabase(context);
-    this.contactRepository = new ContactRepository(context);
-    this.contactAccessor   = ContactAccessor.getInstance();
-    this.serialExecutor    = SignalExecutors.SERIAL;
-    this.parallelExecutor  = SignalExecutors.BOUNDED;
+    this(ApplicationDependencies.getApplication().getApplicationContext());
+  }
+
+  private SearchRepository(@NonNull Context context) {
+    this(context,
+         DatabaseFactory.getSearchDatabase(context),
+         DatabaseFactory.getThreadDatabase(context),
+         DatabaseFactory.getRecipientDatabase(context),
+         DatabaseFactory.getMentionDatabase(context),
+         DatabaseFactory.getMmsDatabase(context),
+         new ContactRepository(context),
+         ContactAccessor.getInstance(),
+         SignalExecutors.SERIAL,
+         SignalExecutors.BOUNDED);
   }
 
+  @VisibleForTesting
+  SearchRepository(@NonNull Context context,
+                   @NonNull SearchDatabase searchDatabase,
+                   @NonNull ThreadDatabase threadDatabase,
+                   @NonNull RecipientDatabase recipientDatabase,
+                   @NonNull MentionDatabase mentionDatabase,
+                   @NonNull MmsDatabase mmsDatabase,
+                   @NonNull ContactRepository contactRepository,
+                   @NonNull ContactAccessor contactAccessor,
+                   @NonNull Executor serialExecutor,
+                   @NonNull ExecutorService parallelExecutor)
+  {
+    this.context           = context;
+    this.searchDatabase    = searchDatabase;
+    this.threadDatabase    = threadDatabase;
+    this.recipientDatabase = recipientDatabase;
+    this.mentionDatabase   = mentionDatabase;
+    this.mmsDatabase       = mmsDatabase;
+    this.contactRepository = contactRepository;
+    this.contactAccessor   = contactAccessor;
+    this.serialExecutor    = serialExecutor;
+    this.parallelExecutor  = parallelExecutor;
+    this.activeQueryId     = new AtomicLong();
+  }
+
+  /**
+   * Searches everything. Only the first page of message matches is loaded, ordered by relevance,
+   * and more can be appended with {@link #queryMoreMessages}.
+   * <p>
+   * Each call supersedes the previous one. A superseded query stops reading results at the next
+   * row and its callback is never called.
+   */
   public void query(@NonNull String query, @NonNull Callback<SearchResult> callback) {
+    long queryId = activeQueryId.incrementAndGet();
+
     if (TextUtils.isEmpty(query)) {
       callback.onResult(SearchResult.EMPTY);
       return;
     }
 
     serialExecutor.execute(() -> {
+      if (isCancelled(queryId)) {
+        return;
+      }
+
       String cleanQuery = sanitizeQuery(query);
 
       Future<List<Recipient>>     contacts        = parallelExecutor.submit(() -> queryContacts(cleanQuery));
       Future<List<ThreadRecord>>  conversations   = parallelExecutor.submit(() -> queryConversations(cleanQuery));
-      Future<List<MessageResult>> messages        = parallelExecutor.submit(() -> queryMessages(cleanQuery));
       Future<List<MessageResult>> mentionMessages = parallelExecutor.submit(() -> queryMentions(sanitizeQueryAsTokens(query)));
 
       try {
-        long         startTime = System.currentTimeMillis();
-        SearchResult result    = new SearchResult(cleanQuery, contacts.get(), conversations.get(), mergeMessagesAndMentions(messages.get(), mentionMessages.get()));
+        long                startTime = System.currentTimeMillis();
+        MessagePaging       paging    = new MessagePaging(queryId, cleanQuery, mentionMessages.get());
+        List<MessageResult> messages  = new ArrayList<>(paging.mentionMessages);
+
+        messages.addAll(queryMessagePage(paging));
+
+        SearchResult result = new SearchResult(cleanQuery, contacts.get(), conversations.get(), messages, paging.hasMore);
 
         Log.d(TAG, "Total time: " + (System.currentTimeMillis() - startTime) + " ms");
 
-        callback.onResult(result);
+        if (!isCancelled(queryId)) {
+          messagePaging = paging;
+          callback.onResult(result);
+        }
+      } catch (CancellationException e) {
+        Log.d(TAG, "Query superseded.");
       } catch (ExecutionException | InterruptedException e) {
-        Log.w(TAG, e);
-        callback.onResult(SearchResult.EMPTY);
+        if (isCancelled(queryId)) {
+          Log.d(TAG, "Query superseded.");
+        } else {
+          Log.w(TAG, e);
+          callback.onResult(SearchResult.EMPTY);
+        }
+      }
+    });
+  }
+
+  /**
+   * Appends the next page of message matches to a result from {@link #query}. The callback isn't
+   * called if the result is no longer the latest, or it has no more messages.
+   */
+  public void queryMoreMessages(@NonNull SearchResult current, @NonNull Callback<SearchResult> callback) {
+    serialExecutor.execute(() -> {
+      MessagePaging paging = messagePaging;
+
+      if (paging == null || !paging.hasMore || isCancelled(paging.queryId) || !paging.query.equals(current.getQuery())) {
+        return;
+      }
+
+      try {
+        List<MessageResult> page = queryMessagePage(paging);
+
+        if (!isCancelled(paging.queryId)) {
+          callback.onResult(current.withMoreMessages(page, paging.hasMore));
+        }
+      } catch (CancellationException e) {
+        Log.d(TAG, "Query superseded.");
       }
     });
   }
@@ -168,12 +256,29 @@ public class SearchRepository {
     }
   }
 
-  private @NonNull List<MessageResult> queryMessages(@NonNull String query) {
-    List<MessageResult> results;
-    try (Cursor cursor = searchDatabase.queryMessages(query)) {
-      results = readToList(cursor, new MessageModelBuilder());
+  /**
+   * Reads the next page of full text matches, skipping any already listed as mention matches.
+   */
+  private @NonNull List<MessageResult> queryMessagePage(@NonNull MessagePaging paging) {
+    List<MessageResult> page;
+    try (Cursor cursor = searchDatabase.queryMessagesByRank(paging.query, MESSAGE_PAGE_SIZE, paging.offset)) {
+      page = readToList(cursor, new MessageModelBuilder(), -1, paging.queryId);
+    }
+
+    paging.offset += page.size();
+    paging.hasMore = page.size() == MESSAGE_PAGE_SIZE;
+
+    List<MessageResult> results = new ArrayList<>(page.size());
+    for (MessageResult result : page) {
+      if (!result.isMms || !paging.mentionMessageIds.contains(result.messageId)) {
+        results.add(result);
+      }
     }
 
+    return updateMentions(results);
+  }
+
+  private @NonNull List<MessageResult> updateMentions(@NonNull List<MessageResult> results) {
     List<Long> messageIds = new LinkedList<>();
     for (MessageResult result : results) {
       if (result.isMms) {
@@ -185,7 +290,7 @@ public class SearchRepository {
       return results;
     }
 
-    Map<Long, List<Mention>> mentions = DatabaseFactory.getMentionDatabase(context).getMentionsForMessages(messageIds);
+    Map<Long, List<Mention>> mentions = mentionDatabase.getMentionsForMessages(messageIds);
     if (mentions.isEmpty()) {
       return results;
     }
@@ -331,6 +436,14 @@ public class SearchRepository {
   }
 
   private @NonNull <T> List<T> readToList(@Nullable Cursor cursor, @NonNull CursorList.ModelBuilder<T> builder, int limit) {
+    return readToList(cursor, builder, limit, -1);
+  }
+
+  /**
+   * @param queryId If not -1, reading stops with a {@link CancellationException} once the query has
+   *                been superseded.
+   */
+  private @NonNull <T> List<T> readToList(@Nullable Cursor cursor, @NonNull CursorList.ModelBuilder<T> builder, int limit, long queryId) {
     if (cursor == null) {
       return Collections.emptyList();
     }
@@ -339,6 +452,10 @@ public class SearchRepository {
     List<T> list = new ArrayList<>(cursor.getCount());
 
     while (cursor.moveToNext() && (limit < 0 || i < limit)) {
+      if (queryId != -1 && isCancelled(queryId)) {
+        throw new CancellationException();
+      }
+
       list.add(builder.build(cursor));
       i++;
     }
@@ -346,6 +463,10 @@ public class SearchRepository {
     return list;
   }
 
+  private boolean isCancelled(long queryId) {
+    return activeQueryId.get() != queryId;
+  }
+
   /**
    * Unfortunately {@link DatabaseUtils#sqlEscapeString(String)} is not sufficient for our purposes.
    * MATCH queries have a separate format of their own that disallow most "special" characters.
@@ -399,6 +520,32 @@ public class SearchRepository {
     return combined;
   }
 
+  /**
+   * Where the message matches of the latest {@link #query} are up to.
+   */
+  private static final class MessagePaging {
+    private final long                queryId;
+    private final String              query;
+    private final List<MessageResult> mentionMessages;
+    private final Set<Long>           mentionMessageIds;
+
+    private int     offset;
+    private boolean hasMore;
+
+    private MessagePaging(long queryId, @NonNull String query, @NonNull List<MessageResult> mentionMessages) {
+      this.queryId           = queryId;
+      this.query             = query;
+      this.mentionMessages   = new ArrayList<>(mentionMessages);
+      this.mentionMessageIds = new HashSet<>();
+
+      Collections.sort(this.mentionMessages, (left, right) -> Long.compare(right.receivedTimestampMs, left.receivedTimestampMs));
+
+      for (MessageResult result : this.mentionMessages) {
+        mentionMessageIds.add(result.messageId);
+      }
+    }
+  }
+
   private static class RecipientModelBuilder implements CursorList.ModelBuilder<Recipient> {
 
     @Override
@@ -5,10 +5,14 @@ import org.thoughtcrime.securesms.logging.Log;
 
 import org.thoughtcrime.securesms.database.DatabaseFactory;
 import org.thoughtcrime.securesms.database.MmsDatabase;
+import org.thoughtcrime.securesms.database.MmsSmsDatabase;
 import org.thoughtcrime.securesms.database.SmsDatabase;
 import org.thoughtcrime.securesms.database.model.MessageRecord;
 
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.TreeSet;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
@@ -17,17 +21,25 @@ public class ExpiringMessageManager {
 
   private static final String TAG = ExpiringMessageManager.class.getSimpleName();
 
+  /**
+   * Messages due within this long of the first expired message are deleted in the same sweep.
+   */
+  private static final long EXPIRY_BATCH_WINDOW_MS = 500;
+  private static final int  MAX_EXPIRY_BATCH_SIZE  = 500;
+
   private final TreeSet<ExpiringMessageReference> expiringMessageReferences = new TreeSet<>(new ExpiringMessageComparator());
   private final Executor                          executor                  = Executors.newSingleThreadExecutor();
 
-  private final SmsDatabase smsDatabase;
-  private final MmsDatabase mmsDatabase;
-  private final Context     context;
+  private final SmsDatabase    smsDatabase;
+  private final MmsDatabase    mmsDatabase;
+  private final MmsSmsDatabase mmsSmsDatabase;
+  private final Context        context;
 
   public ExpiringMessageManager(Context context) {
-    this.context     = context.getApplicationContext();
-    this.smsDatabase = DatabaseFactory.getSmsDatabase(context);
-    this.mmsDatabase = DatabaseFactory.getMmsDatabase(context);
+    this.context        = context.getApplicationContext();
+    this.smsDatabase    = DatabaseFactory.getSmsDatabase(context);
+    this.mmsDatabase    = DatabaseFactory.getMmsDatabase(context);
+    this.mmsSmsDatabase = DatabaseFactory.getMmsSmsDatabase(context);
 
     executor.execute(new LoadTask());
     executor.execute(new ProcessTask());
@@ -80,21 +92,35 @@ public class ExpiringMessageManager {
   private class ProcessTask implements Runnable {
     public void run() {
       while (true) {
-        ExpiringMessageReference expiredMessage = null;
+        List<Long> expiredSmsIds = new LinkedList<>();
+        List<Long> expiredMmsIds = new LinkedList<>();
 
         synchronized (expiringMessageReferences) {
           try {
             while (expiringMessageReferences.isEmpty()) expiringMessageReferences.wait();
 
             ExpiringMessageReference nextReference = expiringMessageReferences.first();
-            long                     waitTime      = nextReference.expiresAtMillis - System.currentTimeMillis();
+            long                     now           = System.currentTimeMillis();
+            long                     waitTime      = nextReference.expiresAtMillis - now;
 
             if (waitTime > 0) {
               ExpirationListener.setAlarm(context, waitTime);
               expiringMessageReferences.wait(waitTime);
             } else {
-              expiredMessage = nextReference;
-              expiringMessageReferences.remove(nextReference);
+              Iterator<ExpiringMessageReference> iterator = expiringMessageReferences.iterator();
+              int                                count    = 0;
+
+              while (iterator.hasNext() && count < MAX_EXPIRY_BATCH_SIZE) {
+                ExpiringMessageReference reference = iterator.next();
+
+                if (reference.expiresAtMillis > now + EXPIRY_BATCH_WINDOW_MS) break;
+
+                if (reference.mms) expiredMmsIds.add(reference.id);
+                else               expiredSmsIds.add(reference.id);
+
+                iterator.remove();
+                count++;
+              }
             }
 
           } catch (InterruptedException e) {
@@ -102,9 +128,9 @@ public class ExpiringMessageManager {
           }
         }
 
-        if (expiredMessage != null) {
-          if (expiredMessage.mms) mmsDatabase.delete(expiredMessage.id);
-          else                    smsDatabase.deleteMessage(expiredMessage.id);
+        if (!expiredSmsIds.isEmpty() || !expiredMmsIds.isEmpty()) {
+          Log.i(TAG, "Deleting " + expiredSmsIds.size() + " sms and " + expiredMmsIds.size() + " mms expired messages.");
+          mmsSmsDatabase.deleteMessages(expiredSmsIds, expiredMmsIds);
         }
       }
     }
@@ -0,0 +1,123 @@
+package org.thoughtcrime.securesms.stickers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import org.thoughtcrime.securesms.components.emoji.EmojiUtil;
+import org.thoughtcrime.securesms.database.StickerDatabase;
+import org.thoughtcrime.securesms.database.StickerDatabase.StickerRecordReader;
+import org.thoughtcrime.securesms.database.model.StickerRecord;
+import org.thoughtcrime.securesms.util.LRUCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An in-memory snapshot of every non-cover sticker, searchable by emoji with the same results as
+ * running {@link StickerDatabase#getStickersByEmoji} for each representation of the emoji.
+ * <p>
+ * Stickers are grouped by their emoji tag, so a search only compares the query against the few
+ * distinct tags rather than every sticker. Results are memoized by canonical emoji. A snapshot never
+ * changes, so the owner replaces it when the sticker table does.
+ */
+final class StickerEmojiIndex {
+
+  private static final int MAX_CACHED_RESULTS = 100;
+
+  private final StickerRecord[] stickers;
+  private final int[]           stickerTags;
+  private final String[]        tags;
+
+  private final Map<String, List<StickerRecord>> results = new LRUCache<>(MAX_CACHED_RESULTS);
+
+  StickerEmojiIndex(@NonNull List<StickerRecord> stickers) {
+    Map<String, Integer> tagIndexes = new HashMap<>();
+    List<String>         tags       = new ArrayList<>();
+
+    this.stickers    = stickers.toArray(new StickerRecord[0]);
+    this.stickerTags = new int[this.stickers.length];
+
+    for (int i = 0; i < this.stickers.length; i++) {
+      String  tag   = this.stickers[i].getEmoji();
+      Integer index = tagIndexes.get(tag);
+
+      if (index == null) {
+        index = tags.size();
+        tagIndexes.put(tag, index);
+        tags.add(tag);
+      }
+
+      stickerTags[i] = index;
+    }
+
+    this.tags = tags.toArray(new String[0]);
+  }
+
+  @WorkerThread
+  static @NonNull StickerEmojiIndex build(@NonNull StickerDatabase stickerDatabase) {
+    List<StickerRecord> stickers = new ArrayList<>();
+
+    try (StickerRecordReader reader = new StickerRecordReader(stickerDatabase.getAllStickers())) {
+      StickerRecord record;
+      while ((record = reader.getNext()) != null) {
+        stickers.add(record);
+      }
+    }
+
+    return new StickerEmojiIndex(stickers);
+  }
+
+  /**
+   * @return Stickers whose emoji tag contains any representation of the emoji, in insertion order.
+   */
+  @NonNull List<StickerRecord> search(@NonNull String emoji) {
+    String canonical = EmojiUtil.getCanonicalRepresentation(emoji);
+
+    synchronized (results) {
+      List<StickerRecord> cached = results.get(canonical);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    Set<String> representations = EmojiUtil.getAllRepresentations(canonical);
+    boolean[]   matchedTags     = new boolean[tags.length];
+    boolean     anyMatched      = false;
+
+    for (int i = 0; i < tags.length; i++) {
+      for (String representation : representations) {
+        if (tags[i].contains(representation)) {
+          matchedTags[i] = true;
+          anyMatched     = true;
+          break;
+        }
+      }
+    }
+
+    List<StickerRecord> matches;
+
+    if (anyMatched) {
+      matches = new ArrayList<>();
+
+      for (int i = 0; i < stickers.length; i++) {
+        if (matchedTags[stickerTags[i]]) {
+          matches.add(stickers[i]);
+        }
+      }
+
+      matches = Collections.unmodifiableList(matches);
+    } else {
+      matches = Collections.emptyList();
+    }
+
+    synchronized (results) {
+      results.put(canonical, matches);
+    }
+
+    return matches;
+  }
+}
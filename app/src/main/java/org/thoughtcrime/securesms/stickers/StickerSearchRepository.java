@@ -1,50 +1,59 @@
 package org.thoughtcrime.securesms.stickers;
 
 import android.content.Context;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 
-import org.thoughtcrime.securesms.components.emoji.EmojiUtil;
 import org.thoughtcrime.securesms.database.AttachmentDatabase;
-import org.thoughtcrime.securesms.database.CursorList;
+import org.thoughtcrime.securesms.database.DatabaseContentProviders;
 import org.thoughtcrime.securesms.database.DatabaseFactory;
 import org.thoughtcrime.securesms.database.StickerDatabase;
-import org.thoughtcrime.securesms.database.StickerDatabase.StickerRecordReader;
-import org.thoughtcrime.securesms.database.model.StickerPackRecord;
 import org.thoughtcrime.securesms.database.model.StickerRecord;
 import org.thoughtcrime.securesms.util.concurrent.SignalExecutors;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class StickerSearchRepository {
 
+  private static final AtomicInteger STICKERS_VERSION   = new AtomicInteger();
+  private static final AtomicBoolean OBSERVING_STICKERS = new AtomicBoolean();
+  private static final Object        INDEX_LOCK         = new Object();
+
+  private static volatile StickerEmojiIndex emojiIndex;
+  private static volatile int               emojiIndexVersion;
+
   private final StickerDatabase    stickerDatabase;
   private final AttachmentDatabase attachmentDatabase;
 
   public StickerSearchRepository(@NonNull Context context) {
     this.stickerDatabase    = DatabaseFactory.getStickerDatabase(context);
     this.attachmentDatabase = DatabaseFactory.getAttachmentDatabase(context);
+
+    observeStickers(context.getApplicationContext());
+
+    if (getCurrentEmojiIndex() == null) {
+      SignalExecutors.BOUNDED.execute(this::getOrBuildEmojiIndex);
+    }
   }
 
+  /**
+   * Answers from the in-memory emoji index, on the calling thread when the index is current. After
+   * any change to the sticker table, the next search rebuilds the index on a background thread.
+   */
   public void searchByEmoji(@NonNull String emoji, @NonNull Callback<List<StickerRecord>> callback) {
-    SignalExecutors.BOUNDED.execute(() -> {
-      String              searchEmoji = EmojiUtil.getCanonicalRepresentation(emoji);
-      List<StickerRecord> out         = new ArrayList<>();
-      Set<String>         possible    = EmojiUtil.getAllRepresentations(searchEmoji);
-
-      for (String candidate : possible) {
-        try (StickerRecordReader reader = new StickerRecordReader(stickerDatabase.getStickersByEmoji(candidate))) {
-          StickerRecord record = null;
-          while ((record = reader.getNext()) != null) {
-            out.add(record);
-          }
-        }
-      }
+    StickerEmojiIndex index = getCurrentEmojiIndex();
 
-      callback.onResult(out);
-    });
+    if (index != null) {
+      callback.onResult(index.search(emoji));
+      return;
+    }
+
+    SignalExecutors.BOUNDED.execute(() -> callback.onResult(getOrBuildEmojiIndex().search(emoji)));
   }
 
   public void getStickerFeatureAvailability(@NonNull Callback<Boolean> callback) {
@@ -59,11 +68,47 @@ public final class StickerSearchRepository {
     });
   }
 
-  private static class StickerModelBuilder implements CursorList.ModelBuilder<StickerRecord> {
-    @Override
-    public StickerRecord build(@NonNull Cursor cursor) {
-      return new StickerRecordReader(cursor).getCurrent();
+  private static @Nullable StickerEmojiIndex getCurrentEmojiIndex() {
+    int               version = emojiIndexVersion;
+    StickerEmojiIndex index   = emojiIndex;
+    return index != null && version == STICKERS_VERSION.get() ? index : null;
+  }
+
+  /**
+   * Builds outside of {@link #INDEX_LOCK}, which only guards swapping in the result, so concurrent
+   * callers may each build but never block each other on the database.
+   */
+  @WorkerThread
+  private @NonNull StickerEmojiIndex getOrBuildEmojiIndex() {
+    StickerEmojiIndex index = getCurrentEmojiIndex();
+
+    if (index != null) {
+      return index;
+    }
+
+    int version = STICKERS_VERSION.get();
+
+    index = StickerEmojiIndex.build(stickerDatabase);
+
+    synchronized (INDEX_LOCK) {
+      if (emojiIndex == null || version >= emojiIndexVersion) {
+        emojiIndex        = index;
+        emojiIndexVersion = version;
+      }
     }
+
+    return index;
+  }
+
+  private static void observeStickers(@NonNull Context context) {
+    if (!OBSERVING_STICKERS.compareAndSet(false, true)) return;
+
+    context.getContentResolver().registerContentObserver(DatabaseContentProviders.Sticker.CONTENT_URI, true, new ContentObserver(null) {
+      @Override
+      public void onChange(boolean selfChange) {
+        STICKERS_VERSION.incrementAndGet();
+      }
+    });
   }
 
   public interface Callback<T> {
@@ -4,6 +4,7 @@ import android.content.ContentValues;
 import android.database.Cursor;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import net.sqlcipher.database.SQLiteDatabase;
 
@@ -93,6 +94,44 @@ public final class SqlUtil {
     return new UpdateQuery("(" + selection + ") AND (" + qualifier + ")", fullArgs.toArray(new String[0]));
   }
 
+  /**
+   * Builds an FTS5 MATCH expression that requires a token starting with each word of the query, in
+   * any column. Words without a letter or digit can't match any token, so they're dropped rather than
+   * making the whole expression match nothing.
+   *
+   * Ex:
+   *   jo sm -> "jo"* "sm"*
+   *
+   * @return The expression, or null if the query has no words to match on.
+   */
+  public static @Nullable String buildPrefixMatchQuery(@NonNull String query) {
+    StringBuilder match = new StringBuilder();
+
+    for (String word : query.trim().split("\\s+")) {
+      if (!containsLetterOrDigit(word)) {
+        continue;
+      }
+
+      if (match.length() > 0) {
+        match.append(' ');
+      }
+
+      match.append('"').append(word.replace("\"", "\"\"")).append("\"*");
+    }
+
+    return match.length() > 0 ? match.toString() : null;
+  }
+
+  private static boolean containsLetterOrDigit(@NonNull String word) {
+    for (int i = 0; i < word.length(); i = word.offsetByCodePoints(i, 1)) {
+      if (Character.isLetterOrDigit(word.codePointAt(i))) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
   public static String[] appendArg(@NonNull String[] args, String addition) {
     String[] output = new String[args.length + 1];
 
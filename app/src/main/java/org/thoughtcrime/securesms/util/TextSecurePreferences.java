@@ -214,6 +214,8 @@ public class TextSecurePreferences {
 
   private static final String ARGON2_TESTED = "argon2_tested";
 
+  private static final String DATABASE_WAL_ENABLED = "pref_database_wal_enabled";
+
   public static boolean isScreenLockEnabled(@NonNull Context context) {
     return getBooleanPreference(context, SCREEN_LOCK, false);
   }
@@ -1228,6 +1230,17 @@ public class TextSecurePreferences {
     setBooleanPreference(context, ARGON2_TESTED, tested);
   }
 
+  /**
+   * Takes effect the next time the database is opened.
+   */
+  public static boolean isDatabaseWalEnabled(Context context) {
+    return getBooleanPreference(context, DATABASE_WAL_ENABLED, false);
+  }
+
+  public static void setDatabaseWalEnabled(Context context, boolean enabled) {
+    setBooleanPreference(context, DATABASE_WAL_ENABLED, enabled);
+  }
+
   public static void setBooleanPreference(Context context, String key, boolean value) {
     PreferenceManager.getDefaultSharedPreferences(context).edit().putBoolean(key, value).apply();
   }
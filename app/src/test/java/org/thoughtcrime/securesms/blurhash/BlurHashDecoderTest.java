@@ -0,0 +1,110 @@
+package org.thoughtcrime.securesms.blurhash;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.thoughtcrime.securesms.blurhash.BlurHashUtil.linearTosRGB;
+import static org.thoughtcrime.securesms.blurhash.BlurHashUtil.sRGBToLinear;
+import static org.thoughtcrime.securesms.blurhash.BlurHashUtil.signPow;
+
+public final class BlurHashDecoderTest {
+
+  private static final String[] HASHES = {
+      "LEHV6nWB2yk8pyo0adR*.7kCMdnj",
+      "LGF5?xYk^6#M@-5c,1J5@[or[Q6.",
+      "L6PZfSi_.AyE_3t7t7R**0o#DgR4",
+      "LKO2?U%2Tw=w]~RBVZRi};RPxuwH",
+      "UDF#,*ob0ej]~WkC9GWB9ZR*xuoL-;axWBj["
+  };
+
+  @Test
+  public void decodePixels_invalid() {
+    assertNull(BlurHashDecoder.decodePixels(null, 20, 20, 1));
+    assertNull(BlurHashDecoder.decodePixels("abc", 20, 20, 1));
+    assertNull(BlurHashDecoder.decodePixels("LEHV6nWB2yk8pyo0adR*.7kCMdn", 20, 20, 1));
+    assertNull(BlurHashDecoder.decodePixels(HASHES[0], 0, 20, 1));
+  }
+
+  @Test
+  public void decodePixels_matchesReferenceDecoder() {
+    for (String hash : HASHES) {
+      for (int[] size : new int[][] { { 20, 15 }, { 11, 20 }, { 32, 32 }, { 320, 240 } }) {
+        int[] expected = ReferenceDecoder.decode(hash, size[0], size[1]);
+        int[] actual   = BlurHashDecoder.decodePixels(hash, size[0], size[1], 1);
+
+        assertNotNull(actual);
+        assertEquals(expected.length, actual.length);
+
+        for (int i = 0; i < expected.length; i++) {
+          assertEquals(0xff, actual[i] >>> 24);
+          assertChannelWithinOne(expected[i], actual[i], 16);
+          assertChannelWithinOne(expected[i], actual[i], 8);
+          assertChannelWithinOne(expected[i], actual[i], 0);
+        }
+      }
+    }
+  }
+
+  private static void assertChannelWithinOne(int expected, int actual, int shift) {
+    int expectedChannel = (expected >> shift) & 0xff;
+    int actualChannel   = (actual >> shift) & 0xff;
+
+    assertTrue(String.format(Locale.US, "expected %d but was %d", expectedChannel, actualChannel), Math.abs(expectedChannel - actualChannel) <= 1);
+  }
+
+  /**
+   * The per pixel double precision decode this replaced, writing pixels rather than a bitmap.
+   */
+  private static final class ReferenceDecoder {
+
+    static int[] decode(String blurHash, int width, int height) {
+      int        numCompEnc = Base83.decode(blurHash, 0, 1);
+      int        numCompX   = (numCompEnc % 9) + 1;
+      int        numCompY   = (numCompEnc / 9) + 1;
+      double     maxAc      = (Base83.decode(blurHash, 1, 2) + 1) / 166f;
+      double[][] colors     = new double[numCompX * numCompY][];
+
+      for (int i = 0; i < colors.length; i++) {
+        if (i == 0) {
+          int colorEnc = Base83.decode(blurHash, 2, 6);
+          colors[i] = new double[] { sRGBToLinear(colorEnc >> 16), sRGBToLinear((colorEnc >> 8) & 255), sRGBToLinear(colorEnc & 255) };
+        } else {
+          int value = Base83.decode(blurHash, 4 + i * 2, 6 + i * 2);
+          colors[i] = new double[] { signPow((value / (19 * 19) - 9) / 9.0f, 2f) * maxAc,
+                                     signPow(((value / 19) % 19 - 9) / 9.0f, 2f) * maxAc,
+                                     signPow((value % 19 - 9) / 9.0f, 2f) * maxAc };
+        }
+      }
+
+      int[] pixels = new int[width * height];
+
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          double r = 0;
+          double g = 0;
+          double b = 0;
+
+          for (int j = 0; j < numCompY; j++) {
+            for (int i = 0; i < numCompX; i++) {
+              double   basis = Math.cos(Math.PI * x * i / width) * Math.cos(Math.PI * y * j / height);
+              double[] color = colors[j * numCompX + i];
+
+              r += color[0] * basis;
+              g += color[1] * basis;
+              b += color[2] * basis;
+            }
+          }
+
+          pixels[y * width + x] = 0xff000000 | ((int) linearTosRGB(r) << 16) | ((int) linearTosRGB(g) << 8) | (int) linearTosRGB(b);
+        }
+      }
+
+      return pixels;
+    }
+  }
+}
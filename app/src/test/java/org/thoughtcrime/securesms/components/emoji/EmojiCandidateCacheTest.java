@@ -0,0 +1,91 @@
+package org.thoughtcrime.securesms.components.emoji;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.thoughtcrime.securesms.components.emoji.parsing.EmojiParser;
+import org.thoughtcrime.securesms.logging.Log;
+import org.thoughtcrime.securesms.testutil.LogRecorder;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public final class EmojiCandidateCacheTest {
+
+  private LogRecorder         logRecorder;
+  private EmojiCandidateCache cache;
+
+  @Before
+  public void setUp() {
+    logRecorder = new LogRecorder();
+    Log.initialize(logRecorder);
+
+    cache = new EmojiCandidateCache(2);
+  }
+
+  @Test
+  public void get_missThenHit() {
+    EmojiParser.CandidateList candidates = candidates();
+
+    assertNull(cache.get("a"));
+    cache.put("a", candidates);
+    assertSame(candidates, cache.get("a"));
+  }
+
+  @Test
+  public void put_evictsLeastRecentlyUsed() {
+    EmojiParser.CandidateList a = candidates();
+    EmojiParser.CandidateList c = candidates();
+
+    cache.put("a", a);
+    cache.put("b", candidates());
+    cache.get("a");
+    cache.put("c", c);
+
+    assertSame(a, cache.get("a"));
+    assertNull(cache.get("b"));
+    assertSame(c, cache.get("c"));
+  }
+
+  @Test
+  public void get_logsStatsPeriodically() {
+    cache.put("a", candidates());
+
+    for (int i = 0; i < 999; i++) {
+      cache.get("a");
+    }
+
+    assertTrue(logRecorder.getDebug().isEmpty());
+
+    cache.get("a");
+
+    assertEquals(1, logRecorder.getDebug().size());
+    assertTrue(logRecorder.getDebug().get(0).getMessage().contains("size=1, hits=1000, misses=0, hitRate=1.00"));
+  }
+
+  @Test
+  public void get_logsHitRateOfMissesAndHits() {
+    cache.put("a", candidates());
+
+    for (int i = 0; i < 1000; i++) {
+      cache.get(i % 4 == 0 ? "b" : "a");
+    }
+
+    assertEquals(1, logRecorder.getDebug().size());
+    assertTrue(logRecorder.getDebug().get(0).getMessage().contains("hits=750, misses=250, hitRate=0.75"));
+  }
+
+  @Test
+  public void isCacheable() {
+    assertTrue(EmojiCandidateCache.isCacheable(new String(new char[2000])));
+    assertFalse(EmojiCandidateCache.isCacheable(new String(new char[2001])));
+  }
+
+  private static EmojiParser.CandidateList candidates() {
+    return new EmojiParser.CandidateList(Collections.emptyList(), false);
+  }
+}
@@ -0,0 +1,178 @@
+package org.thoughtcrime.securesms.components.emoji.parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public final class EmojiParserTest {
+
+  private static final String SMILE       = "\uD83D\uDE00";
+  private static final String THUMBS_UP   = "\uD83D\uDC4D";
+  private static final String MAN         = "\uD83D\uDC68";
+  private static final String FAMILY      = "\uD83D\uDC68\u200d\uD83D\uDC69\u200d\uD83D\uDC67";
+  private static final String RELAXED     = "\u263a\ufe0f";
+  private static final String SKIN_TONE_5 = "\uD83C\uDFFE";
+
+  private EmojiTree     tree;
+  private EmojiDrawInfo smile;
+  private EmojiDrawInfo man;
+  private EmojiDrawInfo family;
+  private EmojiDrawInfo relaxed;
+
+  @Before
+  public void setUp() {
+    tree    = new EmojiTree();
+    smile   = new EmojiDrawInfo(null, 0);
+    man     = new EmojiDrawInfo(null, 1);
+    family  = new EmojiDrawInfo(null, 2);
+    relaxed = new EmojiDrawInfo(null, 3);
+
+    tree.add(SMILE, smile);
+    tree.add(MAN, man);
+    tree.add(FAMILY, family);
+    tree.add(RELAXED, relaxed);
+    tree.add(THUMBS_UP, new EmojiDrawInfo(null, 4));
+
+    for (int i = 0; i < 2000; i++) {
+      tree.add(new String(Character.toChars(0x1F300 + i)) + "\u200d" + new String(Character.toChars(0x1F300 + (i * 7) % 2000)), new EmojiDrawInfo(null, 5 + i));
+    }
+  }
+
+  @Test
+  public void findCandidates_null() {
+    EmojiParser.CandidateList candidates = new EmojiParser(tree).findCandidates(null);
+
+    assertEquals(0, candidates.size());
+    assertFalse(candidates.allEmojis);
+  }
+
+  @Test
+  public void findCandidates_noEmoji() {
+    EmojiParser.CandidateList candidates = new EmojiParser(tree).findCandidates("Just some text");
+
+    assertEquals(0, candidates.size());
+    assertFalse(candidates.allEmojis);
+  }
+
+  @Test
+  public void findCandidates_emojiInText() {
+    EmojiParser.CandidateList candidates = new EmojiParser(tree).findCandidates("Hi " + SMILE + " there");
+
+    assertEquals(1, candidates.size());
+    assertCandidate(candidates.list.get(0), 3, 5, smile);
+    assertFalse(candidates.allEmojis);
+  }
+
+  @Test
+  public void findCandidates_onlyEmojiAndSpaces() {
+    EmojiParser.CandidateList candidates = new EmojiParser(tree).findCandidates(SMILE + " " + MAN);
+
+    assertEquals(2, candidates.size());
+    assertTrue(candidates.allEmojis);
+  }
+
+  @Test
+  public void findCandidates_prefersLongestSequence() {
+    EmojiParser.CandidateList candidates = new EmojiParser(tree).findCandidates(FAMILY + MAN);
+
+    assertEquals(2, candidates.size());
+    assertCandidate(candidates.list.get(0), 0, FAMILY.length(), family);
+    assertCandidate(candidates.list.get(1), FAMILY.length(), FAMILY.length() + MAN.length(), man);
+  }
+
+  @Test
+  public void findCandidates_partialSequenceFallsBackToPrefix() {
+    String text = MAN + "\u200d\uD83D\uDC69";
+
+    EmojiParser.CandidateList candidates = new EmojiParser(tree).findCandidates(text);
+
+    assertEquals(1, candidates.size());
+    assertCandidate(candidates.list.get(0), 0, MAN.length(), man);
+  }
+
+  @Test
+  public void findCandidates_missingVariationSelector() {
+    EmojiParser.CandidateList candidates = new EmojiParser(tree).findCandidates("\u263a!");
+
+    assertEquals(1, candidates.size());
+    assertCandidate(candidates.list.get(0), 0, 1, relaxed);
+  }
+
+  @Test
+  public void findCandidates_withVariationSelector() {
+    EmojiParser.CandidateList candidates = new EmojiParser(tree).findCandidates(RELAXED);
+
+    assertEquals(1, candidates.size());
+    assertCandidate(candidates.list.get(0), 0, 2, relaxed);
+  }
+
+  @Test
+  public void findCandidates_skinToneExtendsCandidate() {
+    EmojiParser.CandidateList candidates = new EmojiParser(tree).findCandidates(MAN + SKIN_TONE_5 + "!");
+
+    assertEquals(1, candidates.size());
+    assertCandidate(candidates.list.get(0), 0, 4, man);
+  }
+
+  @Test
+  public void getEmoji_unknown() {
+    assertNull(tree.getEmoji("abc", 0, 3));
+  }
+
+  @Test
+  public void isEmoji_matchesFindEmojiEnd() {
+    String text = FAMILY + " " + RELAXED + "\u263a x";
+
+    for (int start = 0; start < text.length(); start++) {
+      int expected = -1;
+
+      for (int end = start + 1; end <= text.length(); end++) {
+        EmojiTree.Matches matches = tree.isEmoji(text, start, end);
+
+        if      (matches.exactMatch())      expected = end;
+        else if (matches.impossibleMatch()) break;
+      }
+
+      assertEquals(expected, tree.findEmojiEnd(text, start));
+    }
+  }
+
+  @Test
+  public void findCandidates_repeatedEmojiHeavyText() {
+    String                    unit       = SMILE + FAMILY + " " + RELAXED + MAN + SKIN_TONE_5 + " lol ";
+    EmojiParser.CandidateList candidates = new EmojiParser(tree).findCandidates(repeat(unit, 10));
+
+    assertEquals(40, candidates.size());
+    assertFalse(candidates.allEmojis);
+
+    for (int i = 0; i < 10; i++) {
+      int offset = i * unit.length();
+
+      assertCandidate(candidates.list.get(i * 4), offset, offset + 2, smile);
+      assertCandidate(candidates.list.get(i * 4 + 1), offset + 2, offset + 2 + FAMILY.length(), family);
+      assertCandidate(candidates.list.get(i * 4 + 2), offset + 3 + FAMILY.length(), offset + 5 + FAMILY.length(), relaxed);
+      assertCandidate(candidates.list.get(i * 4 + 3), offset + 5 + FAMILY.length(), offset + 9 + FAMILY.length(), man);
+    }
+  }
+
+  private static void assertCandidate(EmojiParser.Candidate candidate, int start, int end, EmojiDrawInfo drawInfo) {
+    assertEquals(start, candidate.getStartIndex());
+    assertEquals(end, candidate.getEndIndex());
+    assertSame(drawInfo, candidate.getDrawInfo());
+  }
+
+  private static String repeat(String value, int times) {
+    StringBuilder builder = new StringBuilder(value.length() * times);
+
+    for (int i = 0; i < times; i++) {
+      builder.append(value);
+    }
+
+    return builder.toString();
+  }
+}
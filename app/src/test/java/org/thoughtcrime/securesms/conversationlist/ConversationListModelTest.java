@@ -0,0 +1,207 @@
+package org.thoughtcrime.securesms.conversationlist;
+
+import android.app.Application;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.thoughtcrime.securesms.conversationlist.model.Conversation;
+import org.thoughtcrime.securesms.database.model.ThreadRecord;
+import org.thoughtcrime.securesms.recipients.Recipient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, application = Application.class)
+public class ConversationListModelTest {
+
+  @Test
+  public void givenNoConversations_whenIGetSnapshot_thenIExpectAnEmptyList() {
+    ConversationListModel model = unarchived(Collections.emptyList(), 0);
+
+    ConversationListModel.Snapshot snapshot = model.getSnapshot();
+
+    assertEquals(0, snapshot.getConversations().size());
+    assertEquals(0, snapshot.getPinnedCount());
+    assertEquals(0, snapshot.getArchivedCount());
+  }
+
+  @Test
+  public void givenArchivedConversations_whenIGetSnapshot_thenIExpectOnlyTheFooter() {
+    ConversationListModel model = unarchived(Collections.emptyList(), 12);
+
+    List<Conversation> conversations = model.getSnapshot().getConversations();
+
+    assertTypes(conversations, Conversation.Type.ARCHIVED_FOOTER);
+    assertEquals(12, conversations.get(0).getThreadRecord().getCount());
+  }
+
+  @Test
+  public void givenSinglePinnedAndArchivedConversations_whenIGetSnapshot_thenIExpectThree() {
+    ConversationListModel model = unarchived(Collections.singletonList(thread(1, 100, true)), 12);
+
+    assertTypes(model.getSnapshot().getConversations(), Conversation.Type.PINNED_HEADER, Conversation.Type.THREAD, Conversation.Type.ARCHIVED_FOOTER);
+    assertEquals(1, model.getSnapshot().getPinnedCount());
+  }
+
+  @Test
+  public void givenSingleUnpinnedAndArchivedConversations_whenIGetSnapshot_thenIExpectTwo() {
+    ConversationListModel model = unarchived(Collections.singletonList(thread(1, 100, false)), 12);
+
+    assertTypes(model.getSnapshot().getConversations(), Conversation.Type.THREAD, Conversation.Type.ARCHIVED_FOOTER);
+  }
+
+  @Test
+  public void givenSinglePinnedAndSingleUnpinned_whenIGetSnapshot_thenIExpectFour() {
+    ConversationListModel model = unarchived(Arrays.asList(thread(1, 100, true), thread(2, 200, false)), 0);
+
+    assertTypes(model.getSnapshot().getConversations(), Conversation.Type.PINNED_HEADER, Conversation.Type.THREAD, Conversation.Type.UNPINNED_HEADER, Conversation.Type.THREAD);
+  }
+
+  @Test
+  public void givenNewMessageInOlderThread_whenIApplyChanges_thenIExpectItMovedToTheTop() {
+    ConversationListModel model = unarchived(Arrays.asList(thread(1, 300, false), thread(2, 200, false), thread(3, 100, false)), 0);
+
+    List<Conversation> before = model.getSnapshot().getConversations();
+    List<ConversationListModel.Delta> deltas = model.applyChanges(Collections.singletonList(3L), listed(thread(3, 400, false)), 0);
+    List<Conversation> after  = model.getSnapshot().getConversations();
+
+    assertDeltas(deltas, ConversationListModel.Delta.Type.MOVED);
+    assertThreadIds(after, 3, 1, 2);
+    assertSame(before.get(0), after.get(1));
+    assertSame(before.get(1), after.get(2));
+  }
+
+  @Test
+  public void givenUnreadCountChange_whenIApplyChanges_thenIExpectOnlyThatRowReplaced() {
+    ConversationListModel model = unarchived(Arrays.asList(thread(1, 300, false), thread(2, 200, false), thread(3, 100, false)), 0);
+
+    List<Conversation> before = model.getSnapshot().getConversations();
+    List<ConversationListModel.Delta> deltas = model.applyChanges(Collections.singletonList(2L), listed(builder(2, 200, false).setUnreadCount(5).build()), 0);
+    List<Conversation> after  = model.getSnapshot().getConversations();
+
+    assertDeltas(deltas, ConversationListModel.Delta.Type.UPDATED);
+    assertThreadIds(after, 1, 2, 3);
+    assertSame(before.get(0), after.get(0));
+    assertNotSame(before.get(1), after.get(1));
+    assertSame(before.get(2), after.get(2));
+  }
+
+  @Test
+  public void givenUnchangedThread_whenIApplyChanges_thenIExpectNoDeltasAndTheSameSnapshot() {
+    ConversationListModel model = unarchived(Arrays.asList(thread(1, 300, false), thread(2, 200, false)), 0);
+
+    ConversationListModel.Snapshot before = model.getSnapshot();
+    List<ConversationListModel.Delta> deltas = model.applyChanges(Collections.singletonList(2L), listed(thread(2, 200, false)), 0);
+
+    assertTrue(deltas.isEmpty());
+    assertSame(before, model.getSnapshot());
+  }
+
+  @Test
+  public void givenNewAndDeletedThreads_whenIApplyChanges_thenIExpectInsertedAndRemoved() {
+    ConversationListModel model = unarchived(Arrays.asList(thread(1, 300, false), thread(2, 200, false)), 0);
+
+    List<ConversationListModel.Delta> deltas = model.applyChanges(Arrays.asList(2L, 3L), listed(thread(3, 250, false)), 0);
+
+    assertDeltas(deltas, ConversationListModel.Delta.Type.REMOVED, ConversationListModel.Delta.Type.INSERTED);
+    assertThreadIds(model.getSnapshot().getConversations(), 1, 3);
+  }
+
+  @Test
+  public void givenPinnedAndArchivedThreads_whenIApplyChanges_thenIExpectHeadersAndFooterToFollow() {
+    ConversationListModel model = unarchived(Arrays.asList(thread(1, 300, false), thread(2, 200, false)), 0);
+
+    model.applyChanges(Arrays.asList(1L, 2L), listed(builder(1, 300, false).setArchived(true).build(), thread(2, 200, true)), 1);
+
+    List<Conversation> conversations = model.getSnapshot().getConversations();
+
+    assertTypes(conversations, Conversation.Type.PINNED_HEADER, Conversation.Type.THREAD, Conversation.Type.ARCHIVED_FOOTER);
+    assertEquals(2, conversations.get(1).getThreadRecord().getThreadId());
+    assertEquals(1, model.getSnapshot().getArchivedCount());
+  }
+
+  @Test
+  public void givenArchivedList_whenIApplyChanges_thenIExpectUnarchivedThreadsRemoved() {
+    ConversationListModel model = new ConversationListModel(true);
+    model.setThreads(Arrays.asList(builder(1, 300, false).setArchived(true).build(), builder(2, 200, false).setArchived(true).build()), 0);
+
+    List<ConversationListModel.Delta> deltas = model.applyChanges(Collections.singletonList(1L), listed(thread(1, 400, false)), 0);
+
+    assertDeltas(deltas, ConversationListModel.Delta.Type.REMOVED);
+    assertThreadIds(model.getSnapshot().getConversations(), 2);
+  }
+
+  private static ConversationListModel unarchived(List<ThreadRecord> threads, int archivedCount) {
+    ConversationListModel model = new ConversationListModel(false);
+    model.setThreads(threads, archivedCount);
+    return model;
+  }
+
+  private static ThreadRecord thread(long threadId, long date, boolean pinned) {
+    return builder(threadId, date, pinned).build();
+  }
+
+  private static ThreadRecord.Builder builder(long threadId, long date, boolean pinned) {
+    return new ThreadRecord.Builder(threadId).setBody("body")
+                                             .setRecipient(Recipient.UNKNOWN)
+                                             .setDate(date)
+                                             .setPinned(pinned);
+  }
+
+  private static Map<Long, ThreadRecord> listed(ThreadRecord... threads) {
+    Map<Long, ThreadRecord> listed = new HashMap<>();
+
+    for (ThreadRecord thread : threads) {
+      listed.put(thread.getThreadId(), thread);
+    }
+
+    return listed;
+  }
+
+  private static void assertTypes(List<Conversation> conversations, Conversation.Type... types) {
+    List<Conversation.Type> actual = new ArrayList<>(conversations.size());
+
+    for (Conversation conversation : conversations) {
+      actual.add(conversation.getType());
+    }
+
+    assertEquals(Arrays.asList(types), actual);
+  }
+
+  private static void assertThreadIds(List<Conversation> conversations, long... threadIds) {
+    List<Long> expected = new ArrayList<>(threadIds.length);
+    List<Long> actual   = new ArrayList<>(conversations.size());
+
+    for (long threadId : threadIds) {
+      expected.add(threadId);
+    }
+
+    for (Conversation conversation : conversations) {
+      actual.add(conversation.getThreadRecord().getThreadId());
+    }
+
+    assertEquals(expected, actual);
+  }
+
+  private static void assertDeltas(List<ConversationListModel.Delta> deltas, ConversationListModel.Delta.Type... types) {
+    List<ConversationListModel.Delta.Type> actual = new ArrayList<>(deltas.size());
+
+    for (ConversationListModel.Delta delta : deltas) {
+      actual.add(delta.getType());
+    }
+
+    assertEquals(Arrays.asList(types), actual);
+  }
+}
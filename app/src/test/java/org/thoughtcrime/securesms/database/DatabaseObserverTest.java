@@ -0,0 +1,186 @@
+package org.thoughtcrime.securesms.database;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.thoughtcrime.securesms.database.DatabaseObserver.ATTACHMENTS;
+import static org.thoughtcrime.securesms.database.DatabaseObserver.CONVERSATION;
+import static org.thoughtcrime.securesms.database.DatabaseObserver.CONVERSATION_LIST;
+import static org.thoughtcrime.securesms.database.DatabaseObserver.CONVERSATION_VERBOSE;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, application = Application.class)
+public final class DatabaseObserverTest {
+
+  private boolean          writerLocked;
+  private DatabaseObserver observer;
+
+  @Before
+  public void setUp() {
+    ShadowLooper.pauseMainLooper();
+
+    writerLocked = false;
+    observer     = new DatabaseObserver(ApplicationProvider.getApplicationContext(),
+                                        new Handler(Looper.getMainLooper()),
+                                        () -> writerLocked);
+  }
+
+  @Test
+  public void changes_are_coalesced_into_one_delivery() {
+    RecordingObserver recorder = register(DatabaseObserver.Filter.conversationList());
+
+    observer.notifyConversation(1);
+    observer.notifyConversation(2);
+    observer.notifyConversation(1);
+    observer.notifyConversationList(1);
+    observer.notifyAttachments();
+
+    ShadowLooper.runUiThreadTasks();
+
+    assertEquals(1, recorder.changes.size());
+
+    DatabaseObserver.Changes changes = recorder.changes.get(0);
+
+    assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), changes.getThreadIds());
+    assertEquals(CONVERSATION | CONVERSATION_VERBOSE | CONVERSATION_LIST, changes.getFlags(1));
+    assertEquals(CONVERSATION | CONVERSATION_VERBOSE, changes.getFlags(2));
+    assertTrue(changes.hasUnscopedFlag(ATTACHMENTS));
+    assertFalse(changes.hasUnscopedFlag(CONVERSATION_LIST));
+  }
+
+  @Test
+  public void changes_after_a_delivery_are_delivered_separately() {
+    RecordingObserver recorder = register(DatabaseObserver.Filter.conversation(1));
+
+    observer.notifyConversation(1);
+    ShadowLooper.runUiThreadTasks();
+
+    observer.notifyConversation(1);
+    ShadowLooper.runUiThreadTasks();
+
+    assertEquals(2, recorder.changes.size());
+  }
+
+  @Test
+  public void observers_only_see_changes_matching_their_filter() {
+    RecordingObserver conversation        = register(DatabaseObserver.Filter.conversation(1));
+    RecordingObserver verboseConversation = register(DatabaseObserver.Filter.verboseConversation(1));
+    RecordingObserver conversationList    = register(DatabaseObserver.Filter.conversationList());
+    RecordingObserver attachments         = register(DatabaseObserver.Filter.attachments());
+
+    observer.notifyConversation(2);
+    ShadowLooper.runUiThreadTasks();
+
+    assertEquals(0, conversation.changes.size());
+    assertEquals(0, verboseConversation.changes.size());
+    assertEquals(0, conversationList.changes.size());
+    assertEquals(0, attachments.changes.size());
+
+    observer.notifyVerboseConversation(1);
+    ShadowLooper.runUiThreadTasks();
+
+    assertEquals(0, conversation.changes.size());
+    assertEquals(1, verboseConversation.changes.size());
+
+    observer.notifyConversationList();
+    ShadowLooper.runUiThreadTasks();
+
+    assertEquals(1, conversationList.changes.size());
+    assertEquals(0, attachments.changes.size());
+
+    observer.notifyAttachments();
+    ShadowLooper.runUiThreadTasks();
+
+    assertEquals(1, conversationList.changes.size());
+    assertEquals(1, attachments.changes.size());
+  }
+
+  @Test
+  public void unregistered_observers_are_not_told() {
+    RecordingObserver recorder = register(DatabaseObserver.Filter.attachments());
+
+    observer.unregisterObserver(recorder);
+    observer.notifyAttachments();
+    ShadowLooper.runUiThreadTasks();
+
+    assertEquals(0, recorder.changes.size());
+  }
+
+  @Test
+  public void delivery_waits_for_the_writer() {
+    RecordingObserver recorder = register(DatabaseObserver.Filter.conversation(1));
+
+    writerLocked = true;
+    observer.notifyConversation(1);
+
+    ShadowLooper.idleMainLooper(100, TimeUnit.MILLISECONDS);
+
+    assertEquals(0, recorder.changes.size());
+
+    writerLocked = false;
+    ShadowLooper.idleMainLooper(100, TimeUnit.MILLISECONDS);
+
+    assertEquals(1, recorder.changes.size());
+  }
+
+  @Test
+  public void delivery_waits_no_longer_than_the_bound_then_repeats_after_the_writer() {
+    RecordingObserver recorder = register(DatabaseObserver.Filter.conversation(1));
+
+    writerLocked = true;
+    observer.notifyConversation(1);
+
+    ShadowLooper.idleMainLooper(450, TimeUnit.MILLISECONDS);
+
+    assertEquals(0, recorder.changes.size());
+
+    ShadowLooper.idleMainLooper(100, TimeUnit.MILLISECONDS);
+
+    assertEquals(1, recorder.changes.size());
+
+    writerLocked = false;
+    ShadowLooper.idleMainLooper(100, TimeUnit.MILLISECONDS);
+
+    assertEquals(2, recorder.changes.size());
+    assertEquals(CONVERSATION | CONVERSATION_VERBOSE, recorder.changes.get(1).getFlags(1));
+
+    ShadowLooper.idleMainLooper(1000, TimeUnit.MILLISECONDS);
+
+    assertEquals(2, recorder.changes.size());
+  }
+
+  private @NonNull RecordingObserver register(@NonNull DatabaseObserver.Filter filter) {
+    RecordingObserver recorder = new RecordingObserver();
+    observer.registerObserver(filter, recorder);
+    return recorder;
+  }
+
+  private static final class RecordingObserver implements DatabaseObserver.Observer {
+    private final List<DatabaseObserver.Changes> changes = new ArrayList<>();
+
+    @Override
+    public void onChanged(@NonNull DatabaseObserver.Changes changes) {
+      this.changes.add(changes);
+    }
+  }
+}
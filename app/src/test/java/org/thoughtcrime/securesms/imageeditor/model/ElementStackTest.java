@@ -0,0 +1,240 @@
+package org.thoughtcrime.securesms.imageeditor.model;
+
+import android.app.Application;
+import android.graphics.Paint;
+import android.graphics.PointF;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.thoughtcrime.securesms.imageeditor.renderers.BezierDrawingRenderer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, application = Application.class)
+public final class ElementStackTest {
+
+  private static final int STROKES           = 200;
+  private static final int POINTS_PER_STROKE = 100;
+
+  @Test
+  public void pop_restores_each_pushed_state() {
+    Random        random = new Random(1);
+    EditorElement root   = new EditorElement(null);
+    ElementStack  stack  = new ElementStack(50);
+    List<byte[]>  pushed = new ArrayList<>();
+
+    for (int i = 0; i < 10; i++) {
+      stack.tryPush(root);
+      pushed.add(getBytes(root));
+      root.addElement(stroke(random));
+    }
+
+    for (int i = pushed.size() - 1; i >= 0; i--) {
+      EditorElement popped = stack.pop(root);
+
+      assertNotNull(popped);
+      assertArrayEquals(pushed.get(i), getBytes(popped));
+
+      root = popped;
+    }
+
+    assertNull(stack.pop(root));
+  }
+
+  @Test
+  public void tryPush_ignores_unchanged_state() {
+    EditorElement root  = new EditorElement(null);
+    ElementStack  stack = new ElementStack(50);
+
+    root.addElement(stroke(new Random(2)));
+
+    assertTrue(stack.tryPush(root));
+    assertFalse(stack.tryPush(root));
+    assertFalse(stack.stackContainsStateDifferentFrom(root));
+
+    root.getChild(0).getLocalMatrix().postTranslate(10, 10);
+
+    assertTrue(stack.stackContainsStateDifferentFrom(root));
+    assertTrue(stack.tryPush(root));
+    assertEquals(2, stack.size());
+  }
+
+  @Test
+  public void parcel_round_trip_keeps_states() {
+    Random        random = new Random(3);
+    EditorElement root   = new EditorElement(null);
+    ElementStack  stack  = new ElementStack(50);
+
+    for (int i = 0; i < 5; i++) {
+      root.addElement(stroke(random));
+      stack.tryPush(root);
+    }
+
+    byte[] expected = getBytes(stack.pop(new EditorElement(null)));
+
+    stack.tryPush(root);
+
+    Parcel parcel = Parcel.obtain();
+    try {
+      parcel.writeParcelable(stack, 0);
+      parcel.setDataPosition(0);
+
+      ElementStack restored = parcel.readParcelable(ElementStack.class.getClassLoader());
+
+      assertNotNull(restored);
+      assertEquals(stack.size(), restored.size());
+      assertEquals(stack.getRetainedSize(), restored.getRetainedSize());
+      assertArrayEquals(expected, getBytes(restored.pop(new EditorElement(null))));
+    } finally {
+      parcel.recycle();
+    }
+  }
+
+  @Test
+  public void unchanged_strokes_are_shared_between_pushes() {
+    Random        random        = new Random(4);
+    EditorElement root          = new EditorElement(null);
+    ElementStack  stack         = new ElementStack(STROKES + 1);
+    long          snapshotBytes = 0;
+    long          strokeBytes   = 0;
+
+    for (int i = 0; i < STROKES; i++) {
+      EditorElement stroke = stroke(random);
+
+      root.addElement(stroke);
+      assertTrue(stack.tryPush(root));
+
+      snapshotBytes += getBytes(root).length;
+      strokeBytes   += getBytes(stroke).length;
+    }
+
+    assertTrue(stack.getRetainedSize() < strokeBytes + getBytes(root).length);
+    assertTrue(stack.getRetainedSize() * 20 < snapshotBytes);
+
+    EditorElement current = new EditorElement(null);
+    EditorElement popped;
+    int           undos   = 0;
+
+    while ((popped = stack.pop(current)) != null) {
+      current = popped;
+      undos++;
+      assertEquals(STROKES - undos, current.getChildCount());
+    }
+
+    assertEquals(STROKES, undos);
+  }
+
+  @Test
+  public void deleting_a_stroke_keeps_later_strokes_shared() {
+    Random        random = new Random(5);
+    EditorElement root   = new EditorElement(null);
+    ElementStack  stack  = new ElementStack(50);
+
+    for (int i = 0; i < 10; i++) {
+      root.addElement(stroke(random));
+    }
+
+    byte[] expected = getBytes(root);
+
+    stack.tryPush(root);
+    long retainedSize = stack.getRetainedSize();
+
+    root.deleteChild(root.getChild(0), null);
+
+    assertTrue(stack.tryPush(root));
+    assertEquals(retainedSize, stack.getRetainedSize());
+    assertArrayEquals(expected, getBytes(stack.pop(root)));
+  }
+
+  @Test
+  public void moving_a_stroke_to_another_parent_shares_its_data() {
+    Random        random = new Random(6);
+    EditorElement root   = new EditorElement(null);
+    EditorElement group  = new EditorElement(null);
+    EditorElement stroke = stroke(random);
+    ElementStack  stack  = new ElementStack(50);
+
+    root.addElement(group);
+    root.addElement(stroke);
+    root.addElement(stroke(random));
+
+    byte[] expected = getBytes(root);
+
+    stack.tryPush(root);
+    long retainedSize = stack.getRetainedSize();
+
+    root.deleteChild(stroke, null);
+    group.addElement(stroke);
+
+    assertTrue(stack.tryPush(root));
+    assertEquals(retainedSize, stack.getRetainedSize());
+
+    EditorElement popped = stack.pop(root);
+
+    assertNotNull(popped);
+    assertArrayEquals(expected, getBytes(popped));
+    assertEquals(0, popped.getChild(0).getChildCount());
+  }
+
+  @Test
+  public void renderer_changes_are_detected() {
+    Random                random   = new Random(7);
+    EditorElement         root     = new EditorElement(null);
+    EditorElement         stroke   = stroke(random);
+    BezierDrawingRenderer renderer = (BezierDrawingRenderer) stroke.getRenderer();
+    ElementStack          stack    = new ElementStack(50);
+
+    root.addElement(stroke);
+
+    assertTrue(stack.tryPush(root));
+    assertFalse(stack.stackContainsStateDifferentFrom(root));
+
+    renderer.setColor(renderer.getColor() + 1);
+
+    assertTrue(stack.stackContainsStateDifferentFrom(root));
+    assertTrue(stack.tryPush(root));
+    assertFalse(stack.tryPush(root));
+
+    renderer.addNewPoint(new PointF(1, 1));
+
+    assertTrue(stack.stackContainsStateDifferentFrom(root));
+    assertTrue(stack.tryPush(root));
+    assertEquals(3, stack.size());
+  }
+
+  private static EditorElement stroke(Random random) {
+    BezierDrawingRenderer renderer = new BezierDrawingRenderer(random.nextInt(), 1 + random.nextFloat() * 10, Paint.Cap.ROUND, null);
+
+    renderer.setFirstPoint(new PointF(random.nextFloat() * 1000, random.nextFloat() * 1000));
+
+    for (int i = 0; i < POINTS_PER_STROKE; i++) {
+      renderer.addNewPoint(new PointF(random.nextFloat() * 1000, random.nextFloat() * 1000));
+    }
+
+    return new EditorElement(renderer);
+  }
+
+  private static byte[] getBytes(Parcelable parcelable) {
+    Parcel parcel = Parcel.obtain();
+    try {
+      parcel.writeParcelable(parcelable, 0);
+      return parcel.marshall();
+    } finally {
+      parcel.recycle();
+    }
+  }
+}
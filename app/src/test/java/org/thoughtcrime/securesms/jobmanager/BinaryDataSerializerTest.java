@@ -0,0 +1,88 @@
+package org.thoughtcrime.securesms.jobmanager;
+
+import org.junit.Test;
+import org.thoughtcrime.securesms.jobmanager.impl.JsonDataSerializer;
+import org.thoughtcrime.securesms.util.Util;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public final class BinaryDataSerializerTest {
+
+  private static final float FloatDelta = 0.00001f;
+
+  private final BinaryDataSerializer serializer = new BinaryDataSerializer();
+
+  @Test
+  public void serialize_roundTripsEveryType() {
+    Data data = new Data.Builder().putString("s1", "s1 value")
+                                  .putString("null", null)
+                                  .putString("unicode", "é中😀")
+                                  .putStringArray("s_array_1", new String[]{ "a", null, "c" })
+                                  .putInt("i1", Integer.MIN_VALUE)
+                                  .putIntArray("i_array_1", new int[]{ 1, 2, Integer.MAX_VALUE })
+                                  .putLong("l1", Long.MAX_VALUE)
+                                  .putLongArray("l_array_1", new long[]{ Long.MIN_VALUE, 0 })
+                                  .putFloat("f1", 1.2f)
+                                  .putFloatArray("f_array_1", new float[]{ 5.6f, 7.8f })
+                                  .putDouble("d1", 10.2)
+                                  .putDoubleArray("d_array_1", new double[]{ 50.6, 70.8 })
+                                  .putBoolean("b1", true)
+                                  .putBooleanArray("b_array_1", new boolean[]{ false, true })
+                                  .build();
+
+    Data result = serializer.deserialize(serializer.serialize(data));
+
+    assertEquals("s1 value", result.getString("s1"));
+    assertTrue(result.hasString("null"));
+    assertNull(result.getString("null"));
+    assertEquals("é中😀", result.getString("unicode"));
+    assertArrayEquals(new String[]{ "a", null, "c" }, result.getStringArray("s_array_1"));
+    assertEquals(Integer.MIN_VALUE, result.getInt("i1"));
+    assertArrayEquals(new int[]{ 1, 2, Integer.MAX_VALUE }, result.getIntegerArray("i_array_1"));
+    assertEquals(Long.MAX_VALUE, result.getLong("l1"));
+    assertArrayEquals(new long[]{ Long.MIN_VALUE, 0 }, result.getLongArray("l_array_1"));
+    assertEquals(1.2f, result.getFloat("f1"), FloatDelta);
+    assertArrayEquals(new float[]{ 5.6f, 7.8f }, result.getFloatArray("f_array_1"), FloatDelta);
+    assertEquals(10.2, result.getDouble("d1"), FloatDelta);
+    assertArrayEquals(new double[]{ 50.6, 70.8 }, result.getDoubleArray("d_array_1"), FloatDelta);
+    assertTrue(result.getBoolean("b1"));
+    assertArrayEquals(new boolean[]{ false, true }, result.getBooleanArray("b_array_1"));
+  }
+
+  @Test
+  public void serialize_emptyIsSmall() {
+    byte[] serialized = serializer.serialize(Data.EMPTY);
+
+    assertEquals(5, serialized.length);
+    assertFalse(serializer.deserialize(serialized).hasString("s1"));
+  }
+
+  @Test
+  public void deserialize_readsJson() throws IOException {
+    Data data = serializer.deserialize(Util.readFully(ClassLoader.getSystemClassLoader().getResourceAsStream("data/data_serialized.json")));
+
+    assertEquals("s1 value", data.getString("s1"));
+    assertEquals(Integer.MAX_VALUE, data.getInt("max"));
+    assertArrayEquals(new long[]{ 1, 2, 3, Long.MAX_VALUE, Long.MIN_VALUE }, data.getLongArray("l_array_1"));
+    assertArrayEquals(new boolean[]{ false, true }, data.getBooleanArray("b_array_1"));
+  }
+
+  @Test
+  public void deserialize_matchesJsonSerializer() throws IOException {
+    Data json   = new JsonDataSerializer().deserialize(Util.readFully(ClassLoader.getSystemClassLoader().getResourceAsStream("data/data_serialized.json")));
+    Data binary = serializer.deserialize(serializer.serialize(json));
+
+    assertEquals(json.getString("s2"), binary.getString("s2"));
+    assertArrayEquals(json.getStringArray("s_array_1"), binary.getStringArray("s_array_1"));
+    assertArrayEquals(json.getIntegerArray("i_array_1"), binary.getIntegerArray("i_array_1"));
+    assertEquals(json.getLong("min"), binary.getLong("min"));
+    assertArrayEquals(json.getDoubleArray("d_array_1"), binary.getDoubleArray("d_array_1"), FloatDelta);
+    assertEquals(json.getBoolean("b2"), binary.getBoolean("b2"));
+  }
+}
@@ -20,11 +20,14 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -32,7 +35,7 @@ import static org.mockito.Mockito.when;
 public class FastJobStorageTest {
 
   private static final JsonDataSerializer serializer = new JsonDataSerializer();
-  private static final String             EMPTY_DATA = serializer.serialize(Data.EMPTY);
+  private static final byte[]             EMPTY_DATA = serializer.serialize(Data.EMPTY);
 
   @Test
   public void init_allStoredDataAvailable() {
@@ -45,6 +48,44 @@ public class FastJobStorageTest {
     DataSet1.assertDependenciesMatch(subject.getAllDependencySpecs());
   }
 
+  @Test
+  public void init_doesNotReadSerializedData() {
+    JobDatabase    database = fixedDataDatabase(DataSet1.FULL_SPECS);
+    FastJobStorage subject  = new FastJobStorage(database, new DirectExecutor());
+
+    subject.init();
+
+    verify(database, never()).getAllJobSpecs();
+    verify(database, never()).getJobSpecs(any());
+  }
+
+  @Test
+  public void getPendingJobsWithNoDependenciesInCreatedOrder_readsSerializedDataOfResultsOnly() {
+    JobDatabase    database = fixedDataDatabase(DataSet1.FULL_SPECS);
+    FastJobStorage subject  = new FastJobStorage(database, new DirectExecutor());
+
+    subject.init();
+
+    List<JobSpec> jobs = subject.getPendingJobsWithNoDependenciesInCreatedOrder(10);
+
+    assertEquals(Collections.singletonList(DataSet1.JOB_1), jobs);
+    verify(database).getJobSpecs(Collections.singletonList(DataSet1.JOB_1.getId()));
+  }
+
+  @Test
+  public void getJobSpec_keepsInMemoryStateWhenReadingSerializedData() {
+    FastJobStorage subject = new FastJobStorage(fixedDataDatabase(DataSet1.FULL_SPECS), new DirectExecutor());
+
+    subject.init();
+    subject.updateJobRunningState(DataSet1.JOB_1.getId(), true);
+
+    JobSpec job = subject.getJobSpec(DataSet1.JOB_1.getId());
+
+    assertNotNull(job);
+    assertTrue(job.isRunning());
+    assertArrayEquals(EMPTY_DATA, job.getSerializedData());
+  }
+
   @Test
   public void insertJobs_writesToDatabase() {
     JobDatabase    database = noopDatabase();
@@ -152,8 +193,8 @@ public class FastJobStorageTest {
 
     FastJobStorage subject = new FastJobStorage(fixedDataDatabase(Arrays.asList(fullSpec1, fullSpec2, fullSpec3)), new DirectExecutor());
 
-    JobSpec update1 = new JobSpec("1", "g1", "q1", 2, 2, 2, 2, 2, 2, 2, "abc", null, true, false);
-    JobSpec update2 = new JobSpec("2", "g2", "q2", 3, 3, 3, 3, 3, 3, 3, "def", "ghi", true, false);
+    JobSpec update1 = new JobSpec("1", "g1", "q1", 2, 2, 2, 2, 2, 2, 2, "abc".getBytes(), null, true, false);
+    JobSpec update2 = new JobSpec("2", "g2", "q2", 3, 3, 3, 3, 3, 3, 3, "def".getBytes(), "ghi".getBytes(), true, false);
 
     subject.init();
     subject.updateJobs(Arrays.asList(update1, update2));
@@ -191,10 +232,12 @@ public class FastJobStorageTest {
     JobDatabase    database = fixedDataDatabase(DataSet1.FULL_SPECS);
     FastJobStorage subject  = new FastJobStorage(database, new DirectExecutor());
 
+    byte[] data = "a".getBytes();
+
     subject.init();
-    subject.updateJobAfterRetry("id1", true, 1, 10, "a");
+    subject.updateJobAfterRetry("id1", true, 1, 10, data);
 
-    verify(database).updateJobAfterRetry("id1", true, 1, 10, "a");
+    verify(database).updateJobAfterRetry("id1", true, 1, 10, data);
   }
 
   @Test
@@ -202,10 +245,12 @@ public class FastJobStorageTest {
     JobDatabase    database = fixedDataDatabase(DataSetMemory.FULL_SPECS);
     FastJobStorage subject  = new FastJobStorage(database, new DirectExecutor());
 
+    byte[] data = "a".getBytes();
+
     subject.init();
-    subject.updateJobAfterRetry("id1", true, 1, 10, "a");
+    subject.updateJobAfterRetry("id1", true, 1, 10, data);
 
-    verify(database, times(0)).updateJobAfterRetry("id1", true, 1, 10, "a");
+    verify(database, times(0)).updateJobAfterRetry("id1", true, 1, 10, data);
   }
 
   @Test
@@ -217,7 +262,7 @@ public class FastJobStorageTest {
     FastJobStorage subject = new FastJobStorage(fixedDataDatabase(Collections.singletonList(fullSpec)), new DirectExecutor());
 
     subject.init();
-    subject.updateJobAfterRetry("1", false, 1, 10, "a");
+    subject.updateJobAfterRetry("1", false, 1, 10, "a".getBytes());
 
     JobSpec job = subject.getJobSpec("1");
 
@@ -225,7 +270,7 @@ public class FastJobStorageTest {
     assertFalse(job.isRunning());
     assertEquals(1, job.getRunAttempt());
     assertEquals(10, job.getNextRunAttemptTime());
-    assertEquals("a", job.getSerializedData());
+    assertArrayEquals("a".getBytes(), job.getSerializedData());
   }
 
   @Test
@@ -538,6 +583,23 @@ public class FastJobStorageTest {
     assertEquals("id1", result.get(0).getId());
   }
 
+  private static JobSpec withoutData(@NonNull JobSpec jobSpec) {
+    return new JobSpec(jobSpec.getId(),
+                       jobSpec.getFactoryKey(),
+                       jobSpec.getQueueKey(),
+                       jobSpec.getCreateTime(),
+                       jobSpec.getNextRunAttemptTime(),
+                       jobSpec.getRunAttempt(),
+                       jobSpec.getMaxAttempts(),
+                       jobSpec.getMaxBackoff(),
+                       jobSpec.getLifespan(),
+                       jobSpec.getMaxInstances(),
+                       null,
+                       null,
+                       jobSpec.isRunning(),
+                       jobSpec.isMemoryOnly());
+  }
+
   private JobDatabase noopDatabase() {
     JobDatabase database = mock(JobDatabase.class);
 
@@ -552,6 +614,11 @@ public class FastJobStorageTest {
     JobDatabase database = mock(JobDatabase.class);
 
     when(database.getAllJobSpecs()).thenReturn(Stream.of(fullSpecs).map(FullSpec::getJobSpec).toList());
+    when(database.getAllJobSpecsWithoutData()).thenReturn(Stream.of(fullSpecs).map(FullSpec::getJobSpec).map(FastJobStorageTest::withoutData).toList());
+    when(database.getJobSpecs(any())).thenAnswer(invocation -> {
+      List<?> ids = (List<?>) invocation.getArguments()[0];
+      return Stream.of(fullSpecs).map(FullSpec::getJobSpec).filter(j -> ids.contains(j.getId())).toList();
+    });
     when(database.getAllConstraintSpecs()).thenReturn(Stream.of(fullSpecs).map(FullSpec::getConstraintSpecs).flatMap(Stream::of).toList());
     when(database.getAllDependencySpecs()).thenReturn(Stream.of(fullSpecs).map(FullSpec::getDependencySpecs).flatMap(Stream::of).toList());
 
@@ -0,0 +1,77 @@
+package org.thoughtcrime.securesms.linkpreview;
+
+import org.junit.Test;
+import org.thoughtcrime.securesms.linkpreview.LinkPreviewCache.Thumbnail;
+import org.whispersystems.libsignal.util.guava.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public final class LinkPreviewCacheTest {
+
+  private static final long TTL = 1000;
+
+  @Test
+  public void returns_entry_until_it_expires() {
+    LinkPreviewCache cache = new LinkPreviewCache(10, 1000, TTL);
+
+    cache.put("https://signal.org", "Signal", thumbnail(10), 0);
+
+    assertEquals("Signal", cache.get("https://signal.org", TTL - 1).getTitle());
+    assertNull(cache.get("https://signal.org", TTL));
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getThumbnailBytes());
+  }
+
+  @Test
+  public void evicts_least_recently_used_over_entry_limit() {
+    LinkPreviewCache cache = new LinkPreviewCache(2, 1000, TTL);
+
+    cache.put("a", "A", Optional.absent(), 0);
+    cache.put("b", "B", Optional.absent(), 0);
+    cache.get("a", 0);
+    cache.put("c", "C", Optional.absent(), 0);
+
+    assertNotNull(cache.get("a", 0));
+    assertNull(cache.get("b", 0));
+    assertNotNull(cache.get("c", 0));
+  }
+
+  @Test
+  public void evicts_over_thumbnail_byte_limit() {
+    LinkPreviewCache cache = new LinkPreviewCache(10, 1000, TTL);
+
+    for (int i = 0; i < 5; i++) {
+      cache.put("url" + i, "Title", thumbnail(250), 0);
+    }
+
+    assertEquals(4, cache.size());
+    assertEquals(1000, cache.getThumbnailBytes());
+    assertNull(cache.get("url0", 0));
+  }
+
+  @Test
+  public void does_not_cache_oversized_thumbnail() {
+    LinkPreviewCache cache = new LinkPreviewCache(10, 1000, TTL);
+
+    cache.put("url", "Title", thumbnail(251), 0);
+
+    assertNull(cache.get("url", 0));
+  }
+
+  @Test
+  public void replacing_entry_keeps_byte_count() {
+    LinkPreviewCache cache = new LinkPreviewCache(10, 1000, TTL);
+
+    cache.put("url", "Old", thumbnail(100), 0);
+    cache.put("url", "New", thumbnail(50), 0);
+
+    assertEquals("New", cache.get("url", 0).getTitle());
+    assertEquals(50, cache.getThumbnailBytes());
+  }
+
+  private static Optional<Thumbnail> thumbnail(int size) {
+    return Optional.of(new Thumbnail(new byte[size], "image/jpeg", 1, 1));
+  }
+}
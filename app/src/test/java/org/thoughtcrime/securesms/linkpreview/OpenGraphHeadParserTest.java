@@ -0,0 +1,92 @@
+package org.thoughtcrime.securesms.linkpreview;
+
+import org.junit.Test;
+import org.thoughtcrime.securesms.linkpreview.LinkPreviewUtil.OpenGraph;
+import org.whispersystems.libsignal.util.guava.Optional;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class OpenGraphHeadParserTest {
+
+  private static final String HEAD = "<!DOCTYPE html>\n" +
+                                     "<html>\n" +
+                                     "<head>\n" +
+                                     "<meta property=\"og:title\" content=\"Daily Bugle\">\n" +
+                                     "<meta property=\"og:image\" content=\"https://images.com/my-image.jpg\">\n" +
+                                     "</head>\n";
+
+  @Test
+  public void stops_reading_at_end_of_head() throws IOException {
+    StringBuilder body = new StringBuilder("<body>");
+    for (int i = 0; i < 10_000; i++) {
+      body.append("<p>filler</p>");
+    }
+    body.append("<meta property=\"og:title\" content=\"In the body\"></body></html>");
+
+    CountingReader reader    = new CountingReader(HEAD + body);
+    OpenGraph      openGraph = parse(reader, Long.MAX_VALUE);
+
+    assertEquals(Optional.of("Daily Bugle"), openGraph.getTitle());
+    assertEquals(Optional.of("https://images.com/my-image.jpg"), openGraph.getImageUrl());
+    assertTrue(reader.read < HEAD.length() + body.length() / 2);
+  }
+
+  @Test
+  public void stops_reading_at_limit() throws IOException {
+    String    html      = "<title>Page</title>" + HEAD;
+    OpenGraph openGraph = parse(new StringReader(html), html.indexOf("<meta"));
+
+    assertEquals(Optional.of("Page"), openGraph.getTitle());
+    assertEquals(Optional.absent(), openGraph.getImageUrl());
+  }
+
+  @Test
+  public void ignores_comments_and_scripts() throws IOException {
+    String html = "<!-- <meta property=\"og:title\" content=\"Commented\"> -->\n" +
+                  "<script>var s = '<meta property=\"og:title\" content=\"Scripted\">';</script>\n" +
+                  "<meta property=\"og:title\" content=\"Daily Bugle\">";
+
+    assertEquals(Optional.of("Daily Bugle"), parse(new StringReader(html), Long.MAX_VALUE).getTitle());
+  }
+
+  @Test
+  public void reads_single_quoted_and_unquoted_attributes() throws IOException {
+    String    html      = "<META Property='og:title' content='Say \"hi\" > bye'>\n" +
+                          "<link rel=icon href=https://images.com/favicon.png>";
+    OpenGraph openGraph = parse(new StringReader(html), Long.MAX_VALUE);
+
+    assertEquals(Optional.of("Say \"hi\" > bye"), openGraph.getTitle());
+    assertEquals(Optional.of("https://images.com/favicon.png"), openGraph.getImageUrl());
+  }
+
+  @Test
+  public void reads_multiline_title() throws IOException {
+    String html = "<title>\n  Daily\n  Bugle\n</title>";
+
+    assertEquals(Optional.of("Daily\n  Bugle"), parse(new StringReader(html), Long.MAX_VALUE).getTitle());
+  }
+
+  private static OpenGraph parse(Reader reader, long maxChars) throws IOException {
+    return new OpenGraphHeadParser(reader, maxChars, html -> html).parse();
+  }
+
+  private static final class CountingReader extends StringReader {
+    private long read;
+
+    CountingReader(String s) {
+      super(s);
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+      int count = super.read(buffer, offset, length);
+      if (count > 0) read += count;
+      return count;
+    }
+  }
+}
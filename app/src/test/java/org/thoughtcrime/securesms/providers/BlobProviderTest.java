@@ -0,0 +1,214 @@
+package org.thoughtcrime.securesms.providers;
+
+import android.app.Application;
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.rule.PowerMockRule;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.thoughtcrime.securesms.dependencies.ApplicationDependencies;
+import org.thoughtcrime.securesms.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+/**
+ * Runs on API 21 so the attachment secret is kept in preferences rather than the KeyStore.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, application = Application.class, sdk = 21)
+@PowerMockIgnore({ "org.mockito.*", "org.robolectric.*", "android.*", "androidx.*" })
+@PrepareForTest(ApplicationDependencies.class)
+public final class BlobProviderTest {
+
+  private static final int  BLOB_SIZE        = 100;
+  private static final long MAX_MEMORY_BYTES = 250;
+
+  @Rule
+  public PowerMockRule powerMockRule = new PowerMockRule();
+
+  private Context        context;
+  private QueuedExecutor spillExecutor;
+  private BlobProvider   blobProvider;
+
+  @Before
+  public void setUp() {
+    context       = ApplicationProvider.getApplicationContext();
+    spillExecutor = new QueuedExecutor();
+    blobProvider  = new BlobProvider(MAX_MEMORY_BYTES, spillExecutor);
+
+    mockStatic(ApplicationDependencies.class);
+    when(ApplicationDependencies.getApplication()).thenReturn((Application) context);
+  }
+
+  @Test
+  public void blobs_within_budget_stay_in_memory() {
+    createSingleSessionBlob(1);
+    createSingleSessionBlob(2);
+
+    assertEquals(2 * BLOB_SIZE, blobProvider.getMemoryBytes());
+    assertEquals(0, spillExecutor.size());
+  }
+
+  @Test
+  public void blob_over_budget_is_spilled_and_leaves_memory() throws IOException {
+    createSingleSessionBlob(1);
+    createSingleSessionBlob(2);
+    Uri uri = createSingleSessionBlob(3);
+
+    assertEquals(3 * BLOB_SIZE, blobProvider.getMemoryBytes());
+    assertEquals(1, spillExecutor.size());
+    assertArrayEquals(data(3), read(uri));
+
+    spillExecutor.runAll();
+
+    assertEquals(2 * BLOB_SIZE, blobProvider.getMemoryBytes());
+    assertTrue(spilledFile(uri).exists());
+    assertArrayEquals(data(3), read(uri));
+    assertArrayEquals(data(3), read(uri));
+  }
+
+  @Test
+  public void single_use_reads_release_their_budget() throws IOException {
+    Uri first  = createSingleUseBlob(1);
+    Uri second = createSingleUseBlob(2);
+
+    read(first);
+
+    assertEquals(BLOB_SIZE, blobProvider.getMemoryBytes());
+
+    read(second);
+
+    assertEquals(0, blobProvider.getMemoryBytes());
+  }
+
+  @Test
+  public void deleting_a_spilled_blob_removes_its_file() {
+    Uri uri = fillBudgetThenCreate(false);
+
+    spillExecutor.runAll();
+    blobProvider.delete(context, uri);
+
+    assertFalse(spilledFile(uri).exists());
+    assertEquals(2 * BLOB_SIZE, blobProvider.getMemoryBytes());
+  }
+
+  @Test
+  public void deleting_during_a_spill_leaves_no_file() {
+    Uri uri = fillBudgetThenCreate(false);
+
+    blobProvider.delete(context, uri);
+    spillExecutor.runAll();
+
+    assertFalse(spilledFile(uri).exists());
+    assertEquals(2 * BLOB_SIZE, blobProvider.getMemoryBytes());
+  }
+
+  @Test
+  public void consuming_during_a_spill_leaves_no_file() throws IOException {
+    Uri uri = fillBudgetThenCreate(true);
+
+    assertArrayEquals(data(3), read(uri));
+
+    spillExecutor.runAll();
+
+    assertFalse(spilledFile(uri).exists());
+    assertEquals(2 * BLOB_SIZE, blobProvider.getMemoryBytes());
+  }
+
+  @Test
+  public void consuming_a_spilled_blob_removes_its_file() throws IOException {
+    Uri uri = fillBudgetThenCreate(true);
+
+    spillExecutor.runAll();
+
+    assertTrue(spilledFile(uri).exists());
+    assertArrayEquals(data(3), read(uri));
+    assertFalse(spilledFile(uri).exists());
+  }
+
+  @Test(expected = IOException.class)
+  public void consumed_spilled_blob_cannot_be_read_again() throws IOException {
+    Uri uri = fillBudgetThenCreate(true);
+
+    spillExecutor.runAll();
+    read(uri);
+    read(uri);
+  }
+
+  private @NonNull Uri fillBudgetThenCreate(boolean singleUse) {
+    createSingleSessionBlob(1);
+    createSingleSessionBlob(2);
+
+    return singleUse ? createSingleUseBlob(3) : createSingleSessionBlob(3);
+  }
+
+  private @NonNull Uri createSingleSessionBlob(int seed) {
+    return blobProvider.forData(data(seed)).withMimeType("application/octet-stream").createForSingleSessionInMemory();
+  }
+
+  private @NonNull Uri createSingleUseBlob(int seed) {
+    return blobProvider.forData(data(seed)).withMimeType("application/octet-stream").createForSingleUseInMemory();
+  }
+
+  private @NonNull byte[] read(@NonNull Uri uri) throws IOException {
+    try (InputStream stream = blobProvider.getStream(context, uri)) {
+      return Util.readFully(stream);
+    }
+  }
+
+  private @NonNull File spilledFile(@NonNull Uri uri) {
+    return BlobProvider.getSpilledFile(context, uri);
+  }
+
+  private static @NonNull byte[] data(int seed) {
+    byte[] data = new byte[BLOB_SIZE];
+
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (seed * 31 + i);
+    }
+
+    return data;
+  }
+
+  private static final class QueuedExecutor implements Executor {
+
+    private final Queue<Runnable> tasks = new LinkedList<>();
+
+    @Override
+    public void execute(@NonNull Runnable task) {
+      tasks.add(task);
+    }
+
+    int size() {
+      return tasks.size();
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        tasks.remove().run();
+      }
+    }
+  }
+}
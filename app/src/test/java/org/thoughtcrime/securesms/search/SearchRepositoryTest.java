@@ -0,0 +1,276 @@
+package org.thoughtcrime.securesms.search;
+
+import android.app.Application;
+import android.content.Context;
+import android.database.MatrixCursor;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.rule.PowerMockRule;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.thoughtcrime.securesms.contacts.ContactAccessor;
+import org.thoughtcrime.securesms.contacts.ContactRepository;
+import org.thoughtcrime.securesms.conversationlist.model.MessageResult;
+import org.thoughtcrime.securesms.conversationlist.model.SearchResult;
+import org.thoughtcrime.securesms.database.MentionDatabase;
+import org.thoughtcrime.securesms.database.MmsDatabase;
+import org.thoughtcrime.securesms.database.MmsSmsColumns;
+import org.thoughtcrime.securesms.database.RecipientDatabase;
+import org.thoughtcrime.securesms.database.SearchDatabase;
+import org.thoughtcrime.securesms.database.ThreadDatabase;
+import org.thoughtcrime.securesms.database.model.Mention;
+import org.thoughtcrime.securesms.database.model.MessageRecord;
+import org.thoughtcrime.securesms.recipients.LiveRecipient;
+import org.thoughtcrime.securesms.recipients.Recipient;
+import org.thoughtcrime.securesms.recipients.RecipientId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, application = Application.class)
+@PowerMockIgnore({ "org.mockito.*", "org.robolectric.*", "android.*", "androidx.*" })
+@PrepareForTest({ Recipient.class, LiveRecipient.class })
+public final class SearchRepositoryTest {
+
+  private static final int PAGE_SIZE = 50;
+
+  private static final String[] COLUMNS = new String[] { SearchDatabase.CONVERSATION_RECIPIENT,
+                                                         SearchDatabase.MESSAGE_RECIPIENT,
+                                                         SearchDatabase.BODY,
+                                                         SearchDatabase.SNIPPET,
+                                                         MmsSmsColumns.NORMALIZED_DATE_RECEIVED,
+                                                         MmsSmsColumns.THREAD_ID,
+                                                         SearchDatabase.MESSAGE_ID,
+                                                         SearchDatabase.IS_MMS };
+
+  @Rule
+  public PowerMockRule powerMockRule = new PowerMockRule();
+
+  private SearchDatabase    searchDatabase;
+  private ThreadDatabase    threadDatabase;
+  private RecipientDatabase recipientDatabase;
+  private MentionDatabase   mentionDatabase;
+  private MmsDatabase       mmsDatabase;
+  private QueuedExecutor    serialExecutor;
+  private SearchRepository  repository;
+  private Recipient         recipient;
+
+  @Before
+  public void setUp() {
+    Context context = ApplicationProvider.getApplicationContext();
+
+    searchDatabase    = mock(SearchDatabase.class);
+    threadDatabase    = mock(ThreadDatabase.class);
+    recipientDatabase = mock(RecipientDatabase.class);
+    mentionDatabase   = mock(MentionDatabase.class);
+    mmsDatabase       = mock(MmsDatabase.class);
+    serialExecutor    = new QueuedExecutor();
+    recipient         = mock(Recipient.class);
+
+    LiveRecipient liveRecipient = mock(LiveRecipient.class);
+
+    mockStatic(Recipient.class);
+    when(Recipient.live(any())).thenReturn(liveRecipient);
+    when(Recipient.resolved(any())).thenReturn(recipient);
+    when(liveRecipient.get()).thenReturn(recipient);
+    when(recipient.getId()).thenReturn(RecipientId.from(10));
+    when(recipient.getMentionDisplayName(any())).thenReturn("Alice");
+    when(threadDatabase.getRecipientForThreadId(anyLong())).thenReturn(recipient);
+
+    repository = new SearchRepository(context,
+                                      searchDatabase,
+                                      threadDatabase,
+                                      recipientDatabase,
+                                      mentionDatabase,
+                                      mmsDatabase,
+                                      mock(ContactRepository.class),
+                                      mock(ContactAccessor.class),
+                                      serialExecutor,
+                                      MoreExecutors.newDirectExecutorService());
+  }
+
+  @Test
+  public void first_page_is_loaded_and_more_messages_appends_the_rest() {
+    when(searchDatabase.queryMessagesByRank("hello", PAGE_SIZE, 0)).thenReturn(messages(new MatrixCursor(COLUMNS), 1, 50, false));
+    when(searchDatabase.queryMessagesByRank("hello", PAGE_SIZE, 50)).thenReturn(messages(new MatrixCursor(COLUMNS), 51, 60, false));
+
+    List<SearchResult> results = new ArrayList<>();
+
+    repository.query("hello", results::add);
+    serialExecutor.runAll();
+
+    assertEquals(1, results.size());
+    assertEquals(50, results.get(0).getMessages().size());
+    assertTrue(results.get(0).hasMoreMessages());
+
+    repository.queryMoreMessages(results.get(0), results::add);
+    serialExecutor.runAll();
+
+    assertEquals(2, results.size());
+    assertEquals(60, results.get(1).getMessages().size());
+    assertFalse(results.get(1).hasMoreMessages());
+    assertEquals(60, results.get(1).getMessages().get(59).messageId);
+
+    repository.queryMoreMessages(results.get(1), results::add);
+    serialExecutor.runAll();
+
+    assertEquals(2, results.size());
+  }
+
+  @Test
+  public void more_messages_for_an_older_query_are_ignored() {
+    when(searchDatabase.queryMessagesByRank(anyString(), eq(PAGE_SIZE), anyInt())).thenAnswer(i -> messages(new MatrixCursor(COLUMNS), 1, 50, false));
+
+    List<SearchResult> results = new ArrayList<>();
+
+    repository.query("hello", results::add);
+    serialExecutor.runAll();
+    repository.query("goodbye", results::add);
+    serialExecutor.runAll();
+
+    repository.queryMoreMessages(results.get(0), results::add);
+    serialExecutor.runAll();
+
+    assertEquals(2, results.size());
+  }
+
+  @Test
+  public void mention_matches_are_listed_once_ahead_of_text_matches() {
+    MessageRecord      mentionRecord = mock(MessageRecord.class);
+    MmsDatabase.Reader reader        = mock(MmsDatabase.Reader.class);
+
+    when(mentionRecord.getId()).thenReturn(5L);
+    when(mentionRecord.getThreadId()).thenReturn(1L);
+    when(mentionRecord.getBody()).thenReturn("\uFFFC hi");
+    when(mentionRecord.getRecipient()).thenReturn(recipient);
+    when(mentionRecord.getDateReceived()).thenReturn(100L);
+    when(reader.getNext()).thenReturn(mentionRecord, (MessageRecord) null);
+
+    when(recipientDatabase.queryRecipientsForMentions("alice")).thenReturn(Collections.singletonList(recipient));
+    when(mentionDatabase.getMentionsContainingRecipients(any(), eq(500L))).thenReturn(Collections.singletonMap(5L, Collections.singletonList(new Mention(RecipientId.from(10), 0, 1))));
+    when(mmsDatabase.getMessages(any())).thenReturn(reader);
+
+    MatrixCursor page = new MatrixCursor(COLUMNS);
+    addMessage(page, 5, true);
+    addMessage(page, 5, false);
+    addMessage(page, 6, true);
+    when(searchDatabase.queryMessagesByRank("alice", PAGE_SIZE, 0)).thenReturn(wrap(page));
+
+    List<SearchResult> results = new ArrayList<>();
+
+    repository.query("alice", results::add);
+    serialExecutor.runAll();
+
+    List<MessageResult> messages = results.get(0).getMessages();
+
+    assertEquals(3, messages.size());
+    assertTrue(messages.get(0).isMms);
+    assertEquals(5, messages.get(0).messageId);
+    assertEquals("@Alice hi", messages.get(0).body);
+    assertFalse(messages.get(1).isMms);
+    assertEquals(5, messages.get(1).messageId);
+    assertTrue(messages.get(2).isMms);
+    assertEquals(6, messages.get(2).messageId);
+  }
+
+  @Test
+  public void query_superseded_before_it_runs_never_calls_back() {
+    when(searchDatabase.queryMessagesByRank(anyString(), eq(PAGE_SIZE), anyInt())).thenAnswer(i -> messages(new MatrixCursor(COLUMNS), 1, 1, false));
+
+    List<SearchResult> first  = new ArrayList<>();
+    List<SearchResult> second = new ArrayList<>();
+
+    repository.query("hello", first::add);
+    repository.query("hello again", second::add);
+    serialExecutor.runAll();
+
+    assertEquals(0, first.size());
+    assertEquals(1, second.size());
+    assertEquals("hello again", second.get(0).getQuery());
+  }
+
+  @Test
+  public void query_superseded_while_reading_never_calls_back() {
+    List<SearchResult> first  = new ArrayList<>();
+    List<SearchResult> second = new ArrayList<>();
+
+    MatrixCursor supersedingPage = new MatrixCursor(COLUMNS) {
+      @Override
+      public boolean moveToNext() {
+        if (getPosition() == 1) {
+          repository.query("goodbye", second::add);
+        }
+        return super.moveToNext();
+      }
+    };
+
+    when(searchDatabase.queryMessagesByRank("hello", PAGE_SIZE, 0)).thenReturn(messages(supersedingPage, 1, 50, false));
+    when(searchDatabase.queryMessagesByRank("goodbye", PAGE_SIZE, 0)).thenReturn(messages(new MatrixCursor(COLUMNS), 1, 1, false));
+
+    repository.query("hello", first::add);
+    serialExecutor.runAll();
+
+    assertEquals(0, first.size());
+    assertEquals(1, second.size());
+    assertEquals("goodbye", second.get(0).getQuery());
+  }
+
+  private static @NonNull net.sqlcipher.Cursor messages(@NonNull MatrixCursor cursor, int firstId, int lastId, boolean isMms) {
+    for (int id = firstId; id <= lastId; id++) {
+      addMessage(cursor, id, isMms);
+    }
+    return wrap(cursor);
+  }
+
+  private static void addMessage(@NonNull MatrixCursor cursor, long id, boolean isMms) {
+    cursor.addRow(new Object[] { 10, 10, "body " + id, "body " + id, 1000 - id, 1, id, isMms ? 1 : 0 });
+  }
+
+  private static @NonNull net.sqlcipher.Cursor wrap(@NonNull MatrixCursor cursor) {
+    return mock(net.sqlcipher.Cursor.class, delegatesTo(cursor));
+  }
+
+  private static final class QueuedExecutor implements Executor {
+
+    private final Queue<Runnable> tasks = new LinkedList<>();
+
+    @Override
+    public void execute(@NonNull Runnable task) {
+      tasks.add(task);
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        tasks.remove().run();
+      }
+    }
+  }
+}
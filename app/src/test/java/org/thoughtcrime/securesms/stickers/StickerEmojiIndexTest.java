@@ -0,0 +1,63 @@
+package org.thoughtcrime.securesms.stickers;
+
+import org.junit.Test;
+import org.thoughtcrime.securesms.database.model.StickerRecord;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public final class StickerEmojiIndexTest {
+
+  private static final String THUMBS_UP       = "\ud83d\udc4d";
+  private static final String THUMBS_UP_LIGHT = "\ud83d\udc4d\ud83c\udffb";
+  private static final String BLOND           = "\ud83d\udc71";
+  private static final String BLOND_MAN       = "\ud83d\udc71\u200d\u2642\ufe0f";
+  private static final String HEART           = "\u2764\ufe0f";
+
+  private static final StickerRecord STICKER_1 = sticker(1, THUMBS_UP);
+  private static final StickerRecord STICKER_2 = sticker(2, HEART + THUMBS_UP);
+  private static final StickerRecord STICKER_3 = sticker(3, BLOND_MAN);
+  private static final StickerRecord STICKER_4 = sticker(4, HEART);
+  private static final StickerRecord STICKER_5 = sticker(5, THUMBS_UP);
+
+  private final StickerEmojiIndex index = new StickerEmojiIndex(Arrays.asList(STICKER_1, STICKER_2, STICKER_3, STICKER_4, STICKER_5));
+
+  @Test
+  public void finds_stickers_tagged_with_emoji_in_insertion_order() {
+    assertEquals(Arrays.asList(STICKER_1, STICKER_2, STICKER_5), index.search(THUMBS_UP));
+    assertEquals(Arrays.asList(STICKER_2, STICKER_4), index.search(HEART));
+  }
+
+  @Test
+  public void skin_tone_variation_finds_default_tag() {
+    assertEquals(Arrays.asList(STICKER_1, STICKER_2, STICKER_5), index.search(THUMBS_UP_LIGHT));
+  }
+
+  @Test
+  public void obsolete_representation_finds_current_tag() {
+    assertEquals(Collections.singletonList(STICKER_3), index.search(BLOND));
+  }
+
+  @Test
+  public void no_match_is_empty() {
+    assertTrue(index.search("hello").isEmpty());
+    assertTrue(new StickerEmojiIndex(Collections.emptyList()).search(THUMBS_UP).isEmpty());
+  }
+
+  @Test
+  public void repeated_search_is_memoized() {
+    List<StickerRecord> first = index.search(THUMBS_UP);
+
+    assertSame(first, index.search(THUMBS_UP));
+    assertSame(first, index.search(THUMBS_UP_LIGHT));
+  }
+
+  private static StickerRecord sticker(long rowId, String emoji) {
+    return new StickerRecord(rowId, "pack", "key", (int) rowId, emoji, 100, false);
+  }
+}
@@ -10,6 +10,7 @@ import org.robolectric.annotation.Config;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE, application = Application.class)
@@ -90,4 +91,31 @@ public final class SqlUtilTest {
     assertEquals("(_id = ?) AND (a NOT NULL OR b != ? OR b IS NULL OR c != ? OR c IS NULL OR d NOT NULL OR e NOT NULL)", updateQuery.getWhere());
     assertArrayEquals(new String[] { "1", "2", "3" }, updateQuery.getWhereArgs());
   }
+
+  @Test
+  public void buildPrefixMatchQuery_singleWord() {
+    assertEquals("\"jo\"*", SqlUtil.buildPrefixMatchQuery("jo"));
+  }
+
+  @Test
+  public void buildPrefixMatchQuery_multipleWords() {
+    assertEquals("\"jo\"* \"sm\"*", SqlUtil.buildPrefixMatchQuery("  jo   sm "));
+  }
+
+  @Test
+  public void buildPrefixMatchQuery_escapesQuotes() {
+    assertEquals("\"say\"\"hi\"*", SqlUtil.buildPrefixMatchQuery("say\"hi"));
+  }
+
+  @Test
+  public void buildPrefixMatchQuery_dropsWordsWithoutLettersOrDigits() {
+    assertEquals("\"jo\"*", SqlUtil.buildPrefixMatchQuery("jo + ..."));
+  }
+
+  @Test
+  public void buildPrefixMatchQuery_nothingToMatch() {
+    assertNull(SqlUtil.buildPrefixMatchQuery(""));
+    assertNull(SqlUtil.buildPrefixMatchQuery("  "));
+    assertNull(SqlUtil.buildPrefixMatchQuery("+ -"));
+  }
 }
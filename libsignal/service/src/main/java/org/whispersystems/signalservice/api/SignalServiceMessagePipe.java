@@ -162,7 +162,7 @@ public class SignalServiceMessagePipe {
             }
           }
 
-          SignalServiceEnvelope envelope = new SignalServiceEnvelope(request.getBody().toByteArray(),
+          SignalServiceEnvelope envelope = new SignalServiceEnvelope(request.getBody(),
                                                                      credentialsProvider.get().getSignalingKey(),
                                                                      signalKeyEncrypted,
                                                                      timestamp);
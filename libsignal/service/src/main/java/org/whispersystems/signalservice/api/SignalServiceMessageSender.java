@@ -95,7 +95,11 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -116,6 +120,9 @@ public class SignalServiceMessageSender {
 
   private static final int RETRY_COUNT = 4;
 
+  /** Maximum number of concurrent prekey fetches when establishing sessions ahead of a multi-recipient send */
+  private static final int PREKEY_PREFETCH_PARALLELISM = 8;
+
   private final PushServiceSocket                                   socket;
   private final SignalProtocolStore                                 store;
   private final SignalServiceAddress                                localAddress;
@@ -1254,15 +1261,26 @@ public class SignalServiceMessageSender {
                                               CancelationSignal                  cancelationSignal)
       throws IOException
   {
-    long                                   startTime                  = System.currentTimeMillis();
+    long                                 startTime        = System.currentTimeMillis();
+    Map<SignalServiceAddress, Exception> prefetchFailures = new ConcurrentHashMap<>();
+    int                                  sessionsCreated  = prefetchMissingSessions(recipients, unidentifiedAccess, prefetchFailures, cancelationSignal);
+    long                                 sendStartTime    = System.currentTimeMillis();
+
     List<Future<SendMessageResult>>        futureResults              = new LinkedList<>();
     Iterator<SignalServiceAddress>         recipientIterator          = recipients.iterator();
     Iterator<Optional<UnidentifiedAccess>> unidentifiedAccessIterator = unidentifiedAccess.iterator();
 
     while (recipientIterator.hasNext()) {
-      SignalServiceAddress         recipient = recipientIterator.next();
-      Optional<UnidentifiedAccess> access    = unidentifiedAccessIterator.next();
-      futureResults.add(executor.submit(() -> sendMessage(recipient, access, timestamp, content, online, cancelationSignal)));
+      SignalServiceAddress         recipient       = recipientIterator.next();
+      Optional<UnidentifiedAccess> access          = unidentifiedAccessIterator.next();
+      Exception                    prefetchFailure = prefetchFailures.get(recipient);
+
+      futureResults.add(executor.submit(() -> {
+        if (prefetchFailure != null) {
+          throw prefetchFailure;
+        }
+        return sendMessage(recipient, access, timestamp, content, online, cancelationSignal);
+      }));
     }
 
     List<SendMessageResult> results = new ArrayList<>(futureResults.size());
@@ -1282,6 +1300,9 @@ public class SignalServiceMessageSender {
         } else if (e.getCause() instanceof PushNetworkException) {
           Log.w(TAG, e);
           results.add(SendMessageResult.networkFailure(recipient));
+        } else if (e.getCause() == prefetchFailures.get(recipient)) {
+          Log.w(TAG, "Failed to fetch prekeys, reporting as a network failure.", e);
+          results.add(SendMessageResult.networkFailure(recipient));
         } else {
           throw new IOException(e);
         }
@@ -1290,10 +1311,117 @@ public class SignalServiceMessageSender {
       }
     }
 
-    Log.d(TAG, "Completed send to " + recipients.size() + " recipients in " + (System.currentTimeMillis() - startTime) + " ms");
+    long endTime = System.currentTimeMillis();
+    Log.d(TAG, "Completed send to " + recipients.size() + " recipients in " + (endTime - startTime) + " ms" +
+               " (prekey prefetch: " + (sendStartTime - startTime) + " ms for " + sessionsCreated + " new session(s), encrypt and send: " + (endTime - sendStartTime) + " ms)");
     return results;
   }
 
+  /**
+   * Finds every recipient we do not yet have a session with and fetches their prekey bundles
+   * concurrently, with at most {@link #PREKEY_PREFETCH_PARALLELISM} requests in flight, building the
+   * sessions before any message is encrypted.
+   *
+   * Failures are recorded in {@param failures} and reported as that recipient's send result. The
+   * fetch is not repeated in {@link #getEncryptedMessage}, as a second fetch could claim another
+   * one-time prekey. The exception is a sealed fetch rejected for its unidentified access, which is
+   * retried once unsealed, as {@link #sendMessage(SignalServiceAddress, Optional, long, byte[], boolean, CancelationSignal)}
+   * would have done.
+   *
+   * @return The number of recipients a session was created for.
+   */
+  private int prefetchMissingSessions(List<SignalServiceAddress>           recipients,
+                                      List<Optional<UnidentifiedAccess>>   unidentifiedAccess,
+                                      Map<SignalServiceAddress, Exception> failures,
+                                      CancelationSignal                    cancelationSignal)
+      throws IOException
+  {
+    Queue<PrefetchTarget>          targets           = new ConcurrentLinkedQueue<>();
+    Iterator<SignalServiceAddress> recipientIterator = recipients.iterator();
+
+    for (Optional<UnidentifiedAccess> access : unidentifiedAccess) {
+      SignalServiceAddress recipient = recipientIterator.next();
+
+      if ((!recipient.matches(localAddress) || access.isPresent()) &&
+          !store.containsSession(new SignalProtocolAddress(recipient.getIdentifier(), SignalServiceAddress.DEFAULT_DEVICE_ID)))
+      {
+        targets.add(new PrefetchTarget(recipient, access));
+      }
+    }
+
+    if (targets.isEmpty()) {
+      return 0;
+    }
+
+    int                   workerCount = Math.min(PREKEY_PREFETCH_PARALLELISM, targets.size());
+    List<Future<Integer>> workers     = new ArrayList<>(workerCount);
+
+    Log.d(TAG, "[prefetchMissingSessions] Fetching prekeys for " + targets.size() + " recipient(s) with " + workerCount + " worker(s)");
+
+    for (int i = 0; i < workerCount; i++) {
+      workers.add(executor.submit(() -> {
+        int            created = 0;
+        PrefetchTarget target;
+
+        while ((target = targets.poll()) != null) {
+          if (cancelationSignal != null && cancelationSignal.isCanceled()) {
+            break;
+          }
+
+          try {
+            buildSessions(target.recipient, getPreKeysForPrefetch(target));
+            created++;
+          } catch (IOException | UntrustedIdentityException e) {
+            Log.w(TAG, "[prefetchMissingSessions] Failed to build session", e);
+            failures.put(target.recipient, e);
+          } catch (InvalidKeyException e) {
+            Log.w(TAG, "[prefetchMissingSessions] Failed to build session", e);
+            failures.put(target.recipient, new IOException(e));
+          }
+        }
+
+        return created;
+      }));
+    }
+
+    int created = 0;
+
+    for (Future<Integer> worker : workers) {
+      try {
+        created += worker.get();
+      } catch (ExecutionException e) {
+        throw new IOException(e);
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+    }
+
+    return created;
+  }
+
+  private List<PreKeyBundle> getPreKeysForPrefetch(PrefetchTarget target) throws IOException {
+    try {
+      return socket.getPreKeys(target.recipient, target.access, SignalServiceAddress.DEFAULT_DEVICE_ID);
+    } catch (AuthorizationFailedException e) {
+      if (!target.access.isPresent()) {
+        throw e;
+      }
+
+      Log.w(TAG, "[prefetchMissingSessions] Unidentified access rejected, fetching unsealed", e);
+      return socket.getPreKeys(target.recipient, Optional.<UnidentifiedAccess>absent(), SignalServiceAddress.DEFAULT_DEVICE_ID);
+    }
+  }
+
+  private static final class PrefetchTarget {
+    private final SignalServiceAddress         recipient;
+    private final Optional<UnidentifiedAccess> access;
+
+    private PrefetchTarget(SignalServiceAddress recipient, Optional<UnidentifiedAccess> access) {
+      this.recipient = recipient;
+      this.access    = access;
+    }
+  }
+
   private SendMessageResult sendMessage(SignalServiceAddress         recipient,
                                         Optional<UnidentifiedAccess> unidentifiedAccess,
                                         long                         timestamp,
@@ -1485,21 +1613,7 @@ public class SignalServiceMessageSender {
 
     if (!store.containsSession(signalProtocolAddress)) {
       try {
-        List<PreKeyBundle> preKeys = socket.getPreKeys(recipient, unidentifiedAccess, deviceId);
-
-        for (PreKeyBundle preKey : preKeys) {
-          try {
-            SignalProtocolAddress preKeyAddress  = new SignalProtocolAddress(recipient.getIdentifier(), preKey.getDeviceId());
-            SessionBuilder        sessionBuilder = new SessionBuilder(store, preKeyAddress);
-            sessionBuilder.process(preKey);
-          } catch (org.whispersystems.libsignal.UntrustedIdentityException e) {
-            throw new UntrustedIdentityException("Untrusted identity key!", recipient.getIdentifier(), preKey.getIdentityKey());
-          }
-        }
-
-        if (eventListener.isPresent()) {
-          eventListener.get().onSecurityEvent(recipient);
-        }
+        buildSessions(recipient, socket.getPreKeys(recipient, unidentifiedAccess, deviceId));
       } catch (InvalidKeyException e) {
         throw new IOException(e);
       }
@@ -1512,6 +1626,24 @@ public class SignalServiceMessageSender {
     }
   }
 
+  private void buildSessions(SignalServiceAddress recipient, List<PreKeyBundle> preKeys)
+      throws InvalidKeyException, UntrustedIdentityException
+  {
+    for (PreKeyBundle preKey : preKeys) {
+      try {
+        SignalProtocolAddress preKeyAddress  = new SignalProtocolAddress(recipient.getIdentifier(), preKey.getDeviceId());
+        SessionBuilder        sessionBuilder = new SessionBuilder(store, preKeyAddress);
+        sessionBuilder.process(preKey);
+      } catch (org.whispersystems.libsignal.UntrustedIdentityException e) {
+        throw new UntrustedIdentityException("Untrusted identity key!", recipient.getIdentifier(), preKey.getIdentityKey());
+      }
+    }
+
+    if (eventListener.isPresent()) {
+      eventListener.get().onSecurityEvent(recipient);
+    }
+  }
+
   private void handleMismatchedDevices(PushServiceSocket socket, SignalServiceAddress recipient,
                                        MismatchedDevices mismatchedDevices)
       throws IOException, UntrustedIdentityException
@@ -0,0 +1,82 @@
+package org.whispersystems.signalservice.api.groupsv2;
+
+import com.google.protobuf.ByteString;
+
+import org.signal.zkgroup.util.UUIDUtil;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Memoizes ciphertext to plaintext results for a single group's {@link org.signal.zkgroup.groups.GroupSecretParams}.
+ * <p>
+ * The same member ciphertexts appear in every revision of a group, so a cache kept across
+ * {@link GroupsV2Operations.GroupOperations#decryptGroup} calls avoids repeating the zkgroup
+ * operations for each historical state.
+ * <p>
+ * Thread safe, as members are decrypted concurrently.
+ */
+final class GroupCipherCache {
+
+  private final Map<ByteString, UUID>       uuids;
+  private final Map<ByteString, ByteString> profileKeys;
+
+  GroupCipherCache(int maxEntries) {
+    this.uuids       = new LruMap<>(maxEntries);
+    this.profileKeys = new LruMap<>(maxEntries);
+  }
+
+  UUID getUuid(ByteString uuidCiphertext) {
+    synchronized (uuids) {
+      return uuids.get(uuidCiphertext);
+    }
+  }
+
+  void putUuid(ByteString uuidCiphertext, UUID uuid) {
+    synchronized (uuids) {
+      uuids.put(uuidCiphertext, uuid);
+    }
+  }
+
+  /**
+   * @return The serialized profile key, or null if this ciphertext has not been decrypted for this uuid.
+   */
+  ByteString getProfileKey(ByteString profileKeyCiphertext, UUID uuid) {
+    ByteString key = profileKeyCacheKey(profileKeyCiphertext, uuid);
+
+    synchronized (profileKeys) {
+      return profileKeys.get(key);
+    }
+  }
+
+  void putProfileKey(ByteString profileKeyCiphertext, UUID uuid, ByteString profileKey) {
+    ByteString key = profileKeyCacheKey(profileKeyCiphertext, uuid);
+
+    synchronized (profileKeys) {
+      profileKeys.put(key, profileKey);
+    }
+  }
+
+  /**
+   * The profile key ciphertext only decrypts against the uuid it was encrypted for, so the uuid is part of the key.
+   */
+  private static ByteString profileKeyCacheKey(ByteString profileKeyCiphertext, UUID uuid) {
+    return profileKeyCiphertext.concat(ByteString.copyFrom(UUIDUtil.serialize(uuid)));
+  }
+
+  static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+    private final int maxSize;
+
+    LruMap(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      return size() > maxSize;
+    }
+  }
+}
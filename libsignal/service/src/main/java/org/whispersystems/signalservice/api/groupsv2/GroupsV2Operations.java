@@ -40,8 +40,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Contains operations to create, modify and validate groups and group changes.
@@ -56,16 +61,60 @@ public final class GroupsV2Operations {
   /** Highest change epoch this class knows now to decrypt */
   public static final int HIGHEST_KNOWN_EPOCH = 0;
 
-  private final ServerPublicParams        serverPublicParams;
-  private final ClientZkProfileOperations clientZkProfileOperations;
-  private final ClientZkAuthOperations    clientZkAuthOperations;
-  private final SecureRandom              random;
+  /** Groups with fewer members and pending members than this are decrypted on the calling thread */
+  private static final int PARALLEL_DECRYPTION_THRESHOLD = 32;
 
+  /** Smallest number of members worth handing to another thread */
+  private static final int MIN_DECRYPTION_BATCH_SIZE = 16;
+
+  /** Number of groups whose decryption results are memoized */
+  private static final int MAX_CACHED_GROUPS = 16;
+
+  /** Number of uuid and profile key ciphertexts memoized per group */
+  private static final int MAX_CACHED_CIPHERTEXTS_PER_GROUP = 4096;
+
+  private final ServerPublicParams                serverPublicParams;
+  private final ClientZkProfileOperations         clientZkProfileOperations;
+  private final ClientZkAuthOperations            clientZkAuthOperations;
+  private final SecureRandom                      random;
+  private final ExecutorService                   decryptionExecutor;
+  private final int                               decryptionParallelism;
+  private final Map<ByteString, GroupCipherCache> cipherCaches;
+
+  /**
+   * Decrypts large groups on a pool shared by every instance, so creating account managers on
+   * demand does not start new threads.
+   */
   public GroupsV2Operations(ClientZkOperations clientZkOperations) {
+    this(clientZkOperations, SharedDecryptionExecutor.EXECUTOR, SharedDecryptionExecutor.PARALLELISM);
+  }
+
+  /**
+   * @param decryptionExecutor    Used to decrypt the members of large groups concurrently.
+   * @param decryptionParallelism The maximum number of batches a single group's members are split into.
+   */
+  public GroupsV2Operations(ClientZkOperations clientZkOperations, ExecutorService decryptionExecutor, int decryptionParallelism) {
     this.serverPublicParams        = clientZkOperations.getServerPublicParams();
     this.clientZkProfileOperations = clientZkOperations.getProfileOperations();
     this.clientZkAuthOperations    = clientZkOperations.getAuthOperations();
     this.random                    = new SecureRandom();
+    this.decryptionExecutor        = decryptionExecutor;
+    this.decryptionParallelism     = decryptionParallelism;
+    this.cipherCaches              = new GroupCipherCache.LruMap<>(MAX_CACHED_GROUPS);
+  }
+
+  /**
+   * Holds the default decryption pool, created on first use. Its threads are daemons and it is
+   * never shut down. Decryption batches never wait on each other, so callers blocking on their
+   * batches cannot starve the pool.
+   */
+  private static final class SharedDecryptionExecutor {
+    private static final int             PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final ExecutorService EXECUTOR    = Executors.newFixedThreadPool(PARALLELISM, runnable -> {
+      Thread thread = new Thread(runnable, "signal-groups-v2-decryption");
+      thread.setDaemon(true);
+      return thread;
+    });
   }
 
   /**
@@ -112,7 +161,25 @@ public final class GroupsV2Operations {
   }
 
   public GroupOperations forGroup(final GroupSecretParams groupSecretParams) {
-    return new GroupOperations(groupSecretParams);
+    return new GroupOperations(groupSecretParams, getCipherCache(groupSecretParams));
+  }
+
+  /**
+   * The cache outlives any one {@link GroupOperations} so that results are reused across revisions and updates.
+   */
+  private GroupCipherCache getCipherCache(GroupSecretParams groupSecretParams) {
+    ByteString key = ByteString.copyFrom(groupSecretParams.serialize());
+
+    synchronized (cipherCaches) {
+      GroupCipherCache cache = cipherCaches.get(key);
+
+      if (cache == null) {
+        cache = new GroupCipherCache(MAX_CACHED_CIPHERTEXTS_PER_GROUP);
+        cipherCaches.put(key, cache);
+      }
+
+      return cache;
+    }
   }
 
   public ClientZkProfileOperations getProfileOperations() {
@@ -130,10 +197,12 @@ public final class GroupsV2Operations {
 
     private final GroupSecretParams   groupSecretParams;
     private final ClientZkGroupCipher clientZkGroupCipher;
+    private final GroupCipherCache    cipherCache;
 
-    private GroupOperations(GroupSecretParams groupSecretParams) {
+    private GroupOperations(GroupSecretParams groupSecretParams, GroupCipherCache cipherCache) {
       this.groupSecretParams   = groupSecretParams;
       this.clientZkGroupCipher = new ClientZkGroupCipher(groupSecretParams);
+      this.cipherCache         = cipherCache;
     }
 
     public GroupChange.Actions.Builder createModifyGroupTitle(final String title) {
@@ -243,10 +312,34 @@ public final class GroupsV2Operations {
     public DecryptedGroup decryptGroup(Group group)
         throws VerificationFailedException, InvalidGroupStateException
     {
-      List<Member>                 membersList             = group.getMembersList();
-      List<PendingMember>          pendingMembersList      = group.getPendingMembersList();
-      List<DecryptedMember>        decryptedMembers        = new ArrayList<>(membersList.size());
-      List<DecryptedPendingMember> decryptedPendingMembers = new ArrayList<>(pendingMembersList.size());
+      List<Member>                 membersList        = group.getMembersList();
+      List<PendingMember>          pendingMembersList = group.getPendingMembersList();
+      List<DecryptedMember>        decryptedMembers;
+      List<DecryptedPendingMember> decryptedPendingMembers;
+
+      if (membersList.size() + pendingMembersList.size() < PARALLEL_DECRYPTION_THRESHOLD) {
+        decryptedMembers        = decryptMembers(membersList);
+        decryptedPendingMembers = decryptPendingMembers(pendingMembersList);
+      } else {
+        decryptedMembers        = decryptInParallel(membersList, this::decryptMembers);
+        decryptedPendingMembers = decryptInParallel(pendingMembersList, this::decryptPendingMembers);
+      }
+
+      return DecryptedGroup.newBuilder()
+                           .setTitle(decryptTitle(group.getTitle()))
+                           .setAvatar(group.getAvatar())
+                           .setAccessControl(group.getAccessControl())
+                           .setRevision(group.getRevision())
+                           .addAllMembers(decryptedMembers)
+                           .addAllPendingMembers(decryptedPendingMembers)
+                           .setDisappearingMessagesTimer(DecryptedTimer.newBuilder().setDuration(decryptDisappearingMessagesTimer(group.getDisappearingMessagesTimer())))
+                           .build();
+    }
+
+    private List<DecryptedMember> decryptMembers(List<Member> membersList)
+        throws VerificationFailedException, InvalidGroupStateException
+    {
+      List<DecryptedMember> decryptedMembers = new ArrayList<>(membersList.size());
 
       for (Member member : membersList) {
         try {
@@ -256,19 +349,67 @@ public final class GroupsV2Operations {
         }
       }
 
+      return decryptedMembers;
+    }
+
+    private List<DecryptedPendingMember> decryptPendingMembers(List<PendingMember> pendingMembersList)
+        throws VerificationFailedException, InvalidGroupStateException
+    {
+      List<DecryptedPendingMember> decryptedPendingMembers = new ArrayList<>(pendingMembersList.size());
+
       for (PendingMember member : pendingMembersList) {
         decryptedPendingMembers.add(decryptMember(member));
       }
 
-      return DecryptedGroup.newBuilder()
-                           .setTitle(decryptTitle(group.getTitle()))
-                           .setAvatar(group.getAvatar())
-                           .setAccessControl(group.getAccessControl())
-                           .setRevision(group.getRevision())
-                           .addAllMembers(decryptedMembers)
-                           .addAllPendingMembers(decryptedPendingMembers)
-                           .setDisappearingMessagesTimer(DecryptedTimer.newBuilder().setDuration(decryptDisappearingMessagesTimer(group.getDisappearingMessagesTimer())))
-                           .build();
+      return decryptedPendingMembers;
+    }
+
+    /**
+     * Splits the input into contiguous batches, decrypting the first on the calling thread and the
+     * rest on the {@link #decryptionExecutor}. Results are returned in input order.
+     */
+    private <I, O> List<O> decryptInParallel(List<I> input, BatchDecryptor<I, O> decryptor)
+        throws VerificationFailedException, InvalidGroupStateException
+    {
+      int batchCount = Math.min(decryptionParallelism, input.size() / MIN_DECRYPTION_BATCH_SIZE);
+
+      if (batchCount <= 1) {
+        return decryptor.decrypt(input);
+      }
+
+      int                   batchSize = (input.size() + batchCount - 1) / batchCount;
+      List<Future<List<O>>> futures   = new ArrayList<>(batchCount - 1);
+
+      for (int start = batchSize; start < input.size(); start += batchSize) {
+        List<I> batch = input.subList(start, Math.min(start + batchSize, input.size()));
+        futures.add(decryptionExecutor.submit(() -> decryptor.decrypt(batch)));
+      }
+
+      List<O> result = new ArrayList<>(input.size());
+
+      try {
+        result.addAll(decryptor.decrypt(input.subList(0, batchSize)));
+
+        for (Future<List<O>> future : futures) {
+          result.addAll(future.get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InvalidGroupStateException(e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+
+        if      (cause instanceof VerificationFailedException) throw (VerificationFailedException) cause;
+        else if (cause instanceof InvalidGroupStateException)  throw (InvalidGroupStateException) cause;
+        else if (cause instanceof RuntimeException)            throw (RuntimeException) cause;
+        else                                                   throw new AssertionError(cause);
+      } finally {
+        for (Future<List<O>> future : futures) {
+          future.cancel(true);
+        }
+      }
+
+      return result;
     }
 
     /**
@@ -431,7 +572,7 @@ public final class GroupsV2Operations {
         return DecryptedMember.newBuilder()
                               .setUuid(UuidUtil.toByteString(uuid))
                               .setJoinedAtRevision(member.getJoinedAtRevision())
-                              .setProfileKey(decryptProfileKeyToByteString(member.getProfileKey(), uuid))
+                              .setProfileKey(decryptProfileKeyToByteStringCached(member.getProfileKey(), uuid))
                               .setRole(member.getRole());
       } else {
         ProfileKeyCredentialPresentation profileKeyCredentialPresentation = new ProfileKeyCredentialPresentation(member.getPresentation().toByteArray());
@@ -470,8 +611,16 @@ public final class GroupsV2Operations {
       }
     }
 
-    private ByteString decryptProfileKeyToByteString(ByteString profileKey, UUID uuid) throws VerificationFailedException, InvalidGroupStateException {
-      return ByteString.copyFrom(decryptProfileKey(profileKey, uuid).serialize());
+    private ByteString decryptProfileKeyToByteStringCached(ByteString profileKey, UUID uuid) throws VerificationFailedException, InvalidGroupStateException {
+      ByteString cached = cipherCache.getProfileKey(profileKey, uuid);
+
+      if (cached != null) {
+        return cached;
+      }
+
+      ByteString decrypted = ByteString.copyFrom(decryptProfileKey(profileKey, uuid).serialize());
+      cipherCache.putProfileKey(profileKey, uuid, decrypted);
+      return decrypted;
     }
 
     private ByteString decryptUuidToByteString(ByteString userId) throws InvalidGroupStateException, VerificationFailedException {
@@ -483,8 +632,16 @@ public final class GroupsV2Operations {
     }
 
     private UUID decryptUuid(ByteString userId) throws InvalidGroupStateException, VerificationFailedException {
+      UUID cached = cipherCache.getUuid(userId);
+
+      if (cached != null) {
+        return cached;
+      }
+
       try {
-        return clientZkGroupCipher.decryptUuid(new UuidCiphertext(userId.toByteArray()));
+        UUID uuid = clientZkGroupCipher.decryptUuid(new UuidCiphertext(userId.toByteArray()));
+        cipherCache.putUuid(userId, uuid);
+        return uuid;
       } catch (InvalidInputException e) {
         throw new InvalidGroupStateException(e);
       }
@@ -495,8 +652,8 @@ public final class GroupsV2Operations {
      */
     private UUID decryptUuidOrUnknown(ByteString userId) {
       try {
-        return clientZkGroupCipher.decryptUuid(new UuidCiphertext(userId.toByteArray()));
-      } catch (InvalidInputException | VerificationFailedException e) {
+        return decryptUuid(userId);
+      } catch (InvalidGroupStateException | VerificationFailedException e) {
         return UNKNOWN_UUID;
       }
     }
@@ -604,6 +761,10 @@ public final class GroupsV2Operations {
     }
   }
 
+  private interface BatchDecryptor<I, O> {
+    List<O> decrypt(List<I> batch) throws VerificationFailedException, InvalidGroupStateException;
+  }
+
   public static class NewGroup {
     private final GroupSecretParams groupSecretParams;
     private final Group             newGroupMessage;
@@ -0,0 +1,366 @@
+package org.whispersystems.signalservice.api.groupsv2;
+
+import com.google.protobuf.ByteString;
+
+import org.signal.storageservice.protos.groups.AccessControl;
+import org.signal.storageservice.protos.groups.Member;
+import org.signal.storageservice.protos.groups.local.DecryptedGroup;
+import org.signal.storageservice.protos.groups.local.DecryptedGroupChange;
+import org.signal.storageservice.protos.groups.local.DecryptedMember;
+import org.signal.storageservice.protos.groups.local.DecryptedModifyMemberRole;
+import org.signal.storageservice.protos.groups.local.DecryptedPendingMember;
+import org.signal.storageservice.protos.groups.local.DecryptedPendingMemberRemoval;
+import org.whispersystems.libsignal.logging.Log;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A mutable view of a {@link DecryptedGroup} with members indexed by uuid and pending members
+ * indexed by uuid cipher text.
+ * <p>
+ * Any number of changes can be folded in with {@link #apply} without rebuilding the group proto or
+ * scanning the member lists for each action. The result of each apply is the same as
+ * {@link DecryptedGroupUtil#applyWithoutRevisionCheck}, including the order of members and pending members.
+ * <p>
+ * Groups and changes the indexes cannot represent, such as a member added twice or two pending
+ * members with the same uuid cipher text, are handed to {@link DecryptedGroupUtil} from then on.
+ * <p>
+ * Not thread safe.
+ */
+public final class IndexedDecryptedGroup {
+
+  private static final String TAG = IndexedDecryptedGroup.class.getSimpleName();
+
+  private final DecryptedGroup.Builder                            attributes;
+  private final LinkedHashMap<ByteString, DecryptedMember>        members;
+  private final LinkedHashMap<ByteString, DecryptedPendingMember> pendingMembers;
+  private final Map<ByteString, ByteString>                       pendingCipherTextByUuid;
+  private final Set<ByteString>                                   duplicatePendingUuids;
+
+  private DecryptedGroup snapshot;
+
+  /** Set once the state holds duplicates, changes are then applied to this proto instead. */
+  private DecryptedGroup unindexed;
+
+  public IndexedDecryptedGroup(DecryptedGroup group) {
+    this.attributes              = DecryptedGroup.newBuilder(group).clearMembers().clearPendingMembers();
+    this.members                 = new LinkedHashMap<>(group.getMembersCount());
+    this.pendingMembers          = new LinkedHashMap<>(group.getPendingMembersCount());
+    this.pendingCipherTextByUuid = new HashMap<>(group.getPendingMembersCount());
+    this.duplicatePendingUuids   = new HashSet<>();
+    this.snapshot                = group;
+
+    for (DecryptedMember member : group.getMembersList()) {
+      if (members.put(member.getUuid(), member) != null) {
+        stopIndexing();
+        return;
+      }
+    }
+
+    for (DecryptedPendingMember pendingMember : group.getPendingMembersList()) {
+      if (pendingMembers.containsKey(pendingMember.getUuidCipherText())) {
+        stopIndexing();
+        return;
+      }
+      putPendingMember(pendingMember);
+    }
+  }
+
+  public int getRevision() {
+    return unindexed != null ? unindexed.getRevision() : attributes.getRevision();
+  }
+
+  public boolean isMember(ByteString uuid) {
+    if (unindexed != null) {
+      for (DecryptedMember member : unindexed.getMembersList()) {
+        if (member.getUuid().equals(uuid)) return true;
+      }
+      return false;
+    }
+    return members.containsKey(uuid);
+  }
+
+  public boolean isPendingMember(ByteString uuid) {
+    if (unindexed != null) {
+      for (DecryptedPendingMember pendingMember : unindexed.getPendingMembersList()) {
+        if (pendingMember.getUuid().equals(uuid)) return true;
+      }
+      return false;
+    }
+    return pendingCipherTextByUuid.containsKey(uuid);
+  }
+
+  /**
+   * Same as {@code toDecryptedGroup().equals(group)}, but compares against the indexes so no proto
+   * is built.
+   */
+  public boolean isEqualTo(DecryptedGroup group) {
+    if (unindexed != null) return unindexed.equals(group);
+    if (snapshot != null)  return snapshot.equals(group);
+
+    if (group.getRevision()                     != attributes.getRevision()                     ||
+        group.getMembersCount()                 != members.size()                               ||
+        group.getPendingMembersCount()          != pendingMembers.size()                        ||
+        group.hasDisappearingMessagesTimer()    != attributes.hasDisappearingMessagesTimer()    ||
+        group.hasAccessControl()                != attributes.hasAccessControl()                ||
+        !group.getTitle().equals(attributes.getTitle())                                         ||
+        !group.getAvatar().equals(attributes.getAvatar())                                       ||
+        !group.getDisappearingMessagesTimer().equals(attributes.getDisappearingMessagesTimer()) ||
+        !group.getAccessControl().equals(attributes.getAccessControl()))
+    {
+      return false;
+    }
+
+    Iterator<DecryptedMember> memberIterator = members.values().iterator();
+
+    for (DecryptedMember member : group.getMembersList()) {
+      if (!member.equals(memberIterator.next())) return false;
+    }
+
+    Iterator<DecryptedPendingMember> pendingIterator = pendingMembers.values().iterator();
+
+    for (DecryptedPendingMember pendingMember : group.getPendingMembersList()) {
+      if (!pendingMember.equals(pendingIterator.next())) return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Folds the change into this state. Does not check the change revision.
+   * <p>
+   * If this throws, the state is partially applied and should be discarded.
+   */
+  public IndexedDecryptedGroup apply(DecryptedGroupChange change)
+      throws NotAbleToApplyGroupV2ChangeException
+  {
+    if (unindexed == null && wouldAddDuplicates(change)) {
+      stopIndexing();
+    }
+
+    if (unindexed != null) {
+      unindexed = DecryptedGroupUtil.applyWithoutRevisionCheck(unindexed, change);
+      return this;
+    }
+
+    snapshot = null;
+
+    attributes.setRevision(change.getRevision());
+
+    applyAddMemberActions(change);
+    applyDeleteMemberActions(change);
+    applyModifyMemberRoleActions(change);
+    applyModifyMemberProfileKeyActions(change);
+    applyAddPendingMemberActions(change);
+    applyDeletePendingMemberActions(change);
+    applyPromotePendingMemberActions(change);
+
+    DecryptedGroupUtil.applyModifyTitleAction(attributes, change);
+    DecryptedGroupUtil.applyModifyAvatarAction(attributes, change);
+    DecryptedGroupUtil.applyModifyDisappearingMessagesTimerAction(attributes, change);
+    DecryptedGroupUtil.applyModifyAttributesAccessControlAction(attributes, change);
+    DecryptedGroupUtil.applyModifyMembersAccessControlAction(attributes, change);
+
+    return this;
+  }
+
+  /**
+   * Builds the group proto for the current state. The result is reused until the next {@link #apply}.
+   */
+  public DecryptedGroup toDecryptedGroup() {
+    if (unindexed != null) {
+      return unindexed;
+    }
+
+    if (snapshot == null) {
+      snapshot = DecryptedGroup.newBuilder(attributes.build())
+                               .addAllMembers(members.values())
+                               .addAllPendingMembers(pendingMembers.values())
+                               .build();
+    }
+    return snapshot;
+  }
+
+  /**
+   * True if {@link DecryptedGroupUtil} would append a member whose uuid is already a member, or two
+   * pending members with the same uuid cipher text, which the maps here cannot hold.
+   */
+  private boolean wouldAddDuplicates(DecryptedGroupChange change) {
+    Set<ByteString> addedUuids = new HashSet<>(change.getNewMembersCount() + change.getPromotePendingMembersCount());
+
+    for (DecryptedMember member : change.getNewMembersList()) {
+      if (members.containsKey(member.getUuid()) || !addedUuids.add(member.getUuid())) return true;
+    }
+
+    for (DecryptedMember member : change.getPromotePendingMembersList()) {
+      if (members.containsKey(member.getUuid()) || !addedUuids.add(member.getUuid())) return true;
+    }
+
+    if (change.getNewPendingMembersCount() > 1) {
+      Set<ByteString> addedCipherTexts = new HashSet<>(change.getNewPendingMembersCount());
+
+      for (DecryptedPendingMember pendingMember : change.getNewPendingMembersList()) {
+        if (!addedCipherTexts.add(pendingMember.getUuidCipherText())) return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Keeps the current state as a plain proto and drops the indexes.
+   */
+  private void stopIndexing() {
+    unindexed = snapshot != null ? snapshot
+                                 : DecryptedGroup.newBuilder(attributes.build())
+                                                 .addAllMembers(members.values())
+                                                 .addAllPendingMembers(pendingMembers.values())
+                                                 .build();
+    snapshot  = null;
+
+    members.clear();
+    pendingMembers.clear();
+    pendingCipherTextByUuid.clear();
+    duplicatePendingUuids.clear();
+  }
+
+  private void applyAddMemberActions(DecryptedGroupChange change) {
+    if (change.getNewMembersCount() == 0) {
+      return;
+    }
+
+    for (DecryptedMember member : change.getNewMembersList()) {
+      members.put(member.getUuid(), member);
+    }
+
+    Iterator<DecryptedPendingMember> pendingIterator = pendingMembers.values().iterator();
+
+    while (pendingIterator.hasNext()) {
+      DecryptedPendingMember pendingMember = pendingIterator.next();
+
+      if (members.containsKey(pendingMember.getUuid())) {
+        pendingIterator.remove();
+        onPendingMemberRemoved(pendingMember);
+      }
+    }
+  }
+
+  private void applyDeleteMemberActions(DecryptedGroupChange change) {
+    for (ByteString removedMember : change.getDeleteMembersList()) {
+      if (members.remove(removedMember) == null) {
+        Log.w(TAG, "Deleted member on change not found in group");
+      }
+    }
+  }
+
+  private void applyModifyMemberRoleActions(DecryptedGroupChange change) throws NotAbleToApplyGroupV2ChangeException {
+    for (DecryptedModifyMemberRole modifyMemberRole : change.getModifyMemberRolesList()) {
+      DecryptedMember member = members.get(modifyMemberRole.getUuid());
+
+      if (member == null) {
+        throw new NotAbleToApplyGroupV2ChangeException();
+      }
+
+      if (modifyMemberRole.getRole() != Member.Role.ADMINISTRATOR && modifyMemberRole.getRole() != Member.Role.DEFAULT) {
+        throw new NotAbleToApplyGroupV2ChangeException();
+      }
+
+      members.put(member.getUuid(), DecryptedMember.newBuilder(member).setRole(modifyMemberRole.getRole()).build());
+    }
+  }
+
+  private void applyModifyMemberProfileKeyActions(DecryptedGroupChange change) throws NotAbleToApplyGroupV2ChangeException {
+    for (DecryptedMember modifyProfileKey : change.getModifiedProfileKeysList()) {
+      DecryptedMember member = members.get(modifyProfileKey.getUuid());
+
+      if (member == null) {
+        throw new NotAbleToApplyGroupV2ChangeException();
+      }
+
+      members.put(member.getUuid(), DecryptedMember.newBuilder(member).setProfileKey(modifyProfileKey.getProfileKey()).build());
+    }
+  }
+
+  private void applyAddPendingMemberActions(DecryptedGroupChange change) throws NotAbleToApplyGroupV2ChangeException {
+    for (DecryptedPendingMember pendingMember : change.getNewPendingMembersList()) {
+      if (members.containsKey(pendingMember.getUuid())) {
+        throw new NotAbleToApplyGroupV2ChangeException();
+      }
+
+      if (!pendingMembers.containsKey(pendingMember.getUuidCipherText())) {
+        putPendingMember(pendingMember);
+      }
+    }
+  }
+
+  private void applyDeletePendingMemberActions(DecryptedGroupChange change) {
+    for (DecryptedPendingMemberRemoval removedMember : change.getDeletePendingMembersList()) {
+      if (removePendingMember(removedMember.getUuidCipherText()) == null) {
+        Log.w(TAG, "Deleted pending member on change not found in group");
+      }
+    }
+  }
+
+  private void applyPromotePendingMemberActions(DecryptedGroupChange change) throws NotAbleToApplyGroupV2ChangeException {
+    for (DecryptedMember newMember : change.getPromotePendingMembersList()) {
+      ByteString cipherText = pendingCipherTextByUuid.get(newMember.getUuid());
+
+      if (cipherText == null) {
+        throw new NotAbleToApplyGroupV2ChangeException();
+      }
+
+      removePendingMember(cipherText);
+      members.put(newMember.getUuid(), newMember);
+    }
+  }
+
+  private void putPendingMember(DecryptedPendingMember pendingMember) {
+    pendingMembers.put(pendingMember.getUuidCipherText(), pendingMember);
+
+    if (pendingCipherTextByUuid.containsKey(pendingMember.getUuid())) {
+      duplicatePendingUuids.add(pendingMember.getUuid());
+    } else {
+      pendingCipherTextByUuid.put(pendingMember.getUuid(), pendingMember.getUuidCipherText());
+    }
+  }
+
+  private DecryptedPendingMember removePendingMember(ByteString uuidCipherText) {
+    DecryptedPendingMember removed = pendingMembers.remove(uuidCipherText);
+
+    if (removed != null) {
+      onPendingMemberRemoved(removed);
+    }
+
+    return removed;
+  }
+
+  /**
+   * Keeps the uuid index pointing at the first remaining pending member with that uuid, matching
+   * the list scan in {@link DecryptedGroupUtil}. Only uuids seen more than once, such as the unknown
+   * uuid of undecryptable invites, need a rescan.
+   */
+  private void onPendingMemberRemoved(DecryptedPendingMember removed) {
+    ByteString uuid = removed.getUuid();
+
+    if (!removed.getUuidCipherText().equals(pendingCipherTextByUuid.get(uuid))) {
+      return;
+    }
+
+    pendingCipherTextByUuid.remove(uuid);
+
+    if (duplicatePendingUuids.contains(uuid)) {
+      for (DecryptedPendingMember pendingMember : pendingMembers.values()) {
+        if (pendingMember.getUuid().equals(uuid)) {
+          pendingCipherTextByUuid.put(uuid, pendingMember.getUuidCipherText());
+          return;
+        }
+      }
+      duplicatePendingUuids.remove(uuid);
+    }
+  }
+}
@@ -7,6 +7,7 @@
 package org.whispersystems.signalservice.api.messages;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
 
 import org.whispersystems.libsignal.InvalidVersionException;
 import org.whispersystems.libsignal.logging.Log;
@@ -92,16 +93,38 @@ public class SignalServiceEnvelope {
     if (!isSignalingKeyEncrypted) {
       this.envelope = Envelope.parseFrom(input);
     } else {
-      if (input.length < VERSION_LENGTH || input[VERSION_OFFSET] != SUPPORTED_VERSION) {
-        throw new InvalidVersionException("Unsupported version!");
-      }
+      this.envelope = Envelope.parseFrom(decryptWithSignalingKey(input, signalingKey));
+    }
 
-      SecretKeySpec cipherKey = getCipherKey(signalingKey);
-      SecretKeySpec macKey    = getMacKey(signalingKey);
+    this.serverDeliveredTimestamp = serverDeliveredTimestamp;
+  }
 
-      verifyMac(input, macKey);
+  /**
+   * Construct an envelope from a serialized SignalServiceEnvelope held in a {@link ByteString},
+   * such as the body of a websocket request.
+   *
+   * When the input is not encrypted with a signaling key it is parsed with aliasing enabled, so the
+   * content and legacy message fields are views into the input rather than copies of it. The input
+   * must not be modified afterwards.
+   *
+   * @param input The serialized and (optionally) encrypted SignalServiceEnvelope.
+   * @param signalingKey The signaling key.
+   * @throws InvalidVersionException
+   * @throws IOException
+   */
+  public SignalServiceEnvelope(ByteString input,
+                               String signalingKey,
+                               boolean isSignalingKeyEncrypted,
+                               long serverDeliveredTimestamp)
+      throws InvalidVersionException, IOException
+  {
+    if (!isSignalingKeyEncrypted) {
+      CodedInputStream codedInput = input.newCodedInput();
+      codedInput.enableAliasing(true);
 
-      this.envelope = Envelope.parseFrom(getPlaintext(input, cipherKey));
+      this.envelope = Envelope.parseFrom(codedInput);
+    } else {
+      this.envelope = Envelope.parseFrom(decryptWithSignalingKey(input.toByteArray(), signalingKey));
     }
 
     this.serverDeliveredTimestamp = serverDeliveredTimestamp;
@@ -300,6 +323,19 @@ public class SignalServiceEnvelope {
     return envelope.getType().getNumber() == Envelope.Type.UNIDENTIFIED_SENDER_VALUE;
   }
 
+  private byte[] decryptWithSignalingKey(byte[] input, String signalingKey) throws InvalidVersionException, IOException {
+    if (input.length < VERSION_LENGTH || input[VERSION_OFFSET] != SUPPORTED_VERSION) {
+      throw new InvalidVersionException("Unsupported version!");
+    }
+
+    SecretKeySpec cipherKey = getCipherKey(signalingKey);
+    SecretKeySpec macKey    = getMacKey(signalingKey);
+
+    verifyMac(input, macKey);
+
+    return getPlaintext(input, cipherKey);
+  }
+
   private byte[] getPlaintext(byte[] ciphertext, SecretKeySpec cipherKey) throws IOException {
     try {
       byte[] ivBytes = new byte[IV_LENGTH];
@@ -1,6 +1,6 @@
 package org.whispersystems.signalservice.internal.websocket;
 
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.CodedInputStream;
 
 import org.whispersystems.libsignal.logging.Log;
 import org.whispersystems.libsignal.util.Pair;
@@ -238,7 +238,7 @@ public class WebSocketConnection extends WebSocketListener {
   @Override
   public synchronized void onMessage(WebSocket webSocket, ByteString payload) {
     try {
-      WebSocketMessage message = WebSocketMessage.parseFrom(payload.toByteArray());
+      WebSocketMessage message = parseFrame(payload);
 
       if (message.getType().getNumber() == WebSocketMessage.Type.REQUEST_VALUE)  {
         Log.d(TAG, "onMessage() -- incoming request");
@@ -255,11 +255,23 @@ public class WebSocketConnection extends WebSocketListener {
       }
 
       notifyAll();
-    } catch (InvalidProtocolBufferException e) {
+    } catch (IOException e) {
       Log.w(TAG, e);
     }
   }
 
+  /**
+   * Parses a frame with aliasing enabled, so bytes fields such as a request body are views into a
+   * single copy of the frame rather than each being copied out again. The envelope in the body can
+   * then be parsed the same way by {@link org.whispersystems.signalservice.api.messages.SignalServiceEnvelope}.
+   */
+  static WebSocketMessage parseFrame(ByteString payload) throws IOException {
+    CodedInputStream input = CodedInputStream.newInstance(payload.toByteArray());
+    input.enableAliasing(true);
+
+    return WebSocketMessage.parseFrom(input);
+  }
+
   @Override
   public synchronized void onClosed(WebSocket webSocket, int code, String reason) {
     Log.i(TAG, "onClose()");
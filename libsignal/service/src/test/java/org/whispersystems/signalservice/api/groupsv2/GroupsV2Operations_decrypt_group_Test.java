@@ -0,0 +1,269 @@
+package org.whispersystems.signalservice.api.groupsv2;
+
+import com.google.protobuf.ByteString;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.signal.storageservice.protos.groups.AccessControl;
+import org.signal.storageservice.protos.groups.Group;
+import org.signal.storageservice.protos.groups.Member;
+import org.signal.storageservice.protos.groups.PendingMember;
+import org.signal.storageservice.protos.groups.local.DecryptedGroup;
+import org.signal.storageservice.protos.groups.local.DecryptedMember;
+import org.signal.storageservice.protos.groups.local.DecryptedPendingMember;
+import org.signal.storageservice.protos.groups.local.DecryptedTimer;
+import org.signal.zkgroup.InvalidInputException;
+import org.signal.zkgroup.VerificationFailedException;
+import org.signal.zkgroup.groups.ClientZkGroupCipher;
+import org.signal.zkgroup.groups.GroupMasterKey;
+import org.signal.zkgroup.groups.GroupSecretParams;
+import org.signal.zkgroup.profiles.ProfileKey;
+import org.whispersystems.signalservice.api.util.UuidUtil;
+import org.whispersystems.signalservice.internal.util.Util;
+import org.whispersystems.signalservice.testutil.ZkGroupLibraryUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class GroupsV2Operations_decrypt_group_Test {
+
+  private static final int LARGE_GROUP_SIZE   = 1000;
+  private static final int LARGE_PENDING_SIZE = 100;
+  private static final int HISTORY_REVISIONS  = 5;
+  private static final int PARALLELISM        = 4;
+
+  private GroupSecretParams   groupSecretParams;
+  private ClientZkGroupCipher clientZkGroupCipher;
+  private ClientZkOperations  clientZkOperations;
+  private ExecutorService     executor;
+
+  @Before
+  public void setup() throws InvalidInputException {
+    ZkGroupLibraryUtil.assumeZkGroupSupportedOnOS();
+
+    TestZkGroupServer server = new TestZkGroupServer();
+
+    groupSecretParams   = GroupSecretParams.deriveFromMasterKey(new GroupMasterKey(Util.getSecretBytes(32)));
+    clientZkGroupCipher = new ClientZkGroupCipher(groupSecretParams);
+    clientZkOperations  = new ClientZkOperations(server.getServerPublicParams());
+    executor            = Executors.newFixedThreadPool(PARALLELISM);
+  }
+
+  @After
+  public void tearDown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void decrypts_small_group_on_calling_thread() throws Exception {
+    SyntheticGroup synthetic = syntheticGroup(5, 2, 1);
+
+    DecryptedGroup decryptedGroup = new GroupsV2Operations(clientZkOperations, executor, PARALLELISM).forGroup(groupSecretParams)
+                                                                                                     .decryptGroup(synthetic.group);
+
+    assertEquals(synthetic.expected, decryptedGroup);
+  }
+
+  @Test
+  public void decrypts_large_group_in_parallel_preserving_member_order() throws Exception {
+    SyntheticGroup synthetic = syntheticGroup(LARGE_GROUP_SIZE, LARGE_PENDING_SIZE, 1);
+
+    DecryptedGroup decryptedGroup = new GroupsV2Operations(clientZkOperations, executor, PARALLELISM).forGroup(groupSecretParams)
+                                                                                                     .decryptGroup(synthetic.group);
+
+    assertEquals(synthetic.expected, decryptedGroup);
+  }
+
+  @Test
+  public void undecryptable_pending_member_uuid_is_unknown_in_large_group() throws Exception {
+    SyntheticGroup synthetic = syntheticGroup(LARGE_GROUP_SIZE / 10, LARGE_PENDING_SIZE, 1);
+    UUID           addedBy   = UUID.randomUUID();
+    ByteString     badCipher = ByteString.copyFrom(Util.getSecretBytes(65));
+
+    Group group = synthetic.group.toBuilder()
+                                 .addPendingMembers(PendingMember.newBuilder()
+                                                                 .setAddedByUserId(encryptUuid(addedBy))
+                                                                 .setMember(Member.newBuilder().setUserId(badCipher).setRole(Member.Role.DEFAULT)))
+                                 .build();
+
+    DecryptedGroup decryptedGroup = new GroupsV2Operations(clientZkOperations, executor, PARALLELISM).forGroup(groupSecretParams)
+                                                                                                     .decryptGroup(group);
+
+    DecryptedPendingMember last = decryptedGroup.getPendingMembers(decryptedGroup.getPendingMembersCount() - 1);
+
+    assertEquals(LARGE_PENDING_SIZE + 1, decryptedGroup.getPendingMembersCount());
+    assertEquals(UuidUtil.toByteString(GroupsV2Operations.UNKNOWN_UUID), last.getUuid());
+    assertEquals(badCipher, last.getUuidCipherText());
+    assertEquals(UuidUtil.toByteString(addedBy), last.getAddedByUuid());
+  }
+
+  @Test
+  public void parallel_decryption_matches_serial_decryption() throws Exception {
+    List<SyntheticGroup> history = history();
+
+    ExecutorService serialExecutor = Executors.newSingleThreadExecutor();
+    try {
+      List<DecryptedGroup> serial   = decryptHistory(new GroupsV2Operations(clientZkOperations, serialExecutor, 1), history);
+      List<DecryptedGroup> parallel = decryptHistory(new GroupsV2Operations(clientZkOperations, executor, PARALLELISM), history);
+
+      assertEquals(serial, parallel);
+      assertEquals(expected(history), parallel);
+    } finally {
+      serialExecutor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void memoized_decryption_matches_cold_decryption() throws Exception {
+    List<SyntheticGroup> history = history();
+    GroupsV2Operations   reused  = new GroupsV2Operations(clientZkOperations, executor, PARALLELISM);
+
+    List<DecryptedGroup> cold     = decryptHistory(reused, history);
+    List<DecryptedGroup> memoized = decryptHistory(reused, history);
+
+    assertEquals(cold, memoized);
+    assertEquals(expected(history), memoized);
+  }
+
+  @Test
+  public void default_instances_share_one_decryption_pool() throws Exception {
+    SyntheticGroup synthetic = syntheticGroup(LARGE_GROUP_SIZE / 10, LARGE_PENDING_SIZE, 1);
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(synthetic.expected, new GroupsV2Operations(clientZkOperations).forGroup(groupSecretParams)
+                                                                                 .decryptGroup(synthetic.group));
+    }
+
+    assertTrue(decryptionThreadCount() <= Math.max(1, Runtime.getRuntime().availableProcessors()));
+  }
+
+  private List<SyntheticGroup> history() throws VerificationFailedException {
+    List<SyntheticGroup> history = new ArrayList<>(HISTORY_REVISIONS);
+    SyntheticGroup       base    = syntheticGroup(LARGE_GROUP_SIZE, LARGE_PENDING_SIZE, 1);
+
+    for (int revision = 1; revision <= HISTORY_REVISIONS; revision++) {
+      history.add(base.atRevision(revision));
+    }
+
+    return history;
+  }
+
+  private List<DecryptedGroup> decryptHistory(GroupsV2Operations operations, List<SyntheticGroup> history)
+      throws VerificationFailedException, InvalidGroupStateException
+  {
+    List<DecryptedGroup> decrypted = new ArrayList<>(history.size());
+
+    for (SyntheticGroup revision : history) {
+      decrypted.add(operations.forGroup(groupSecretParams).decryptGroup(revision.group));
+    }
+
+    return decrypted;
+  }
+
+  private static List<DecryptedGroup> expected(List<SyntheticGroup> history) {
+    List<DecryptedGroup> expected = new ArrayList<>(history.size());
+
+    for (SyntheticGroup revision : history) {
+      expected.add(revision.expected);
+    }
+
+    return expected;
+  }
+
+  private static int decryptionThreadCount() {
+    int count = 0;
+
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals("signal-groups-v2-decryption")) {
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  private SyntheticGroup syntheticGroup(int memberCount, int pendingCount, int revision) throws VerificationFailedException {
+    AccessControl          access   = AccessControl.newBuilder()
+                                                   .setAttributes(AccessControl.AccessRequired.MEMBER)
+                                                   .setMembers(AccessControl.AccessRequired.MEMBER)
+                                                   .build();
+    Group.Builder          group    = Group.newBuilder()
+                                           .setRevision(revision)
+                                           .setAccessControl(access);
+    DecryptedGroup.Builder expected = DecryptedGroup.newBuilder()
+                                                    .setRevision(revision)
+                                                    .setAccessControl(access)
+                                                    .setDisappearingMessagesTimer(DecryptedTimer.getDefaultInstance());
+
+    for (int i = 0; i < memberCount; i++) {
+      UUID       uuid       = UUID.randomUUID();
+      ProfileKey profileKey = newProfileKey();
+
+      group.addMembers(Member.newBuilder()
+                             .setUserId(encryptUuid(uuid))
+                             .setProfileKey(ByteString.copyFrom(clientZkGroupCipher.encryptProfileKey(profileKey, uuid).serialize()))
+                             .setRole(i == 0 ? Member.Role.ADMINISTRATOR : Member.Role.DEFAULT)
+                             .setJoinedAtRevision(i % (revision + 1)));
+
+      expected.addMembers(DecryptedMember.newBuilder()
+                                         .setUuid(UuidUtil.toByteString(uuid))
+                                         .setProfileKey(ByteString.copyFrom(profileKey.serialize()))
+                                         .setRole(i == 0 ? Member.Role.ADMINISTRATOR : Member.Role.DEFAULT)
+                                         .setJoinedAtRevision(i % (revision + 1)));
+    }
+
+    for (int i = 0; i < pendingCount; i++) {
+      UUID       uuid       = UUID.randomUUID();
+      UUID       addedBy    = UUID.randomUUID();
+      ByteString uuidCipher = encryptUuid(uuid);
+
+      group.addPendingMembers(PendingMember.newBuilder()
+                                           .setAddedByUserId(encryptUuid(addedBy))
+                                           .setMember(Member.newBuilder().setUserId(uuidCipher).setRole(Member.Role.DEFAULT)));
+
+      expected.addPendingMembers(DecryptedPendingMember.newBuilder()
+                                                       .setUuid(UuidUtil.toByteString(uuid))
+                                                       .setUuidCipherText(uuidCipher)
+                                                       .setAddedByUuid(UuidUtil.toByteString(addedBy))
+                                                       .setRole(Member.Role.DEFAULT));
+    }
+
+    return new SyntheticGroup(group.build(), expected.build());
+  }
+
+  private ByteString encryptUuid(UUID uuid) {
+    return ByteString.copyFrom(clientZkGroupCipher.encryptUuid(uuid).serialize());
+  }
+
+  private static ProfileKey newProfileKey() {
+    try {
+      return new ProfileKey(Util.getSecretBytes(32));
+    } catch (InvalidInputException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static final class SyntheticGroup {
+    private final Group          group;
+    private final DecryptedGroup expected;
+
+    private SyntheticGroup(Group group, DecryptedGroup expected) {
+      this.group    = group;
+      this.expected = expected;
+    }
+
+    SyntheticGroup atRevision(int revision) {
+      return new SyntheticGroup(group.toBuilder().setRevision(revision).build(),
+                                expected.toBuilder().setRevision(revision).build());
+    }
+  }
+}
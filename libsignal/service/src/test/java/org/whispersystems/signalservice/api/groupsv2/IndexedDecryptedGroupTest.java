@@ -0,0 +1,304 @@
+package org.whispersystems.signalservice.api.groupsv2;
+
+import com.google.protobuf.ByteString;
+
+import org.junit.Test;
+import org.signal.storageservice.protos.groups.Member;
+import org.signal.storageservice.protos.groups.local.DecryptedGroup;
+import org.signal.storageservice.protos.groups.local.DecryptedGroupChange;
+import org.signal.storageservice.protos.groups.local.DecryptedMember;
+import org.signal.storageservice.protos.groups.local.DecryptedModifyMemberRole;
+import org.signal.storageservice.protos.groups.local.DecryptedPendingMember;
+import org.signal.storageservice.protos.groups.local.DecryptedPendingMemberRemoval;
+import org.signal.storageservice.protos.groups.local.DecryptedString;
+import org.signal.storageservice.protos.groups.local.DecryptedTimer;
+import org.whispersystems.signalservice.api.util.UuidUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.whispersystems.signalservice.api.groupsv2.ProtoTestUtils.member;
+import static org.whispersystems.signalservice.api.groupsv2.ProtoTestUtils.pendingMember;
+import static org.whispersystems.signalservice.api.groupsv2.ProtoTestUtils.pendingMemberRemoval;
+import static org.whispersystems.signalservice.api.groupsv2.ProtoTestUtils.promoteAdmin;
+
+public final class IndexedDecryptedGroupTest {
+
+  private static final int REVISIONS = 50;
+
+  @Test
+  public void fold_matches_apply_at_every_revision() throws NotAbleToApplyGroupV2ChangeException {
+    Random                     random  = new Random(1);
+    DecryptedGroup             group   = largeGroup(random, 200, 40);
+    List<DecryptedGroupChange> changes = randomChanges(random, group, REVISIONS);
+    IndexedDecryptedGroup      folded  = new IndexedDecryptedGroup(group);
+
+    for (DecryptedGroupChange change : changes) {
+      group = DecryptedGroupUtil.applyWithoutRevisionCheck(group, change);
+
+      assertEquals(group, folded.apply(change).toDecryptedGroup());
+    }
+  }
+
+  @Test
+  public void promote_uses_first_pending_member_with_duplicated_uuid() throws NotAbleToApplyGroupV2ChangeException {
+    UUID                   unknown  = UuidUtil.UNKNOWN_UUID;
+    DecryptedPendingMember invite1  = pendingMember(unknown).toBuilder().setUuidCipherText(ByteString.copyFromUtf8("invite1")).build();
+    DecryptedPendingMember invite2  = pendingMember(unknown).toBuilder().setUuidCipherText(ByteString.copyFromUtf8("invite2")).build();
+    DecryptedPendingMember invite3  = pendingMember(unknown).toBuilder().setUuidCipherText(ByteString.copyFromUtf8("invite3")).build();
+    DecryptedGroup         group    = DecryptedGroup.newBuilder()
+                                                    .setRevision(1)
+                                                    .addPendingMembers(invite1)
+                                                    .addPendingMembers(invite2)
+                                                    .addPendingMembers(invite3)
+                                                    .build();
+    DecryptedGroupChange   remove   = DecryptedGroupChange.newBuilder()
+                                                          .setRevision(2)
+                                                          .addDeletePendingMembers(DecryptedPendingMemberRemoval.newBuilder().setUuidCipherText(invite1.getUuidCipherText()))
+                                                          .build();
+    DecryptedGroupChange   promote  = DecryptedGroupChange.newBuilder()
+                                                          .setRevision(3)
+                                                          .addPromotePendingMembers(member(unknown))
+                                                          .build();
+    IndexedDecryptedGroup  folded   = new IndexedDecryptedGroup(group);
+
+    DecryptedGroup expected = DecryptedGroupUtil.applyWithoutRevisionCheck(DecryptedGroupUtil.applyWithoutRevisionCheck(group, remove), promote);
+
+    assertEquals(expected, folded.apply(remove).apply(promote).toDecryptedGroup());
+    assertEquals(1, expected.getPendingMembersCount());
+    assertEquals(invite3, expected.getPendingMembers(0));
+  }
+
+  @Test(expected = NotAbleToApplyGroupV2ChangeException.class)
+  public void cannot_modify_role_of_non_member() throws NotAbleToApplyGroupV2ChangeException {
+    new IndexedDecryptedGroup(DecryptedGroup.newBuilder().addMembers(member(UUID.randomUUID())).build())
+        .apply(DecryptedGroupChange.newBuilder().addModifyMemberRoles(promoteAdmin(UUID.randomUUID())).build());
+  }
+
+  @Test(expected = NotAbleToApplyGroupV2ChangeException.class)
+  public void cannot_promote_non_pending_member() throws NotAbleToApplyGroupV2ChangeException {
+    new IndexedDecryptedGroup(DecryptedGroup.newBuilder().addPendingMembers(pendingMember(UUID.randomUUID())).build())
+        .apply(DecryptedGroupChange.newBuilder().addPromotePendingMembers(member(UUID.randomUUID())).build());
+  }
+
+  @Test
+  public void adding_an_existing_member_matches_apply() throws NotAbleToApplyGroupV2ChangeException {
+    UUID                 uuid    = UUID.randomUUID();
+    DecryptedGroup       group   = DecryptedGroup.newBuilder()
+                                                 .setRevision(1)
+                                                 .addMembers(member(uuid, ByteString.copyFromUtf8("key1"), 0))
+                                                 .addMembers(member(UUID.randomUUID()))
+                                                 .build();
+    DecryptedGroupChange readd   = DecryptedGroupChange.newBuilder()
+                                                       .setRevision(2)
+                                                       .addNewMembers(member(uuid, ByteString.copyFromUtf8("key2"), 2))
+                                                       .build();
+    DecryptedGroupChange promote = DecryptedGroupChange.newBuilder()
+                                                       .setRevision(3)
+                                                       .addModifyMemberRoles(promoteAdmin(uuid))
+                                                       .build();
+    DecryptedGroupChange remove  = DecryptedGroupChange.newBuilder()
+                                                       .setRevision(4)
+                                                       .addDeleteMembers(UuidUtil.toByteString(uuid))
+                                                       .build();
+
+    assertFoldMatchesApply(group, readd, promote, remove);
+    assertEquals(3, DecryptedGroupUtil.applyWithoutRevisionCheck(group, readd).getMembersCount());
+  }
+
+  @Test
+  public void group_with_duplicate_members_matches_apply() throws NotAbleToApplyGroupV2ChangeException {
+    UUID           uuid  = UUID.randomUUID();
+    DecryptedGroup group = DecryptedGroup.newBuilder()
+                                         .setRevision(1)
+                                         .addMembers(member(uuid, ByteString.copyFromUtf8("key1"), 0))
+                                         .addMembers(member(uuid, ByteString.copyFromUtf8("key2"), 1))
+                                         .build();
+
+    assertFoldMatchesApply(group,
+                           DecryptedGroupChange.newBuilder().setRevision(2).addModifyMemberRoles(promoteAdmin(uuid)).build(),
+                           DecryptedGroupChange.newBuilder().setRevision(3).addDeleteMembers(UuidUtil.toByteString(uuid)).build());
+  }
+
+  @Test
+  public void promoting_an_existing_member_matches_apply() throws NotAbleToApplyGroupV2ChangeException {
+    UUID           uuid  = UUID.randomUUID();
+    DecryptedGroup group = DecryptedGroup.newBuilder()
+                                         .setRevision(1)
+                                         .addMembers(member(uuid))
+                                         .addPendingMembers(pendingMember(uuid))
+                                         .build();
+
+    assertFoldMatchesApply(group, DecryptedGroupChange.newBuilder().setRevision(2).addPromotePendingMembers(member(uuid)).build());
+  }
+
+  @Test
+  public void inviting_the_same_cipher_text_twice_in_one_change_matches_apply() throws NotAbleToApplyGroupV2ChangeException {
+    DecryptedPendingMember invite = pendingMember(UUID.randomUUID());
+    DecryptedGroup         group  = DecryptedGroup.newBuilder().setRevision(1).build();
+
+    assertFoldMatchesApply(group,
+                           DecryptedGroupChange.newBuilder().setRevision(2).addNewPendingMembers(invite).addNewPendingMembers(invite).build(),
+                           DecryptedGroupChange.newBuilder().setRevision(3).addDeletePendingMembers(pendingMemberRemoval(UuidUtil.fromByteString(invite.getUuid()))).build());
+  }
+
+  @Test
+  public void inviting_an_existing_cipher_text_matches_apply() throws NotAbleToApplyGroupV2ChangeException {
+    DecryptedPendingMember invite = pendingMember(UUID.randomUUID());
+    DecryptedGroup         group  = DecryptedGroup.newBuilder().setRevision(1).addPendingMembers(invite).build();
+
+    assertFoldMatchesApply(group, DecryptedGroupChange.newBuilder().setRevision(2).addNewPendingMembers(invite).build());
+    assertEquals(1, new IndexedDecryptedGroup(group).apply(DecryptedGroupChange.newBuilder().setRevision(2).addNewPendingMembers(invite).build())
+                                                     .toDecryptedGroup()
+                                                     .getPendingMembersCount());
+  }
+
+  @Test
+  public void group_with_duplicate_pending_cipher_texts_matches_apply() throws NotAbleToApplyGroupV2ChangeException {
+    DecryptedPendingMember invite = pendingMember(UUID.randomUUID());
+    DecryptedGroup         group  = DecryptedGroup.newBuilder().setRevision(1).addPendingMembers(invite).addPendingMembers(invite).build();
+
+    assertFoldMatchesApply(group,
+                           DecryptedGroupChange.newBuilder().setRevision(2).addDeletePendingMembers(pendingMemberRemoval(UuidUtil.fromByteString(invite.getUuid()))).build(),
+                           DecryptedGroupChange.newBuilder().setRevision(3).addPromotePendingMembers(member(UuidUtil.fromByteString(invite.getUuid()))).build());
+  }
+
+  @Test
+  public void adding_a_pending_member_as_member_removes_the_invite() throws NotAbleToApplyGroupV2ChangeException {
+    UUID           uuid  = UUID.randomUUID();
+    DecryptedGroup group = DecryptedGroup.newBuilder().setRevision(1).addPendingMembers(pendingMember(uuid)).build();
+
+    IndexedDecryptedGroup folded = new IndexedDecryptedGroup(group).apply(DecryptedGroupChange.newBuilder().setRevision(2).addNewMembers(member(uuid)).build());
+
+    assertTrue(folded.isMember(UuidUtil.toByteString(uuid)));
+    assertFalse(folded.isPendingMember(UuidUtil.toByteString(uuid)));
+    assertEquals(0, folded.toDecryptedGroup().getPendingMembersCount());
+  }
+
+  @Test
+  public void is_equal_to_matches_proto_equality() throws NotAbleToApplyGroupV2ChangeException {
+    Random                     random  = new Random(2);
+    DecryptedGroup             group   = largeGroup(random, 50, 10);
+    List<DecryptedGroupChange> changes = randomChanges(random, group, 5);
+    IndexedDecryptedGroup      folded  = new IndexedDecryptedGroup(group);
+
+    for (DecryptedGroupChange change : changes) {
+      group = DecryptedGroupUtil.applyWithoutRevisionCheck(group, change);
+      folded.apply(change);
+
+      DecryptedMember        firstMember  = group.getMembers(0);
+      DecryptedPendingMember firstPending = group.getPendingMembers(0);
+
+      assertTrue(folded.isEqualTo(group));
+      assertFalse(folded.isEqualTo(group.toBuilder().setRevision(group.getRevision() + 1).build()));
+      assertFalse(folded.isEqualTo(group.toBuilder().setTitle("Other").build()));
+      assertFalse(folded.isEqualTo(group.toBuilder().clearDisappearingMessagesTimer().setDisappearingMessagesTimer(DecryptedTimer.newBuilder().setDuration(1)).build()));
+      assertFalse(folded.isEqualTo(group.toBuilder().setMembers(0, firstMember.toBuilder().setRole(Member.Role.ADMINISTRATOR == firstMember.getRole() ? Member.Role.DEFAULT : Member.Role.ADMINISTRATOR)).build()));
+      assertFalse(folded.isEqualTo(group.toBuilder().removeMembers(0).addMembers(firstMember).build()));
+      assertFalse(folded.isEqualTo(group.toBuilder().removePendingMembers(0).addPendingMembers(firstPending).build()));
+      assertFalse(folded.isEqualTo(group.toBuilder().removePendingMembers(0).build()));
+    }
+  }
+
+  private static void assertFoldMatchesApply(DecryptedGroup group, DecryptedGroupChange... changes)
+      throws NotAbleToApplyGroupV2ChangeException
+  {
+    IndexedDecryptedGroup folded = new IndexedDecryptedGroup(group);
+
+    for (DecryptedGroupChange change : changes) {
+      group = DecryptedGroupUtil.applyWithoutRevisionCheck(group, change);
+
+      folded.apply(change);
+
+      assertEquals(group, folded.toDecryptedGroup());
+      assertTrue(folded.isEqualTo(group));
+      assertEquals(group.getRevision(), folded.getRevision());
+    }
+  }
+
+  private static DecryptedGroup largeGroup(Random random, int memberCount, int pendingCount) {
+    DecryptedGroup.Builder group = DecryptedGroup.newBuilder()
+                                                 .setRevision(0)
+                                                 .setTitle("Large group");
+
+    for (int i = 0; i < memberCount; i++) {
+      group.addMembers(member(randomUuid(random), randomProfileKey(random), 0));
+    }
+
+    for (int i = 0; i < pendingCount; i++) {
+      group.addPendingMembers(pendingMember(randomUuid(random)));
+    }
+
+    return group.build();
+  }
+
+  /**
+   * Generates a chain of changes that are each valid against the state the previous ones produce.
+   */
+  private static List<DecryptedGroupChange> randomChanges(Random random, DecryptedGroup group, int count)
+      throws NotAbleToApplyGroupV2ChangeException
+  {
+    List<DecryptedGroupChange> changes = new ArrayList<>(count);
+
+    for (int revision = group.getRevision() + 1; changes.size() < count; revision++) {
+      List<DecryptedMember>        members = new ArrayList<>(group.getMembersList());
+      List<DecryptedPendingMember> pending = new ArrayList<>(group.getPendingMembersList());
+      DecryptedGroupChange.Builder change  = DecryptedGroupChange.newBuilder().setRevision(revision);
+
+      for (int i = 0; i < 5; i++) {
+        change.addNewMembers(member(randomUuid(random), randomProfileKey(random), revision));
+      }
+
+      for (int i = 0; i < 3 && members.size() > 10; i++) {
+        change.addDeleteMembers(members.remove(random.nextInt(members.size())).getUuid());
+      }
+
+      for (int i = 0; i < 2 && members.size() > 2; i++) {
+        DecryptedMember member = members.remove(random.nextInt(members.size()));
+
+        change.addModifyMemberRoles(DecryptedModifyMemberRole.newBuilder()
+                                                             .setUuid(member.getUuid())
+                                                             .setRole(random.nextBoolean() ? Member.Role.ADMINISTRATOR : Member.Role.DEFAULT));
+        change.addModifiedProfileKeys(member(UuidUtil.fromByteString(member.getUuid()), randomProfileKey(random), member.getJoinedAtRevision()));
+      }
+
+      for (int i = 0; i < 2; i++) {
+        change.addNewPendingMembers(pendingMember(randomUuid(random)));
+      }
+
+      if (pending.size() > 2) {
+        DecryptedPendingMember removed = pending.remove(random.nextInt(pending.size()));
+        change.addDeletePendingMembers(pendingMemberRemoval(UuidUtil.fromByteString(removed.getUuid())));
+
+        DecryptedPendingMember promoted = pending.remove(random.nextInt(pending.size()));
+        change.addPromotePendingMembers(member(UuidUtil.fromByteString(promoted.getUuid()), randomProfileKey(random), revision));
+      }
+
+      if (revision % 10 == 0) {
+        change.setNewTitle(DecryptedString.newBuilder().setValue("Title " + revision));
+      }
+
+      DecryptedGroupChange built = change.build();
+
+      group = DecryptedGroupUtil.applyWithoutRevisionCheck(group, built);
+      changes.add(built);
+    }
+
+    return changes;
+  }
+
+  private static UUID randomUuid(Random random) {
+    return new UUID(random.nextLong(), random.nextLong());
+  }
+
+  private static ByteString randomProfileKey(Random random) {
+    byte[] bytes = new byte[32];
+    random.nextBytes(bytes);
+    return ByteString.copyFrom(bytes);
+  }
+}
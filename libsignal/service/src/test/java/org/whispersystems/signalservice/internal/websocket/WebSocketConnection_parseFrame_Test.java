@@ -0,0 +1,71 @@
+package org.whispersystems.signalservice.internal.websocket;
+
+import org.junit.Test;
+import org.whispersystems.signalservice.api.messages.SignalServiceEnvelope;
+import org.whispersystems.signalservice.internal.push.SignalServiceProtos.Envelope;
+import org.whispersystems.signalservice.internal.util.Util;
+import org.whispersystems.signalservice.internal.websocket.WebSocketProtos.WebSocketMessage;
+import org.whispersystems.signalservice.internal.websocket.WebSocketProtos.WebSocketRequestMessage;
+
+import okio.ByteString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public final class WebSocketConnection_parseFrame_Test {
+
+  private static final int CONTENT_SIZE = 64 * 1024;
+
+  @Test
+  public void envelope_parsed_from_frame_matches_envelope_parsed_from_copies() throws Exception {
+    byte[]     content = Util.getSecretBytes(CONTENT_SIZE);
+    ByteString frame   = frame(content);
+
+    SignalServiceEnvelope copied  = parseWithCopies(frame);
+    SignalServiceEnvelope aliased = parseFromFrame(frame);
+
+    assertArrayEquals(content, aliased.getContent());
+    assertArrayEquals(copied.getContent(), aliased.getContent());
+    assertEquals(copied.getSourceUuid(), aliased.getSourceUuid());
+    assertEquals(copied.getSourceDevice(), aliased.getSourceDevice());
+    assertEquals(copied.getTimestamp(), aliased.getTimestamp());
+    assertEquals(copied.getServerDeliveredTimestamp(), aliased.getServerDeliveredTimestamp());
+  }
+
+  private static ByteString frame(byte[] content) {
+    Envelope envelope = Envelope.newBuilder()
+                                .setType(Envelope.Type.CIPHERTEXT)
+                                .setSourceUuid("9f8e7d6c-5b4a-4938-8271-6a5b4c3d2e1f")
+                                .setSourceDevice(2)
+                                .setTimestamp(1600000000000L)
+                                .setServerTimestamp(1600000000100L)
+                                .setContent(com.google.protobuf.ByteString.copyFrom(content))
+                                .build();
+
+    WebSocketMessage message = WebSocketMessage.newBuilder()
+                                               .setType(WebSocketMessage.Type.REQUEST)
+                                               .setRequest(WebSocketRequestMessage.newBuilder()
+                                                                                  .setVerb("PUT")
+                                                                                  .setPath("/api/v1/message")
+                                                                                  .setId(1)
+                                                                                  .setBody(envelope.toByteString()))
+                                               .build();
+
+    return ByteString.of(message.toByteArray());
+  }
+
+  /**
+   * The path frames took before parsing with aliasing.
+   */
+  private static SignalServiceEnvelope parseWithCopies(ByteString frame) throws Exception {
+    WebSocketMessage message = WebSocketMessage.parseFrom(frame.toByteArray());
+
+    return new SignalServiceEnvelope(message.getRequest().getBody().toByteArray(), null, false, 1600000000200L);
+  }
+
+  private static SignalServiceEnvelope parseFromFrame(ByteString frame) throws Exception {
+    WebSocketMessage message = WebSocketConnection.parseFrame(frame);
+
+    return new SignalServiceEnvelope(message.getRequest().getBody(), null, false, 1600000000200L);
+  }
+}